@@ -0,0 +1,85 @@
+package de.claasklar.database.mongodb.codec;
+
+import de.claasklar.generation.ContextlessDocumentGeneratorBuilder;
+import de.claasklar.generation.DocumentGenerator;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.OurDocument;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generates and encodes a document with and without {@link BsonDocumentBuilderFactory}. Run with
+ * the GC profiler of {@link de.claasklar.jmh.JmhRunner} to compare the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class DocumentEncodingBenchmark {
+
+  private static final EncoderContext ENCODER_CONTEXT =
+      EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+
+  @State(Scope.Benchmark)
+  public static class Generator {
+    @Param({"MAP", "BSON"})
+    String builder;
+
+    @Param({"10", "50"})
+    int fields;
+
+    DocumentGenerator generator;
+    Codec<OurDocument> codec;
+    final AtomicLong ids = new AtomicLong();
+
+    @Setup
+    public void setup() {
+      var generatorBuilder = ContextlessDocumentGeneratorBuilder.builder();
+      for (int i = 0; i < fields; i++) {
+        var config = i % 3;
+        generatorBuilder.field(
+            "field" + i,
+            suppliers ->
+                switch (config) {
+                  case 0 -> suppliers.fixedString("value of a string field");
+                  case 1 -> suppliers.uniformIntSupplier(0, 1000);
+                  default -> suppliers.uniformLongSupplier(0, 1000);
+                });
+      }
+      if (builder.equals("BSON")) {
+        generatorBuilder.documentBuilderFactory(new BsonDocumentBuilderFactory(Set.of("field0")));
+      }
+      generator = generatorBuilder.build();
+      codec = new OurDocumentCodecRegistry().get(OurDocument.class);
+    }
+  }
+
+  /** Generates the document and encodes it like the driver does before sending it. */
+  @Benchmark
+  public int generateAndEncode(Generator generator) {
+    var document =
+        generator.generator.generateDocument(new IdLong(generator.ids.incrementAndGet()));
+    var buffer = new BasicOutputBuffer();
+    try (var writer = new BsonBinaryWriter(buffer)) {
+      generator.codec.encode(writer, document, ENCODER_CONTEXT);
+    }
+    return buffer.getPosition();
+  }
+}
@@ -0,0 +1,151 @@
+package de.claasklar.idStore;
+
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.random.distribution.StdRandomNumberGenerator;
+import de.claasklar.random.distribution.id.IdDistribution;
+import de.claasklar.random.distribution.id.UniformIdDistribution;
+import de.claasklar.random.distribution.id.UniqueIdDistribution;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the IdStore implementations for store, exists and a mixed workload of 90% exists
+ * and 10% store. The number of threads is set by {@link de.claasklar.jmh.JmhRunner}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class IdStoreBenchmark {
+
+  private static final CollectionName COLLECTION = new CollectionName("benchmark");
+  /** number of ids stored before every iteration, so exists finds ids */
+  private static final int PREFILLED_IDS = 1 << 20;
+
+  public enum Ids {
+    /**
+     * ascending ids shared by all threads, continuing after the prefilled ids like during the load
+     * phase
+     */
+    SEQUENTIAL,
+    /** uniform ids in a dense range */
+    UNIFORM,
+    /** uniform ids spread across the int range */
+    SPARSE
+  }
+
+  @State(Scope.Benchmark)
+  public static class Store {
+    @Param({
+      "ConcurrentInMemoryIdStore",
+      "RoaringIdStore",
+      "MetadataIdStore",
+      "MappedFileIdStore",
+      "SparseInMemoryIdStore",
+      "InMemoryIdStore",
+      "FileIdStore"
+    })
+    String implementation;
+
+    @Param({"SEQUENTIAL", "UNIFORM", "SPARSE"})
+    Ids ids;
+
+    IdStore idStore;
+    IdDistribution sequential;
+    // files of the file backed IdStores, deleted after every iteration
+    Path directory;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+      directory = Files.createTempDirectory("ycsb_ids_benchmark");
+      idStore =
+          switch (implementation) {
+            case "ConcurrentInMemoryIdStore" -> new ConcurrentInMemoryIdStore();
+            case "RoaringIdStore" -> new RoaringIdStore();
+            case "MetadataIdStore" -> new MetadataIdStore();
+            case "MappedFileIdStore" -> new MappedFileIdStore(directory);
+            case "SparseInMemoryIdStore" -> new SparseInMemoryIdStore();
+            case "InMemoryIdStore" -> new InMemoryIdStore();
+            case "FileIdStore" -> new FileIdStore(directory);
+            default -> throw new IllegalArgumentException("unknown IdStore " + implementation);
+          };
+      sequential = new UniqueIdDistribution();
+      var prefill = distribution(ids, sequential);
+      for (int i = 0; i < PREFILLED_IDS; i++) {
+        idStore.store(COLLECTION, prefill.nextAsLong());
+      }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+      if (idStore instanceof MappedFileIdStore mappedFileIdStore) {
+        mappedFileIdStore.close();
+      } else if (idStore instanceof FileIdStore fileIdStore) {
+        fileIdStore.close();
+      }
+      try (var files = Files.walk(directory)) {
+        for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadIds {
+    IdDistribution distribution;
+    SplittableRandom random;
+
+    @Setup(Level.Iteration)
+    public void setup(Store store) {
+      distribution = distribution(store.ids, store.sequential);
+      random = new SplittableRandom();
+    }
+  }
+
+  @Benchmark
+  public void store(Store store, ThreadIds threadIds) {
+    store.idStore.store(COLLECTION, threadIds.distribution.nextAsLong());
+  }
+
+  @Benchmark
+  public boolean exists(Store store, ThreadIds threadIds) {
+    return store.idStore.exists(COLLECTION, threadIds.distribution.nextAsLong());
+  }
+
+  @Benchmark
+  public boolean mixed(Store store, ThreadIds threadIds) {
+    var id = threadIds.distribution.nextAsLong();
+    if (threadIds.random.nextInt(10) == 0) {
+      store.idStore.store(COLLECTION, id);
+      return true;
+    }
+    return store.idStore.exists(COLLECTION, id);
+  }
+
+  private static IdDistribution distribution(Ids ids, IdDistribution sequential) {
+    return switch (ids) {
+      case SEQUENTIAL -> sequential;
+      case UNIFORM -> new UniformIdDistribution(2L * PREFILLED_IDS, new StdRandomNumberGenerator());
+      case SPARSE -> new UniformIdDistribution(Integer.MAX_VALUE, new StdRandomNumberGenerator());
+    };
+  }
+}
@@ -0,0 +1,42 @@
+package de.claasklar.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks once for every thread count, as JMH only supports one thread count per
+ * run. The gc profiler adds the allocation rate to the throughput. Results are written as one JSON
+ * file per thread count.
+ *
+ * <p>Arguments: result directory, comma separated thread counts, benchmark include pattern
+ */
+public class JmhRunner {
+
+  public static void main(String[] args) throws RunnerException, IOException {
+    if (args.length != 3) {
+      throw new IllegalArgumentException(
+          "usage: JmhRunner <result directory> <thread counts> <include pattern>");
+    }
+    var resultDirectory = Path.of(args[0]);
+    Files.createDirectories(resultDirectory);
+    var threadCounts = Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray();
+    for (var threads : threadCounts) {
+      var options =
+          new OptionsBuilder()
+              .include(args[2])
+              .threads(threads)
+              .addProfiler(GCProfiler.class)
+              .resultFormat(ResultFormatType.JSON)
+              .result(resultDirectory.resolve("threads-" + threads + ".json").toString())
+              .build();
+      new Runner(options).run();
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package de.claasklar.benchmark;
 
 import de.claasklar.database.Database;
+import de.claasklar.idStore.IdStoreRestore;
 import de.claasklar.phase.IndexPhase;
 import de.claasklar.phase.LoadPhase;
 import de.claasklar.phase.PhaseTopic;
@@ -26,6 +27,7 @@ public class Benchmark {
   private final List<ExecutorService> executors;
   private final Span applicationSpan;
   private final PhaseTopic phaseTopic;
+  private final IdStoreRestore idStoreRestore;
 
   public Benchmark(
       IndexPhase indexPhase,
@@ -35,6 +37,30 @@ public class Benchmark {
       List<ExecutorService> executors,
       Span applicationSpan,
       PhaseTopic phaseTopic) {
+    this(
+        indexPhase,
+        loadPhase,
+        transactionPhase,
+        database,
+        executors,
+        applicationSpan,
+        phaseTopic,
+        null);
+  }
+
+  /**
+   * @param idStoreRestore if not null, the index and load phase are skipped and the id store is
+   *     restored instead
+   */
+  public Benchmark(
+      IndexPhase indexPhase,
+      LoadPhase loadPhase,
+      TransactionPhase transactionPhase,
+      Database database,
+      List<ExecutorService> executors,
+      Span applicationSpan,
+      PhaseTopic phaseTopic,
+      IdStoreRestore idStoreRestore) {
     this.indexPhase = indexPhase;
     this.loadPhase = loadPhase;
     this.transactionPhase = transactionPhase;
@@ -42,14 +68,20 @@ public class Benchmark {
     this.executors = executors;
     this.applicationSpan = applicationSpan;
     this.phaseTopic = phaseTopic;
+    this.idStoreRestore = idStoreRestore;
   }
 
   public void runAll() throws InterruptedException {
     try {
-      phaseTopic.notifyObservers(PhaseTopic.BenchmarkPhase.INDEX);
-      indexPhase.createIndexes();
-      phaseTopic.notifyObservers(PhaseTopic.BenchmarkPhase.LOAD);
-      loadPhase.load();
+      if (idStoreRestore == null) {
+        phaseTopic.notifyObservers(PhaseTopic.BenchmarkPhase.INDEX);
+        indexPhase.createIndexes();
+        phaseTopic.notifyObservers(PhaseTopic.BenchmarkPhase.LOAD);
+        loadPhase.load();
+      } else {
+        logger.atInfo().log("restoring id store, skipping index and load phase");
+        idStoreRestore.restore();
+      }
       phaseTopic.notifyObservers(PhaseTopic.BenchmarkPhase.TRANSACTION);
       transactionPhase.run();
       logger.atInfo().log(() -> "version: " + TelemetryConfig.version());
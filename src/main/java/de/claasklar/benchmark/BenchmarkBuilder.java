@@ -4,14 +4,27 @@ import com.mongodb.ConnectionString;
 import com.mongodb.ReadConcern;
 import com.mongodb.ReadPreference;
 import com.mongodb.WriteConcern;
+import de.claasklar.database.CachingDatabase;
 import de.claasklar.database.Database;
+import de.claasklar.database.InMemoryDatabase;
+import de.claasklar.database.LatencyDatabase;
+import de.claasklar.database.file.FileDatabase;
+import de.claasklar.database.file.FsyncPolicy;
 import de.claasklar.database.mongodb.MongoDatabaseBuilder;
+import de.claasklar.database.mongodb.codec.BsonDocumentBuilderFactory;
 import de.claasklar.generation.ContextDocumentGenerator;
+import de.claasklar.generation.DocumentBuilderFactory;
 import de.claasklar.generation.DocumentGenerator;
 import de.claasklar.generation.QueryGenerator;
 import de.claasklar.generation.suppliers.VariableSuppliers;
+import de.claasklar.idStore.ConcurrentInMemoryIdStore;
+import de.claasklar.idStore.DatabaseIdStoreRestore;
 import de.claasklar.idStore.IdStore;
-import de.claasklar.idStore.SparseInMemoryIdStore;
+import de.claasklar.idStore.IdStoreRestore;
+import de.claasklar.idStore.IdStoreSnapshot;
+import de.claasklar.latency.HistogramLogReporter;
+import de.claasklar.latency.LatencyRecorder;
+import de.claasklar.latency.StatusReporter;
 import de.claasklar.phase.*;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.index.IndexConfiguration;
@@ -30,9 +43,11 @@ import de.claasklar.specification.*;
 import de.claasklar.util.Pair;
 import de.claasklar.util.TelemetryConfig;
 import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.metrics.LongCounter;
 import io.opentelemetry.api.metrics.LongHistogram;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.TracerProvider;
 import io.opentelemetry.extension.incubator.metrics.ExtendedLongHistogramBuilder;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
@@ -41,13 +56,18 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import java.nio.file.Path;
 import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
@@ -57,14 +77,19 @@ public class BenchmarkBuilder {
 
   private Function<List<CollectionName>, Database> databaseSupplier;
   private final OpenTelemetry openTelemetry;
-  private final Tracer tracer;
+  private Tracer tracer;
   private final LongHistogram transactionDurationHistogram;
+  private final LatencyRecorder latencyRecorder;
   private final DocumentGenerationSpecificationRegistry registry;
   private final List<DocumentGenerationSpecificationConfig> documentGenerationSpecificationConfigs;
   private final Map<String, PrimaryWriteSpecificationConfig> primaryWriteSpecificationConfigs;
   private final List<ReadSpecificationConfig> readSpecifications;
   private final List<IndexConfiguration> indexConfigurations;
+  private final Map<CollectionName, Long> cachedCollections;
   private final PhaseTopic phaseTopic;
+  private StatusReporterConfiguration statusReporterConfiguration;
+  private HistogramLogConfiguration histogramLogConfiguration;
+  private boolean encodeDocuments;
   @NotNull private LoadPhaseConfig loadPhaseConfig;
   @NotNull private TransactionPhaseConfig transactionPhaseConfig;
 
@@ -91,13 +116,16 @@ public class BenchmarkBuilder {
                 advice -> advice.setExplicitBucketBoundaries(TelemetryConfig.bucketBoundaries()))
             .setUnit("ms")
             .setDescription(
-                "Tracks duration of transactions across all specifications. Attributes give more detail about collection and operation.")
+                "Tracks duration of transactions across all specifications. Attributes give more"
+                    + " detail about collection and operation.")
             .build();
+    this.latencyRecorder = new LatencyRecorder();
     this.registry = new DocumentGenerationSpecificationRegistry();
     documentGenerationSpecificationConfigs = new LinkedList<>();
     primaryWriteSpecificationConfigs = new HashMap<>();
     readSpecifications = new LinkedList<>();
     indexConfigurations = new LinkedList<>();
+    cachedCollections = new HashMap<>();
     phaseTopic = new PhaseTopic();
   }
 
@@ -128,10 +156,31 @@ public class BenchmarkBuilder {
                 primaryWriteSpecificationConfigs.values().stream().map(it -> it.collectionName))
             .toList();
     database = databaseSupplier.apply(allCollections);
+    if (!cachedCollections.isEmpty()) {
+      database = new CachingDatabase(database, cachedCollections, documentCacheCounter());
+    }
     phaseTopic.register(database);
-    idStore = new SparseInMemoryIdStore();
+    phaseTopic.register(latencyRecorder);
+    idStore = new ConcurrentInMemoryIdStore();
     executorService = Executors.newVirtualThreadPerTaskExecutor();
     clock = Clock.systemUTC();
+    if (statusReporterConfiguration != null) {
+      phaseTopic.register(
+          new StatusReporter(
+              latencyRecorder,
+              statusReporterConfiguration.interval,
+              statusReporterConfiguration.file,
+              clock));
+    }
+    if (histogramLogConfiguration != null) {
+      phaseTopic.register(
+          new HistogramLogReporter(
+              latencyRecorder,
+              histogramLogConfiguration.interval,
+              histogramLogConfiguration.directory.resolve(
+                  HistogramLogConfiguration.RUN_DIRECTORY_FORMAT.format(clock.instant())),
+              clock));
+    }
     applicationSpan = tracer.spanBuilder(TelemetryConfig.APPLICATION_SPAN_NAME).startSpan();
     var executorServices = new HashSet<ExecutorService>();
 
@@ -149,9 +198,14 @@ public class BenchmarkBuilder {
       var violatingCollection = intersection.stream().findAny().get();
       throw new IllegalArgumentException(
           violatingCollection
-              + " is configured to be both stored in the database and recomputed. This is not possible");
+              + " is configured to be both stored in the database and recomputed. This is not"
+              + " possible");
     }
 
+    var documentBuilderFactories =
+        encodeDocuments
+            ? encodedDocumentBuilderFactories(allCollections)
+            : Map.<CollectionName, DocumentBuilderFactory>of();
     for (var computeSpecificationConfig : documentGenerationSpecificationConfigs) {
       DocumentGenerationSpecification specification;
       if (allComputeDocumentDistributions.contains(
@@ -163,7 +217,9 @@ public class BenchmarkBuilder {
                 computeSpecificationConfig.getReferencesDistributionConfigs().stream()
                     .map(
                         it -> {
-                          var distribution = this.buildReferencesDistribution(it);
+                          var distribution =
+                              this.buildReferencesDistribution(
+                                  it, computeSpecificationConfig.getDocumentGenerator());
                           executorServices.add(distribution.second());
                           return distribution.first();
                         })
@@ -172,14 +228,23 @@ public class BenchmarkBuilder {
                 executorService,
                 tracer);
       } else {
+        var documentBuilderFactory =
+            documentBuilderFactories.get(computeSpecificationConfig.getCollectionName());
+        var documentGenerator =
+            documentBuilderFactory == null
+                ? computeSpecificationConfig.getDocumentGenerator()
+                : computeSpecificationConfig
+                    .getDocumentGenerator()
+                    .withDocumentBuilderFactory(documentBuilderFactory);
         specification =
             new WriteSpecification(
                 computeSpecificationConfig.getCollectionName(),
-                computeSpecificationConfig.getDocumentGenerator(),
+                documentGenerator,
                 computeSpecificationConfig.getReferencesDistributionConfigs().stream()
                     .map(
                         it -> {
-                          var distribution = this.buildReferencesDistribution(it);
+                          var distribution =
+                              this.buildReferencesDistribution(it, documentGenerator);
                           executorServices.add(distribution.second());
                           return distribution.first();
                         })
@@ -188,6 +253,7 @@ public class BenchmarkBuilder {
                 idStore,
                 executorService,
                 transactionDurationHistogram,
+                latencyRecorder,
                 tracer,
                 clock);
       }
@@ -198,6 +264,11 @@ public class BenchmarkBuilder {
     var primaryWriteSpecificaitons = new HashMap<String, PrimaryWriteSpecification>();
     for (var primaryConfigEntry : primaryWriteSpecificationConfigs.entrySet()) {
       var primaryConfig = primaryConfigEntry.getValue();
+      var documentBuilderFactory = documentBuilderFactories.get(primaryConfig.collectionName);
+      var documentGenerator =
+          documentBuilderFactory == null
+              ? primaryConfig.documentGenerator
+              : primaryConfig.documentGenerator.withDocumentBuilderFactory(documentBuilderFactory);
       var specification =
           new PrimaryWriteSpecification(
               primaryConfig.collectionName,
@@ -205,15 +276,16 @@ public class BenchmarkBuilder {
               primaryConfig.referencesDistributionConfigs.stream()
                   .map(
                       it -> {
-                        var distribution = this.buildReferencesDistribution(it);
+                        var distribution = this.buildReferencesDistribution(it, documentGenerator);
                         executorServices.add(distribution.second());
                         return distribution.first();
                       })
                   .toArray(ReferencesDistribution[]::new),
-              primaryConfig.documentGenerator,
+              documentGenerator,
               database,
               executorService,
               transactionDurationHistogram,
+              latencyRecorder,
               idStore,
               tracer,
               clock);
@@ -230,6 +302,7 @@ public class BenchmarkBuilder {
                   variableSuppliers, new IdDistributionFactory()),
               database,
               transactionDurationHistogram,
+              latencyRecorder,
               tracer,
               clock);
       topLevelSpecifications.put(readSpecificationConfig.name, specification);
@@ -244,7 +317,10 @@ public class BenchmarkBuilder {
                 .collect(Collectors.toList()),
             loadPhaseConfig.numThreads,
             applicationSpan,
-            tracer);
+            tracer,
+            loadPhaseConfig.snapshotFile == null
+                ? null
+                : new IdStoreSnapshot(loadPhaseConfig.snapshotFile, idStore, allCollections));
 
     var transactionPhase = buildTransactionPhase(topLevelSpecifications);
 
@@ -255,7 +331,117 @@ public class BenchmarkBuilder {
         database,
         executorServices.stream().filter(Objects::nonNull).toList(),
         applicationSpan,
-        phaseTopic);
+        phaseTopic,
+        buildIdStoreRestore(allCollections, primaryWriteSpecificaitons.values()));
+  }
+
+  private LongCounter documentCacheCounter() {
+    return openTelemetry
+        .meterBuilder(TelemetryConfig.METRIC_SCOPE_NAME)
+        .setInstrumentationVersion(TelemetryConfig.version())
+        .build()
+        .counterBuilder("document_cache")
+        .setDescription(
+            "Counts hits, misses and evictions of the document cache. Attributes give the"
+                + " collection and event.")
+        .build();
+  }
+
+  private IdStoreRestore buildIdStoreRestore(
+      List<CollectionName> allCollections,
+      Collection<PrimaryWriteSpecification> primaryWriteSpecifications) {
+    if (loadPhaseConfig.restoreFile != null && loadPhaseConfig.restoreThreads != null) {
+      throw new IllegalArgumentException(
+          "the id store can either be restored from a snapshot or from the database");
+    }
+    if (loadPhaseConfig.restoreFile != null) {
+      return new IdStoreSnapshot(
+          loadPhaseConfig.restoreFile,
+          idStore,
+          allCollections,
+          continuePrimaryWrites(primaryWriteSpecifications));
+    }
+    if (loadPhaseConfig.restoreThreads != null) {
+      return new DatabaseIdStoreRestore(
+          database,
+          idStore,
+          allCollections,
+          loadPhaseConfig.restoreThreads,
+          applicationSpan,
+          continuePrimaryWrites(primaryWriteSpecifications));
+    }
+    return null;
+  }
+
+  /**
+   * Primary writes continue after the highest restored id of their collection, so they do not write
+   * ids of the loaded documents again. Primary writes of the same collection keep the distance of
+   * their id shifts.
+   */
+  private ObjLongConsumer<CollectionName> continuePrimaryWrites(
+      Collection<PrimaryWriteSpecification> primaryWriteSpecifications) {
+    return (collectionName, highestId) -> {
+      var specifications =
+          primaryWriteSpecifications.stream()
+              .filter(it -> it.getCollectionName().equals(collectionName))
+              .toList();
+      var lowestIdShift =
+          specifications.stream().mapToLong(PrimaryWriteSpecification::getIdShift).min();
+      for (var specification : specifications) {
+        specification.continueAfter(
+            highestId + specification.getIdShift() - lowestIdShift.getAsLong());
+      }
+    };
+  }
+
+  /**
+   * Written documents are built directly in their BSON encoding and only keep the top level fields,
+   * which the referencing generators read from them. Collections, whose whole documents are read by
+   * a referencing generator, are not encoded.
+   *
+   * @return document builder factories of the encoded collections
+   */
+  private Map<CollectionName, DocumentBuilderFactory> encodedDocumentBuilderFactories(
+      List<CollectionName> allCollections) {
+    var retainedFields = new HashMap<CollectionName, Set<String>>();
+    var wholeDocuments = new HashSet<CollectionName>();
+    Stream.concat(
+            primaryWriteSpecificationConfigs.values().stream()
+                .map(
+                    it ->
+                        new Pair<DocumentGenerator, List<ReferencesDistributionConfig>>(
+                            it.documentGenerator, it.referencesDistributionConfigs)),
+            documentGenerationSpecificationConfigs.stream()
+                .map(
+                    it ->
+                        new Pair<DocumentGenerator, List<ReferencesDistributionConfig>>(
+                            it.documentGenerator, it.referencesDistributionConfigs)))
+        .forEach(
+            referencing -> {
+              for (var config : referencing.second()) {
+                var collectionName = config.documentDistributionConfig.collectionName;
+                referencing
+                    .first()
+                    .referencedFields(collectionName)
+                    .ifPresentOrElse(
+                        fieldPaths ->
+                            fieldPaths.forEach(
+                                fieldPath ->
+                                    retainedFields
+                                        .computeIfAbsent(collectionName, it -> new HashSet<>())
+                                        .add(fieldPath.split("\\.")[0])),
+                        () -> wholeDocuments.add(collectionName));
+              }
+            });
+    var factories = new HashMap<CollectionName, DocumentBuilderFactory>();
+    for (var collectionName : allCollections) {
+      if (!wholeDocuments.contains(collectionName) && !factories.containsKey(collectionName)) {
+        factories.put(
+            collectionName,
+            new BsonDocumentBuilderFactory(retainedFields.getOrDefault(collectionName, Set.of())));
+      }
+    }
+    return factories;
   }
 
   private Set<@NotNull CollectionName> allWriteDocumentDistributions() {
@@ -282,21 +468,37 @@ public class BenchmarkBuilder {
         .collect(Collectors.toSet());
   }
 
+  /** Reads of referenced documents only fetch the fields, which the referencing generator reads. */
   private Pair<ReferencesDistribution, ExecutorService> buildReferencesDistribution(
-      ReferencesDistributionConfig config) {
-    var documentDistribution = buildDocumentDistribution(config.documentDistributionConfig);
+      ReferencesDistributionConfig config, DocumentGenerator referencingGenerator) {
+    var fieldPaths =
+        referencingGenerator
+            .referencedFields(config.documentDistributionConfig.collectionName)
+            .orElse(null);
+    var documentDistribution =
+        buildDocumentDistribution(config.documentDistributionConfig, fieldPaths);
     return new Pair<>(
         new DecoratorReferencesDistribution(
-            config.countDistribution, documentDistribution.first(), executorService),
+            config.countDistribution,
+            documentDistribution.first(),
+            executorService,
+            config.batchReads),
         documentDistribution.second());
   }
 
   private Pair<DocumentDistribution, ExecutorService> buildDocumentDistribution(
-      DocumentDistributionConfig config) {
+      DocumentDistributionConfig config, Set<String> fieldPaths) {
     if (config.existingDocumentDistributionConfig != null) {
       var simpleDocumentDistribution =
           new SimpleDocumentDistribution(
-              config.collectionName, config.idDistribution, idStore, database, registry, tracer);
+              config.collectionName,
+              config.idDistribution,
+              idStore,
+              database,
+              registry,
+              tracer,
+              fieldPaths,
+              executorService);
       ExecutorService existingExecutorService =
           config.existingDocumentDistributionConfig.executorService;
       if (existingExecutorService == null) {
@@ -308,7 +510,8 @@ public class BenchmarkBuilder {
               simpleDocumentDistribution,
               database,
               existingExecutorService,
-              tracer);
+              tracer,
+              config.existingDocumentDistributionConfig.sampleExisting);
       phaseTopic.register(existingDocumentDistribution);
       return new Pair<>(existingDocumentDistribution, existingExecutorService);
     } else if (config.recomputableDocumentDistributionConfig != null) {
@@ -318,7 +521,14 @@ public class BenchmarkBuilder {
     }
     return new Pair<>(
         new SimpleDocumentDistribution(
-            config.collectionName, config.idDistribution, idStore, database, registry, tracer),
+            config.collectionName,
+            config.idDistribution,
+            idStore,
+            database,
+            registry,
+            tracer,
+            fieldPaths,
+            executorService),
         null);
   }
 
@@ -383,7 +593,14 @@ public class BenchmarkBuilder {
                   .databaseWriteConcern(mongoConfiguration.databaseWriteConcern)
                   .databaseReadPreference(mongoConfiguration.databaseReadPreference)
                   .tracer(tracer)
-                  .openTelemetry(openTelemetry);
+                  .openTelemetry(openTelemetry)
+                  .latencyRecorder(latencyRecorder);
+          if (mongoConfiguration.batchMaxCount != null) {
+            builder.batchWrites(
+                mongoConfiguration.batchMaxCount,
+                mongoConfiguration.batchMaxBytes,
+                mongoConfiguration.batchLinger);
+          }
           for (var collectionReadPreference :
               mongoConfiguration.collectionsReadPreferences.entrySet()) {
             builder.collectionReadPreference(
@@ -398,11 +615,53 @@ public class BenchmarkBuilder {
             builder.collectionWriteConcerns(
                 collectionWriteConcern.getKey(), collectionWriteConcern.getValue());
           }
-          return builder.build();
+          return mongoConfiguration.reactiveDriver ? builder.buildReactive() : builder.build();
         };
     return this;
   }
 
+  /**
+   * Use an in memory database instead of MongoDB, which answers after a configurable service time.
+   * Useful for measuring the throughput of the benchmark itself.
+   *
+   * @see LatencyDatabase
+   * @param config applied to the in memory configuration
+   * @return this
+   */
+  public BenchmarkBuilder inMemoryDatabase(Consumer<InMemoryConfiguration> config) {
+    var inMemoryConfiguration = new InMemoryConfiguration();
+    config.accept(inMemoryConfiguration);
+    this.databaseSupplier =
+        (allCollections) ->
+            new LatencyDatabase(
+                new InMemoryDatabase(),
+                inMemoryConfiguration.defaultServiceTimes,
+                inMemoryConfiguration.serviceTimes,
+                inMemoryConfiguration.concurrencyLimit,
+                inMemoryConfiguration.queueing);
+    return this;
+  }
+
+  /**
+   * Use a database, which stores every collection in an append-only log file, instead of MongoDB.
+   * Useful for comparing schemas against a local storage engine.
+   *
+   * @see FileDatabase
+   * @param config applied to the file configuration
+   * @return this
+   */
+  public BenchmarkBuilder fileDatabase(Consumer<FileConfiguration> config) {
+    var fileConfiguration = new FileConfiguration();
+    config.accept(fileConfiguration);
+    this.databaseSupplier =
+        (allCollections) ->
+            new FileDatabase(
+                fileConfiguration.directory,
+                fileConfiguration.fsyncPolicy,
+                fileConfiguration.fsyncInterval);
+    return this;
+  }
+
   public static class MongoConfiguration {
     private final Map<CollectionName, ReadPreference> collectionsReadPreferences = new HashMap<>();
     private final Map<CollectionName, ReadConcern> collectionsReadConcerns = new HashMap<>();
@@ -411,6 +670,10 @@ public class BenchmarkBuilder {
     private ReadConcern databaseReadConcern = ReadConcern.DEFAULT;
     private WriteConcern databaseWriteConcern = WriteConcern.JOURNALED;
     private ConnectionString connectionString = new ConnectionString("mongodb://mongodb");
+    private Integer batchMaxCount;
+    private Long batchMaxBytes;
+    private Duration batchLinger;
+    private boolean reactiveDriver = false;
 
     /**
      * <a href="https://www.mongodb.com/docs/manual/core/read-preference/">MongoDB Doc</a>
@@ -498,6 +761,140 @@ public class BenchmarkBuilder {
       this.connectionString = connectionString;
       return this;
     }
+
+    /**
+     * Insert the documents of the load phase in unordered batches per collection. A batch is
+     * inserted once it holds maxCount documents, maxBytes bytes or its first document waited for
+     * linger. Every writer waits for its own document, so use enough load threads to fill the
+     * batches. Default: every document is inserted on its own.
+     *
+     * @param maxCount maximum number of documents per batch
+     * @param maxBytes maximum size of the encoded documents per batch
+     * @param linger maximum time a document waits for its batch to fill
+     * @return this
+     */
+    public MongoConfiguration batchWrites(int maxCount, long maxBytes, Duration linger) {
+      this.batchMaxCount = maxCount;
+      this.batchMaxBytes = maxBytes;
+      this.batchLinger = linger;
+      return this;
+    }
+
+    /**
+     * Use the reactive streams driver, which does not block a thread per database operation, so
+     * many more operations can be in flight than threads. Cannot be combined with {@link
+     * #batchWrites}. Default: false
+     *
+     * @param reactiveDriver true to use the reactive streams driver
+     * @return this
+     */
+    public MongoConfiguration reactiveDriver(boolean reactiveDriver) {
+      this.reactiveDriver = reactiveDriver;
+      return this;
+    }
+  }
+
+  public static class InMemoryConfiguration {
+    private final Map<LatencyDatabase.Operation, Distribution<Long>> defaultServiceTimes =
+        new EnumMap<>(LatencyDatabase.Operation.class);
+    private final Map<LatencyDatabase.Operation, Map<CollectionName, Distribution<Long>>>
+        serviceTimes = new EnumMap<>(LatencyDatabase.Operation.class);
+    private int concurrencyLimit = 0;
+    private boolean queueing = true;
+
+    /**
+     * Service time of the operation on all collections, which have no own service time. Default: no
+     * delay
+     *
+     * @param operation delayed operation
+     * @param serviceTime service time in nanoseconds
+     * @return this
+     */
+    public InMemoryConfiguration serviceTime(
+        LatencyDatabase.Operation operation, Distribution<Long> serviceTime) {
+      defaultServiceTimes.put(operation, serviceTime);
+      return this;
+    }
+
+    /**
+     * Service time of the operation on one collection.
+     *
+     * @param operation delayed operation
+     * @param collectionName collection the service time applies to
+     * @param serviceTime service time in nanoseconds
+     * @return this
+     */
+    public InMemoryConfiguration serviceTime(
+        LatencyDatabase.Operation operation,
+        String collectionName,
+        Distribution<Long> serviceTime) {
+      serviceTimes
+          .computeIfAbsent(operation, it -> new HashMap<>())
+          .put(new CollectionName(collectionName), serviceTime);
+      return this;
+    }
+
+    /**
+     * Maximum number of concurrently served operations. Default: 0, no limit
+     *
+     * @param concurrencyLimit maximum number of concurrent operations
+     * @return this
+     */
+    public InMemoryConfiguration concurrencyLimit(int concurrencyLimit) {
+      this.concurrencyLimit = concurrencyLimit;
+      return this;
+    }
+
+    /**
+     * Whether operations beyond the concurrency limit wait for a free worker or fail. Default: true
+     *
+     * @param queueing true to wait, false to fail
+     * @return this
+     */
+    public InMemoryConfiguration queueing(boolean queueing) {
+      this.queueing = queueing;
+      return this;
+    }
+  }
+
+  public static class FileConfiguration {
+    private Path directory = Path.of("data");
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.ALWAYS;
+    private Duration fsyncInterval = Duration.ofMillis(100);
+
+    /**
+     * Directory of the log files. Default: data
+     *
+     * @param directory directory, created if it does not exist
+     * @return this
+     */
+    public FileConfiguration directory(Path directory) {
+      this.directory = directory;
+      return this;
+    }
+
+    /**
+     * When writes are forced to the storage device. Default: {@link FsyncPolicy#ALWAYS}
+     *
+     * @param fsyncPolicy fsync policy
+     * @return this
+     */
+    public FileConfiguration fsyncPolicy(FsyncPolicy fsyncPolicy) {
+      this.fsyncPolicy = fsyncPolicy;
+      return this;
+    }
+
+    /**
+     * Force all logs periodically instead of on every write. Default: 100ms
+     *
+     * @param fsyncInterval interval between forcing all logs
+     * @return this
+     */
+    public FileConfiguration fsyncInterval(Duration fsyncInterval) {
+      this.fsyncPolicy = FsyncPolicy.INTERVAL;
+      this.fsyncInterval = fsyncInterval;
+      return this;
+    }
   }
 
   /**
@@ -666,8 +1063,22 @@ public class BenchmarkBuilder {
     private final DocumentDistributionConfig documentDistributionConfig =
         new DocumentDistributionConfig();
 
+    private boolean batchReads = false;
+
     private ReferencesDistributionConfig() {}
 
+    /**
+     * Read all existing referenced documents with one query ($in on the ids), instead of one query
+     * per document. Default: false
+     *
+     * @param batchReads true to batch the reads
+     * @return this
+     */
+    public ReferencesDistributionConfig batchReads(boolean batchReads) {
+      this.batchReads = batchReads;
+      return this;
+    }
+
     /**
      * Always select the same number of documents from the target collection.
      *
@@ -763,6 +1174,8 @@ public class BenchmarkBuilder {
     @NotNull @Min(1)
     private int bufferSize = 50;
 
+    private boolean sampleExisting = false;
+
     public ExistingDocumentDistributionConfig executorService(ExecutorService executorService) {
       this.executorService = executorService;
       return this;
@@ -772,6 +1185,20 @@ public class BenchmarkBuilder {
       this.bufferSize = bufferSize;
       return this;
     }
+
+    /**
+     * Buffer ids sampled from the stored ids of the collection, weighted by the id distribution,
+     * instead of drawing ids from the id distribution. No documents are generated for missing ids,
+     * so the collection stops growing. Only applies to IdStores, which support sampling, and to id
+     * distributions, which can draw ranks of stored ids, e.g. uniform ones. Default: false
+     *
+     * @param sampleExisting true to sample stored ids
+     * @return this
+     */
+    public ExistingDocumentDistributionConfig sampleExisting(boolean sampleExisting) {
+      this.sampleExisting = sampleExisting;
+      return this;
+    }
   }
 
   public static class RecomputableDocumentDistributionConfig {}
@@ -831,8 +1258,146 @@ public class BenchmarkBuilder {
     }
   }
 
+  /**
+   * Cache the documents of the collection on the client. Only suitable for collections, whose
+   * documents do not change once they are written, e.g. dimensions, which are referenced over and
+   * over again. Reads of cached collections always fetch whole documents.
+   *
+   * @see CachingDatabase
+   * @param collectionName cached collection
+   * @param maximumSize maximum number of cached documents
+   * @return this
+   */
+  public BenchmarkBuilder documentCache(String collectionName, long maximumSize) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive");
+    }
+    this.cachedCollections.put(new CollectionName(collectionName), maximumSize);
+    return this;
+  }
+
+  /**
+   * Enable or disable tracing. Without tracing, no spans are sampled, so span attributes and events
+   * are never computed. Metrics are recorded either way.
+   *
+   * @param enabled false to disable tracing, tracing is enabled by default
+   * @return this
+   */
+  public BenchmarkBuilder tracing(boolean enabled) {
+    if (enabled) {
+      this.tracer =
+          openTelemetry.getTracer(
+              TelemetryConfig.INSTRUMENTATION_SCOPE_NAME, TelemetryConfig.version());
+    } else {
+      this.tracer = TracerProvider.noop().get(TelemetryConfig.INSTRUMENTATION_SCOPE_NAME);
+    }
+    return this;
+  }
+
+  /**
+   * Build written documents directly in their BSON encoding, so they are not encoded again when
+   * they are written. The generated documents only keep the top level fields, which the generators
+   * of referencing documents read from them. Collections, whose whole documents are read by a
+   * referencing generator, are built as maps like before.
+   *
+   * @see BsonDocumentBuilderFactory
+   * @param enabled true to encode documents, documents are built as maps by default
+   * @return this
+   */
+  public BenchmarkBuilder encodeDocuments(boolean enabled) {
+    this.encodeDocuments = enabled;
+    return this;
+  }
+
+  /**
+   * Report the throughput, errors and latency percentiles of every specification and collection
+   * periodically while the benchmark is running.
+   *
+   * @see StatusReporter
+   * @param config configuration
+   * @return this
+   */
+  public BenchmarkBuilder statusReporter(Consumer<StatusReporterConfiguration> config) {
+    this.statusReporterConfiguration = new StatusReporterConfiguration();
+    config.accept(statusReporterConfiguration);
+    return this;
+  }
+
+  public static class StatusReporterConfiguration {
+    private Duration interval = Duration.ofSeconds(10);
+    private Path file = Path.of("status.jsonl");
+
+    /**
+     * Time between two reports. Default: 10s
+     *
+     * @param interval positive interval
+     * @return this
+     */
+    public StatusReporterConfiguration interval(Duration interval) {
+      this.interval = interval;
+      return this;
+    }
+
+    /**
+     * JSON lines file, which the reports are appended to. Default: status.jsonl
+     *
+     * @param file file, created if it does not exist
+     * @return this
+     */
+    public StatusReporterConfiguration file(Path file) {
+      this.file = file;
+      return this;
+    }
+  }
+
+  /**
+   * Write the latencies of every interval as HdrHistogram interval logs to a new run directory, so
+   * runs can be analyzed offline without Prometheus.
+   *
+   * @see HistogramLogReporter
+   * @param config configuration
+   * @return this
+   */
+  public BenchmarkBuilder histogramLogs(Consumer<HistogramLogConfiguration> config) {
+    this.histogramLogConfiguration = new HistogramLogConfiguration();
+    config.accept(histogramLogConfiguration);
+    return this;
+  }
+
+  public static class HistogramLogConfiguration {
+    private static final DateTimeFormatter RUN_DIRECTORY_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH-mm-ss'Z'").withZone(ZoneOffset.UTC);
+
+    private Duration interval = Duration.ofSeconds(1);
+    private Path directory = Path.of("runs");
+
+    /**
+     * Time between two logged histograms. Default: 1s
+     *
+     * @param interval positive interval
+     * @return this
+     */
+    public HistogramLogConfiguration interval(Duration interval) {
+      this.interval = interval;
+      return this;
+    }
+
+    /**
+     * Directory of the runs. Every run writes its logs to a subdirectory named after its start,
+     * e.g. runs/2023-06-01T12-00-00Z. Default: runs
+     *
+     * @param directory directory, created if it does not exist
+     * @return this
+     */
+    public HistogramLogConfiguration directory(Path directory) {
+      this.directory = directory;
+      return this;
+    }
+  }
+
   /**
    * Add index configuration, which should be applied to the database.
+   *
    * @param indexConfiguration index to be created
    * @return this
    */
@@ -842,8 +1407,9 @@ public class BenchmarkBuilder {
   }
 
   /**
-   * Configure the load phase.
-   * During the load phase a share of the total data is loaded into the database.
+   * Configure the load phase. During the load phase a share of the total data is loaded into the
+   * database.
+   *
    * @param configConsumer configuration
    * @return this
    */
@@ -860,10 +1426,17 @@ public class BenchmarkBuilder {
     @Min(1)
     private int numThreads = 10;
 
+    private Path snapshotFile;
+    private Path restoreFile;
+
+    @Positive private Integer restoreThreads;
+
     /**
      * Add primary write specification to the load phase and set the number of invocations.
+     *
      * @param targetCount number of invocations
-     * @param primaryWriteSpecificationName name set by {@link BenchmarkBuilder#primaryWriteSpecification(String, Consumer)}
+     * @param primaryWriteSpecificationName name set by {@link
+     *     BenchmarkBuilder#primaryWriteSpecification(String, Consumer)}
      * @return this
      */
     public LoadPhaseConfig primaryWriteSpecification(
@@ -873,9 +1446,10 @@ public class BenchmarkBuilder {
     }
 
     /**
-     * Number of concurrent client threads.
-     * Each client thread executes one primary write specification at a time.
-     * However, the number of concurrent threads can be greater, as each write specification calls other write specification and executes them in parallel.
+     * Number of concurrent client threads. Each client thread executes one primary write
+     * specification at a time. However, the number of concurrent threads can be greater, as each
+     * write specification calls other write specification and executes them in parallel.
+     *
      * @param numThreads number of client threads
      * @return this
      */
@@ -883,11 +1457,50 @@ public class BenchmarkBuilder {
       this.numThreads = numThreads;
       return this;
     }
+
+    /**
+     * Write all ids of the IdStore to the file after the load phase finished. The file can be
+     * restored by {@link #restoreSnapshot(Path)} in later runs.
+     *
+     * @param snapshotFile file to write
+     * @return this
+     */
+    public LoadPhaseConfig snapshot(Path snapshotFile) {
+      this.snapshotFile = snapshotFile;
+      return this;
+    }
+
+    /**
+     * Skip the index and load phase and restore the IdStore from a snapshot instead. The benchmark
+     * starts directly with the transaction phase, so the database must still contain the documents
+     * of the run, which wrote the snapshot.
+     *
+     * @param restoreFile file written by {@link #snapshot(Path)}
+     * @return this
+     */
+    public LoadPhaseConfig restoreSnapshot(Path restoreFile) {
+      this.restoreFile = restoreFile;
+      return this;
+    }
+
+    /**
+     * Skip the index and load phase and rebuild the IdStore by scanning the ids of the documents in
+     * the database instead. Only documents written by this benchmark can be restored, as their ids
+     * can be converted back to the ids of the IdStore.
+     *
+     * @param numThreads number of concurrent scans per collection
+     * @return this
+     */
+    public LoadPhaseConfig restoreFromDatabase(int numThreads) {
+      this.restoreThreads = numThreads;
+      return this;
+    }
   }
 
   /**
-   * Configure the transaction phase.
-   * During the transaction phase a mixture of primary write and read specifications are called, to simulate a given workload.
+   * Configure the transaction phase. During the transaction phase a mixture of primary write and
+   * read specifications are called, to simulate a given workload.
+   *
    * @param configConsumer transaction phase configuration
    * @return this
    */
@@ -905,6 +1518,7 @@ public class BenchmarkBuilder {
 
     /**
      * Run a power test during the transaction phase.
+     *
      * @param configConsumer power test config
      * @return this
      */
@@ -918,6 +1532,7 @@ public class BenchmarkBuilder {
 
     /**
      * Run specifications according to their assigned weights.
+     *
      * @param configConsumer config with weights
      * @return this
      */
@@ -936,9 +1551,11 @@ public class BenchmarkBuilder {
     private PowerTestTransactionPhaseConfig() {}
 
     /**
-     * Append a single specification to the list of specifications, that should be run.
-     * The specification can either be a read specification or a primary write specification.
-     * The name is the same as in {@link ReadSpecificationConfig#name(String)} or {@link BenchmarkBuilder#primaryWriteSpecification(String, Consumer)}
+     * Append a single specification to the list of specifications, that should be run. The
+     * specification can either be a read specification or a primary write specification. The name
+     * is the same as in {@link ReadSpecificationConfig#name(String)} or {@link
+     * BenchmarkBuilder#primaryWriteSpecification(String, Consumer)}
+     *
      * @param topLevelSpecificationName specification name
      * @return this
      */
@@ -948,9 +1565,11 @@ public class BenchmarkBuilder {
     }
 
     /**
-     * Append a multiple specification to the list of specifications, that should be run.
-     * The specification can either be a read specification or a primary write specification.
-     * The name is the same as in {@link ReadSpecificationConfig#name(String)} or {@link BenchmarkBuilder#primaryWriteSpecification(String, Consumer)}
+     * Append a multiple specification to the list of specifications, that should be run. The
+     * specification can either be a read specification or a primary write specification. The name
+     * is the same as in {@link ReadSpecificationConfig#name(String)} or {@link
+     * BenchmarkBuilder#primaryWriteSpecification(String, Consumer)}
+     *
      * @param topLevelSpecificationNames specification names
      * @return this
      */
@@ -971,8 +1590,9 @@ public class BenchmarkBuilder {
     }
 
     /**
-     * Set the number of total operations.
-     * In each iteration one operation is chosen from the weighted specification list and executed.
+     * Set the number of total operations. In each iteration one operation is chosen from the
+     * weighted specification list and executed.
+     *
      * @param totalCount number of total iterations
      * @return this
      */
@@ -982,9 +1602,10 @@ public class BenchmarkBuilder {
     }
 
     /**
-     * Set number of concurrent client threads.
-     * Each client thread executes one specification at a time.
-     * However, the number of concurrent threads can be larger, because any {@link WriteSpecification} can run multiple other WriteSpecifications concurrently.
+     * Set number of concurrent client threads. Each client thread executes one specification at a
+     * time. However, the number of concurrent threads can be larger, because any {@link
+     * WriteSpecification} can run multiple other WriteSpecifications concurrently.
+     *
      * @param threadCount number of client threads
      * @return this
      */
@@ -995,6 +1616,7 @@ public class BenchmarkBuilder {
 
     /**
      * Set number of operations per millisecond.
+     *
      * @param targetOps number of operations per millisecond.
      * @return this
      */
@@ -1004,8 +1626,10 @@ public class BenchmarkBuilder {
     }
 
     /**
-     * Add one primary write specification or read specification with weight to the list of specifications.
-     * The name is the same as in {@link ReadSpecificationConfig#name(String)} or {@link BenchmarkBuilder#primaryWriteSpecification(String, Consumer)}
+     * Add one primary write specification or read specification with weight to the list of
+     * specifications. The name is the same as in {@link ReadSpecificationConfig#name(String)} or
+     * {@link BenchmarkBuilder#primaryWriteSpecification(String, Consumer)}
+     *
      * @param weight assigned weight
      * @param specificationName read or primary write specification name
      * @return this
@@ -0,0 +1,111 @@
+package de.claasklar.database;
+
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.query.Query;
+import io.opentelemetry.api.trace.Span;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Database, which does not block a thread per operation. The blocking operations of {@link
+ * Database} wait for the asynchronous ones, so an AsyncDatabase can be used everywhere a Database
+ * is expected.
+ */
+public interface AsyncDatabase extends Database {
+
+  CompletionStage<OurDocument> writeAsync(
+      CollectionName collectionName, OurDocument document, Span span);
+
+  CompletionStage<Optional<OurDocument>> readAsync(CollectionName collectionName, Id id, Span span);
+
+  /**
+   * @see Database#read(CollectionName, Id, Set, Span)
+   */
+  default CompletionStage<Optional<OurDocument>> readAsync(
+      CollectionName collectionName, Id id, Set<String> fieldPaths, Span span) {
+    return readAsync(collectionName, id, span);
+  }
+
+  /**
+   * @see Database#readMany(CollectionName, Collection, Set, Span)
+   */
+  default CompletionStage<Map<Id, OurDocument>> readManyAsync(
+      CollectionName collectionName, Collection<Id> ids, Set<String> fieldPaths, Span span) {
+    var documents = new ConcurrentHashMap<Id, OurDocument>();
+    var reads =
+        ids.stream()
+            .map(
+                id ->
+                    (fieldPaths == null
+                            ? readAsync(collectionName, id, span)
+                            : readAsync(collectionName, id, fieldPaths, span))
+                        .thenAccept(document -> document.ifPresent(it -> documents.put(id, it)))
+                        .toCompletableFuture())
+            .toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(reads).thenApply(ignored -> documents);
+  }
+
+  CompletionStage<Void> executeQueryAsync(Query query, Span span);
+
+  @Override
+  default OurDocument write(CollectionName collectionName, OurDocument document, Span span) {
+    return join(writeAsync(collectionName, document, span));
+  }
+
+  @Override
+  default Optional<OurDocument> read(CollectionName collectionName, Id id, Span span) {
+    return join(readAsync(collectionName, id, span));
+  }
+
+  @Override
+  default Optional<OurDocument> read(
+      CollectionName collectionName, Id id, Set<String> fieldPaths, Span span) {
+    return join(readAsync(collectionName, id, fieldPaths, span));
+  }
+
+  @Override
+  default Map<Id, OurDocument> readMany(
+      CollectionName collectionName, Collection<Id> ids, Set<String> fieldPaths, Span span) {
+    return join(readManyAsync(collectionName, ids, fieldPaths, span));
+  }
+
+  @Override
+  default void executeQuery(Query query, Span span) {
+    join(executeQueryAsync(query, span));
+  }
+
+  /**
+   * @param database database to adapt
+   * @return the database itself if it is asynchronous, otherwise an AsyncDatabase, which executes
+   *     the operations in the calling thread
+   */
+  static AsyncDatabase of(Database database) {
+    if (database instanceof AsyncDatabase asyncDatabase) {
+      return asyncDatabase;
+    }
+    return new BlockingAsyncDatabase(database);
+  }
+
+  /**
+   * Waits for the stage and rethrows the cause of a failure, so callers see the same exceptions as
+   * from a blocking database.
+   */
+  static <T> T join(CompletionStage<T> stage) {
+    try {
+      return stage.toCompletableFuture().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+}
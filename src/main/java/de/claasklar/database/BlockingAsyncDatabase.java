@@ -0,0 +1,125 @@
+package de.claasklar.database;
+
+import de.claasklar.phase.PhaseTopic;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.index.IndexConfiguration;
+import de.claasklar.primitives.query.Query;
+import de.claasklar.util.Subject;
+import io.opentelemetry.api.trace.Span;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Adapts a blocking Database to {@link AsyncDatabase}. Operations run in the calling thread and
+ * return completed stages.
+ */
+final class BlockingAsyncDatabase implements AsyncDatabase {
+
+  private final Database database;
+
+  BlockingAsyncDatabase(Database database) {
+    this.database = database;
+  }
+
+  @Override
+  public CompletionStage<OurDocument> writeAsync(
+      CollectionName collectionName, OurDocument document, Span span) {
+    return call(() -> database.write(collectionName, document, span));
+  }
+
+  @Override
+  public CompletionStage<Optional<OurDocument>> readAsync(
+      CollectionName collectionName, Id id, Span span) {
+    return call(() -> database.read(collectionName, id, span));
+  }
+
+  @Override
+  public CompletionStage<Optional<OurDocument>> readAsync(
+      CollectionName collectionName, Id id, Set<String> fieldPaths, Span span) {
+    return call(() -> database.read(collectionName, id, fieldPaths, span));
+  }
+
+  @Override
+  public CompletionStage<Map<Id, OurDocument>> readManyAsync(
+      CollectionName collectionName, Collection<Id> ids, Set<String> fieldPaths, Span span) {
+    return call(() -> database.readMany(collectionName, ids, fieldPaths, span));
+  }
+
+  @Override
+  public CompletionStage<Void> executeQueryAsync(Query query, Span span) {
+    return call(
+        () -> {
+          database.executeQuery(query, span);
+          return null;
+        });
+  }
+
+  @Override
+  public OurDocument write(CollectionName collectionName, OurDocument document, Span span) {
+    return database.write(collectionName, document, span);
+  }
+
+  @Override
+  public Optional<OurDocument> read(CollectionName collectionName, Id id, Span span) {
+    return database.read(collectionName, id, span);
+  }
+
+  @Override
+  public Optional<OurDocument> read(
+      CollectionName collectionName, Id id, Set<String> fieldPaths, Span span) {
+    return database.read(collectionName, id, fieldPaths, span);
+  }
+
+  @Override
+  public Map<Id, OurDocument> readMany(
+      CollectionName collectionName, Collection<Id> ids, Set<String> fieldPaths, Span span) {
+    return database.readMany(collectionName, ids, fieldPaths, span);
+  }
+
+  @Override
+  public void executeQuery(Query query, Span span) {
+    database.executeQuery(query, span);
+  }
+
+  @Override
+  public void createIndex(IndexConfiguration indexConfiguration, Span span) {
+    database.createIndex(indexConfiguration, span);
+  }
+
+  @Override
+  public long scanIds(
+      CollectionName collectionName, int numThreads, LongConsumer consumer, Span span) {
+    return database.scanIds(collectionName, numThreads, consumer, span);
+  }
+
+  @Override
+  public void close() throws Exception {
+    database.close();
+  }
+
+  @Override
+  public void update(PhaseTopic.BenchmarkPhase update) {
+    database.update(update);
+  }
+
+  @Override
+  public void setSubject(Subject<PhaseTopic.BenchmarkPhase> subject) {
+    database.setSubject(subject);
+  }
+
+  private static <T> CompletionStage<T> call(Supplier<T> operation) {
+    try {
+      return CompletableFuture.completedFuture(operation.get());
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package de.claasklar.database;
+
+import static io.opentelemetry.api.common.AttributeKey.stringKey;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import de.claasklar.phase.PhaseTopic;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.index.IndexConfiguration;
+import de.claasklar.primitives.query.Query;
+import de.claasklar.util.MapCollector;
+import de.claasklar.util.Pair;
+import de.claasklar.util.Subject;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.trace.Span;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.LongConsumer;
+
+/**
+ * Caches documents of the configured collections in front of another database. Meant for
+ * collections, which are read over and over again, but never change once they are written, e.g.
+ * dimension collections. The cache of every collection is bounded and evicts with W-TinyLFU, so
+ * rarely read documents do not displace frequently read ones.
+ *
+ * <p>Cached collections are always read as whole documents, so every projection can be served from
+ * the cache. Writes invalidate the cached document. Hits, misses and evictions are counted per
+ * collection.
+ */
+public class CachingDatabase implements AsyncDatabase {
+
+  private final AsyncDatabase database;
+  private final Map<CollectionName, Cache<Id, OurDocument>> caches;
+  private final LongCounter counter;
+  private final Map<CollectionName, Attributes[]> attributes;
+
+  /**
+   * @param database database, which is read on misses
+   * @param maximumSizes maximum number of cached documents per cached collection
+   * @param counter counts hits, misses and evictions
+   */
+  public CachingDatabase(
+      Database database, Map<CollectionName, Long> maximumSizes, LongCounter counter) {
+    this.database = AsyncDatabase.of(database);
+    this.counter = counter;
+    this.attributes =
+        maximumSizes.keySet().stream()
+            .map(
+                collectionName ->
+                    new Pair<>(
+                        collectionName,
+                        Arrays.stream(Event.values())
+                            .map(
+                                event ->
+                                    Attributes.of(
+                                        stringKey("collection"),
+                                        collectionName.toString(),
+                                        stringKey("event"),
+                                        event.toString()))
+                            .toArray(Attributes[]::new)))
+            .collect(new MapCollector<>());
+    this.caches =
+        maximumSizes.entrySet().stream()
+            .map(entry -> new Pair<>(entry.getKey(), buildCache(entry.getKey(), entry.getValue())))
+            .collect(new MapCollector<>());
+  }
+
+  private Cache<Id, OurDocument> buildCache(CollectionName collectionName, long maximumSize) {
+    return Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        // maintenance runs in the calling threads instead of the common pool
+        .executor(Runnable::run)
+        .<Id, OurDocument>removalListener(
+            (id, document, cause) -> {
+              if (cause == RemovalCause.SIZE) {
+                count(collectionName, Event.EVICTION, 1);
+              }
+            })
+        .build();
+  }
+
+  @Override
+  public CompletionStage<OurDocument> writeAsync(
+      CollectionName collectionName, OurDocument document, Span span) {
+    var cache = caches.get(collectionName);
+    if (cache != null) {
+      cache.invalidate(document.getId());
+    }
+    return database.writeAsync(collectionName, document, span);
+  }
+
+  @Override
+  public CompletionStage<Optional<OurDocument>> readAsync(
+      CollectionName collectionName, Id id, Span span) {
+    var cache = caches.get(collectionName);
+    if (cache == null) {
+      return database.readAsync(collectionName, id, span);
+    }
+    var document = cache.getIfPresent(id);
+    if (document != null) {
+      count(collectionName, Event.HIT, 1);
+      span.addEvent("cache hit");
+      return CompletableFuture.completedFuture(Optional.of(document));
+    }
+    count(collectionName, Event.MISS, 1);
+    return database
+        .readAsync(collectionName, id, span)
+        .thenApply(
+            read -> {
+              read.ifPresent(it -> cache.put(id, it));
+              return read;
+            });
+  }
+
+  @Override
+  public CompletionStage<Optional<OurDocument>> readAsync(
+      CollectionName collectionName, Id id, Set<String> fieldPaths, Span span) {
+    if (caches.containsKey(collectionName)) {
+      return readAsync(collectionName, id, span);
+    }
+    return database.readAsync(collectionName, id, fieldPaths, span);
+  }
+
+  /** Only reads the documents, which are not cached. */
+  @Override
+  public CompletionStage<Map<Id, OurDocument>> readManyAsync(
+      CollectionName collectionName, Collection<Id> ids, Set<String> fieldPaths, Span span) {
+    var cache = caches.get(collectionName);
+    if (cache == null) {
+      return database.readManyAsync(collectionName, ids, fieldPaths, span);
+    }
+    var documents = new HashMap<>(cache.getAllPresent(ids));
+    var missing = new ArrayList<Id>(ids.size() - documents.size());
+    for (var id : ids) {
+      if (!documents.containsKey(id)) {
+        missing.add(id);
+      }
+    }
+    count(collectionName, Event.HIT, documents.size());
+    if (missing.isEmpty()) {
+      return CompletableFuture.completedFuture(documents);
+    }
+    count(collectionName, Event.MISS, missing.size());
+    return database
+        .readManyAsync(collectionName, missing, null, span)
+        .thenApply(
+            read -> {
+              cache.putAll(read);
+              documents.putAll(read);
+              return documents;
+            });
+  }
+
+  @Override
+  public CompletionStage<Void> executeQueryAsync(Query query, Span span) {
+    return database.executeQueryAsync(query, span);
+  }
+
+  @Override
+  public void createIndex(IndexConfiguration indexConfiguration, Span span) {
+    database.createIndex(indexConfiguration, span);
+  }
+
+  @Override
+  public long scanIds(
+      CollectionName collectionName, int numThreads, LongConsumer consumer, Span span) {
+    return database.scanIds(collectionName, numThreads, consumer, span);
+  }
+
+  @Override
+  public void close() throws Exception {
+    database.close();
+  }
+
+  @Override
+  public void update(PhaseTopic.BenchmarkPhase update) {
+    database.update(update);
+  }
+
+  @Override
+  public void setSubject(Subject<PhaseTopic.BenchmarkPhase> subject) {
+    database.setSubject(subject);
+  }
+
+  private void count(CollectionName collectionName, Event event, long value) {
+    if (value > 0) {
+      counter.add(value, attributes.get(collectionName)[event.ordinal()]);
+    }
+  }
+
+  private enum Event {
+    HIT,
+    MISS,
+    EVICTION
+  }
+}
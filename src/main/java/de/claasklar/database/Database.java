@@ -8,7 +8,12 @@ import de.claasklar.primitives.index.IndexConfiguration;
 import de.claasklar.primitives.query.Query;
 import de.claasklar.util.Observer;
 import io.opentelemetry.api.trace.Span;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongConsumer;
 
 public interface Database extends AutoCloseable, Observer<PhaseTopic.BenchmarkPhase> {
 
@@ -16,7 +21,60 @@ public interface Database extends AutoCloseable, Observer<PhaseTopic.BenchmarkPh
 
   Optional<OurDocument> read(CollectionName collectionName, Id id, Span span);
 
+  /**
+   * Reads only the given fields and the _id of the document. Databases, which cannot project
+   * documents, return the whole document.
+   *
+   * @param collectionName collection of the document
+   * @param id id of the document
+   * @param fieldPaths dotted paths of the read fields
+   * @param span parent span
+   * @return document with at least the given fields
+   */
+  default Optional<OurDocument> read(
+      CollectionName collectionName, Id id, Set<String> fieldPaths, Span span) {
+    return read(collectionName, id, span);
+  }
+
+  /**
+   * Reads all documents with the given ids. Databases, which cannot read multiple documents at
+   * once, read them one after another.
+   *
+   * @param collectionName collection of the documents
+   * @param ids ids of the documents
+   * @param fieldPaths dotted paths of the read fields, null to read whole documents
+   * @param span parent span
+   * @return found documents by id, ids of missing documents are absent
+   */
+  default Map<Id, OurDocument> readMany(
+      CollectionName collectionName, Collection<Id> ids, Set<String> fieldPaths, Span span) {
+    var documents = new HashMap<Id, OurDocument>();
+    for (var id : ids) {
+      var document =
+          fieldPaths == null
+              ? read(collectionName, id, span)
+              : read(collectionName, id, fieldPaths, span);
+      document.ifPresent(it -> documents.put(id, it));
+    }
+    return documents;
+  }
+
   void executeQuery(Query query, Span span);
 
   void createIndex(IndexConfiguration indexConfiguration, Span span);
+
+  /**
+   * Calls the consumer with the IdLong of every document in the collection. The consumer is called
+   * concurrently and in no particular order.
+   *
+   * @param collectionName collection to scan
+   * @param numThreads number of concurrent scans
+   * @param consumer receives the ids, must be thread safe
+   * @param span parent span
+   * @return number of scanned ids
+   */
+  default long scanIds(
+      CollectionName collectionName, int numThreads, LongConsumer consumer, Span span) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot scan ids");
+  }
 }
@@ -1,33 +1,47 @@
 package de.claasklar.database;
 
+import static io.opentelemetry.api.common.AttributeKey.stringKey;
+
+import de.claasklar.database.memory.MemoryCollection;
+import de.claasklar.database.memory.QueryEngine;
 import de.claasklar.phase.PhaseTopic;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.IdLong;
 import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.Value;
 import de.claasklar.primitives.index.IndexConfiguration;
+import de.claasklar.primitives.query.Aggregation;
+import de.claasklar.primitives.query.Find;
 import de.claasklar.primitives.query.Query;
 import de.claasklar.util.Subject;
+import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.Span;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
 
+/**
+ * Keeps all documents in memory and evaluates queries itself, so benchmarks can be run without a
+ * database server. Finds and aggregations are evaluated with a {@link QueryEngine}, indexes are
+ * ordered secondary indexes, which are maintained on every write.
+ */
 public class InMemoryDatabase implements Database {
 
-  private final Map<CollectionName, Map<Id, OurDocument>> data;
+  private final Map<CollectionName, MemoryCollection> data;
+  private final QueryEngine queryEngine;
 
   public InMemoryDatabase() {
     this.data = new ConcurrentHashMap<>();
+    this.queryEngine =
+        new QueryEngine(collectionName -> Optional.ofNullable(data.get(collectionName)));
   }
 
   @Override
   public OurDocument write(CollectionName collectionName, OurDocument document, Span span) {
-    var collection = this.data.get(collectionName);
-    if (collection == null) {
-      collection = new ConcurrentHashMap<>();
-      this.data.put(collectionName, collection);
-    }
-    collection.put(document.getId(), document);
+    collection(collectionName).write(document);
     return document;
   }
 
@@ -37,19 +51,52 @@ public class InMemoryDatabase implements Database {
     if (collection == null) {
       return Optional.empty();
     }
-    var document = collection.get(id);
-    if (document == null) {
-      return Optional.empty();
-    } else {
-      return Optional.of(document);
+    return collection.read(id);
+  }
+
+  /** Evaluates the query and counts its results like the other databases. */
+  @Override
+  public void executeQuery(Query query, Span span) {
+    var result = query(query);
+    span.addEvent(
+        "query executed", Attributes.of(stringKey("count"), Integer.toString(result.size())));
+  }
+
+  /**
+   * @return documents found by a find or returned by an aggregation
+   */
+  public List<Value> query(Query query) {
+    if (query instanceof Find find) {
+      return queryEngine.find(find);
+    } else if (query instanceof Aggregation aggregation) {
+      return queryEngine.aggregate(aggregation);
     }
+    throw new IllegalArgumentException("unknown query type " + query.getClass());
   }
 
   @Override
-  public void executeQuery(Query query, Span span) {}
+  public void createIndex(IndexConfiguration indexConfiguration, Span span) {
+    collection(indexConfiguration.getCollectionName()).createIndex(indexConfiguration);
+  }
+
+  private MemoryCollection collection(CollectionName collectionName) {
+    return data.computeIfAbsent(collectionName, it -> new MemoryCollection());
+  }
 
   @Override
-  public void createIndex(IndexConfiguration indexConfiguration, Span span) {}
+  public long scanIds(
+      CollectionName collectionName, int numThreads, LongConsumer consumer, Span span) {
+    var collection = this.data.get(collectionName);
+    if (collection == null) {
+      return 0;
+    }
+    long count = 0;
+    for (var id : collection.ids()) {
+      consumer.accept(IdLong.fromId(id).id());
+      count++;
+    }
+    return count;
+  }
 
   @Override
   public void close() throws Exception {}
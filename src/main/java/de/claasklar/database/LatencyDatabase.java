@@ -0,0 +1,181 @@
+package de.claasklar.database;
+
+import de.claasklar.phase.PhaseTopic;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.index.IndexConfiguration;
+import de.claasklar.primitives.query.Query;
+import de.claasklar.random.distribution.Distribution;
+import de.claasklar.util.Subject;
+import io.opentelemetry.api.trace.Span;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Simulates the latency of a database server in front of another database, usually an {@link
+ * InMemoryDatabase}. Every operation takes at least a service time drawn from the distribution
+ * configured for its operation and collection. With a concurrency limit, at most that many
+ * operations are served at once, like a server with a fixed number of workers. Further operations
+ * either queue for a free worker or are rejected.
+ *
+ * <p>Meant for finding the throughput the benchmark itself can sustain without a database server.
+ * Index creation and id scans are not delayed.
+ */
+public class LatencyDatabase implements Database {
+
+  private final Database database;
+  private final Map<Operation, Distribution<Long>> defaultServiceTimes;
+  private final Map<Operation, Map<CollectionName, Distribution<Long>>> serviceTimes;
+  private final Semaphore workers;
+  private final boolean queueing;
+
+  /**
+   * @param database database, which executes the operations
+   * @param defaultServiceTimes service time in nanoseconds per operation, operations without a
+   *     service time are not delayed
+   * @param serviceTimes service time in nanoseconds per operation and collection, overrides the
+   *     default service time
+   * @param concurrencyLimit maximum number of concurrently served operations, 0 for no limit
+   * @param queueing true, if operations wait for a free worker, false, if they are rejected with a
+   *     {@link RejectedExecutionException}
+   */
+  public LatencyDatabase(
+      Database database,
+      Map<Operation, Distribution<Long>> defaultServiceTimes,
+      Map<Operation, Map<CollectionName, Distribution<Long>>> serviceTimes,
+      int concurrencyLimit,
+      boolean queueing) {
+    if (concurrencyLimit < 0) {
+      throw new IllegalArgumentException("concurrencyLimit must not be negative");
+    }
+    this.database = database;
+    this.defaultServiceTimes = new EnumMap<>(Operation.class);
+    this.defaultServiceTimes.putAll(defaultServiceTimes);
+    this.serviceTimes = new EnumMap<>(Operation.class);
+    this.serviceTimes.putAll(serviceTimes);
+    this.workers = concurrencyLimit == 0 ? null : new Semaphore(concurrencyLimit, true);
+    this.queueing = queueing;
+  }
+
+  @Override
+  public OurDocument write(CollectionName collectionName, OurDocument document, Span span) {
+    return serve(
+        Operation.WRITE, collectionName, () -> database.write(collectionName, document, span));
+  }
+
+  @Override
+  public Optional<OurDocument> read(CollectionName collectionName, Id id, Span span) {
+    return serve(Operation.READ, collectionName, () -> database.read(collectionName, id, span));
+  }
+
+  @Override
+  public Optional<OurDocument> read(
+      CollectionName collectionName, Id id, Set<String> fieldPaths, Span span) {
+    return serve(
+        Operation.READ, collectionName, () -> database.read(collectionName, id, fieldPaths, span));
+  }
+
+  @Override
+  public Map<Id, OurDocument> readMany(
+      CollectionName collectionName, Collection<Id> ids, Set<String> fieldPaths, Span span) {
+    return serve(
+        Operation.READ_MANY,
+        collectionName,
+        () -> database.readMany(collectionName, ids, fieldPaths, span));
+  }
+
+  @Override
+  public void executeQuery(Query query, Span span) {
+    serve(
+        Operation.QUERY,
+        query.getCollectionName(),
+        () -> {
+          database.executeQuery(query, span);
+          return null;
+        });
+  }
+
+  @Override
+  public void createIndex(IndexConfiguration indexConfiguration, Span span) {
+    database.createIndex(indexConfiguration, span);
+  }
+
+  @Override
+  public long scanIds(
+      CollectionName collectionName, int numThreads, LongConsumer consumer, Span span) {
+    return database.scanIds(collectionName, numThreads, consumer, span);
+  }
+
+  @Override
+  public void close() throws Exception {
+    database.close();
+  }
+
+  @Override
+  public void update(PhaseTopic.BenchmarkPhase update) {
+    database.update(update);
+  }
+
+  @Override
+  public void setSubject(Subject<PhaseTopic.BenchmarkPhase> subject) {
+    database.setSubject(subject);
+  }
+
+  private <T> T serve(Operation operation, CollectionName collectionName, Supplier<T> call) {
+    acquire();
+    try {
+      var start = System.nanoTime();
+      var result = call.get();
+      waitUntil(start + serviceTime(operation, collectionName));
+      return result;
+    } finally {
+      if (workers != null) {
+        workers.release();
+      }
+    }
+  }
+
+  private void acquire() {
+    if (workers == null) {
+      return;
+    }
+    if (queueing) {
+      workers.acquireUninterruptibly();
+    } else if (!workers.tryAcquire()) {
+      throw new RejectedExecutionException("all workers of the database are busy");
+    }
+  }
+
+  private long serviceTime(Operation operation, CollectionName collectionName) {
+    var distribution = serviceTimes.getOrDefault(operation, Map.of()).get(collectionName);
+    if (distribution == null) {
+      distribution = defaultServiceTimes.get(operation);
+    }
+    return distribution == null ? 0 : Math.max(0, distribution.sample());
+  }
+
+  /** Parking may return early, so it is repeated until the deadline passed. */
+  private static void waitUntil(long deadline) {
+    long remaining;
+    while ((remaining = deadline - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+  }
+
+  /** Operations, whose service time can be configured. */
+  public enum Operation {
+    WRITE,
+    READ,
+    READ_MANY,
+    QUERY
+  }
+}
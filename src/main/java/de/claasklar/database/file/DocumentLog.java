@@ -0,0 +1,245 @@
+package de.claasklar.database.file;
+
+import de.claasklar.database.mongodb.codec.LazyValueMap;
+import de.claasklar.database.mongodb.codec.OurDocumentCodecRegistry;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.OurDocument;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+import org.bson.BsonBinaryWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+/**
+ * Append-only log of the documents of one collection, which is accessed like a map. Every write
+ * appends a record of the document's length, its CRC32C checksum and the BSON encoded document. A
+ * hash index in memory maps each id to the location of its latest record, so a read is a single
+ * positional read. Overwritten records stay in the log.
+ *
+ * <p>Appends reserve their position atomically and write concurrently, so after a crash a torn
+ * record can precede records, which were written and forced. When the log is opened, the index is
+ * rebuilt by scanning the log. The scan skips incomplete or corrupt records by searching the next
+ * valid record byte by byte, so records after a torn one are kept. The log is truncated after its
+ * last valid record.
+ */
+class DocumentLog extends AbstractMap<Id, OurDocument> implements AutoCloseable {
+
+  private static final int HEADER_BYTES = 2 * Integer.BYTES;
+  // a BSON document starts with its length and ends with a zero byte
+  private static final int MIN_DOCUMENT_BYTES = Integer.BYTES + 1;
+  private static final String ID_FIELD_NAME = "_id";
+  private static final EncoderContext ENCODER_CONTEXT =
+      EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+
+  private final FileChannel channel;
+  private final Codec<OurDocument> codec;
+  private final Map<Id, Location> index;
+  private final AtomicLong end;
+
+  /**
+   * Opens or creates the log and rebuilds its index.
+   *
+   * @param file file of the log
+   */
+  DocumentLog(Path file) {
+    this.codec = new OurDocumentCodecRegistry().get(OurDocument.class);
+    this.index = new ConcurrentHashMap<>();
+    try {
+      this.channel =
+          FileChannel.open(
+              file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      var validEnd = recover();
+      channel.truncate(validEnd);
+      this.end = new AtomicLong(validEnd);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * @return end of the last valid record
+   */
+  private long recover() throws IOException {
+    var size = channel.size();
+    var position = 0L;
+    var validEnd = 0L;
+    var header = ByteBuffer.allocate(HEADER_BYTES + Integer.BYTES);
+    while (position + HEADER_BYTES + MIN_DOCUMENT_BYTES <= size) {
+      var payload = readRecord(header, position, size);
+      if (payload == null) {
+        position++;
+        continue;
+      }
+      var id = new RawBsonDocument(payload).getObjectId(ID_FIELD_NAME).getValue();
+      index.put(new Id(id.toByteArray()), new Location(position + HEADER_BYTES, payload.length));
+      position += HEADER_BYTES + payload.length;
+      validEnd = position;
+    }
+    return validEnd;
+  }
+
+  /**
+   * @return payload of the record at the position, null if there is no valid record
+   */
+  private byte[] readRecord(ByteBuffer header, long position, long size) throws IOException {
+    header.clear();
+    readFully(header, position);
+    header.flip();
+    var length = header.getInt();
+    var checksum = header.getInt();
+    var documentLength = Integer.reverseBytes(header.getInt());
+    if (length < MIN_DOCUMENT_BYTES
+        || length != documentLength
+        || position + HEADER_BYTES + length > size) {
+      return null;
+    }
+    var payload = ByteBuffer.allocate(length);
+    readFully(payload, position + HEADER_BYTES);
+    if (checksum(payload.array()) != checksum) {
+      return null;
+    }
+    return payload.array();
+  }
+
+  @Override
+  public OurDocument get(Object key) {
+    var location = index.get(key);
+    return location == null ? null : read(location);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return index.containsKey(key);
+  }
+
+  /**
+   * Appends the document. Unlike {@link Map#put}, the previous document is not read from the log,
+   * callers, which need it, have to {@link #get} it before.
+   *
+   * @return always null
+   */
+  @Override
+  public OurDocument put(Id id, OurDocument document) {
+    var payload = encode(document);
+    var record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+    record.putInt(payload.length).putInt(checksum(payload)).put(payload).flip();
+    var position = end.getAndAdd(record.remaining());
+    try {
+      while (record.hasRemaining()) {
+        channel.write(record, position + record.position());
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    index.put(id, new Location(position + HEADER_BYTES, payload.length));
+    return null;
+  }
+
+  private OurDocument read(Location location) {
+    var payload = ByteBuffer.allocate(location.length());
+    try {
+      readFully(payload, location.offset());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return LazyValueMap.ourDocument(new RawBsonDocument(payload.array()));
+  }
+
+  @Override
+  public int size() {
+    return index.size();
+  }
+
+  @Override
+  public Set<Id> keySet() {
+    return Collections.unmodifiableSet(index.keySet());
+  }
+
+  /** Reads the documents while iterating. */
+  @Override
+  public Set<Entry<Id, OurDocument>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<Id, OurDocument>> iterator() {
+        var locations = index.entrySet().iterator();
+        return new Iterator<>() {
+          @Override
+          public boolean hasNext() {
+            return locations.hasNext();
+          }
+
+          @Override
+          public Entry<Id, OurDocument> next() {
+            var location = locations.next();
+            return new SimpleImmutableEntry<>(location.getKey(), read(location.getValue()));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return index.size();
+      }
+    };
+  }
+
+  /**
+   * Forces all appended records to the storage device.
+   *
+   * @see FileChannel#force(boolean)
+   */
+  void force() {
+    try {
+      channel.force(false);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.force(false);
+    channel.close();
+  }
+
+  private byte[] encode(OurDocument document) {
+    if (document.isEncoded()) {
+      return document.getEncoded();
+    }
+    var buffer = new BasicOutputBuffer();
+    try (var writer = new BsonBinaryWriter(buffer)) {
+      codec.encode(writer, document, ENCODER_CONTEXT);
+    }
+    return buffer.toByteArray();
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("unexpected end of log at " + position);
+      }
+    }
+  }
+
+  private static int checksum(byte[] payload) {
+    var crc = new CRC32C();
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  private record Location(long offset, int length) {}
+}
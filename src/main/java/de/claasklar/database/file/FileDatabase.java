@@ -0,0 +1,187 @@
+package de.claasklar.database.file;
+
+import static io.opentelemetry.api.common.AttributeKey.stringKey;
+
+import de.claasklar.database.Database;
+import de.claasklar.database.memory.MemoryCollection;
+import de.claasklar.database.memory.QueryEngine;
+import de.claasklar.phase.PhaseTopic;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.index.IndexConfiguration;
+import de.claasklar.primitives.query.Aggregation;
+import de.claasklar.primitives.query.Find;
+import de.claasklar.primitives.query.Query;
+import de.claasklar.util.Subject;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * Durable database without an external service. Every collection is stored in an append-only {@link
+ * DocumentLog} in the directory, with a hash index from id to record in memory. Secondary indexes
+ * and queries work like in the {@link de.claasklar.database.InMemoryDatabase}, they are kept in
+ * memory and rebuilt when an index is created. Created indexes are stored in an {@link
+ * IndexManifest} in the directory.
+ *
+ * <p>Existing logs in the directory are opened on construction and the indexes of the manifest are
+ * rebuilt, so documents of earlier runs can be read, scanned and queried by index without running
+ * the index phase again.
+ */
+public class FileDatabase implements Database {
+
+  private static final String LOG_SUFFIX = ".log";
+  private static final String INDEX_MANIFEST = "indexes.bson";
+
+  private final Path directory;
+  private final FsyncPolicy fsyncPolicy;
+  private final Map<CollectionName, DocumentLog> logs;
+  private final Map<CollectionName, MemoryCollection> collections;
+  private final QueryEngine queryEngine;
+  private final IndexManifest indexManifest;
+  private final ScheduledExecutorService fsyncExecutor;
+
+  /**
+   * @param directory directory of the logs, created if it does not exist
+   * @param fsyncPolicy when writes are forced to the storage device
+   * @param fsyncInterval interval between forcing all logs, only used with {@link
+   *     FsyncPolicy#INTERVAL}
+   */
+  public FileDatabase(Path directory, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+    this.directory = directory;
+    this.fsyncPolicy = fsyncPolicy;
+    this.logs = new ConcurrentHashMap<>();
+    this.collections = new ConcurrentHashMap<>();
+    this.queryEngine =
+        new QueryEngine(collectionName -> Optional.ofNullable(collections.get(collectionName)));
+    try {
+      Files.createDirectories(directory);
+      try (var files = Files.list(directory)) {
+        files
+            .map(file -> file.getFileName().toString())
+            .filter(name -> name.endsWith(LOG_SUFFIX))
+            .map(name -> new CollectionName(name.substring(0, name.length() - LOG_SUFFIX.length())))
+            .forEach(this::collection);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    this.indexManifest = new IndexManifest(directory.resolve(INDEX_MANIFEST));
+    indexManifest
+        .indexConfigurations()
+        .forEach(it -> collection(it.getCollectionName()).createIndex(it));
+    if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+      this.fsyncExecutor =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                var thread = new Thread(runnable, "file-database-fsync");
+                thread.setDaemon(true);
+                return thread;
+              });
+      var interval = fsyncInterval.toNanos();
+      fsyncExecutor.scheduleWithFixedDelay(
+          this::forceAll, interval, interval, TimeUnit.NANOSECONDS);
+    } else {
+      this.fsyncExecutor = null;
+    }
+  }
+
+  @Override
+  public OurDocument write(CollectionName collectionName, OurDocument document, Span span) {
+    collection(collectionName).write(document);
+    if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+      logs.get(collectionName).force();
+    }
+    return document;
+  }
+
+  @Override
+  public Optional<OurDocument> read(CollectionName collectionName, Id id, Span span) {
+    var collection = collections.get(collectionName);
+    if (collection == null) {
+      return Optional.empty();
+    }
+    return collection.read(id);
+  }
+
+  /** Evaluates the query and counts its results like the other databases. */
+  @Override
+  public void executeQuery(Query query, Span span) {
+    int count;
+    if (query instanceof Find find) {
+      count = queryEngine.find(find).size();
+    } else if (query instanceof Aggregation aggregation) {
+      count = queryEngine.aggregate(aggregation).size();
+    } else {
+      throw new IllegalArgumentException("unknown query type " + query.getClass());
+    }
+    span.addEvent("query executed", Attributes.of(stringKey("count"), Integer.toString(count)));
+  }
+
+  @Override
+  public void createIndex(IndexConfiguration indexConfiguration, Span span) {
+    collection(indexConfiguration.getCollectionName()).createIndex(indexConfiguration);
+    indexManifest.add(indexConfiguration);
+  }
+
+  @Override
+  public long scanIds(
+      CollectionName collectionName, int numThreads, LongConsumer consumer, Span span) {
+    var collection = collections.get(collectionName);
+    if (collection == null) {
+      return 0;
+    }
+    long count = 0;
+    for (var id : collection.ids()) {
+      consumer.accept(IdLong.fromId(id).id());
+      count++;
+    }
+    return count;
+  }
+
+  private MemoryCollection collection(CollectionName collectionName) {
+    return collections.computeIfAbsent(
+        collectionName,
+        it -> {
+          var log = new DocumentLog(directory.resolve(it.name() + LOG_SUFFIX));
+          logs.put(it, log);
+          return new MemoryCollection(log);
+        });
+  }
+
+  private void forceAll() {
+    logs.values().forEach(DocumentLog::force);
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (fsyncExecutor != null) {
+      // interrupting a running force would close the channels of the logs
+      fsyncExecutor.shutdown();
+      fsyncExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    for (var log : logs.values()) {
+      log.close();
+    }
+  }
+
+  @Override
+  public void update(PhaseTopic.BenchmarkPhase update) {}
+
+  @Override
+  public void setSubject(Subject<PhaseTopic.BenchmarkPhase> subject) {
+    subject.unregister(this);
+  }
+}
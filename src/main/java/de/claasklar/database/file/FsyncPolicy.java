@@ -0,0 +1,11 @@
+package de.claasklar.database.file;
+
+/** When written documents are forced to the storage device. */
+public enum FsyncPolicy {
+  /** Every write returns after its document is durable. */
+  ALWAYS,
+  /** All logs are forced periodically, a crash loses at most the writes of one interval. */
+  INTERVAL,
+  /** The operating system decides, logs are only forced on close. */
+  NEVER
+}
@@ -0,0 +1,124 @@
+package de.claasklar.database.file;
+
+import static de.claasklar.primitives.document.NestedObjectValue.object;
+
+import de.claasklar.database.mongodb.codec.OurDocumentCodecRegistry;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.BoolValue;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.StringValue;
+import de.claasklar.primitives.document.Value;
+import de.claasklar.primitives.index.IndexConfiguration;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+/**
+ * Secondary indexes of a {@link FileDatabase}, which are stored as one BSON document in the
+ * directory of the logs, so the indexes are created again when the database is reopened. Only the
+ * collection, the first key and the unique and sparse options are stored, because the in memory
+ * indexes ignore all other options.
+ *
+ * <p>The manifest is replaced atomically whenever an index is added, so it is never torn.
+ */
+class IndexManifest {
+
+  private static final String INDEXES_FIELD_NAME = "indexes";
+  private static final String COLLECTION_FIELD_NAME = "collection";
+  private static final String FIELD_FIELD_NAME = "field";
+  private static final String TYPE_FIELD_NAME = "type";
+  private static final String UNIQUE_FIELD_NAME = "unique";
+  private static final String SPARSE_FIELD_NAME = "sparse";
+
+  private final Path file;
+  private final Codec<NestedObjectValue> codec;
+  private final List<NestedObjectValue> entries;
+
+  /**
+   * Reads the manifest, if it exists.
+   *
+   * @param file file of the manifest
+   */
+  IndexManifest(Path file) {
+    this.file = file;
+    this.codec = new OurDocumentCodecRegistry().get(NestedObjectValue.class);
+    this.entries = new ArrayList<>();
+    if (Files.exists(file)) {
+      try (var reader = new BsonBinaryReader(ByteBuffer.wrap(Files.readAllBytes(file)))) {
+        var manifest = codec.decode(reader, DecoderContext.builder().build());
+        ((ArrayValue) manifest.get(INDEXES_FIELD_NAME))
+            .forEach(entry -> entries.add((NestedObjectValue) entry));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  synchronized List<IndexConfiguration> indexConfigurations() {
+    return entries.stream().map(IndexManifest::indexConfiguration).toList();
+  }
+
+  /** Stores the index, if the manifest does not contain it yet. */
+  synchronized void add(IndexConfiguration indexConfiguration) {
+    var keys = indexConfiguration.getKeys();
+    if (keys == null || keys.entrySet().isEmpty()) {
+      return;
+    }
+    var key = keys.entrySet().iterator().next();
+    var values = new HashMap<String, Value>();
+    values.put(
+        COLLECTION_FIELD_NAME, new StringValue(indexConfiguration.getCollectionName().name()));
+    values.put(FIELD_FIELD_NAME, new StringValue(key.getKey()));
+    values.put(TYPE_FIELD_NAME, key.getValue());
+    values.put(
+        UNIQUE_FIELD_NAME, new BoolValue(Boolean.TRUE.equals(indexConfiguration.getUnique())));
+    values.put(
+        SPARSE_FIELD_NAME, new BoolValue(Boolean.TRUE.equals(indexConfiguration.getSparse())));
+    var entry = new NestedObjectValue(values);
+    if (entries.contains(entry)) {
+      return;
+    }
+    entries.add(entry);
+    write();
+  }
+
+  private void write() {
+    var buffer = new BasicOutputBuffer();
+    try (var writer = new BsonBinaryWriter(buffer)) {
+      codec.encode(
+          writer,
+          new NestedObjectValue(
+              INDEXES_FIELD_NAME, new ArrayValue(entries.stream().map(it -> (Value) it).toList())),
+          EncoderContext.builder().build());
+    }
+    try {
+      var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(temporary, buffer.toByteArray());
+      Files.move(
+          temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static IndexConfiguration indexConfiguration(NestedObjectValue entry) {
+    return IndexConfiguration.of(
+            new CollectionName(((StringValue) entry.get(COLLECTION_FIELD_NAME)).value()))
+        .keys(
+            object(((StringValue) entry.get(FIELD_FIELD_NAME)).value(), entry.get(TYPE_FIELD_NAME)))
+        .unique(((BoolValue) entry.get(UNIQUE_FIELD_NAME)).value())
+        .sparse(((BoolValue) entry.get(SPARSE_FIELD_NAME)).value());
+  }
+}
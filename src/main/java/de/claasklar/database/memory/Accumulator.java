@@ -0,0 +1,204 @@
+package de.claasklar.database.memory;
+
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.DoubleValue;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.Value;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Accumulates the values of one field of a $group stage. Supports $sum, $avg, $min, $max, $first,
+ * $last, $push, $addToSet and $count.
+ */
+abstract class Accumulator {
+
+  private final Value expression;
+
+  private Accumulator(Value expression) {
+    this.expression = expression;
+  }
+
+  /**
+   * @param specification accumulator object of a $group field, e.g. {$sum: "$price"}
+   * @return new accumulator for one group
+   */
+  static Accumulator of(String field, Value specification) {
+    if (!(specification instanceof NestedObjectValue object) || object.entrySet().size() != 1) {
+      throw new IllegalArgumentException("the field '" + field + "' must be an accumulator object");
+    }
+    var entry = object.entrySet().iterator().next();
+    var expression = entry.getValue();
+    return switch (entry.getKey()) {
+      case "$sum" -> new Sum(expression);
+      case "$count" -> new Sum(new IntValue(1));
+      case "$avg" -> new Average(expression);
+      case "$min" -> new Extreme(expression, -1);
+      case "$max" -> new Extreme(expression, 1);
+      case "$first" -> new First(expression);
+      case "$last" -> new Last(expression);
+      case "$push" -> new Push(expression);
+      case "$addToSet" -> new AddToSet(expression);
+      default -> throw new IllegalArgumentException(
+          "unknown group operator '" + entry.getKey() + "'");
+    };
+  }
+
+  void accumulate(Value document, Map<String, Value> variables) {
+    accumulate(Expressions.evaluate(expression, document, variables));
+  }
+
+  protected abstract void accumulate(Value value);
+
+  abstract Value result();
+
+  private static final class Sum extends Accumulator {
+    private Value sum = new IntValue(0);
+
+    private Sum(Value expression) {
+      super(expression);
+    }
+
+    @Override
+    protected void accumulate(Value value) {
+      if (Values.number(value) != null) {
+        sum = Values.add(sum, value);
+      }
+    }
+
+    @Override
+    Value result() {
+      return sum;
+    }
+  }
+
+  private static final class Average extends Accumulator {
+    private double sum = 0;
+    private long count = 0;
+
+    private Average(Value expression) {
+      super(expression);
+    }
+
+    @Override
+    protected void accumulate(Value value) {
+      var number = Values.number(value);
+      if (number != null) {
+        sum += number.doubleValue();
+        count++;
+      }
+    }
+
+    @Override
+    Value result() {
+      return count == 0 ? NullValue.VALUE : new DoubleValue(sum / count);
+    }
+  }
+
+  private static final class Extreme extends Accumulator {
+    private final int sign;
+    private Value extreme = null;
+
+    private Extreme(Value expression, int sign) {
+      super(expression);
+      this.sign = sign;
+    }
+
+    @Override
+    protected void accumulate(Value value) {
+      if (Values.isMissing(value)) {
+        return;
+      }
+      if (extreme == null || Integer.signum(Values.compare(value, extreme)) == sign) {
+        extreme = value;
+      }
+    }
+
+    @Override
+    Value result() {
+      return extreme == null ? NullValue.VALUE : extreme;
+    }
+  }
+
+  private static final class First extends Accumulator {
+    private Value first = null;
+    private boolean accumulated = false;
+
+    private First(Value expression) {
+      super(expression);
+    }
+
+    @Override
+    protected void accumulate(Value value) {
+      if (!accumulated) {
+        first = value;
+        accumulated = true;
+      }
+    }
+
+    @Override
+    Value result() {
+      return first == null ? NullValue.VALUE : first;
+    }
+  }
+
+  private static final class Last extends Accumulator {
+    private Value last = null;
+
+    private Last(Value expression) {
+      super(expression);
+    }
+
+    @Override
+    protected void accumulate(Value value) {
+      last = value;
+    }
+
+    @Override
+    Value result() {
+      return last == null ? NullValue.VALUE : last;
+    }
+  }
+
+  private static final class Push extends Accumulator {
+    private final ArrayValue values = new ArrayValue();
+
+    private Push(Value expression) {
+      super(expression);
+    }
+
+    @Override
+    protected void accumulate(Value value) {
+      if (value != null) {
+        values.add(value);
+      }
+    }
+
+    @Override
+    Value result() {
+      return values;
+    }
+  }
+
+  private static final class AddToSet extends Accumulator {
+    private final TreeSet<Value> values = new TreeSet<>(Values.COMPARATOR);
+
+    private AddToSet(Value expression) {
+      super(expression);
+    }
+
+    @Override
+    protected void accumulate(Value value) {
+      if (value != null) {
+        values.add(value);
+      }
+    }
+
+    @Override
+    Value result() {
+      return new ArrayValue(values.stream().toList());
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package de.claasklar.database.memory;
+
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.BoolValue;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.StringValue;
+import de.claasklar.primitives.document.Value;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+
+/**
+ * Evaluates aggregation expressions: field paths ("$field.path"), variables ("$$name.path"),
+ * literals, object expressions and the operators $eq, $ne, $gt, $gte, $lt, $lte, $in, $and, $or,
+ * $not, $add, $subtract, $multiply, $divide, $size, $ifNull, $cond and $literal.
+ */
+final class Expressions {
+
+  private Expressions() {}
+
+  /**
+   * @param expression expression to evaluate
+   * @param document current document
+   * @param variables variables defined with let, without the leading $$
+   * @return result, null if it selects a missing field
+   */
+  static Value evaluate(Value expression, Value document, Map<String, Value> variables) {
+    if (expression instanceof StringValue string) {
+      return evaluatePath(string.value(), document, variables);
+    }
+    if (expression instanceof ArrayValue array) {
+      var evaluated = new ArrayValue();
+      for (var element : array) {
+        var value = evaluate(element, document, variables);
+        evaluated.add(value == null ? NullValue.VALUE : value);
+      }
+      return evaluated;
+    }
+    if (expression instanceof NestedObjectValue object) {
+      var entries = object.entrySet();
+      if (entries.size() == 1) {
+        var entry = entries.iterator().next();
+        if (entry.getKey().startsWith("$")) {
+          return evaluateOperator(entry.getKey(), entry.getValue(), document, variables);
+        }
+      }
+      var evaluated = new HashMap<String, Value>();
+      for (var entry : entries) {
+        var value = evaluate(entry.getValue(), document, variables);
+        if (value != null) {
+          evaluated.put(entry.getKey(), value);
+        }
+      }
+      return new NestedObjectValue(evaluated);
+    }
+    return expression;
+  }
+
+  private static Value evaluatePath(String path, Value document, Map<String, Value> variables) {
+    if (path.startsWith("$$")) {
+      var separator = path.indexOf('.');
+      var name = separator < 0 ? path.substring(2) : path.substring(2, separator);
+      Value variable;
+      if (name.equals("ROOT") || name.equals("CURRENT")) {
+        variable = document;
+      } else if (variables.containsKey(name)) {
+        variable = variables.get(name);
+      } else {
+        throw new IllegalArgumentException("use of undefined variable: " + name);
+      }
+      return separator < 0 ? variable : Values.select(variable, path.substring(separator + 1));
+    }
+    if (path.startsWith("$")) {
+      return Values.select(document, path.substring(1));
+    }
+    return new StringValue(path);
+  }
+
+  private static Value evaluateOperator(
+      String operator, Value argument, Value document, Map<String, Value> variables) {
+    if (operator.equals("$literal")) {
+      return argument;
+    }
+    var arguments = arguments(argument, document, variables);
+    return switch (operator) {
+      case "$eq" -> new BoolValue(compare(operator, arguments) == 0);
+      case "$ne" -> new BoolValue(compare(operator, arguments) != 0);
+      case "$gt" -> new BoolValue(compare(operator, arguments) > 0);
+      case "$gte" -> new BoolValue(compare(operator, arguments) >= 0);
+      case "$lt" -> new BoolValue(compare(operator, arguments) < 0);
+      case "$lte" -> new BoolValue(compare(operator, arguments) <= 0);
+      case "$in" -> {
+        requireCount(operator, arguments, 2);
+        if (!(arguments.get(1) instanceof ArrayValue array)) {
+          throw new IllegalArgumentException("$in requires an array as second argument");
+        }
+        for (var element : array) {
+          if (Values.compare(arguments.get(0), element) == 0) {
+            yield new BoolValue(true);
+          }
+        }
+        yield new BoolValue(false);
+      }
+      case "$and" -> new BoolValue(arguments.stream().allMatch(Values::isTruthy));
+      case "$or" -> new BoolValue(arguments.stream().anyMatch(Values::isTruthy));
+      case "$not" -> {
+        requireCount(operator, arguments, 1);
+        yield new BoolValue(!Values.isTruthy(arguments.get(0)));
+      }
+      case "$add" -> fold(arguments, new IntValue(0), Values::add);
+      case "$multiply" -> fold(arguments, new IntValue(1), Values::multiply);
+      case "$subtract" -> {
+        requireCount(operator, arguments, 2);
+        yield Values.subtract(arguments.get(0), arguments.get(1));
+      }
+      case "$divide" -> {
+        requireCount(operator, arguments, 2);
+        yield Values.divide(arguments.get(0), arguments.get(1));
+      }
+      case "$size" -> {
+        requireCount(operator, arguments, 1);
+        if (!(arguments.get(0) instanceof ArrayValue array)) {
+          throw new IllegalArgumentException("the argument to $size must be an array");
+        }
+        yield new IntValue(Values.size(array));
+      }
+      case "$ifNull" -> {
+        for (var value : arguments) {
+          if (!Values.isMissing(value)) {
+            yield value;
+          }
+        }
+        yield NullValue.VALUE;
+      }
+      case "$cond" -> {
+        requireCount(operator, arguments, 3);
+        yield Values.isTruthy(arguments.get(0)) ? arguments.get(1) : arguments.get(2);
+      }
+      default -> throw new IllegalArgumentException("unsupported expression operator " + operator);
+    };
+  }
+
+  private static List<Value> arguments(
+      Value argument, Value document, Map<String, Value> variables) {
+    var arguments = new ArrayList<Value>();
+    if (argument instanceof ArrayValue array) {
+      for (var element : array) {
+        arguments.add(evaluate(element, document, variables));
+      }
+    } else {
+      arguments.add(evaluate(argument, document, variables));
+    }
+    return arguments;
+  }
+
+  private static int compare(String operator, List<Value> arguments) {
+    requireCount(operator, arguments, 2);
+    return Values.compare(arguments.get(0), arguments.get(1));
+  }
+
+  private static Value fold(List<Value> arguments, Value identity, BinaryOperator<Value> operator) {
+    if (arguments.isEmpty()) {
+      return identity;
+    }
+    var result = arguments.get(0);
+    for (var argument : arguments.subList(1, arguments.size())) {
+      result = operator.apply(result, argument);
+    }
+    return result;
+  }
+
+  private static void requireCount(String operator, List<Value> arguments, int count) {
+    if (arguments.size() != count) {
+      throw new IllegalArgumentException(
+          "expression " + operator + " takes exactly " + count + " arguments");
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package de.claasklar.database.memory;
+
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.Value;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Matches documents against query filters. Supports implicit equality, the comparison operators
+ * $eq, $ne, $gt, $gte, $lt, $lte, $in and $nin, the element operators $exists and $size, $not,
+ * $elemMatch, the logical operators $and, $or and $nor and $expr. A predicate on an array field
+ * matches, if the array or any of its elements matches.
+ */
+final class Filter {
+
+  private Filter() {}
+
+  /**
+   * @param filter query filter, null matches every document
+   * @param document document to match
+   * @param variables variables available to $expr
+   */
+  static boolean matches(NestedObjectValue filter, Value document, Map<String, Value> variables) {
+    if (filter == null) {
+      return true;
+    }
+    for (var entry : filter.entrySet()) {
+      if (!matches(entry.getKey(), entry.getValue(), document, variables)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean matches(
+      String key, Value condition, Value document, Map<String, Value> variables) {
+    return switch (key) {
+      case "$and" -> {
+        for (var filter : filters(key, condition)) {
+          if (!matches(filter, document, variables)) {
+            yield false;
+          }
+        }
+        yield true;
+      }
+      case "$or" -> {
+        for (var filter : filters(key, condition)) {
+          if (matches(filter, document, variables)) {
+            yield true;
+          }
+        }
+        yield false;
+      }
+      case "$nor" -> {
+        for (var filter : filters(key, condition)) {
+          if (matches(filter, document, variables)) {
+            yield false;
+          }
+        }
+        yield true;
+      }
+      case "$expr" -> Values.isTruthy(Expressions.evaluate(condition, document, variables));
+      default -> {
+        if (key.startsWith("$")) {
+          throw new IllegalArgumentException("unsupported query operator " + key);
+        }
+        yield matchesCondition(Values.candidates(document, key), condition, variables);
+      }
+    };
+  }
+
+  private static boolean matchesCondition(
+      List<Value> candidates, Value condition, Map<String, Value> variables) {
+    if (!isOperatorObject(condition)) {
+      return equalsAny(candidates, condition);
+    }
+    for (var entry : ((NestedObjectValue) condition).entrySet()) {
+      if (!matchesOperator(candidates, entry.getKey(), entry.getValue(), variables)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean matchesOperator(
+      List<Value> candidates, String operator, Value argument, Map<String, Value> variables) {
+    return switch (operator) {
+      case "$eq" -> equalsAny(candidates, argument);
+      case "$ne" -> !equalsAny(candidates, argument);
+      case "$gt" -> compareAny(candidates, argument, compared -> compared > 0);
+      case "$gte" -> compareAny(candidates, argument, compared -> compared >= 0);
+      case "$lt" -> compareAny(candidates, argument, compared -> compared < 0);
+      case "$lte" -> compareAny(candidates, argument, compared -> compared <= 0);
+      case "$in" -> inAny(candidates, operator, argument);
+      case "$nin" -> !inAny(candidates, operator, argument);
+      case "$exists" -> candidates.isEmpty() != Values.isTruthy(argument);
+      case "$size" -> {
+        for (var candidate : candidates) {
+          if (candidate instanceof ArrayValue array
+              && Values.compare(new IntValue(Values.size(array)), argument) == 0) {
+            yield true;
+          }
+        }
+        yield false;
+      }
+      case "$not" -> !matchesCondition(candidates, argument, variables);
+      case "$elemMatch" -> {
+        if (!(argument instanceof NestedObjectValue filter)) {
+          throw new IllegalArgumentException("$elemMatch needs an Object");
+        }
+        for (var candidate : candidates) {
+          if (candidate instanceof ArrayValue array) {
+            for (var element : array) {
+              var matches =
+                  isOperatorObject(filter)
+                      ? matchesCondition(List.of(element), filter, variables)
+                      : matches(filter, element, variables);
+              if (matches) {
+                yield true;
+              }
+            }
+          }
+        }
+        yield false;
+      }
+      default -> throw new IllegalArgumentException("unsupported query operator " + operator);
+    };
+  }
+
+  /**
+   * @return true, if the condition is an object of operators, e.g. {$gte: 1, $lt: 3}
+   */
+  static boolean isOperatorObject(Value condition) {
+    if (!(condition instanceof NestedObjectValue object)) {
+      return false;
+    }
+    var entries = object.entrySet();
+    return !entries.isEmpty() && entries.stream().allMatch(entry -> entry.getKey().startsWith("$"));
+  }
+
+  private static boolean equalsAny(List<Value> candidates, Value value) {
+    if (candidates.isEmpty()) {
+      return Values.isMissing(value);
+    }
+    for (var candidate : candidates) {
+      if (Values.sameBracket(candidate, value) && Values.compare(candidate, value) == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean compareAny(List<Value> candidates, Value value, IntPredicate predicate) {
+    var values = candidates.isEmpty() ? List.<Value>of(NullValue.VALUE) : candidates;
+    for (var candidate : values) {
+      if (Values.sameBracket(candidate, value)
+          && predicate.test(Values.compare(candidate, value))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean inAny(List<Value> candidates, String operator, Value argument) {
+    if (!(argument instanceof ArrayValue array)) {
+      throw new IllegalArgumentException(operator + " needs an array");
+    }
+    for (var value : array) {
+      if (equalsAny(candidates, value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<NestedObjectValue> filters(String operator, Value condition) {
+    if (!(condition instanceof ArrayValue array)) {
+      throw new IllegalArgumentException(operator + " must be an array");
+    }
+    var filters = new ArrayList<NestedObjectValue>();
+    for (var filter : array) {
+      if (!(filter instanceof NestedObjectValue object)) {
+        throw new IllegalArgumentException(operator + " entries need to be full objects");
+      }
+      filters.add(object);
+    }
+    return filters;
+  }
+}
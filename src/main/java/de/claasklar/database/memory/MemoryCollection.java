@@ -0,0 +1,318 @@
+package de.claasklar.database.memory;
+
+import de.claasklar.database.mongodb.codec.LazyValueMap;
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.StringValue;
+import de.claasklar.primitives.document.Value;
+import de.claasklar.primitives.index.IndexConfiguration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.bson.RawBsonDocument;
+
+/**
+ * Documents of one collection together with their secondary indexes. The indexes are kept up to
+ * date on every write and are used to find candidate documents for filters on an indexed field or
+ * on _id.
+ *
+ * <p>Writes and index creations of a collection are serialized, so unique keys are checked and all
+ * indexes are updated atomically. Reads and queries do not wait for writes.
+ */
+public class MemoryCollection {
+
+  private static final String ID_FIELD_NAME = "_id";
+
+  private final Map<Id, OurDocument> documents;
+  private final List<SecondaryIndex> indexes;
+
+  public MemoryCollection() {
+    this(new ConcurrentHashMap<>());
+  }
+
+  /**
+   * @param documents thread safe storage of the documents by id, e.g. a file backed map. The return
+   *     value of put is not used.
+   */
+  public MemoryCollection(Map<Id, OurDocument> documents) {
+    this.documents = documents;
+    this.indexes = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * Inserts or replaces the document and updates all indexes. Unique keys are checked before any
+   * index is updated, so a rejected document leaves all indexes unchanged.
+   *
+   * @throws IllegalArgumentException if the document violates a unique index
+   */
+  public synchronized void write(OurDocument document) {
+    if (indexes.isEmpty()) {
+      documents.put(document.getId(), document);
+      return;
+    }
+    var view = Values.view(document);
+    for (var index : indexes) {
+      index.checkUnique(document.getId(), view);
+    }
+    var previous = documents.get(document.getId());
+    var previousView = previous == null ? null : Values.view(previous);
+    for (var index : indexes) {
+      if (previousView != null) {
+        index.remove(document.getId(), previousView);
+      }
+      index.add(document.getId(), view);
+    }
+    documents.put(document.getId(), document);
+  }
+
+  /**
+   * @return the document with all fields, documents, which were generated encoded, are decoded
+   */
+  public Optional<OurDocument> read(Id id) {
+    var document = documents.get(id);
+    if (document != null && document.isEncoded()) {
+      return Optional.of(LazyValueMap.ourDocument(new RawBsonDocument(document.getEncoded())));
+    }
+    return Optional.ofNullable(document);
+  }
+
+  public Set<Id> ids() {
+    return documents.keySet();
+  }
+
+  /**
+   * Creates an ordered index on the first key of the index configuration and indexes all existing
+   * documents. Compound indexes only index their first key, other fields of a filter are matched by
+   * scanning the candidates. Text and geospatial indexes are ignored.
+   */
+  public synchronized void createIndex(IndexConfiguration indexConfiguration) {
+    var keys = indexConfiguration.getKeys();
+    if (keys == null || keys.entrySet().isEmpty()) {
+      throw new IllegalArgumentException("index needs at least one key");
+    }
+    var key = keys.entrySet().iterator().next();
+    if (key.getValue() instanceof StringValue type && !type.value().equals("hashed")) {
+      return;
+    }
+    if (indexes.stream().anyMatch(index -> index.getFieldPath().equals(key.getKey()))) {
+      return;
+    }
+    var index =
+        new SecondaryIndex(
+            key.getKey(),
+            Boolean.TRUE.equals(indexConfiguration.getUnique()),
+            Boolean.TRUE.equals(indexConfiguration.getSparse()));
+    documents.forEach(
+        (id, document) -> {
+          var view = Values.view(document);
+          index.checkUnique(id, view);
+          index.add(id, view);
+        });
+    indexes.add(index);
+  }
+
+  /**
+   * @return all documents, encoded documents are decoded on access
+   */
+  List<Value> documents() {
+    var all = new ArrayList<Value>(documents.size());
+    documents.values().forEach(document -> all.add(Values.view(document)));
+    return all;
+  }
+
+  /**
+   * Selects the documents, which may match the filter, with the help of an index. Only top level
+   * predicates and $expr equalities on _id or on an indexed field are used. The returned documents
+   * still need to be matched against the whole filter.
+   *
+   * @return candidate documents, empty if no index can be used
+   */
+  Optional<List<Value>> candidates(NestedObjectValue filter, Map<String, Value> variables) {
+    if (filter == null) {
+      return Optional.empty();
+    }
+    for (var entry : filter.entrySet()) {
+      var ids = candidateIds(entry.getKey(), entry.getValue(), variables);
+      if (ids.isPresent()) {
+        return Optional.of(documents(ids.get()));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * @return documents, whose field holds one of the values, like $lookup with localField and
+   *     foreignField
+   */
+  List<Value> lookup(String fieldPath, Collection<Value> values) {
+    var ids = equal(fieldPath, values);
+    if (ids.isPresent()) {
+      var found = documents(ids.get());
+      found.removeIf(document -> !matchesAny(document, fieldPath, values));
+      return found;
+    }
+    var found = new ArrayList<Value>();
+    for (var document : documents.values()) {
+      var view = Values.view(document);
+      if (matchesAny(view, fieldPath, values)) {
+        found.add(view);
+      }
+    }
+    return found;
+  }
+
+  private static boolean matchesAny(Value document, String fieldPath, Collection<Value> values) {
+    var candidates = Values.candidates(document, fieldPath);
+    if (candidates.isEmpty()) {
+      return values.stream().anyMatch(Values::isMissing);
+    }
+    for (var candidate : candidates) {
+      for (var value : values) {
+        if (Values.compare(candidate, value) == 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private Optional<Set<Id>> candidateIds(
+      String key, Value condition, Map<String, Value> variables) {
+    if (key.equals("$and") && condition instanceof ArrayValue filters) {
+      for (var filter : filters) {
+        if (filter instanceof NestedObjectValue object) {
+          for (var entry : object.entrySet()) {
+            var ids = candidateIds(entry.getKey(), entry.getValue(), variables);
+            if (ids.isPresent()) {
+              return ids;
+            }
+          }
+        }
+      }
+      return Optional.empty();
+    }
+    if (key.equals("$expr")) {
+      return exprEquality(condition, variables);
+    }
+    if (key.startsWith("$")) {
+      return Optional.empty();
+    }
+    if (!Filter.isOperatorObject(condition)) {
+      return equal(key, List.of(condition));
+    }
+    var operators = (NestedObjectValue) condition;
+    if (operators.get("$eq") != null) {
+      return equal(key, List.of(operators.get("$eq")));
+    }
+    if (operators.get("$in") instanceof ArrayValue values) {
+      var list = new ArrayList<Value>();
+      values.forEach(list::add);
+      return equal(key, list);
+    }
+    var index = index(key);
+    if (index.isEmpty()) {
+      return Optional.empty();
+    }
+    Value lower = null;
+    Value upper = null;
+    var lowerInclusive = false;
+    var upperInclusive = false;
+    for (var entry : operators.entrySet()) {
+      switch (entry.getKey()) {
+        case "$gt" -> lower = entry.getValue();
+        case "$gte" -> {
+          lower = entry.getValue();
+          lowerInclusive = true;
+        }
+        case "$lt" -> upper = entry.getValue();
+        case "$lte" -> {
+          upper = entry.getValue();
+          upperInclusive = true;
+        }
+        default -> {}
+      }
+    }
+    if (lower == null && upper == null) {
+      return Optional.empty();
+    }
+    return Optional.of(index.get().range(lower, lowerInclusive, upper, upperInclusive));
+  }
+
+  /** Uses {$expr: {$eq: ["$field", "$$variable"]}}, which compares a field with a constant. */
+  private Optional<Set<Id>> exprEquality(Value condition, Map<String, Value> variables) {
+    if (!(condition instanceof NestedObjectValue expression)
+        || expression.entrySet().size() != 1
+        || !(expression.get("$eq") instanceof ArrayValue arguments)
+        || Values.size(arguments) != 2) {
+      return Optional.empty();
+    }
+    var iterator = arguments.iterator();
+    var first = iterator.next();
+    var second = iterator.next();
+    if (isFieldPath(second) && !isFieldPath(first)) {
+      var swap = first;
+      first = second;
+      second = swap;
+    }
+    if (!isFieldPath(first) || isFieldPath(second)) {
+      return Optional.empty();
+    }
+    var value = Expressions.evaluate(second, null, variables);
+    if (value instanceof ArrayValue) {
+      // $expr compares arrays as a whole, but the index holds their elements as well
+      return Optional.empty();
+    }
+    return equal(((StringValue) first).value().substring(1), List.of(value));
+  }
+
+  private static boolean isFieldPath(Value value) {
+    return value instanceof StringValue string
+        && string.value().startsWith("$")
+        && !string.value().startsWith("$$");
+  }
+
+  private Optional<Set<Id>> equal(String fieldPath, Collection<Value> values) {
+    if (fieldPath.equals(ID_FIELD_NAME)) {
+      var ids = new HashSet<Id>();
+      for (var value : values) {
+        // all ids are of type Id, so other values never match
+        if (value instanceof Id id) {
+          ids.add(id);
+        }
+      }
+      return Optional.of(ids);
+    }
+    if (values.stream().anyMatch(Values::isMissing)) {
+      return Optional.empty();
+    }
+    return index(fieldPath).map(index -> index.equal(values));
+  }
+
+  private Optional<SecondaryIndex> index(String fieldPath) {
+    for (var index : indexes) {
+      if (index.getFieldPath().equals(fieldPath)) {
+        return Optional.of(index);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private List<Value> documents(Set<Id> ids) {
+    var found = new ArrayList<Value>(ids.size());
+    for (var id : ids) {
+      var document = documents.get(id);
+      if (document != null) {
+        found.add(Values.view(document));
+      }
+    }
+    return found;
+  }
+}
@@ -0,0 +1,406 @@
+package de.claasklar.database.memory;
+
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.BoolValue;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.ObjectValue;
+import de.claasklar.primitives.document.StringValue;
+import de.claasklar.primitives.document.Value;
+import de.claasklar.primitives.query.Aggregation;
+import de.claasklar.primitives.query.Find;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Evaluates find queries and aggregation pipelines over in memory collections. Aggregations support
+ * the stages $match, $group, $lookup (with localField and foreignField), $project, $addFields,
+ * $set, $unset, $sort, $unwind, $limit, $skip, $count, $replaceRoot and $replaceWith. A leading
+ * $match and the foreign side of $lookup use secondary indexes where possible.
+ */
+public class QueryEngine {
+
+  private final Function<CollectionName, Optional<MemoryCollection>> collections;
+
+  /**
+   * @param collections looks up a collection by name, empty if the collection does not exist
+   */
+  public QueryEngine(Function<CollectionName, Optional<MemoryCollection>> collections) {
+    this.collections = collections;
+  }
+
+  /**
+   * @return documents found by the query after applying filter, sort, skip, limit and projection
+   */
+  public List<Value> find(Find find) {
+    var options = find.getFindOptions();
+    var variables = variables(options.getVariables());
+    var documents = match(find.getCollectionName(), options.getFilter(), variables);
+    if (options.getSort() != null) {
+      documents.sort(comparator(options.getSort()));
+    }
+    var skip = options.getSkip() == null ? 0 : options.getSkip();
+    var limit = options.getLimit() == null || options.getLimit() == 0 ? -1 : options.getLimit();
+    documents = slice(documents, skip, limit);
+    if (options.getProjection() != null) {
+      documents = project(documents, options.getProjection(), variables);
+    }
+    return documents;
+  }
+
+  /**
+   * @return documents returned by the pipeline's last stage
+   */
+  public List<Value> aggregate(Aggregation aggregation) {
+    var options = aggregation.getAggregationOptions();
+    var variables = variables(options.getVariables());
+    var pipeline = new ArrayList<NestedObjectValue>();
+    for (var stage : options.getPipeline()) {
+      if (!(stage instanceof NestedObjectValue object) || object.entrySet().size() != 1) {
+        throw new IllegalArgumentException(
+            "a pipeline stage specification object must contain exactly one field");
+      }
+      pipeline.add(object);
+    }
+    List<Value> documents;
+    var first = pipeline.isEmpty() ? null : pipeline.get(0).get("$match");
+    if (options.getAggregate().equals("1")) {
+      documents = new ArrayList<>();
+    } else if (first instanceof NestedObjectValue filter) {
+      documents = match(aggregation.getCollectionName(), filter, variables);
+      pipeline.remove(0);
+    } else {
+      documents =
+          collections
+              .apply(aggregation.getCollectionName())
+              .map(MemoryCollection::documents)
+              .orElseGet(ArrayList::new);
+    }
+    for (var stage : pipeline) {
+      var entry = stage.entrySet().iterator().next();
+      documents = stage(entry.getKey(), entry.getValue(), documents, variables);
+    }
+    return documents;
+  }
+
+  private List<Value> stage(
+      String name, Value specification, List<Value> documents, Map<String, Value> variables) {
+    return switch (name) {
+      case "$match" -> {
+        var filter = requireObject(name, specification);
+        var matched = new ArrayList<Value>();
+        for (var document : documents) {
+          if (Filter.matches(filter, document, variables)) {
+            matched.add(document);
+          }
+        }
+        yield matched;
+      }
+      case "$project" -> project(documents, requireObject(name, specification), variables);
+      case "$addFields", "$set" -> {
+        var fields = requireObject(name, specification);
+        var added = new ArrayList<Value>(documents.size());
+        for (var document : documents) {
+          var copy = Values.copy(document);
+          for (var field : fields.entrySet()) {
+            Values.set(copy, field.getKey(), evaluate(field.getValue(), document, variables));
+          }
+          added.add(copy);
+        }
+        yield added;
+      }
+      case "$unset" -> {
+        var paths = new ArrayList<String>();
+        if (specification instanceof ArrayValue array) {
+          array.forEach(path -> paths.add(requireString(name, path)));
+        } else {
+          paths.add(requireString(name, specification));
+        }
+        var unset = new ArrayList<Value>(documents.size());
+        for (var document : documents) {
+          var copy = Values.copy(document);
+          paths.forEach(path -> Values.remove(copy, path));
+          unset.add(copy);
+        }
+        yield unset;
+      }
+      case "$sort" -> {
+        var sorted = new ArrayList<>(documents);
+        sorted.sort(comparator(requireObject(name, specification)));
+        yield sorted;
+      }
+      case "$skip" -> slice(documents, requireInt(name, specification), -1);
+      case "$limit" -> slice(documents, 0, requireInt(name, specification));
+      case "$count" -> {
+        if (documents.isEmpty()) {
+          yield List.of();
+        }
+        yield List.of(
+            new NestedObjectValue(
+                requireString(name, specification), new IntValue(documents.size())));
+      }
+      case "$unwind" -> unwind(specification, documents);
+      case "$lookup" -> lookup(requireObject(name, specification), documents);
+      case "$group" -> group(requireObject(name, specification), documents, variables);
+      case "$replaceRoot", "$replaceWith" -> {
+        var newRoot =
+            name.equals("$replaceRoot")
+                ? requireObject(name, specification).get("newRoot")
+                : specification;
+        var replaced = new ArrayList<Value>(documents.size());
+        for (var document : documents) {
+          var root = Expressions.evaluate(newRoot, document, variables);
+          if (!Values.isObject(root)) {
+            throw new IllegalArgumentException(
+                "'newRoot' expression must evaluate to an object, but resulting value was: "
+                    + root);
+          }
+          replaced.add(root);
+        }
+        yield replaced;
+      }
+      default -> throw new IllegalArgumentException(
+          "Unrecognized pipeline stage name: '" + name + "'");
+    };
+  }
+
+  private List<Value> match(
+      CollectionName collectionName, NestedObjectValue filter, Map<String, Value> variables) {
+    var collection = collections.apply(collectionName);
+    if (collection.isEmpty()) {
+      return new ArrayList<>();
+    }
+    var candidates =
+        collection.get().candidates(filter, variables).orElseGet(collection.get()::documents);
+    var matched = new ArrayList<Value>();
+    for (var document : candidates) {
+      if (Filter.matches(filter, document, variables)) {
+        matched.add(document);
+      }
+    }
+    return matched;
+  }
+
+  /**
+   * Either includes the fields set to 1 or true, or excludes the fields set to 0 or false. Fields
+   * set to any other value are computed with the value as expression. _id is included unless it is
+   * excluded explicitly.
+   */
+  private List<Value> project(
+      List<Value> documents, NestedObjectValue projection, Map<String, Value> variables) {
+    if (projection.entrySet().isEmpty()) {
+      return documents;
+    }
+    var exclusion =
+        projection.entrySet().stream()
+            .filter(entry -> !entry.getKey().equals("_id"))
+            .allMatch(entry -> isExclusion(entry.getValue()));
+    var projected = new ArrayList<Value>(documents.size());
+    for (var document : documents) {
+      var copy = exclusion ? Values.copy(document) : new NestedObjectValue();
+      var includeId = true;
+      for (var entry : projection.entrySet()) {
+        var path = entry.getKey();
+        var value = entry.getValue();
+        if (isExclusion(value)) {
+          Values.remove(copy, path);
+          includeId &= !path.equals("_id");
+        } else if (isInclusion(value)) {
+          var selected = Values.select(document, path);
+          if (selected != null) {
+            Values.set(copy, path, selected);
+          }
+        } else {
+          Values.set(copy, path, evaluate(value, document, variables));
+        }
+      }
+      if (!exclusion && includeId) {
+        var id = Values.select(document, "_id");
+        if (id != null && copy.get("_id") == null) {
+          copy.put("_id", id);
+        }
+      }
+      projected.add(copy);
+    }
+    return projected;
+  }
+
+  private static boolean isExclusion(Value value) {
+    return (value instanceof BoolValue bool && !bool.value())
+        || (Values.number(value) != null && Values.number(value).doubleValue() == 0);
+  }
+
+  private static boolean isInclusion(Value value) {
+    return value instanceof BoolValue || Values.number(value) != null;
+  }
+
+  private List<Value> unwind(Value specification, List<Value> documents) {
+    String path;
+    var preserveNullAndEmptyArrays = false;
+    if (specification instanceof NestedObjectValue object) {
+      path = requireString("$unwind", object.get("path"));
+      preserveNullAndEmptyArrays = Values.isTruthy(object.get("preserveNullAndEmptyArrays"));
+    } else {
+      path = requireString("$unwind", specification);
+    }
+    if (!path.startsWith("$")) {
+      throw new IllegalArgumentException(
+          "path option to $unwind stage should be prefixed with a '$': " + path);
+    }
+    path = path.substring(1);
+    var unwound = new ArrayList<Value>();
+    for (var document : documents) {
+      var value = Values.select(document, path);
+      if (value instanceof ArrayValue array) {
+        var empty = true;
+        for (var element : array) {
+          var copy = Values.copy(document);
+          Values.set(copy, path, element);
+          unwound.add(copy);
+          empty = false;
+        }
+        if (empty && preserveNullAndEmptyArrays) {
+          var copy = Values.copy(document);
+          Values.remove(copy, path);
+          unwound.add(copy);
+        }
+      } else if (!Values.isMissing(value) || preserveNullAndEmptyArrays) {
+        unwound.add(document);
+      }
+    }
+    return unwound;
+  }
+
+  private List<Value> lookup(NestedObjectValue specification, List<Value> documents) {
+    var from = new CollectionName(requireString("$lookup", specification.get("from")));
+    var localField = requireString("$lookup", specification.get("localField"));
+    var foreignField = requireString("$lookup", specification.get("foreignField"));
+    var as = requireString("$lookup", specification.get("as"));
+    var collection = collections.apply(from);
+    var joined = new ArrayList<Value>(documents.size());
+    for (var document : documents) {
+      var local = Values.select(document, localField);
+      var locals = new ArrayList<Value>();
+      if (local instanceof ArrayValue array) {
+        array.forEach(locals::add);
+      } else {
+        locals.add(local == null ? NullValue.VALUE : local);
+      }
+      var foreign = collection.map(it -> it.lookup(foreignField, locals)).orElseGet(ArrayList::new);
+      var copy = Values.copy(document);
+      Values.set(copy, as, new ArrayValue(foreign));
+      joined.add(copy);
+    }
+    return joined;
+  }
+
+  private List<Value> group(
+      NestedObjectValue specification, List<Value> documents, Map<String, Value> variables) {
+    var fields = new ArrayList<Map.Entry<String, Value>>();
+    Value idExpression = null;
+    var hasId = false;
+    for (var entry : specification.entrySet()) {
+      if (entry.getKey().equals("_id")) {
+        idExpression = entry.getValue();
+        hasId = true;
+      } else {
+        fields.add(entry);
+      }
+    }
+    if (!hasId) {
+      throw new IllegalArgumentException("a group specification must include an _id");
+    }
+    var groups = new TreeMap<Value, Accumulator[]>(Values.COMPARATOR);
+    for (var document : documents) {
+      var id = evaluate(idExpression, document, variables);
+      var accumulators =
+          groups.computeIfAbsent(
+              id,
+              it ->
+                  fields.stream()
+                      .map(field -> Accumulator.of(field.getKey(), field.getValue()))
+                      .toArray(Accumulator[]::new));
+      for (var accumulator : accumulators) {
+        accumulator.accumulate(document, variables);
+      }
+    }
+    var grouped = new ArrayList<Value>(groups.size());
+    groups.forEach(
+        (id, accumulators) -> {
+          var group = new NestedObjectValue("_id", id);
+          for (int i = 0; i < accumulators.length; i++) {
+            group.put(fields.get(i).getKey(), accumulators[i].result());
+          }
+          grouped.add(group);
+        });
+    return grouped;
+  }
+
+  /** Missing fields sort first, like null. */
+  private static Comparator<Value> comparator(NestedObjectValue sort) {
+    Comparator<Value> comparator = (left, right) -> 0;
+    for (var entry : sort.entrySet()) {
+      var path = entry.getKey();
+      var number = Values.number(entry.getValue());
+      if (number == null || (number.intValue() != 1 && number.intValue() != -1)) {
+        throw new IllegalArgumentException("$sort key ordering must be 1 (for ascending) or -1");
+      }
+      Comparator<Value> field =
+          Comparator.comparing(document -> Values.select(document, path), Values.COMPARATOR);
+      comparator = comparator.thenComparing(number.intValue() == 1 ? field : field.reversed());
+    }
+    return comparator;
+  }
+
+  private static List<Value> slice(List<Value> documents, int skip, int limit) {
+    if (skip < 0 || limit == 0) {
+      throw new IllegalArgumentException("skip must be non-negative and limit positive");
+    }
+    var from = Math.min(skip, documents.size());
+    var to = limit < 0 ? documents.size() : Math.min(documents.size(), from + limit);
+    return new ArrayList<>(documents.subList(from, to));
+  }
+
+  private static Value evaluate(Value expression, Value document, Map<String, Value> variables) {
+    var value = Expressions.evaluate(expression, document, variables);
+    return value == null ? NullValue.VALUE : value;
+  }
+
+  private static Map<String, Value> variables(ObjectValue variables) {
+    var map = new HashMap<String, Value>();
+    if (variables != null) {
+      variables.entrySet().forEach(entry -> map.put(entry.getKey(), entry.getValue()));
+    }
+    return map;
+  }
+
+  private static NestedObjectValue requireObject(String stage, Value specification) {
+    if (!(specification instanceof NestedObjectValue object)) {
+      throw new IllegalArgumentException("the " + stage + " stage specification must be an object");
+    }
+    return object;
+  }
+
+  private static String requireString(String stage, Value value) {
+    if (!(value instanceof StringValue string)) {
+      throw new IllegalArgumentException(stage + " requires a string, but got " + value);
+    }
+    return string.value();
+  }
+
+  private static int requireInt(String stage, Value value) {
+    var number = Values.number(value);
+    if (number == null) {
+      throw new IllegalArgumentException(stage + " requires a number, but got " + value);
+    }
+    return number.intValue();
+  }
+}
@@ -0,0 +1,125 @@
+package de.claasklar.database.memory;
+
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.Value;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Ordered index over one field path, which maps field values to the ids of the documents holding
+ * them. Array fields are multikey: the array and each of its elements are indexed. Documents, which
+ * are missing the field, are indexed under null unless the index is sparse.
+ *
+ * <p>The index can be read concurrently, but modifications have to be serialized by the owning
+ * {@link MemoryCollection}, because the sets of ids are modified in place.
+ */
+final class SecondaryIndex {
+
+  private final String fieldPath;
+  private final boolean unique;
+  private final boolean sparse;
+  private final ConcurrentSkipListMap<Value, Set<Id>> entries;
+
+  SecondaryIndex(String fieldPath, boolean unique, boolean sparse) {
+    this.fieldPath = fieldPath;
+    this.unique = unique;
+    this.sparse = sparse;
+    this.entries = new ConcurrentSkipListMap<>(Values.COMPARATOR);
+  }
+
+  String getFieldPath() {
+    return fieldPath;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the index is unique and another document already holds one
+   *     of the keys
+   */
+  void checkUnique(Id id, Value document) {
+    if (!unique) {
+      return;
+    }
+    for (var key : keys(document)) {
+      var ids = entries.get(key);
+      if (ids != null && !ids.isEmpty() && !ids.contains(id)) {
+        throw new IllegalArgumentException(
+            "duplicate key " + key + " in unique index on " + fieldPath);
+      }
+    }
+  }
+
+  /** Indexes the document without checking unique keys, see {@link #checkUnique}. */
+  void add(Id id, Value document) {
+    for (var key : keys(document)) {
+      entries.compute(
+          key,
+          (it, ids) -> {
+            if (ids == null) {
+              ids = ConcurrentHashMap.newKeySet();
+            }
+            ids.add(id);
+            return ids;
+          });
+    }
+  }
+
+  void remove(Id id, Value document) {
+    for (var key : keys(document)) {
+      entries.computeIfPresent(
+          key,
+          (it, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+          });
+    }
+  }
+
+  /**
+   * @return ids of all documents holding one of the values
+   */
+  Set<Id> equal(Collection<Value> values) {
+    var ids = new HashSet<Id>();
+    for (var value : values) {
+      var found = entries.get(value);
+      if (found != null) {
+        ids.addAll(found);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * @param lower lower bound, null for no bound
+   * @param upper upper bound, null for no bound
+   * @return ids of all documents holding a value within the bounds
+   */
+  Set<Id> range(Value lower, boolean lowerInclusive, Value upper, boolean upperInclusive) {
+    NavigableMap<Value, Set<Id>> range = entries;
+    if (lower != null) {
+      range = range.tailMap(lower, lowerInclusive);
+    }
+    if (upper != null) {
+      range = range.headMap(upper, upperInclusive);
+    }
+    var ids = new HashSet<Id>();
+    range.values().forEach(ids::addAll);
+    return ids;
+  }
+
+  private Set<Value> keys(Value document) {
+    List<Value> candidates = Values.candidates(document, fieldPath);
+    if (candidates.isEmpty()) {
+      return sparse ? Set.of() : Set.of(NullValue.VALUE);
+    }
+    var keys = new TreeSet<>(Values.COMPARATOR);
+    keys.addAll(candidates);
+    return keys;
+  }
+}
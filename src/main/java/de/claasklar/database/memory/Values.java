@@ -0,0 +1,377 @@
+package de.claasklar.database.memory;
+
+import de.claasklar.database.mongodb.codec.LazyValueMap;
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.BoolValue;
+import de.claasklar.primitives.document.ByteValue;
+import de.claasklar.primitives.document.DoubleValue;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.LongValue;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.ObjectValue;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.StringValue;
+import de.claasklar.primitives.document.Value;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.bson.RawBsonDocument;
+
+/**
+ * Comparison, arithmetic and field path access on values with MongoDB's semantics. A missing field
+ * is represented by null and compares like {@link NullValue}.
+ */
+final class Values {
+
+  /** Orders values like MongoDB: null, numbers, strings, objects, arrays, binary, ids, booleans. */
+  static final Comparator<Value> COMPARATOR = Values::compare;
+
+  private Values() {}
+
+  static int compare(Value left, Value right) {
+    var bracket = Integer.compare(bracket(left), bracket(right));
+    if (bracket != 0) {
+      return bracket;
+    }
+    if (left instanceof StringValue l && right instanceof StringValue r) {
+      return l.value().compareTo(r.value());
+    }
+    if (left instanceof BoolValue l && right instanceof BoolValue r) {
+      return Boolean.compare(l.value(), r.value());
+    }
+    if (left instanceof Id l && right instanceof Id r) {
+      return Arrays.compareUnsigned(l.id(), r.id());
+    }
+    if (left instanceof ByteValue l && right instanceof ByteValue r) {
+      return Arrays.compareUnsigned(l.value(), r.value());
+    }
+    if (left instanceof ArrayValue l && right instanceof ArrayValue r) {
+      return compare(l.iterator(), r.iterator());
+    }
+    if (isObject(left) && isObject(right)) {
+      return compareObjects((ObjectValue) left, (ObjectValue) right);
+    }
+    var l = number(left);
+    var r = number(right);
+    if (l != null && r != null) {
+      if (isIntegral(l) && isIntegral(r)) {
+        return Long.compare(l.longValue(), r.longValue());
+      }
+      return Double.compare(l.doubleValue(), r.doubleValue());
+    }
+    return 0;
+  }
+
+  /**
+   * @return true, if both values are of the same type and compare equal, e.g. a query for 1 does
+   *     not match "1"
+   */
+  static boolean sameBracket(Value left, Value right) {
+    return bracket(left) == bracket(right);
+  }
+
+  private static int bracket(Value value) {
+    if (value == null || value instanceof NullValue) {
+      return 0;
+    }
+    if (value instanceof IntValue || value instanceof LongValue || value instanceof DoubleValue) {
+      return 1;
+    }
+    if (value instanceof StringValue) {
+      return 2;
+    }
+    if (isObject(value)) {
+      return 3;
+    }
+    if (value instanceof ArrayValue) {
+      return 4;
+    }
+    if (value instanceof ByteValue) {
+      return 5;
+    }
+    if (value instanceof Id) {
+      return 6;
+    }
+    return 7;
+  }
+
+  private static int compare(Iterator<Value> left, Iterator<Value> right) {
+    while (left.hasNext() && right.hasNext()) {
+      var compared = compare(left.next(), right.next());
+      if (compared != 0) {
+        return compared;
+      }
+    }
+    return Boolean.compare(left.hasNext(), right.hasNext());
+  }
+
+  private static int compareObjects(ObjectValue left, ObjectValue right) {
+    var l = sorted(left).entrySet().iterator();
+    var r = sorted(right).entrySet().iterator();
+    while (l.hasNext() && r.hasNext()) {
+      var leftEntry = l.next();
+      var rightEntry = r.next();
+      var compared = leftEntry.getKey().compareTo(rightEntry.getKey());
+      if (compared == 0) {
+        compared = compare(leftEntry.getValue(), rightEntry.getValue());
+      }
+      if (compared != 0) {
+        return compared;
+      }
+    }
+    return Boolean.compare(l.hasNext(), r.hasNext());
+  }
+
+  private static Map<String, Value> sorted(ObjectValue object) {
+    var sorted = new TreeMap<String, Value>();
+    object.entrySet().forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+    return sorted;
+  }
+
+  static boolean isObject(Value value) {
+    return value instanceof NestedObjectValue || value instanceof OurDocument;
+  }
+
+  static boolean isMissing(Value value) {
+    return value == null || value instanceof NullValue;
+  }
+
+  /**
+   * @return false for false, null, missing values and zero, true otherwise
+   */
+  static boolean isTruthy(Value value) {
+    if (isMissing(value)) {
+      return false;
+    }
+    if (value instanceof BoolValue bool) {
+      return bool.value();
+    }
+    var number = number(value);
+    return number == null || number.doubleValue() != 0;
+  }
+
+  static int size(ArrayValue array) {
+    var size = 0;
+    for (var ignored : array) {
+      size++;
+    }
+    return size;
+  }
+
+  static Number number(Value value) {
+    if (value instanceof IntValue i) {
+      return i.value();
+    }
+    if (value instanceof LongValue l) {
+      return l.value();
+    }
+    if (value instanceof DoubleValue d) {
+      return d.value();
+    }
+    return null;
+  }
+
+  private static boolean isIntegral(Number number) {
+    return number instanceof Integer || number instanceof Long;
+  }
+
+  static Value add(Value left, Value right) {
+    return arithmetic(left, right, Math::addExact, Double::sum);
+  }
+
+  static Value subtract(Value left, Value right) {
+    return arithmetic(left, right, Math::subtractExact, (l, r) -> l - r);
+  }
+
+  static Value multiply(Value left, Value right) {
+    return arithmetic(left, right, Math::multiplyExact, (l, r) -> l * r);
+  }
+
+  static Value divide(Value left, Value right) {
+    if (isMissing(left) || isMissing(right)) {
+      return NullValue.VALUE;
+    }
+    var divisor = requireNumber(right).doubleValue();
+    if (divisor == 0) {
+      throw new ArithmeticException("can't divide by zero");
+    }
+    return new DoubleValue(requireNumber(left).doubleValue() / divisor);
+  }
+
+  /**
+   * Integral operands keep integral results, int operands whose result overflows an int are widened
+   * to long.
+   */
+  private static Value arithmetic(
+      Value left, Value right, LongOperator integral, DoubleOperator floating) {
+    if (isMissing(left) || isMissing(right)) {
+      return NullValue.VALUE;
+    }
+    var l = requireNumber(left);
+    var r = requireNumber(right);
+    if (!isIntegral(l) || !isIntegral(r)) {
+      return new DoubleValue(floating.apply(l.doubleValue(), r.doubleValue()));
+    }
+    try {
+      var result = integral.apply(l.longValue(), r.longValue());
+      if (l instanceof Integer && r instanceof Integer && result == (int) result) {
+        return new IntValue((int) result);
+      }
+      return new LongValue(result);
+    } catch (ArithmeticException e) {
+      return new DoubleValue(floating.apply(l.doubleValue(), r.doubleValue()));
+    }
+  }
+
+  private static Number requireNumber(Value value) {
+    var number = number(value);
+    if (number == null) {
+      throw new IllegalArgumentException("only numbers are supported in arithmetic, got " + value);
+    }
+    return number;
+  }
+
+  /**
+   * Stored documents are immutable, so all stages, which change a document, copy it first. Encoded
+   * documents are decoded on access.
+   *
+   * @return a modifiable copy of the top level fields of the document
+   */
+  static NestedObjectValue copy(Value document) {
+    var copy = new HashMap<String, Value>();
+    if (isObject(document)) {
+      ((ObjectValue) view(document))
+          .entrySet()
+          .forEach(entry -> copy.put(entry.getKey(), entry.getValue()));
+    }
+    return new NestedObjectValue(copy);
+  }
+
+  /**
+   * @return a document, which sees all fields, also of documents, which were generated encoded
+   */
+  static Value view(Value document) {
+    if (document instanceof OurDocument ourDocument && ourDocument.isEncoded()) {
+      return new NestedObjectValue(
+          new LazyValueMap(new RawBsonDocument(ourDocument.getEncoded()), false));
+    }
+    return document;
+  }
+
+  /**
+   * Selects a field like an aggregation expression: a path through an array of objects selects the
+   * field of every element.
+   *
+   * @return selected value, null if the field is missing
+   */
+  static Value select(Value value, String path) {
+    return select(value, path.split("\\."), 0);
+  }
+
+  private static Value select(Value value, String[] path, int index) {
+    if (index == path.length) {
+      return value;
+    }
+    if (isObject(value)) {
+      var field = ((ObjectValue) value).get(path[index]);
+      return field == null ? null : select(field, path, index + 1);
+    }
+    if (value instanceof ArrayValue array) {
+      var selected = new ArrayValue();
+      for (var element : array) {
+        var field = select(element, path, index);
+        if (field != null) {
+          selected.add(field);
+        }
+      }
+      return selected;
+    }
+    return null;
+  }
+
+  /**
+   * Collects all values a query predicate on the path is applied to: the value at the path and, if
+   * it is an array, its elements. Arrays of objects on the path are traversed.
+   *
+   * @return candidate values, empty if the field is missing
+   */
+  static List<Value> candidates(Value value, String path) {
+    var candidates = new ArrayList<Value>();
+    candidates(value, path.split("\\."), 0, candidates);
+    return candidates;
+  }
+
+  private static void candidates(Value value, String[] path, int index, List<Value> candidates) {
+    if (index == path.length) {
+      candidates.add(value);
+      if (value instanceof ArrayValue array) {
+        array.forEach(candidates::add);
+      }
+      return;
+    }
+    if (isObject(value)) {
+      var field = ((ObjectValue) value).get(path[index]);
+      if (field != null) {
+        candidates(field, path, index + 1, candidates);
+      }
+    } else if (value instanceof ArrayValue array) {
+      for (var element : array) {
+        if (isObject(element)) {
+          candidates(element, path, index, candidates);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sets the value at the path of a copied document. Objects on the path are copied as well, so the
+   * original document is not modified.
+   */
+  static void set(NestedObjectValue document, String path, Value value) {
+    var parts = path.split("\\.");
+    var current = document;
+    for (int i = 0; i < parts.length - 1; i++) {
+      var field = current.get(parts[i]);
+      var next = isObject(field) ? copy(field) : new NestedObjectValue();
+      current.put(parts[i], next);
+      current = next;
+    }
+    current.put(parts[parts.length - 1], value);
+  }
+
+  /**
+   * Removes the value at the path of a copied document. Objects on the path are copied, so the
+   * original document is not modified.
+   */
+  static void remove(NestedObjectValue document, String path) {
+    var parts = path.split("\\.");
+    var current = document;
+    for (int i = 0; i < parts.length - 1; i++) {
+      var field = current.get(parts[i]);
+      if (!isObject(field)) {
+        return;
+      }
+      var next = copy(field);
+      current.put(parts[i], next);
+      current = next;
+    }
+    current.entrySet().removeIf(entry -> entry.getKey().equals(parts[parts.length - 1]));
+  }
+
+  @FunctionalInterface
+  private interface LongOperator {
+    long apply(long left, long right);
+  }
+
+  @FunctionalInterface
+  private interface DoubleOperator {
+    double apply(double left, double right);
+  }
+}
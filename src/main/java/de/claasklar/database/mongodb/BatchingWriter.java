@@ -0,0 +1,216 @@
+package de.claasklar.database.mongodb;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.OurDocument;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.bson.BsonBinaryWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+
+/**
+ * Collects documents of concurrent writers per collection and inserts them with one unordered
+ * insertMany. A batch is flushed once it holds maxCount documents, maxBytes encoded bytes or its
+ * first document waited for linger. Every document gets its own future, which fails only if the
+ * insert of this document failed.
+ *
+ * <p>Documents are encoded by the calling thread, so the flush only sends the encoded bytes. A full
+ * batch is flushed by the writer filling it, a lingering batch by a background thread.
+ */
+public class BatchingWriter implements AutoCloseable {
+
+  private static final EncoderContext ENCODER_CONTEXT =
+      EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+  private static final InsertManyOptions INSERT_MANY_OPTIONS =
+      new InsertManyOptions().ordered(false);
+
+  private final Map<CollectionName, Batch> batches;
+  private final Codec<OurDocument> codec;
+  private final int maxCount;
+  private final long maxBytes;
+  private final Duration linger;
+  private final ScheduledExecutorService scheduler;
+  private final ExecutorService flushExecutor;
+
+  /**
+   * @param collections collections to write to, must be able to insert RawBsonDocuments
+   * @param codecRegistry registry to encode OurDocuments with
+   * @param maxCount maximum number of documents per insertMany
+   * @param maxBytes maximum sum of encoded bytes per insertMany
+   * @param linger maximum time a document waits for its batch to fill
+   */
+  public BatchingWriter(
+      Map<CollectionName, MongoCollection<RawBsonDocument>> collections,
+      CodecRegistry codecRegistry,
+      int maxCount,
+      long maxBytes,
+      Duration linger) {
+    if (maxCount < 1 || maxBytes < 1 || linger.isNegative()) {
+      throw new IllegalArgumentException(
+          "maxCount and maxBytes must be positive and linger must not be negative");
+    }
+    this.batches = new HashMap<>();
+    for (var entry : collections.entrySet()) {
+      batches.put(entry.getKey(), new Batch(entry.getValue()));
+    }
+    this.codec = codecRegistry.get(OurDocument.class);
+    this.maxCount = maxCount;
+    this.maxBytes = maxBytes;
+    this.linger = linger;
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              var thread = new Thread(runnable, "batching-writer-linger");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.flushExecutor = Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+  /**
+   * Adds the document to the batch of its collection.
+   *
+   * @param collectionName collection to insert into
+   * @param document document to insert
+   * @return future, which completes once the batch of the document is inserted
+   */
+  public CompletableFuture<Void> write(CollectionName collectionName, OurDocument document) {
+    var batch = batches.get(collectionName);
+    if (batch == null) {
+      throw new IllegalArgumentException("unknown collection " + collectionName);
+    }
+    var pending = new Pending(encode(document), new CompletableFuture<>());
+    List<Pending> full = null;
+    batch.lock.lock();
+    try {
+      batch.pending.add(pending);
+      batch.bytes += pending.document().getByteBuffer().remaining();
+      if (batch.pending.size() >= maxCount || batch.bytes >= maxBytes) {
+        full = batch.drain();
+      } else if (batch.pending.size() == 1) {
+        var generation = batch.generation;
+        scheduler.schedule(
+            () -> flushLingering(batch, generation), linger.toNanos(), TimeUnit.NANOSECONDS);
+      }
+    } finally {
+      batch.lock.unlock();
+    }
+    if (full != null) {
+      flush(batch.collection, full);
+    }
+    return pending.future();
+  }
+
+  /** Flushes all remaining documents and stops the background threads. */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    for (var batch : batches.values()) {
+      List<Pending> remaining;
+      batch.lock.lock();
+      try {
+        remaining = batch.drain();
+      } finally {
+        batch.lock.unlock();
+      }
+      if (!remaining.isEmpty()) {
+        flush(batch.collection, remaining);
+      }
+    }
+    flushExecutor.close();
+  }
+
+  private void flushLingering(Batch batch, long generation) {
+    List<Pending> lingering = null;
+    batch.lock.lock();
+    try {
+      // the batch was flushed since scheduling, a later document scheduled its own task
+      if (batch.generation == generation && !batch.pending.isEmpty()) {
+        lingering = batch.drain();
+      }
+    } finally {
+      batch.lock.unlock();
+    }
+    if (lingering != null) {
+      var documents = lingering;
+      flushExecutor.execute(() -> flush(batch.collection, documents));
+    }
+  }
+
+  private void flush(MongoCollection<RawBsonDocument> collection, List<Pending> pending) {
+    try {
+      collection.insertMany(pending.stream().map(Pending::document).toList(), INSERT_MANY_OPTIONS);
+      pending.forEach(it -> it.future().complete(null));
+    } catch (MongoBulkWriteException e) {
+      for (var error : e.getWriteErrors()) {
+        pending
+            .get(error.getIndex())
+            .future()
+            .completeExceptionally(
+                new MongoWriteException(
+                    new WriteError(error.getCode(), error.getMessage(), error.getDetails()),
+                    e.getServerAddress()));
+      }
+      // a write concern error concerns all documents, which were not rejected individually
+      for (var it : pending) {
+        if (e.getWriteConcernError() != null) {
+          it.future().completeExceptionally(e);
+        } else {
+          it.future().complete(null);
+        }
+      }
+    } catch (RuntimeException e) {
+      pending.forEach(it -> it.future().completeExceptionally(e));
+    }
+  }
+
+  private RawBsonDocument encode(OurDocument document) {
+    if (document.isEncoded()) {
+      return new RawBsonDocument(document.getEncoded());
+    }
+    var buffer = new BasicOutputBuffer();
+    try (var writer = new BsonBinaryWriter(buffer)) {
+      codec.encode(writer, document, ENCODER_CONTEXT);
+    }
+    return new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition());
+  }
+
+  private record Pending(RawBsonDocument document, CompletableFuture<Void> future) {}
+
+  private static class Batch {
+    private final MongoCollection<RawBsonDocument> collection;
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<Pending> pending = new ArrayList<>();
+    private long bytes;
+    private long generation;
+
+    private Batch(MongoCollection<RawBsonDocument> collection) {
+      this.collection = collection;
+    }
+
+    private List<Pending> drain() {
+      var drained = pending;
+      pending = new ArrayList<>();
+      bytes = 0;
+      generation++;
+      return drained;
+    }
+  }
+}
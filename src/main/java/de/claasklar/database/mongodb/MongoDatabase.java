@@ -1,24 +1,29 @@
 package de.claasklar.database.mongodb;
 
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lt;
 import static io.opentelemetry.api.common.AttributeKey.stringKey;
 
+import com.mongodb.MongoClientSettings;
 import com.mongodb.client.AggregateIterable;
-import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.*;
 import de.claasklar.database.Database;
+import de.claasklar.database.mongodb.codec.LazyValueMap;
+import de.claasklar.latency.LatencyRecorder;
 import de.claasklar.phase.PhaseTopic;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.Id;
-import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.IdLong;
 import de.claasklar.primitives.document.OurDocument;
 import de.claasklar.primitives.index.IndexConfiguration;
 import de.claasklar.primitives.query.Aggregation;
 import de.claasklar.primitives.query.AggregationOptions;
 import de.claasklar.primitives.query.Find;
-import de.claasklar.primitives.query.FindOptions;
 import de.claasklar.primitives.query.Query;
 import de.claasklar.util.*;
 import io.opentelemetry.api.common.Attributes;
@@ -28,23 +33,38 @@ import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.context.Context;
 import java.time.Clock;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
 import org.bson.BsonDocument;
 import org.bson.BsonDocumentWrapper;
+import org.bson.BsonInt32;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 
 public class MongoDatabase implements Database {
 
   private final MongoClient client;
-  private final com.mongodb.client.MongoDatabase database;
   private final Tracer tracer;
   private final LongHistogram histogram;
+  private final LatencyRecorder latencyRecorder;
   private final Clock clock;
   private final Map<CollectionName, MongoCollection<OurDocument>> collections;
+  // undecoded views of the collections, results are only decoded when they are accessed
+  private final com.mongodb.client.MongoDatabase rawDatabase;
+  private final Map<CollectionName, MongoCollection<RawBsonDocument>> rawCollections;
+  private final BatchingWriter batchingWriter;
   private PhaseTopic.BenchmarkPhase benchmarkPhase;
 
   MongoDatabase(
@@ -53,13 +73,51 @@ public class MongoDatabase implements Database {
       Map<CollectionName, MongoCollection<OurDocument>> collections,
       Tracer tracer,
       LongHistogram histogram,
+      LatencyRecorder latencyRecorder,
+      Clock clock) {
+    this(client, database, collections, null, tracer, histogram, latencyRecorder, clock);
+  }
+
+  /**
+   * @param batchingWriter batches the writes of the load phase, null to insert every document on
+   *     its own
+   */
+  MongoDatabase(
+      MongoClient client,
+      com.mongodb.client.MongoDatabase database,
+      Map<CollectionName, MongoCollection<OurDocument>> collections,
+      BatchingWriter batchingWriter,
+      Tracer tracer,
+      LongHistogram histogram,
+      LatencyRecorder latencyRecorder,
       Clock clock) {
     this.client = client;
-    this.database = database;
     this.tracer = tracer;
     this.histogram = histogram;
+    this.latencyRecorder = latencyRecorder;
     this.clock = clock;
     this.collections = collections;
+    this.batchingWriter = batchingWriter;
+    var rawCodecRegistry = rawCodecRegistry(database.getCodecRegistry());
+    this.rawDatabase = database.withCodecRegistry(rawCodecRegistry);
+    this.rawCollections =
+        collections.entrySet().stream()
+            .map(
+                it ->
+                    new Pair<>(
+                        it.getKey(),
+                        it.getValue()
+                            .withDocumentClass(RawBsonDocument.class)
+                            .withCodecRegistry(rawCodecRegistry)))
+            .collect(new MapCollector<>());
+  }
+
+  /**
+   * @return registry, which encodes our values and decodes RawBsonDocuments
+   */
+  static CodecRegistry rawCodecRegistry(CodecRegistry ourCodecRegistry) {
+    return CodecRegistries.fromRegistries(
+        ourCodecRegistry, MongoClientSettings.getDefaultCodecRegistry());
   }
 
   @Override
@@ -68,15 +126,23 @@ public class MongoDatabase implements Database {
         tracer
             .spanBuilder("write document to database")
             .setParent(Context.current().with(span))
-            .setAllAttributes(
-                new TelemetryUtil()
-                    .attributes(collectionName, document.getId()).toBuilder()
-                        .put("document", document.toString())
-                        .build())
             .startSpan();
+    if (writeSpan.isRecording()) {
+      writeSpan.setAllAttributes(
+          new TelemetryUtil()
+              .attributes(collectionName, document.getId()).toBuilder()
+                  .put("document", document.toString())
+                  .build());
+    }
     try (var ignored = writeSpan.makeCurrent()) {
       var start = clock.instant();
-      collections.get(collectionName).insertOne(document);
+      var startNanos = System.nanoTime();
+      if (batchingWriter != null && benchmarkPhase == PhaseTopic.BenchmarkPhase.LOAD) {
+        writeSpan.setAttribute("batched", true);
+        writeBatched(collectionName, document);
+      } else {
+        collections.get(collectionName).insertOne(document);
+      }
       histogram.record(
           start.until(clock.instant(), TelemetryConfig.DURATION_RESOLUTION),
           Attributes.of(
@@ -86,6 +152,7 @@ public class MongoDatabase implements Database {
               "WRITE",
               stringKey("phase"),
               benchmarkPhase.toString()));
+      latencyRecorder.record(LatencyRecorder.DATABASE, collectionName.name(), "WRITE", startNanos);
       return document;
     } catch (Exception e) {
       writeSpan.recordException(e);
@@ -96,17 +163,46 @@ public class MongoDatabase implements Database {
     }
   }
 
+  private void writeBatched(CollectionName collectionName, OurDocument document) {
+    try {
+      batchingWriter.write(collectionName, document).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
   @Override
   public Optional<OurDocument> read(CollectionName collectionName, Id id, Span span) {
+    return read(collectionName, id, null, span);
+  }
+
+  /** Only fetches the given fields from the server. */
+  @Override
+  public Optional<OurDocument> read(
+      CollectionName collectionName, Id id, Set<String> fieldPaths, Span span) {
     var readSpan =
         tracer
             .spanBuilder("read document from database")
             .setParent(Context.current().with(span))
-            .setAllAttributes(new TelemetryUtil().attributes(collectionName, id))
             .startSpan();
+    if (readSpan.isRecording()) {
+      readSpan.setAllAttributes(new TelemetryUtil().attributes(collectionName, id));
+    }
     try (var ignored = readSpan.makeCurrent()) {
+      if (fieldPaths != null && readSpan.isRecording()) {
+        readSpan.setAttribute("projection", fieldPaths.toString());
+      }
       var start = clock.instant();
-      var document = collections.get(collectionName).find(eq("_id", id)).first();
+      var startNanos = System.nanoTime();
+      var rawDocument =
+          rawCollections
+              .get(collectionName)
+              .find(eq("_id", id))
+              .projection(projection(fieldPaths))
+              .first();
       histogram.record(
           start.until(clock.instant(), TelemetryConfig.DURATION_RESOLUTION),
           Attributes.of(
@@ -116,13 +212,16 @@ public class MongoDatabase implements Database {
               "READ",
               stringKey("phase"),
               benchmarkPhase.toString()));
-      if (document == null) {
+      latencyRecorder.record(LatencyRecorder.DATABASE, collectionName.name(), "READ", startNanos);
+      if (rawDocument == null) {
         readSpan.addEvent("found no document");
         return Optional.empty();
       } else {
-        readSpan.addEvent(
-            "found document", Attributes.of(stringKey("document"), document.toString()));
-        return Optional.of(document);
+        if (readSpan.isRecording()) {
+          readSpan.addEvent(
+              "found document", Attributes.of(stringKey("document"), rawDocument.toJson()));
+        }
+        return Optional.of(LazyValueMap.ourDocument(rawDocument));
       }
     } catch (Exception e) {
       readSpan.recordException(e);
@@ -133,16 +232,74 @@ public class MongoDatabase implements Database {
     }
   }
 
+  /** Reads all documents with one $in query. */
   @Override
-  public void executeQuery(Query query, Span span) {
-    var executeSpan =
+  public Map<Id, OurDocument> readMany(
+      CollectionName collectionName, Collection<Id> ids, Set<String> fieldPaths, Span span) {
+    var readSpan =
         tracer
-            .spanBuilder("execute query")
+            .spanBuilder("read documents from database")
             .setParent(Context.current().with(span))
-            .setAllAttributes(
-                new TelemetryUtil()
-                    .executeQueryAttributes(query.getCollectionName(), query.getQueryName()))
+            .setAttribute("collection", collectionName.name())
+            .setAttribute("count", ids.size())
             .startSpan();
+    try (var ignored = readSpan.makeCurrent()) {
+      if (fieldPaths != null && readSpan.isRecording()) {
+        readSpan.setAttribute("projection", fieldPaths.toString());
+      }
+      var start = clock.instant();
+      var startNanos = System.nanoTime();
+      var documents = new HashMap<Id, OurDocument>();
+      rawCollections
+          .get(collectionName)
+          .find(in("_id", ids))
+          .projection(projection(fieldPaths))
+          .forEach(
+              rawDocument -> {
+                var document = LazyValueMap.ourDocument(rawDocument);
+                documents.put(document.getId(), document);
+              });
+      histogram.record(
+          start.until(clock.instant(), TelemetryConfig.DURATION_RESOLUTION),
+          Attributes.of(
+              stringKey("collection"),
+              collectionName.toString(),
+              stringKey("operation"),
+              "READ_MANY",
+              stringKey("phase"),
+              benchmarkPhase.toString()));
+      latencyRecorder.record(
+          LatencyRecorder.DATABASE, collectionName.name(), "READ_MANY", startNanos);
+      readSpan.setAttribute("found", documents.size());
+      return documents;
+    } catch (Exception e) {
+      readSpan.recordException(e);
+      readSpan.setStatus(StatusCode.ERROR);
+      throw e;
+    } finally {
+      readSpan.end();
+    }
+  }
+
+  /**
+   * @return projection, which includes the field paths, null for whole documents
+   */
+  static Bson projection(Set<String> fieldPaths) {
+    if (fieldPaths == null) {
+      return null;
+    }
+    return Projections.include(List.copyOf(fieldPaths));
+  }
+
+  @Override
+  public void executeQuery(Query query, Span span) {
+    var executeSpan =
+        tracer.spanBuilder("execute query").setParent(Context.current().with(span)).startSpan();
+    if (executeSpan.isRecording()) {
+      executeSpan.setAllAttributes(
+          new TelemetryUtil()
+              .executeQueryAttributes(query.getCollectionName(), query.getQueryName()));
+    }
     try {
       if (query instanceof Find find) {
         executeFind(find, executeSpan);
@@ -181,19 +338,96 @@ public class MongoDatabase implements Database {
     }
   }
 
+  /**
+   * Splits the _id range of the collection into equally sized ranges, which are scanned
+   * concurrently. The scans only project the _id, so they are covered by the _id index and do not
+   * fetch documents. Ids, which were not created by {@link IdLong#toId()}, are skipped.
+   */
+  @Override
+  public long scanIds(
+      CollectionName collectionName, int numThreads, LongConsumer consumer, Span span) {
+    var scanSpan =
+        tracer
+            .spanBuilder("scan ids")
+            .setParent(Context.current().with(span))
+            .setAttribute("collection", collectionName.name())
+            .setAttribute("numThreads", numThreads)
+            .startSpan();
+    var executor = Executors.newFixedThreadPool(numThreads);
+    try (var ignored = scanSpan.makeCurrent()) {
+      var collection = rawCollections.get(collectionName);
+      var scanned = new LongAdder();
+      var skipped = new LongAdder();
+      // more ranges than threads, so threads finishing early take over the remaining ranges
+      var numRanges = numThreads * 4;
+      var step = Long.divideUnsigned(-1L, numRanges);
+      var futures = new CompletableFuture[numRanges];
+      for (int i = 0; i < numRanges; i++) {
+        var lower = idOfPrefix(i * step);
+        var upper = i == numRanges - 1 ? null : idOfPrefix((i + 1) * step);
+        var filter = upper == null ? gte("_id", lower) : and(gte("_id", lower), lt("_id", upper));
+        futures[i] =
+            CompletableFuture.runAsync(
+                () ->
+                    collection
+                        .find(filter)
+                        .projection(Projections.include("_id"))
+                        .hint(new BsonDocument("_id", new BsonInt32(1)))
+                        .batchSize(10_000)
+                        .forEach(
+                            document -> {
+                              var id = document.getObjectId("_id").getValue().toByteArray();
+                              try {
+                                consumer.accept(IdLong.fromId(new Id(id)).id());
+                                scanned.increment();
+                              } catch (IllegalArgumentException e) {
+                                skipped.increment();
+                              }
+                            }),
+                executor);
+      }
+      CompletableFuture.allOf(futures).join();
+      scanSpan.setAttribute("scanned", scanned.sum());
+      scanSpan.setAttribute("skipped", skipped.sum());
+      return scanned.sum();
+    } catch (Exception e) {
+      scanSpan.recordException(e);
+      scanSpan.setStatus(StatusCode.ERROR);
+      throw e;
+    } finally {
+      executor.shutdownNow();
+      scanSpan.end();
+    }
+  }
+
+  private static Id idOfPrefix(long prefix) {
+    var bytes = new byte[12];
+    for (int i = Long.BYTES - 1; i >= 0; i--) {
+      bytes[i] = (byte) (prefix & 0xFF);
+      prefix >>= Byte.SIZE;
+    }
+    return new Id(bytes);
+  }
+
   private void executeFind(Find find, Span span) {
-    var collection = collections.get(find.getCollectionName());
-    var result = collection.find(NestedObjectValue.class);
-    applyFindOptions(result, find.getFindOptions(), collection.getCodecRegistry());
+    var collection = rawCollections.get(find.getCollectionName());
+    var result = collection.find();
+    QueryOptionsMapping.applyFindOptions(
+        QueryOptionsMapping.findTarget(result),
+        find.getFindOptions(),
+        collection.getCodecRegistry());
     var start = clock.instant();
+    var startNanos = System.nanoTime();
     try (var iterator = result.iterator()) {
       var count =
           new Object() {
             int value = 0;
           };
       iterator.forEachRemaining(it -> count.value++);
-      span.addEvent(
-          "query executed", Attributes.of(stringKey("count"), Integer.toString(count.value)));
+      if (span.isRecording()) {
+        span.addEvent(
+            "query executed", Attributes.of(stringKey("count"), Integer.toString(count.value)));
+      }
     }
     histogram.record(
         start.until(clock.instant(), TelemetryConfig.DURATION_RESOLUTION),
@@ -204,77 +438,24 @@ public class MongoDatabase implements Database {
             find.getQueryName(),
             stringKey("phase"),
             benchmarkPhase.toString()));
-  }
-
-  private <T> void applyFindOptions(
-      FindIterable<T> findIterable, FindOptions findOptions, CodecRegistry codecRegistry) {
-    if (findOptions.getFilter() != null) {
-      findIterable.filter(
-          BsonDocumentWrapper.asBsonDocument(findOptions.getFilter(), codecRegistry));
-    }
-    if (findOptions.getBatchSize() != null) {
-      findIterable.batchSize(findOptions.getBatchSize());
-    }
-    if (findOptions.getLimit() != null) {
-      findIterable.limit(findOptions.getLimit());
-    }
-    if (findOptions.getProjection() != null) {
-      findIterable.projection(
-          BsonDocumentWrapper.asBsonDocument(findOptions.getProjection(), codecRegistry));
-    }
-    if (findOptions.getMaxTime() != null) {
-      findIterable.maxTime(findOptions.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
-    }
-    if (findOptions.getMaxAwaitTime() != null) {
-      findIterable.maxAwaitTime(findOptions.getMaxAwaitTime().toMillis(), TimeUnit.MILLISECONDS);
-    }
-    if (findOptions.getSkip() != null) {
-      findIterable.skip(findOptions.getSkip());
-    }
-    if (findOptions.getSort() != null) {
-      findIterable.sort(BsonDocumentWrapper.asBsonDocument(findOptions.getSort(), codecRegistry));
-    }
-    if (findOptions.getNoCursorTimeout() != null) {
-      findIterable.noCursorTimeout(findOptions.getNoCursorTimeout());
-    }
-    if (findOptions.getPartial() != null) {
-      findIterable.partial(findOptions.getPartial());
-    }
-    if (findOptions.getHint() != null) {
-      findIterable.hint(BsonDocumentWrapper.asBsonDocument(findOptions.getHint(), codecRegistry));
-    }
-    if (findOptions.getVariables() != null) {
-      findIterable.let(
-          BsonDocumentWrapper.asBsonDocument(findOptions.getVariables(), codecRegistry));
-    }
-    if (findOptions.getMax() != null) {
-      findIterable.max(BsonDocumentWrapper.asBsonDocument(findOptions.getMax(), codecRegistry));
-    }
-    if (findOptions.getMin() != null) {
-      findIterable.min(BsonDocumentWrapper.asBsonDocument(findOptions.getMin(), codecRegistry));
-    }
-    if (findOptions.getReturnKey() != null) {
-      findIterable.returnKey(findOptions.getReturnKey());
-    }
-    if (findOptions.getShowRecordId() != null) {
-      findIterable.showRecordId(findOptions.getShowRecordId());
-    }
-    if (findOptions.getAllowDiskUse() != null) {
-      findIterable.allowDiskUse(findOptions.getAllowDiskUse());
-    }
+    latencyRecorder.record(
+        LatencyRecorder.DATABASE, find.getCollectionName().name(), find.getQueryName(), startNanos);
   }
 
   private void executeAggregate(Aggregation aggregation, Span span) {
     var iterable = aggregateIterableFromOptions(aggregation.getAggregationOptions());
     var start = clock.instant();
+    var startNanos = System.nanoTime();
     try (var iterator = iterable.iterator()) {
       var count =
           new Object() {
             int value = 0;
           };
       iterator.forEachRemaining(it -> count.value++);
-      span.addEvent(
-          "query executed", Attributes.of(stringKey("count"), Integer.toString(count.value)));
+      if (span.isRecording()) {
+        span.addEvent(
+            "query executed", Attributes.of(stringKey("count"), Integer.toString(count.value)));
+      }
     }
     histogram.record(
         start.until(clock.instant(), TelemetryConfig.DURATION_RESOLUTION),
@@ -285,56 +466,33 @@ public class MongoDatabase implements Database {
             aggregation.getQueryName(),
             stringKey("phase"),
             benchmarkPhase.toString()));
+    latencyRecorder.record(
+        LatencyRecorder.DATABASE,
+        aggregation.getCollectionName().name(),
+        aggregation.getQueryName(),
+        startNanos);
   }
 
-  private AggregateIterable<NestedObjectValue> aggregateIterableFromOptions(
+  private AggregateIterable<RawBsonDocument> aggregateIterableFromOptions(
       AggregationOptions aggregationOptions) {
-    var codecRegistry = database.getCodecRegistry();
-    AggregateIterable<NestedObjectValue> iterable;
-    List<BsonDocument> pipeline =
-        aggregationOptions.getPipeline().stream()
-            .map(it -> BsonDocumentWrapper.asBsonDocument(it, codecRegistry))
-            .toList();
+    var codecRegistry = rawDatabase.getCodecRegistry();
+    AggregateIterable<RawBsonDocument> iterable;
+    var pipeline = QueryOptionsMapping.pipeline(aggregationOptions, codecRegistry);
     // 1 stands for an aggregation without collection
     if (aggregationOptions.getAggregate().equals("1")) {
-      iterable = database.aggregate(pipeline, NestedObjectValue.class);
+      iterable = rawDatabase.aggregate(pipeline, RawBsonDocument.class);
     } else {
       iterable =
-          collections
+          rawCollections
               .get(new CollectionName(aggregationOptions.getAggregate()))
-              .aggregate(pipeline, NestedObjectValue.class);
-    }
-
-    if (aggregationOptions.getAllowDiskUse() != null) {
-      iterable.allowDiskUse(aggregationOptions.getAllowDiskUse());
-    }
-    if (aggregationOptions.getMaxTime() != null) {
-      iterable.maxTime(aggregationOptions.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
-    }
-    if (aggregationOptions.getMaxAwaitTime() != null) {
-      iterable.maxAwaitTime(aggregationOptions.getMaxAwaitTime().toMillis(), TimeUnit.MILLISECONDS);
-    }
-    if (aggregationOptions.getBypassDocumentValidation() != null) {
-      iterable.bypassDocumentValidation(aggregationOptions.getBypassDocumentValidation());
-    }
-    if (aggregationOptions.getCollation() != null) {
-      iterable.collation(mapCollation(aggregationOptions.getCollation()));
-    }
-    if (aggregationOptions.getHint() != null) {
-      iterable.hint(
-          BsonDocumentWrapper.asBsonDocument(aggregationOptions.getHint(), codecRegistry));
-    }
-    if (aggregationOptions.getHintString() != null) {
-      iterable.hintString(aggregationOptions.getHintString());
-    }
-    if (aggregationOptions.getVariables() != null) {
-      iterable.let(
-          BsonDocumentWrapper.asBsonDocument(aggregationOptions.getVariables(), codecRegistry));
+              .aggregate(pipeline);
     }
+    QueryOptionsMapping.applyAggregationOptions(
+        QueryOptionsMapping.aggregateTarget(iterable), aggregationOptions, codecRegistry);
     return iterable;
   }
 
-  private Collation mapCollation(de.claasklar.primitives.query.Collation ourCollation) {
+  static Collation mapCollation(de.claasklar.primitives.query.Collation ourCollation) {
     if (ourCollation == null) {
       return null;
     }
@@ -351,7 +509,7 @@ public class MongoDatabase implements Database {
         .build();
   }
 
-  private CollationCaseFirst mapCollationCaseFirst(
+  private static CollationCaseFirst mapCollationCaseFirst(
       de.claasklar.primitives.query.CollationCaseFirst ourCollationCaseFirst) {
     if (ourCollationCaseFirst == null) {
       return null;
@@ -363,7 +521,7 @@ public class MongoDatabase implements Database {
     };
   }
 
-  private CollationStrength mapCollationStrength(
+  private static CollationStrength mapCollationStrength(
       de.claasklar.primitives.query.CollationStrength ourCollationStrength) {
     if (ourCollationStrength == null) {
       return null;
@@ -377,7 +535,7 @@ public class MongoDatabase implements Database {
     };
   }
 
-  private CollationAlternate mapCollationAlternate(
+  private static CollationAlternate mapCollationAlternate(
       de.claasklar.primitives.query.CollationAlternate ourCollationAlternate) {
     if (ourCollationAlternate == null) {
       return null;
@@ -388,7 +546,7 @@ public class MongoDatabase implements Database {
     };
   }
 
-  private CollationMaxVariable mapCollationMaxVariable(
+  private static CollationMaxVariable mapCollationMaxVariable(
       de.claasklar.primitives.query.CollationMaxVariable ourCollationMaxVariable) {
     if (ourCollationMaxVariable == null) {
       return null;
@@ -399,7 +557,7 @@ public class MongoDatabase implements Database {
     };
   }
 
-  private Pair<Bson, IndexOptions> mapIndexConfiguration(
+  static Pair<Bson, IndexOptions> mapIndexConfiguration(
       IndexConfiguration indexConfiguration, CodecRegistry codecRegistry) {
     var indexOptions = new IndexOptions();
     if (indexConfiguration.getBackground() != null) {
@@ -445,6 +603,9 @@ public class MongoDatabase implements Database {
 
   @Override
   public void close() {
+    if (this.batchingWriter != null) {
+      this.batchingWriter.close();
+    }
     this.client.close();
   }
 
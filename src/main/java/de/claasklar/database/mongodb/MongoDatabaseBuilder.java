@@ -5,20 +5,27 @@ import com.mongodb.ReadConcern;
 import com.mongodb.ReadPreference;
 import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
 import de.claasklar.database.mongodb.codec.OurDocumentCodecRegistry;
+import de.claasklar.latency.LatencyRecorder;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.OurDocument;
 import de.claasklar.util.MapCollector;
 import de.claasklar.util.Pair;
 import de.claasklar.util.TelemetryConfig;
 import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.metrics.LongHistogram;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.extension.incubator.metrics.ExtendedLongHistogramBuilder;
 import java.time.Clock;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.bson.RawBsonDocument;
 
 public class MongoDatabaseBuilder {
 
@@ -26,6 +33,7 @@ public class MongoDatabaseBuilder {
   private String databaseName;
   private Tracer tracer;
   private OpenTelemetry openTelemetry;
+  private LatencyRecorder latencyRecorder;
   private final Map<CollectionName, ReadPreference> collectionsReadPreferences;
   private final Map<CollectionName, ReadConcern> collectionsReadConcerns;
   private final Map<CollectionName, WriteConcern> collectionsWriteConcerns;
@@ -33,6 +41,9 @@ public class MongoDatabaseBuilder {
   private ReadConcern databaseReadConcern;
   private WriteConcern databaseWriteConcern;
   private List<CollectionName> collections;
+  private Integer batchMaxCount;
+  private Long batchMaxBytes;
+  private Duration batchLinger;
 
   private MongoDatabaseBuilder() {
     collectionsReadPreferences = new HashMap<>();
@@ -64,6 +75,11 @@ public class MongoDatabaseBuilder {
     return this;
   }
 
+  public MongoDatabaseBuilder latencyRecorder(LatencyRecorder latencyRecorder) {
+    this.latencyRecorder = latencyRecorder;
+    return this;
+  }
+
   public MongoDatabaseBuilder collectionReadPreference(
       CollectionName collectionName, ReadPreference readPreference) {
     collectionsReadPreferences.put(collectionName, readPreference);
@@ -102,60 +118,180 @@ public class MongoDatabaseBuilder {
     return this;
   }
 
+  /**
+   * Insert the documents of the load phase in unordered batches per collection instead of one by
+   * one. A batch is inserted once one of the limits is reached. Writers still wait for their own
+   * document, so the load phase needs enough concurrent writers to fill the batches.
+   *
+   * @param maxCount maximum number of documents per batch
+   * @param maxBytes maximum size of the encoded documents per batch
+   * @param linger maximum time a document waits for its batch to fill
+   * @return this
+   */
+  public MongoDatabaseBuilder batchWrites(int maxCount, long maxBytes, Duration linger) {
+    this.batchMaxCount = maxCount;
+    this.batchMaxBytes = maxBytes;
+    this.batchLinger = linger;
+    return this;
+  }
+
   public MongoDatabase build() {
     Objects.requireNonNull(connectionString, "ConnectionString cannot be null");
     Objects.requireNonNull(databaseName, "DatabaseName cannot be null");
     Objects.requireNonNull(tracer, "Tracer cannot be null");
+    Objects.requireNonNull(latencyRecorder, "LatencyRecorder cannot be null");
     var client = MongoClients.create(connectionString);
     var database =
-        client.getDatabase(databaseName).withCodecRegistry(new OurDocumentCodecRegistry());
-    if (databaseReadPreference != null) {
-      database = database.withReadPreference(databaseReadPreference);
-    }
-    if (databaseReadConcern != null) {
-      database = database.withReadConcern(databaseReadConcern);
+        new Concerns<com.mongodb.client.MongoDatabase>(
+                com.mongodb.client.MongoDatabase::withReadPreference,
+                com.mongodb.client.MongoDatabase::withReadConcern,
+                com.mongodb.client.MongoDatabase::withWriteConcern)
+            .applyDatabase(
+                client.getDatabase(databaseName).withCodecRegistry(new OurDocumentCodecRegistry()));
+    var mongoCollections =
+        new Concerns<MongoCollection<OurDocument>>(
+                MongoCollection::withReadPreference,
+                MongoCollection::withReadConcern,
+                MongoCollection::withWriteConcern)
+            .applyCollections(name -> database.getCollection(name.name(), OurDocument.class));
+
+    var histogram = histogram();
+    BatchingWriter batchingWriter = null;
+    if (batchMaxCount != null) {
+      Map<CollectionName, MongoCollection<RawBsonDocument>> rawCollections =
+          mongoCollections.entrySet().stream()
+              .map(
+                  entry ->
+                      new Pair<>(
+                          entry.getKey(),
+                          entry
+                              .getValue()
+                              .withDocumentClass(RawBsonDocument.class)
+                              .withCodecRegistry(
+                                  MongoDatabase.rawCodecRegistry(database.getCodecRegistry()))))
+              .collect(new MapCollector<>());
+      batchingWriter =
+          new BatchingWriter(
+              rawCollections,
+              database.getCodecRegistry(),
+              batchMaxCount,
+              batchMaxBytes,
+              batchLinger);
     }
-    if (databaseWriteConcern != null) {
-      database = database.withWriteConcern(databaseWriteConcern);
+    return new MongoDatabase(
+        client,
+        database,
+        mongoCollections,
+        batchingWriter,
+        tracer,
+        histogram,
+        latencyRecorder,
+        Clock.systemUTC());
+  }
+
+  /**
+   * Builds a database on the reactive streams driver, which does not block a thread per operation.
+   * Batched writes are not supported.
+   */
+  public ReactiveMongoDatabase buildReactive() {
+    Objects.requireNonNull(connectionString, "ConnectionString cannot be null");
+    Objects.requireNonNull(databaseName, "DatabaseName cannot be null");
+    Objects.requireNonNull(tracer, "Tracer cannot be null");
+    Objects.requireNonNull(latencyRecorder, "LatencyRecorder cannot be null");
+    if (batchMaxCount != null) {
+      throw new IllegalStateException("batched writes are not supported by the reactive driver");
     }
-    com.mongodb.client.MongoDatabase finalDatabase = database;
+    var client = com.mongodb.reactivestreams.client.MongoClients.create(connectionString);
+    var database =
+        new Concerns<com.mongodb.reactivestreams.client.MongoDatabase>(
+                com.mongodb.reactivestreams.client.MongoDatabase::withReadPreference,
+                com.mongodb.reactivestreams.client.MongoDatabase::withReadConcern,
+                com.mongodb.reactivestreams.client.MongoDatabase::withWriteConcern)
+            .applyDatabase(
+                client.getDatabase(databaseName).withCodecRegistry(new OurDocumentCodecRegistry()));
     var mongoCollections =
-        collections.stream()
-            .map(
-                collectionName -> {
-                  var collection =
-                      finalDatabase.getCollection(collectionName.name(), OurDocument.class);
-                  if (collectionsReadPreferences.containsKey(collectionName)) {
-                    collection =
-                        collection.withReadPreference(
-                            collectionsReadPreferences.get(collectionName));
-                  }
-                  if (collectionsReadConcerns.containsKey(collectionName)) {
-                    collection =
-                        collection.withReadConcern(collectionsReadConcerns.get(collectionName));
-                  }
-                  if (collectionsWriteConcerns.containsKey(collectionName)) {
-                    collection =
-                        collection.withWriteConcern(collectionsWriteConcerns.get(collectionName));
-                  }
-                  return new Pair<>(collectionName, collection);
-                })
-            .collect(new MapCollector<>());
-
-    var histogram =
-        ((ExtendedLongHistogramBuilder)
-                openTelemetry
-                    .meterBuilder(TelemetryConfig.METRIC_SCOPE_NAME)
-                    .setInstrumentationVersion(TelemetryConfig.version())
-                    .build()
-                    .histogramBuilder("database_duration")
-                    .ofLongs())
-            .setAdvice(
-                advice -> advice.setExplicitBucketBoundaries(TelemetryConfig.bucketBoundaries()))
-            .setUnit("ms")
-            .setDescription("Tracks duration of all database operations.")
-            .build();
-    return new MongoDatabase(
-        client, finalDatabase, mongoCollections, tracer, histogram, Clock.systemUTC());
+        new Concerns<com.mongodb.reactivestreams.client.MongoCollection<OurDocument>>(
+                com.mongodb.reactivestreams.client.MongoCollection::withReadPreference,
+                com.mongodb.reactivestreams.client.MongoCollection::withReadConcern,
+                com.mongodb.reactivestreams.client.MongoCollection::withWriteConcern)
+            .applyCollections(name -> database.getCollection(name.name(), OurDocument.class));
+    return new ReactiveMongoDatabase(
+        client,
+        database,
+        mongoCollections,
+        tracer,
+        histogram(),
+        latencyRecorder,
+        Clock.systemUTC());
+  }
+
+  /**
+   * Setters for the read preference, read concern and write concern of a database or collection.
+   * The drivers declare them on unrelated types, so both build methods resolve the configured
+   * values through this.
+   */
+  private class Concerns<T> {
+
+    private final BiFunction<T, ReadPreference, T> withReadPreference;
+    private final BiFunction<T, ReadConcern, T> withReadConcern;
+    private final BiFunction<T, WriteConcern, T> withWriteConcern;
+
+    private Concerns(
+        BiFunction<T, ReadPreference, T> withReadPreference,
+        BiFunction<T, ReadConcern, T> withReadConcern,
+        BiFunction<T, WriteConcern, T> withWriteConcern) {
+      this.withReadPreference = withReadPreference;
+      this.withReadConcern = withReadConcern;
+      this.withWriteConcern = withWriteConcern;
+    }
+
+    private T applyDatabase(T database) {
+      return apply(database, databaseReadPreference, databaseReadConcern, databaseWriteConcern);
+    }
+
+    private Map<CollectionName, T> applyCollections(Function<CollectionName, T> getCollection) {
+      return collections.stream()
+          .map(
+              collectionName ->
+                  new Pair<>(
+                      collectionName,
+                      apply(
+                          getCollection.apply(collectionName),
+                          collectionsReadPreferences.get(collectionName),
+                          collectionsReadConcerns.get(collectionName),
+                          collectionsWriteConcerns.get(collectionName))))
+          .collect(new MapCollector<>());
+    }
+
+    private T apply(
+        T target,
+        ReadPreference readPreference,
+        ReadConcern readConcern,
+        WriteConcern writeConcern) {
+      if (readPreference != null) {
+        target = withReadPreference.apply(target, readPreference);
+      }
+      if (readConcern != null) {
+        target = withReadConcern.apply(target, readConcern);
+      }
+      if (writeConcern != null) {
+        target = withWriteConcern.apply(target, writeConcern);
+      }
+      return target;
+    }
+  }
+
+  private LongHistogram histogram() {
+    return ((ExtendedLongHistogramBuilder)
+            openTelemetry
+                .meterBuilder(TelemetryConfig.METRIC_SCOPE_NAME)
+                .setInstrumentationVersion(TelemetryConfig.version())
+                .build()
+                .histogramBuilder("database_duration")
+                .ofLongs())
+        .setAdvice(advice -> advice.setExplicitBucketBoundaries(TelemetryConfig.bucketBoundaries()))
+        .setUnit("ms")
+        .setDescription("Tracks duration of all database operations.")
+        .build();
   }
 }
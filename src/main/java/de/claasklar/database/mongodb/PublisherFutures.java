@@ -0,0 +1,86 @@
+package de.claasklar.database.mongodb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/** Bridges the publishers of the reactive streams driver to CompletableFutures. */
+final class PublisherFutures {
+
+  private PublisherFutures() {}
+
+  /**
+   * @return future of the first published element, empty if nothing was published
+   */
+  static <T> CompletableFuture<Optional<T>> first(Publisher<T> publisher) {
+    var subscriber = new CountingSubscriber<T>();
+    publisher.subscribe(subscriber);
+    return subscriber.future.thenApply(count -> Optional.ofNullable(subscriber.first));
+  }
+
+  /**
+   * Requests all elements without keeping them, the driver fetches them in batches.
+   *
+   * @return future of the number of published elements
+   */
+  static <T> CompletableFuture<Long> count(Publisher<T> publisher) {
+    var subscriber = new CountingSubscriber<T>();
+    publisher.subscribe(subscriber);
+    return subscriber.future;
+  }
+
+  /**
+   * @return future of all published elements
+   */
+  static <T> CompletableFuture<List<T>> collect(Publisher<T> publisher) {
+    var subscriber = new CountingSubscriber<T>(new ArrayList<>());
+    publisher.subscribe(subscriber);
+    return subscriber.future.thenApply(count -> subscriber.elements);
+  }
+
+  private static final class CountingSubscriber<T> implements Subscriber<T> {
+    private final CompletableFuture<Long> future = new CompletableFuture<>();
+    // null, if the elements are not kept
+    private final List<T> elements;
+    // signals are serialized, so the completion sees the fields written by onNext
+    private long count;
+    private T first;
+
+    private CountingSubscriber() {
+      this(null);
+    }
+
+    private CountingSubscriber(List<T> elements) {
+      this.elements = elements;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(T element) {
+      if (count++ == 0) {
+        first = element;
+      }
+      if (elements != null) {
+        elements.add(element);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      future.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      future.complete(count);
+    }
+  }
+}
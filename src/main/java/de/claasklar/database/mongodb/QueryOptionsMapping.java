@@ -0,0 +1,439 @@
+package de.claasklar.database.mongodb;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Collation;
+import com.mongodb.reactivestreams.client.AggregatePublisher;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import de.claasklar.primitives.query.AggregationOptions;
+import de.claasklar.primitives.query.FindOptions;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWrapper;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+
+/**
+ * Maps {@link FindOptions} and {@link AggregationOptions} onto the operations of the synchronous
+ * and the reactive driver. Both drivers have the same option setters, but on unrelated types, so
+ * they are adapted to {@link FindTarget} and {@link AggregateTarget}.
+ */
+final class QueryOptionsMapping {
+
+  private QueryOptionsMapping() {}
+
+  /** Option setters of {@link FindIterable} and {@link FindPublisher}. */
+  interface FindTarget {
+    void filter(Bson filter);
+
+    void batchSize(int batchSize);
+
+    void limit(int limit);
+
+    void projection(Bson projection);
+
+    void maxTime(long maxTime, TimeUnit timeUnit);
+
+    void maxAwaitTime(long maxAwaitTime, TimeUnit timeUnit);
+
+    void skip(int skip);
+
+    void sort(Bson sort);
+
+    void noCursorTimeout(boolean noCursorTimeout);
+
+    void partial(boolean partial);
+
+    void hint(Bson hint);
+
+    void let(Bson variables);
+
+    void max(Bson max);
+
+    void min(Bson min);
+
+    void returnKey(boolean returnKey);
+
+    void showRecordId(boolean showRecordId);
+
+    void allowDiskUse(Boolean allowDiskUse);
+  }
+
+  /** Option setters of {@link AggregateIterable} and {@link AggregatePublisher}. */
+  interface AggregateTarget {
+    void allowDiskUse(Boolean allowDiskUse);
+
+    void maxTime(long maxTime, TimeUnit timeUnit);
+
+    void maxAwaitTime(long maxAwaitTime, TimeUnit timeUnit);
+
+    void bypassDocumentValidation(Boolean bypassDocumentValidation);
+
+    void collation(Collation collation);
+
+    void hint(Bson hint);
+
+    void hintString(String hint);
+
+    void let(Bson variables);
+  }
+
+  static void applyFindOptions(
+      FindTarget target, FindOptions findOptions, CodecRegistry codecRegistry) {
+    if (findOptions.getFilter() != null) {
+      target.filter(BsonDocumentWrapper.asBsonDocument(findOptions.getFilter(), codecRegistry));
+    }
+    if (findOptions.getBatchSize() != null) {
+      target.batchSize(findOptions.getBatchSize());
+    }
+    if (findOptions.getLimit() != null) {
+      target.limit(findOptions.getLimit());
+    }
+    if (findOptions.getProjection() != null) {
+      target.projection(
+          BsonDocumentWrapper.asBsonDocument(findOptions.getProjection(), codecRegistry));
+    }
+    if (findOptions.getMaxTime() != null) {
+      target.maxTime(findOptions.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
+    }
+    if (findOptions.getMaxAwaitTime() != null) {
+      target.maxAwaitTime(findOptions.getMaxAwaitTime().toMillis(), TimeUnit.MILLISECONDS);
+    }
+    if (findOptions.getSkip() != null) {
+      target.skip(findOptions.getSkip());
+    }
+    if (findOptions.getSort() != null) {
+      target.sort(BsonDocumentWrapper.asBsonDocument(findOptions.getSort(), codecRegistry));
+    }
+    if (findOptions.getNoCursorTimeout() != null) {
+      target.noCursorTimeout(findOptions.getNoCursorTimeout());
+    }
+    if (findOptions.getPartial() != null) {
+      target.partial(findOptions.getPartial());
+    }
+    if (findOptions.getHint() != null) {
+      target.hint(BsonDocumentWrapper.asBsonDocument(findOptions.getHint(), codecRegistry));
+    }
+    if (findOptions.getVariables() != null) {
+      target.let(BsonDocumentWrapper.asBsonDocument(findOptions.getVariables(), codecRegistry));
+    }
+    if (findOptions.getMax() != null) {
+      target.max(BsonDocumentWrapper.asBsonDocument(findOptions.getMax(), codecRegistry));
+    }
+    if (findOptions.getMin() != null) {
+      target.min(BsonDocumentWrapper.asBsonDocument(findOptions.getMin(), codecRegistry));
+    }
+    if (findOptions.getReturnKey() != null) {
+      target.returnKey(findOptions.getReturnKey());
+    }
+    if (findOptions.getShowRecordId() != null) {
+      target.showRecordId(findOptions.getShowRecordId());
+    }
+    if (findOptions.getAllowDiskUse() != null) {
+      target.allowDiskUse(findOptions.getAllowDiskUse());
+    }
+  }
+
+  static List<BsonDocument> pipeline(
+      AggregationOptions aggregationOptions, CodecRegistry codecRegistry) {
+    return aggregationOptions.getPipeline().stream()
+        .map(it -> BsonDocumentWrapper.asBsonDocument(it, codecRegistry))
+        .toList();
+  }
+
+  static void applyAggregationOptions(
+      AggregateTarget target, AggregationOptions aggregationOptions, CodecRegistry codecRegistry) {
+    if (aggregationOptions.getAllowDiskUse() != null) {
+      target.allowDiskUse(aggregationOptions.getAllowDiskUse());
+    }
+    if (aggregationOptions.getMaxTime() != null) {
+      target.maxTime(aggregationOptions.getMaxTime().toMillis(), TimeUnit.MILLISECONDS);
+    }
+    if (aggregationOptions.getMaxAwaitTime() != null) {
+      target.maxAwaitTime(aggregationOptions.getMaxAwaitTime().toMillis(), TimeUnit.MILLISECONDS);
+    }
+    if (aggregationOptions.getBypassDocumentValidation() != null) {
+      target.bypassDocumentValidation(aggregationOptions.getBypassDocumentValidation());
+    }
+    if (aggregationOptions.getCollation() != null) {
+      target.collation(MongoDatabase.mapCollation(aggregationOptions.getCollation()));
+    }
+    if (aggregationOptions.getHint() != null) {
+      target.hint(BsonDocumentWrapper.asBsonDocument(aggregationOptions.getHint(), codecRegistry));
+    }
+    if (aggregationOptions.getHintString() != null) {
+      target.hintString(aggregationOptions.getHintString());
+    }
+    if (aggregationOptions.getVariables() != null) {
+      target.let(
+          BsonDocumentWrapper.asBsonDocument(aggregationOptions.getVariables(), codecRegistry));
+    }
+  }
+
+  static FindTarget findTarget(FindIterable<?> iterable) {
+    return new FindTarget() {
+      @Override
+      public void filter(Bson filter) {
+        iterable.filter(filter);
+      }
+
+      @Override
+      public void batchSize(int batchSize) {
+        iterable.batchSize(batchSize);
+      }
+
+      @Override
+      public void limit(int limit) {
+        iterable.limit(limit);
+      }
+
+      @Override
+      public void projection(Bson projection) {
+        iterable.projection(projection);
+      }
+
+      @Override
+      public void maxTime(long maxTime, TimeUnit timeUnit) {
+        iterable.maxTime(maxTime, timeUnit);
+      }
+
+      @Override
+      public void maxAwaitTime(long maxAwaitTime, TimeUnit timeUnit) {
+        iterable.maxAwaitTime(maxAwaitTime, timeUnit);
+      }
+
+      @Override
+      public void skip(int skip) {
+        iterable.skip(skip);
+      }
+
+      @Override
+      public void sort(Bson sort) {
+        iterable.sort(sort);
+      }
+
+      @Override
+      public void noCursorTimeout(boolean noCursorTimeout) {
+        iterable.noCursorTimeout(noCursorTimeout);
+      }
+
+      @Override
+      public void partial(boolean partial) {
+        iterable.partial(partial);
+      }
+
+      @Override
+      public void hint(Bson hint) {
+        iterable.hint(hint);
+      }
+
+      @Override
+      public void let(Bson variables) {
+        iterable.let(variables);
+      }
+
+      @Override
+      public void max(Bson max) {
+        iterable.max(max);
+      }
+
+      @Override
+      public void min(Bson min) {
+        iterable.min(min);
+      }
+
+      @Override
+      public void returnKey(boolean returnKey) {
+        iterable.returnKey(returnKey);
+      }
+
+      @Override
+      public void showRecordId(boolean showRecordId) {
+        iterable.showRecordId(showRecordId);
+      }
+
+      @Override
+      public void allowDiskUse(Boolean allowDiskUse) {
+        iterable.allowDiskUse(allowDiskUse);
+      }
+    };
+  }
+
+  static FindTarget findTarget(FindPublisher<?> publisher) {
+    return new FindTarget() {
+      @Override
+      public void filter(Bson filter) {
+        publisher.filter(filter);
+      }
+
+      @Override
+      public void batchSize(int batchSize) {
+        publisher.batchSize(batchSize);
+      }
+
+      @Override
+      public void limit(int limit) {
+        publisher.limit(limit);
+      }
+
+      @Override
+      public void projection(Bson projection) {
+        publisher.projection(projection);
+      }
+
+      @Override
+      public void maxTime(long maxTime, TimeUnit timeUnit) {
+        publisher.maxTime(maxTime, timeUnit);
+      }
+
+      @Override
+      public void maxAwaitTime(long maxAwaitTime, TimeUnit timeUnit) {
+        publisher.maxAwaitTime(maxAwaitTime, timeUnit);
+      }
+
+      @Override
+      public void skip(int skip) {
+        publisher.skip(skip);
+      }
+
+      @Override
+      public void sort(Bson sort) {
+        publisher.sort(sort);
+      }
+
+      @Override
+      public void noCursorTimeout(boolean noCursorTimeout) {
+        publisher.noCursorTimeout(noCursorTimeout);
+      }
+
+      @Override
+      public void partial(boolean partial) {
+        publisher.partial(partial);
+      }
+
+      @Override
+      public void hint(Bson hint) {
+        publisher.hint(hint);
+      }
+
+      @Override
+      public void let(Bson variables) {
+        publisher.let(variables);
+      }
+
+      @Override
+      public void max(Bson max) {
+        publisher.max(max);
+      }
+
+      @Override
+      public void min(Bson min) {
+        publisher.min(min);
+      }
+
+      @Override
+      public void returnKey(boolean returnKey) {
+        publisher.returnKey(returnKey);
+      }
+
+      @Override
+      public void showRecordId(boolean showRecordId) {
+        publisher.showRecordId(showRecordId);
+      }
+
+      @Override
+      public void allowDiskUse(Boolean allowDiskUse) {
+        publisher.allowDiskUse(allowDiskUse);
+      }
+    };
+  }
+
+  static AggregateTarget aggregateTarget(AggregateIterable<?> iterable) {
+    return new AggregateTarget() {
+      @Override
+      public void allowDiskUse(Boolean allowDiskUse) {
+        iterable.allowDiskUse(allowDiskUse);
+      }
+
+      @Override
+      public void maxTime(long maxTime, TimeUnit timeUnit) {
+        iterable.maxTime(maxTime, timeUnit);
+      }
+
+      @Override
+      public void maxAwaitTime(long maxAwaitTime, TimeUnit timeUnit) {
+        iterable.maxAwaitTime(maxAwaitTime, timeUnit);
+      }
+
+      @Override
+      public void bypassDocumentValidation(Boolean bypassDocumentValidation) {
+        iterable.bypassDocumentValidation(bypassDocumentValidation);
+      }
+
+      @Override
+      public void collation(Collation collation) {
+        iterable.collation(collation);
+      }
+
+      @Override
+      public void hint(Bson hint) {
+        iterable.hint(hint);
+      }
+
+      @Override
+      public void hintString(String hint) {
+        iterable.hintString(hint);
+      }
+
+      @Override
+      public void let(Bson variables) {
+        iterable.let(variables);
+      }
+    };
+  }
+
+  static AggregateTarget aggregateTarget(AggregatePublisher<?> publisher) {
+    return new AggregateTarget() {
+      @Override
+      public void allowDiskUse(Boolean allowDiskUse) {
+        publisher.allowDiskUse(allowDiskUse);
+      }
+
+      @Override
+      public void maxTime(long maxTime, TimeUnit timeUnit) {
+        publisher.maxTime(maxTime, timeUnit);
+      }
+
+      @Override
+      public void maxAwaitTime(long maxAwaitTime, TimeUnit timeUnit) {
+        publisher.maxAwaitTime(maxAwaitTime, timeUnit);
+      }
+
+      @Override
+      public void bypassDocumentValidation(Boolean bypassDocumentValidation) {
+        publisher.bypassDocumentValidation(bypassDocumentValidation);
+      }
+
+      @Override
+      public void collation(Collation collation) {
+        publisher.collation(collation);
+      }
+
+      @Override
+      public void hint(Bson hint) {
+        publisher.hint(hint);
+      }
+
+      @Override
+      public void hintString(String hint) {
+        publisher.hintString(hint);
+      }
+
+      @Override
+      public void let(Bson variables) {
+        publisher.let(variables);
+      }
+    };
+  }
+}
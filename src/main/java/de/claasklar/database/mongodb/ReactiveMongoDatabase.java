@@ -0,0 +1,326 @@
+package de.claasklar.database.mongodb;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+import static io.opentelemetry.api.common.AttributeKey.stringKey;
+
+import com.mongodb.reactivestreams.client.AggregatePublisher;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import de.claasklar.database.AsyncDatabase;
+import de.claasklar.database.mongodb.codec.LazyValueMap;
+import de.claasklar.latency.LatencyRecorder;
+import de.claasklar.phase.PhaseTopic;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.index.IndexConfiguration;
+import de.claasklar.primitives.query.Aggregation;
+import de.claasklar.primitives.query.AggregationOptions;
+import de.claasklar.primitives.query.Find;
+import de.claasklar.primitives.query.Query;
+import de.claasklar.util.MapCollector;
+import de.claasklar.util.Pair;
+import de.claasklar.util.Subject;
+import de.claasklar.util.TelemetryConfig;
+import de.claasklar.util.TelemetryUtil;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+import org.bson.RawBsonDocument;
+
+/**
+ * MongoDB database on the reactive streams driver. Operations do not hold a thread while they are
+ * in flight, so one client can keep many more operations in flight than threads. Spans and
+ * histograms are the same as in {@link MongoDatabase}.
+ */
+public class ReactiveMongoDatabase implements AsyncDatabase {
+
+  private final MongoClient client;
+  // undecoded views of the database and collections, see MongoDatabase
+  private final com.mongodb.reactivestreams.client.MongoDatabase rawDatabase;
+  private final Tracer tracer;
+  private final LongHistogram histogram;
+  private final LatencyRecorder latencyRecorder;
+  private final Clock clock;
+  private final Map<CollectionName, MongoCollection<OurDocument>> collections;
+  private final Map<CollectionName, MongoCollection<RawBsonDocument>> rawCollections;
+  private volatile PhaseTopic.BenchmarkPhase benchmarkPhase;
+
+  ReactiveMongoDatabase(
+      MongoClient client,
+      com.mongodb.reactivestreams.client.MongoDatabase database,
+      Map<CollectionName, MongoCollection<OurDocument>> collections,
+      Tracer tracer,
+      LongHistogram histogram,
+      LatencyRecorder latencyRecorder,
+      Clock clock) {
+    this.client = client;
+    this.tracer = tracer;
+    this.histogram = histogram;
+    this.latencyRecorder = latencyRecorder;
+    this.clock = clock;
+    this.collections = collections;
+    var rawCodecRegistry = MongoDatabase.rawCodecRegistry(database.getCodecRegistry());
+    this.rawDatabase = database.withCodecRegistry(rawCodecRegistry);
+    this.rawCollections =
+        collections.entrySet().stream()
+            .map(
+                it ->
+                    new Pair<>(
+                        it.getKey(),
+                        it.getValue()
+                            .withDocumentClass(RawBsonDocument.class)
+                            .withCodecRegistry(rawCodecRegistry)))
+            .collect(new MapCollector<>());
+  }
+
+  @Override
+  public CompletionStage<OurDocument> writeAsync(
+      CollectionName collectionName, OurDocument document, Span span) {
+    var writeSpan =
+        tracer
+            .spanBuilder("write document to database")
+            .setParent(Context.current().with(span))
+            .startSpan();
+    if (writeSpan.isRecording()) {
+      writeSpan.setAllAttributes(
+          new TelemetryUtil()
+              .attributes(collectionName, document.getId()).toBuilder()
+                  .put("document", document.toString())
+                  .build());
+    }
+    var start = clock.instant();
+    var startNanos = System.nanoTime();
+    return start(() -> PublisherFutures.first(collections.get(collectionName).insertOne(document)))
+        .thenApply(
+            result -> {
+              record(start, startNanos, collectionName.toString(), "WRITE");
+              return document;
+            })
+        .whenComplete((result, e) -> end(writeSpan, e));
+  }
+
+  @Override
+  public CompletionStage<Optional<OurDocument>> readAsync(
+      CollectionName collectionName, Id id, Span span) {
+    return readAsync(collectionName, id, null, span);
+  }
+
+  /** Only fetches the given fields from the server. */
+  @Override
+  public CompletionStage<Optional<OurDocument>> readAsync(
+      CollectionName collectionName, Id id, Set<String> fieldPaths, Span span) {
+    var readSpan =
+        tracer
+            .spanBuilder("read document from database")
+            .setParent(Context.current().with(span))
+            .startSpan();
+    if (readSpan.isRecording()) {
+      readSpan.setAllAttributes(new TelemetryUtil().attributes(collectionName, id));
+    }
+    if (fieldPaths != null && readSpan.isRecording()) {
+      readSpan.setAttribute("projection", fieldPaths.toString());
+    }
+    var start = clock.instant();
+    var startNanos = System.nanoTime();
+    return start(
+            () ->
+                PublisherFutures.first(
+                    rawCollections
+                        .get(collectionName)
+                        .find(eq("_id", id))
+                        .projection(MongoDatabase.projection(fieldPaths))
+                        .first()))
+        .thenApply(
+            rawDocument -> {
+              record(start, startNanos, collectionName.toString(), "READ");
+              if (rawDocument.isEmpty()) {
+                readSpan.addEvent("found no document");
+              } else if (readSpan.isRecording()) {
+                readSpan.addEvent(
+                    "found document",
+                    Attributes.of(stringKey("document"), rawDocument.get().toJson()));
+              }
+              return rawDocument.map(LazyValueMap::ourDocument);
+            })
+        .whenComplete((result, e) -> end(readSpan, e));
+  }
+
+  /** Reads all documents with one $in query. */
+  @Override
+  public CompletionStage<Map<Id, OurDocument>> readManyAsync(
+      CollectionName collectionName, Collection<Id> ids, Set<String> fieldPaths, Span span) {
+    var readSpan =
+        tracer
+            .spanBuilder("read documents from database")
+            .setParent(Context.current().with(span))
+            .setAttribute("collection", collectionName.name())
+            .setAttribute("count", ids.size())
+            .startSpan();
+    if (fieldPaths != null && readSpan.isRecording()) {
+      readSpan.setAttribute("projection", fieldPaths.toString());
+    }
+    var start = clock.instant();
+    var startNanos = System.nanoTime();
+    return start(
+            () ->
+                PublisherFutures.collect(
+                    rawCollections
+                        .get(collectionName)
+                        .find(in("_id", ids))
+                        .projection(MongoDatabase.projection(fieldPaths))))
+        .thenApply(
+            rawDocuments -> {
+              record(start, startNanos, collectionName.toString(), "READ_MANY");
+              readSpan.setAttribute("found", rawDocuments.size());
+              return rawDocuments.stream()
+                  .map(LazyValueMap::ourDocument)
+                  .map(it -> new Pair<>(it.getId(), it))
+                  .collect(new MapCollector<>());
+            })
+        .whenComplete((result, e) -> end(readSpan, e));
+  }
+
+  @Override
+  public CompletionStage<Void> executeQueryAsync(Query query, Span span) {
+    var executeSpan =
+        tracer.spanBuilder("execute query").setParent(Context.current().with(span)).startSpan();
+    if (executeSpan.isRecording()) {
+      executeSpan.setAllAttributes(
+          new TelemetryUtil()
+              .executeQueryAttributes(query.getCollectionName(), query.getQueryName()));
+    }
+    var start = clock.instant();
+    var startNanos = System.nanoTime();
+    return start(
+            () -> {
+              if (query instanceof Find find) {
+                return PublisherFutures.count(findPublisher(find));
+              } else if (query instanceof Aggregation aggregation) {
+                return PublisherFutures.count(
+                    aggregatePublisher(aggregation.getAggregationOptions()));
+              }
+              return CompletableFuture.completedFuture(0L);
+            })
+        .thenAccept(
+            count -> {
+              if (executeSpan.isRecording()) {
+                executeSpan.addEvent(
+                    "query executed", Attributes.of(stringKey("count"), count.toString()));
+              }
+              record(start, startNanos, query.getCollectionName().toString(), query.getQueryName());
+            })
+        .whenComplete((result, e) -> end(executeSpan, e));
+  }
+
+  @Override
+  public void createIndex(IndexConfiguration indexConfiguration, Span span) {
+    var indexSpan =
+        tracer
+            .spanBuilder("create index")
+            .setAttribute("collection", indexConfiguration.getCollectionName().name())
+            .setAttribute("keys", indexConfiguration.getKeys().toString())
+            .setParent(Context.current().with(span))
+            .startSpan();
+    try {
+      var collection = collections.get(indexConfiguration.getCollectionName());
+      var index =
+          MongoDatabase.mapIndexConfiguration(indexConfiguration, collection.getCodecRegistry());
+      AsyncDatabase.join(
+          PublisherFutures.first(collection.createIndex(index.first(), index.second())));
+    } catch (Exception e) {
+      indexSpan.setStatus(StatusCode.ERROR);
+      indexSpan.recordException(e);
+      throw e;
+    } finally {
+      indexSpan.end();
+    }
+  }
+
+  private FindPublisher<RawBsonDocument> findPublisher(Find find) {
+    var collection = rawCollections.get(find.getCollectionName());
+    var publisher = collection.find();
+    QueryOptionsMapping.applyFindOptions(
+        QueryOptionsMapping.findTarget(publisher),
+        find.getFindOptions(),
+        collection.getCodecRegistry());
+    return publisher;
+  }
+
+  private AggregatePublisher<RawBsonDocument> aggregatePublisher(
+      AggregationOptions aggregationOptions) {
+    var codecRegistry = rawDatabase.getCodecRegistry();
+    AggregatePublisher<RawBsonDocument> publisher;
+    var pipeline = QueryOptionsMapping.pipeline(aggregationOptions, codecRegistry);
+    // 1 stands for an aggregation without collection
+    if (aggregationOptions.getAggregate().equals("1")) {
+      publisher = rawDatabase.aggregate(pipeline, RawBsonDocument.class);
+    } else {
+      publisher =
+          rawCollections
+              .get(new CollectionName(aggregationOptions.getAggregate()))
+              .aggregate(pipeline);
+    }
+    QueryOptionsMapping.applyAggregationOptions(
+        QueryOptionsMapping.aggregateTarget(publisher), aggregationOptions, codecRegistry);
+    return publisher;
+  }
+
+  private void record(Instant start, long startNanos, String collection, String operation) {
+    latencyRecorder.record(LatencyRecorder.DATABASE, collection, operation, startNanos);
+    histogram.record(
+        start.until(clock.instant(), TelemetryConfig.DURATION_RESOLUTION),
+        Attributes.of(
+            stringKey("collection"),
+            collection,
+            stringKey("operation"),
+            operation,
+            stringKey("phase"),
+            benchmarkPhase.toString()));
+  }
+
+  /** Turns exceptions while preparing an operation into a failed stage. */
+  private static <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> operation) {
+    try {
+      return operation.get();
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private static void end(Span span, Throwable e) {
+    if (e != null) {
+      span.recordException(e instanceof CompletionException ? e.getCause() : e);
+      span.setStatus(StatusCode.ERROR);
+    }
+    span.end();
+  }
+
+  @Override
+  public void close() {
+    this.client.close();
+  }
+
+  @Override
+  public void update(PhaseTopic.BenchmarkPhase update) {
+    benchmarkPhase = update;
+  }
+
+  @Override
+  public void setSubject(Subject<PhaseTopic.BenchmarkPhase> subject) {}
+}
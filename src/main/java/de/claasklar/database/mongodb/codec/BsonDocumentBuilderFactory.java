@@ -0,0 +1,104 @@
+package de.claasklar.database.mongodb.codec;
+
+import de.claasklar.generation.DocumentBuilder;
+import de.claasklar.generation.DocumentBuilderFactory;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.ObjectValue;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.Value;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.bson.io.BasicOutputBuffer;
+
+/**
+ * Builds documents directly in their BSON encoding. Inserted fields are written into a pooled
+ * buffer as soon as they are inserted, so no map of all fields is built and the document is not
+ * encoded again when it is written. Only the retained fields are kept as values, e.g. because pipes
+ * of referencing documents select them.
+ *
+ * <p>Every field may only be inserted once and the fields, which are not retained, cannot be read
+ * from the generated document.
+ */
+public class BsonDocumentBuilderFactory implements DocumentBuilderFactory {
+
+  private static final String ID_FIELD_NAME = "_id";
+
+  private final Set<String> retainedFields;
+  // holds at most one buffer per concurrently built document
+  private final ConcurrentLinkedQueue<BasicOutputBuffer> buffers;
+
+  /**
+   * @param retainedFields top level fields, which are kept as values
+   */
+  public BsonDocumentBuilderFactory(Set<String> retainedFields) {
+    this.retainedFields = Set.copyOf(retainedFields);
+    this.buffers = new ConcurrentLinkedQueue<>();
+  }
+
+  @Override
+  public DocumentBuilder builder(Id id) {
+    var buffer = buffers.poll();
+    if (buffer == null) {
+      buffer = new BasicOutputBuffer();
+    }
+    return new BsonDocumentBuilder(id, buffer);
+  }
+
+  private class BsonDocumentBuilder implements DocumentBuilder {
+    private final Id id;
+    private final BasicOutputBuffer buffer;
+    private final int start;
+    private final Map<String, Value> retained;
+    private final OurDocument target;
+
+    private BsonDocumentBuilder(Id id, BasicOutputBuffer buffer) {
+      this.id = id;
+      this.buffer = buffer;
+      this.start = RawValueWriter.startDocument(buffer);
+      this.retained = retainedFields.isEmpty() ? Map.of() : new HashMap<>();
+      this.target = new OurDocument(id, new WriteThroughMap());
+      RawValueWriter.writeElement(buffer, ID_FIELD_NAME, id);
+    }
+
+    @Override
+    public ObjectValue target() {
+      return target;
+    }
+
+    @Override
+    public OurDocument build() {
+      RawValueWriter.endDocument(buffer, start);
+      var encoded = Arrays.copyOf(buffer.getInternalBuffer(), buffer.getPosition());
+      buffer.truncateToPosition(0);
+      buffers.offer(buffer);
+      return new OurDocument(id, retained, encoded);
+    }
+
+    /** Writes every inserted field and keeps only the retained ones. */
+    private class WriteThroughMap extends AbstractMap<String, Value> {
+
+      @Override
+      public Value put(String key, Value value) {
+        RawValueWriter.writeElement(buffer, key, value);
+        if (retainedFields.contains(key)) {
+          return retained.put(key, value);
+        }
+        return null;
+      }
+
+      @Override
+      public Value get(Object key) {
+        return retained.get(key);
+      }
+
+      @Override
+      public Set<Entry<String, Value>> entrySet() {
+        return retained.entrySet();
+      }
+    }
+  }
+}
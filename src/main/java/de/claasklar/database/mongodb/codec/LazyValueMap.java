@@ -0,0 +1,139 @@
+package de.claasklar.database.mongodb.codec;
+
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.BoolValue;
+import de.claasklar.primitives.document.ByteValue;
+import de.claasklar.primitives.document.DoubleValue;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.LongValue;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.StringValue;
+import de.claasklar.primitives.document.Value;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.configuration.CodecConfigurationException;
+
+/**
+ * Read-only map over the fields of a RawBsonDocument, which decodes a field only when it is
+ * accessed. Nested documents are lazy as well, so selecting a path decodes only the fields on the
+ * path. Decoded fields are cached.
+ */
+public final class LazyValueMap extends AbstractMap<String, Value> {
+
+  private static final String ID_FIELD_NAME = "_id";
+
+  private final RawBsonDocument document;
+  private final boolean skipId;
+  private final Map<String, Value> decoded;
+  private volatile Map<String, Value> all;
+
+  /**
+   * @param document encoded fields
+   * @param skipId true, if the _id field is not part of the map, because it is kept separately
+   */
+  public LazyValueMap(RawBsonDocument document, boolean skipId) {
+    this.document = document;
+    this.skipId = skipId;
+    this.decoded = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * @param document encoded document with an ObjectId as _id
+   * @return OurDocument, which decodes its fields on access
+   */
+  public static OurDocument ourDocument(RawBsonDocument document) {
+    var id = document.get(ID_FIELD_NAME);
+    if (id == null || !id.isObjectId()) {
+      throw new IllegalArgumentException("id must exists and needs to be an ObjectId");
+    }
+    return new OurDocument(
+        new Id(id.asObjectId().getValue().toByteArray()), new LazyValueMap(document, true));
+  }
+
+  @Override
+  public Value get(Object key) {
+    if (!(key instanceof String name) || (skipId && name.equals(ID_FIELD_NAME))) {
+      return null;
+    }
+    var value = decoded.get(name);
+    if (value != null) {
+      return value;
+    }
+    var bsonValue = document.get(name);
+    if (bsonValue == null) {
+      return null;
+    }
+    value = toValue(bsonValue);
+    decoded.put(name, value);
+    return value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (skipId && ID_FIELD_NAME.equals(key)) {
+      return false;
+    }
+    return document.containsKey(key);
+  }
+
+  /** Decodes all fields. */
+  @Override
+  public Set<Entry<String, Value>> entrySet() {
+    var current = all;
+    if (current == null) {
+      var values = new LinkedHashMap<String, Value>();
+      for (var entry : document.entrySet()) {
+        if (skipId && entry.getKey().equals(ID_FIELD_NAME)) {
+          continue;
+        }
+        values.put(entry.getKey(), toValue(entry.getValue()));
+      }
+      current = Collections.unmodifiableMap(values);
+      all = current;
+    }
+    return current.entrySet();
+  }
+
+  static Value toValue(BsonValue value) {
+    return switch (value.getBsonType()) {
+      case STRING -> new StringValue(value.asString().getValue());
+      case INT32 -> new IntValue(value.asInt32().getValue());
+      case INT64 -> new LongValue(value.asInt64().getValue());
+      case DOUBLE -> new DoubleValue(value.asDouble().getValue());
+      case BOOLEAN -> new BoolValue(value.asBoolean().getValue());
+      case BINARY -> new ByteValue(value.asBinary().getData());
+      case OBJECT_ID -> new Id(value.asObjectId().getValue().toByteArray());
+      case NULL -> new NullValue();
+      case DOCUMENT -> new NestedObjectValue(nestedValues(value.asDocument()));
+      case ARRAY -> {
+        var values = new ArrayList<Value>(value.asArray().size());
+        for (var element : value.asArray()) {
+          values.add(toValue(element));
+        }
+        yield new ArrayValue(values);
+      }
+      default -> throw new CodecConfigurationException(
+          "Can't find codec for type " + value.getBsonType());
+    };
+  }
+
+  private static Map<String, Value> nestedValues(BsonDocument document) {
+    if (document instanceof RawBsonDocument rawDocument) {
+      return new LazyValueMap(rawDocument, false);
+    }
+    var values = new LinkedHashMap<String, Value>();
+    document.forEach((key, value) -> values.put(key, toValue(value)));
+    return values;
+  }
+}
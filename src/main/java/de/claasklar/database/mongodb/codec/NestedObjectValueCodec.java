@@ -17,7 +17,7 @@ public class NestedObjectValueCodec implements Codec<NestedObjectValue> {
   private final BsonTypeValueCodecMap codecMap;
 
   public NestedObjectValueCodec(CodecRegistry codecRegistry, BsonTypeValueCodecMap codecMap) {
-    this.encoder = new ObjectValueEncoder(codecRegistry);
+    this.encoder = new ObjectValueEncoder();
     this.codecMap = codecMap;
   }
 
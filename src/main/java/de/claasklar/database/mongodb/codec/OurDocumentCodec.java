@@ -22,7 +22,7 @@ public class OurDocumentCodec implements Codec<OurDocument> {
 
   public OurDocumentCodec(CodecRegistry codecRegistry, BsonTypeValueCodecMap codecMap) {
     this.codecRegistry = codecRegistry;
-    this.encoder = new ObjectValueEncoder(codecRegistry);
+    this.encoder = new ObjectValueEncoder();
     this.codecMap = codecMap;
   }
 
@@ -0,0 +1,118 @@
+package de.claasklar.database.mongodb.codec;
+
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.BoolValue;
+import de.claasklar.primitives.document.ByteValue;
+import de.claasklar.primitives.document.DoubleValue;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.LongValue;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.ObjectValue;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.StringValue;
+import de.claasklar.primitives.document.Value;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonType;
+import org.bson.io.BsonOutput;
+
+/**
+ * Writes values as BSON elements straight into a BsonOutput. Produces the same bytes as {@link
+ * ValueWriter} with a BsonBinaryWriter, without the state tracking and validation of the writer,
+ * which costs more than the encoding of small documents.
+ */
+final class RawValueWriter {
+
+  private static final String ID_FIELD_NAME = "_id";
+  private static final String[] INDEX_NAMES = new String[64];
+
+  static {
+    for (int i = 0; i < INDEX_NAMES.length; i++) {
+      INDEX_NAMES[i] = Integer.toString(i);
+    }
+  }
+
+  private RawValueWriter() {}
+
+  /**
+   * @return position of the document, which has to be passed to {@link #endDocument}
+   */
+  static int startDocument(BsonOutput output) {
+    var start = output.getPosition();
+    output.writeInt32(0);
+    return start;
+  }
+
+  static void endDocument(BsonOutput output, int start) {
+    output.writeByte(0);
+    output.writeInt32(start, output.getPosition() - start);
+  }
+
+  static void writeElement(BsonOutput output, String name, Value value) {
+    if (value == null || value instanceof NullValue) {
+      writeHeader(output, BsonType.NULL, name);
+    } else if (value instanceof StringValue stringValue) {
+      writeHeader(output, BsonType.STRING, name);
+      output.writeString(stringValue.value());
+    } else if (value instanceof IntValue intValue) {
+      writeHeader(output, BsonType.INT32, name);
+      output.writeInt32(intValue.value());
+    } else if (value instanceof LongValue longValue) {
+      writeHeader(output, BsonType.INT64, name);
+      output.writeInt64(longValue.value());
+    } else if (value instanceof DoubleValue doubleValue) {
+      writeHeader(output, BsonType.DOUBLE, name);
+      output.writeDouble(doubleValue.value());
+    } else if (value instanceof BoolValue boolValue) {
+      writeHeader(output, BsonType.BOOLEAN, name);
+      output.writeByte(boolValue.value() ? 1 : 0);
+    } else if (value instanceof Id id) {
+      writeHeader(output, BsonType.OBJECT_ID, name);
+      output.writeBytes(id.id());
+    } else if (value instanceof ByteValue byteValue) {
+      writeHeader(output, BsonType.BINARY, name);
+      output.writeInt32(byteValue.value().length);
+      output.writeByte(BsonBinarySubType.BINARY.getValue());
+      output.writeBytes(byteValue.value());
+    } else if (value instanceof ArrayValue arrayValue) {
+      writeHeader(output, BsonType.ARRAY, name);
+      var start = startDocument(output);
+      var index = 0;
+      for (var element : arrayValue) {
+        writeElement(output, indexName(index++), element);
+      }
+      endDocument(output, start);
+    } else if (value instanceof ObjectValue objectValue) {
+      writeHeader(output, BsonType.DOCUMENT, name);
+      writeObject(output, objectValue);
+    }
+  }
+
+  private static void writeObject(BsonOutput output, ObjectValue value) {
+    if (value instanceof OurDocument document) {
+      if (document.isEncoded()) {
+        output.writeBytes(document.getEncoded());
+        return;
+      }
+      var start = startDocument(output);
+      writeElement(output, ID_FIELD_NAME, document.getId());
+      document.getValues().forEach((key, fieldValue) -> writeElement(output, key, fieldValue));
+      endDocument(output, start);
+      return;
+    }
+    var start = startDocument(output);
+    for (var entry : value.entrySet()) {
+      writeElement(output, entry.getKey(), entry.getValue());
+    }
+    endDocument(output, start);
+  }
+
+  private static void writeHeader(BsonOutput output, BsonType type, String name) {
+    output.writeByte(type.getValue());
+    output.writeCString(name);
+  }
+
+  private static String indexName(int index) {
+    return index < INDEX_NAMES.length ? INDEX_NAMES[index] : Integer.toString(index);
+  }
+}
@@ -0,0 +1,89 @@
+package de.claasklar.database.mongodb.codec;
+
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.BoolValue;
+import de.claasklar.primitives.document.ByteValue;
+import de.claasklar.primitives.document.DoubleValue;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.LongValue;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.ObjectValue;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.StringValue;
+import de.claasklar.primitives.document.Value;
+import java.nio.ByteBuffer;
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonWriter;
+import org.bson.types.ObjectId;
+
+/**
+ * Writes values the same way as the codecs of {@link OurDocumentCodecRegistry}, but dispatches on
+ * the sealed Value types instead of looking up a codec for every value.
+ */
+public final class ValueWriter {
+
+  private static final String ID_FIELD_NAME = "_id";
+
+  private ValueWriter() {}
+
+  public static void write(BsonWriter writer, Value value) {
+    if (value == null || value instanceof NullValue) {
+      writer.writeNull();
+    } else if (value instanceof StringValue stringValue) {
+      writer.writeString(stringValue.value());
+    } else if (value instanceof IntValue intValue) {
+      writer.writeInt32(intValue.value());
+    } else if (value instanceof LongValue longValue) {
+      writer.writeInt64(longValue.value());
+    } else if (value instanceof DoubleValue doubleValue) {
+      writer.writeDouble(doubleValue.value());
+    } else if (value instanceof BoolValue boolValue) {
+      writer.writeBoolean(boolValue.value());
+    } else if (value instanceof Id id) {
+      writer.writeObjectId(new ObjectId(id.id()));
+    } else if (value instanceof ByteValue byteValue) {
+      writer.writeBinaryData(new BsonBinary(byteValue.value()));
+    } else if (value instanceof ArrayValue arrayValue) {
+      writer.writeStartArray();
+      arrayValue.iterator().forEachRemaining(it -> write(writer, it));
+      writer.writeEndArray();
+    } else if (value instanceof ObjectValue objectValue) {
+      writeObject(writer, objectValue);
+    }
+  }
+
+  /**
+   * Writes the fields of the object as document. The _id of an OurDocument is written first and an
+   * encoded OurDocument is copied as is.
+   */
+  public static void writeObject(BsonWriter writer, ObjectValue value) {
+    if (value instanceof OurDocument document) {
+      if (document.isEncoded()) {
+        try (var reader = new BsonBinaryReader(ByteBuffer.wrap(document.getEncoded()))) {
+          writer.pipe(reader);
+        }
+        return;
+      }
+      writer.writeStartDocument();
+      writer.writeName(ID_FIELD_NAME);
+      write(writer, document.getId());
+      document
+          .getValues()
+          .forEach(
+              (key, fieldValue) -> {
+                writer.writeName(key);
+                write(writer, fieldValue);
+              });
+      writer.writeEndDocument();
+      return;
+    }
+    writer.writeStartDocument();
+    for (var entry : value.entrySet()) {
+      writer.writeName(entry.getKey());
+      write(writer, entry.getValue());
+    }
+    writer.writeEndDocument();
+  }
+}
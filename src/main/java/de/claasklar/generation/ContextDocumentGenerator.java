@@ -6,17 +6,37 @@ import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
 import de.claasklar.primitives.document.ObjectValue;
 import de.claasklar.primitives.document.OurDocument;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 public class ContextDocumentGenerator implements DocumentGenerator {
 
   private final InserterFactory<ObjectValue>[] inserters;
+  private final DocumentBuilderFactory documentBuilderFactory;
+  private final Map<CollectionName, Set<String>> referencedFields;
 
   public ContextDocumentGenerator(InserterFactory<ObjectValue>[] inserters) {
+    this(inserters, DocumentBuilderFactory.mapBacked());
+  }
+
+  public ContextDocumentGenerator(
+      InserterFactory<ObjectValue>[] inserters, DocumentBuilderFactory documentBuilderFactory) {
+    this(inserters, documentBuilderFactory, Map.of());
+  }
+
+  /**
+   * @param referencedFields field paths, which the inserters read from the referenced collections.
+   *     Collections, whose whole documents are read, are missing.
+   */
+  public ContextDocumentGenerator(
+      InserterFactory<ObjectValue>[] inserters,
+      DocumentBuilderFactory documentBuilderFactory,
+      Map<CollectionName, Set<String>> referencedFields) {
     this.inserters = inserters;
+    this.documentBuilderFactory = documentBuilderFactory;
+    this.referencedFields = Map.copyOf(referencedFields);
   }
 
   @Override
@@ -26,11 +46,23 @@ public class ContextDocumentGenerator implements DocumentGenerator {
 
   @Override
   public OurDocument generateDocument(IdLong id, Map<CollectionName, OurDocument[]> references) {
-    var document = new OurDocument(id.toId(), new HashMap<>());
+    var builder = documentBuilderFactory.builder(id.toId());
+    var target = builder.target();
     var context = new Context(references);
-    Arrays.stream(inserters)
-        .map(factory -> factory.apply(context))
-        .forEach(inserter -> inserter.accept(document));
-    return document;
+    for (var factory : inserters) {
+      factory.apply(context).accept(target);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public Optional<Set<String>> referencedFields(CollectionName collectionName) {
+    return Optional.ofNullable(referencedFields.get(collectionName));
+  }
+
+  @Override
+  public ContextDocumentGenerator withDocumentBuilderFactory(
+      DocumentBuilderFactory documentBuilderFactory) {
+    return new ContextDocumentGenerator(inserters, documentBuilderFactory, referencedFields);
   }
 }
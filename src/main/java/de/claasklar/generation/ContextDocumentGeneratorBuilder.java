@@ -14,19 +14,30 @@ import de.claasklar.primitives.document.ObjectValue;
 import de.claasklar.primitives.document.OurDocument;
 import de.claasklar.primitives.document.Value;
 import de.claasklar.random.distribution.StdRandomNumberGenerator;
+import de.claasklar.util.MapCollector;
+import de.claasklar.util.Pair;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class ContextDocumentGeneratorBuilder {
 
   private final List<InserterFactory<ObjectValue>> inserterFactories;
   private final InserterFactories factory = new InserterFactories();
+  private DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.mapBacked();
+  private final Map<CollectionName, Set<String>> referencedFields;
+  private final Set<CollectionName> wholeReferencedDocuments;
 
   private ContextDocumentGeneratorBuilder() {
     this.inserterFactories = new LinkedList<>();
+    this.referencedFields = new HashMap<>();
+    this.wholeReferencedDocuments = new HashSet<>();
   }
 
   public static ContextDocumentGeneratorBuilder builder() {
@@ -34,8 +45,35 @@ public class ContextDocumentGeneratorBuilder {
   }
 
   public ContextDocumentGenerator build() {
+    var readFields =
+        referencedFields.entrySet().stream()
+            .filter(it -> !wholeReferencedDocuments.contains(it.getKey()))
+            .map(it -> new Pair<>(it.getKey(), withoutNestedPaths(it.getValue())))
+            .collect(new MapCollector<>());
     return new ContextDocumentGenerator(
-        inserterFactories.toArray(new InserterFactory[inserterFactories.size()]));
+        inserterFactories.toArray(new InserterFactory[inserterFactories.size()]),
+        documentBuilderFactory,
+        readFields);
+  }
+
+  // a projection must not contain a path and one of its sub paths
+  private static Set<String> withoutNestedPaths(Set<String> paths) {
+    return paths.stream()
+        .filter(path -> paths.stream().noneMatch(other -> path.startsWith(other + ".")))
+        .collect(Collectors.toUnmodifiableSet());
+  }
+
+  /**
+   * Set how documents are built, e.g. directly encoded. Default: {@link
+   * DocumentBuilderFactory#mapBacked()}
+   *
+   * @param documentBuilderFactory creates a builder per document
+   * @return this
+   */
+  public ContextDocumentGeneratorBuilder documentBuilderFactory(
+      DocumentBuilderFactory documentBuilderFactory) {
+    this.documentBuilderFactory = documentBuilderFactory;
+    return this;
   }
 
   /**
@@ -75,6 +113,17 @@ public class ContextDocumentGeneratorBuilder {
       String key, Consumer<FieldPipeBuilder> fieldConfig) {
     var fieldBuilder = new FieldPipeBuilder();
     fieldConfig.accept(fieldBuilder);
+    var pipeBuilder = fieldBuilder.pipeBuilder;
+    if (pipeBuilder != null) {
+      pipeBuilder
+          .getFieldPaths()
+          .ifPresentOrElse(
+              paths ->
+                  referencedFields
+                      .computeIfAbsent(pipeBuilder.getCollectionName(), it -> new HashSet<>())
+                      .addAll(paths),
+              () -> wholeReferencedDocuments.add(pipeBuilder.getCollectionName()));
+    }
     this.inserterFactories.add(factory.insertFromPipe(key, fieldBuilder.build()));
     return this;
   }
@@ -130,6 +179,7 @@ public class ContextDocumentGeneratorBuilder {
   public static class FieldPipeBuilder {
 
     private Pipe<Map<CollectionName, OurDocument[]>, ? extends Value> pipe;
+    private PipeBuilder pipeBuilder;
 
     /**
      * Select the collection with collectionName from all referenced collections. The output to the
@@ -143,7 +193,7 @@ public class ContextDocumentGeneratorBuilder {
         CollectionName collectionName,
         Function<PipeBuilder, Pipe<Map<CollectionName, OurDocument[]>, ? extends Value>>
             pipeConfig) {
-      var pipeBuilder = Pipes.selectCollection(collectionName);
+      this.pipeBuilder = Pipes.selectCollection(collectionName);
       this.pipe = pipeConfig.apply(pipeBuilder);
       return this.pipe;
     }
@@ -4,27 +4,41 @@ import de.claasklar.generation.inserters.ObjectInserter;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
 import de.claasklar.primitives.document.OurDocument;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 
 public class ContextlessDocumentGenerator implements DocumentGenerator {
 
   private final ObjectInserter[] inserters;
+  private final DocumentBuilderFactory documentBuilderFactory;
 
   public ContextlessDocumentGenerator(ObjectInserter[] inserters) {
+    this(inserters, DocumentBuilderFactory.mapBacked());
+  }
+
+  public ContextlessDocumentGenerator(
+      ObjectInserter[] inserters, DocumentBuilderFactory documentBuilderFactory) {
     this.inserters = inserters;
+    this.documentBuilderFactory = documentBuilderFactory;
   }
 
   @Override
   public OurDocument generateDocument(IdLong id) {
-    var document = new OurDocument(id.toId(), new HashMap<>());
-    Arrays.stream(inserters).forEach(inserter -> inserter.accept(document));
-    return document;
+    var builder = documentBuilderFactory.builder(id.toId());
+    var target = builder.target();
+    for (var inserter : inserters) {
+      inserter.accept(target);
+    }
+    return builder.build();
   }
 
   @Override
   public OurDocument generateDocument(IdLong id, Map<CollectionName, OurDocument[]> references) {
     return this.generateDocument(id);
   }
+
+  @Override
+  public ContextlessDocumentGenerator withDocumentBuilderFactory(
+      DocumentBuilderFactory documentBuilderFactory) {
+    return new ContextlessDocumentGenerator(inserters, documentBuilderFactory);
+  }
 }
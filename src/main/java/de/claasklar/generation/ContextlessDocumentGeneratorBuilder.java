@@ -13,6 +13,7 @@ public class ContextlessDocumentGeneratorBuilder {
 
   private final List<ObjectInserter> inserters;
   private final ValueSuppliers valueSuppliers;
+  private DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.mapBacked();
 
   private ContextlessDocumentGeneratorBuilder() {
     this.inserters = new LinkedList<>();
@@ -65,8 +66,21 @@ public class ContextlessDocumentGeneratorBuilder {
     return this;
   }
 
+  /**
+   * Set how documents are built, e.g. directly encoded. Default: {@link
+   * DocumentBuilderFactory#mapBacked()}
+   *
+   * @param documentBuilderFactory creates a builder per document
+   * @return this
+   */
+  public ContextlessDocumentGeneratorBuilder documentBuilderFactory(
+      DocumentBuilderFactory documentBuilderFactory) {
+    this.documentBuilderFactory = documentBuilderFactory;
+    return this;
+  }
+
   public ContextlessDocumentGenerator build() {
     return new ContextlessDocumentGenerator(
-        inserters.toArray(new ObjectInserter[inserters.size()]));
+        inserters.toArray(new ObjectInserter[inserters.size()]), documentBuilderFactory);
   }
 }
@@ -0,0 +1,20 @@
+package de.claasklar.generation;
+
+import de.claasklar.primitives.document.ObjectValue;
+import de.claasklar.primitives.document.OurDocument;
+
+/** Collects the fields inserted by a {@link DocumentGenerator} into one document. */
+public interface DocumentBuilder {
+
+  /**
+   * @return object, which the inserters of the generator insert the fields into
+   */
+  ObjectValue target();
+
+  /**
+   * Called once after all fields are inserted.
+   *
+   * @return the generated document
+   */
+  OurDocument build();
+}
@@ -0,0 +1,33 @@
+package de.claasklar.generation;
+
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.ObjectValue;
+import de.claasklar.primitives.document.OurDocument;
+import java.util.HashMap;
+
+/** Decides how generators build their documents. */
+@FunctionalInterface
+public interface DocumentBuilderFactory {
+
+  DocumentBuilder builder(Id id);
+
+  /**
+   * @return factory, which keeps all fields as values in a map, the default of the generators
+   */
+  static DocumentBuilderFactory mapBacked() {
+    return id -> {
+      var document = new OurDocument(id, new HashMap<>());
+      return new DocumentBuilder() {
+        @Override
+        public ObjectValue target() {
+          return document;
+        }
+
+        @Override
+        public OurDocument build() {
+          return document;
+        }
+      };
+    };
+  }
+}
@@ -4,10 +4,33 @@ import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
 import de.claasklar.primitives.document.OurDocument;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 public interface DocumentGenerator {
 
   OurDocument generateDocument(IdLong id);
 
   OurDocument generateDocument(IdLong id, Map<CollectionName, OurDocument[]> references);
+
+  /**
+   * Fields of the referenced documents, which are read while generating a document. Reads of the
+   * referenced documents only need to fetch these fields.
+   *
+   * @param collectionName referenced collection
+   * @return dotted field paths, empty if whole documents are read
+   */
+  default Optional<Set<String>> referencedFields(CollectionName collectionName) {
+    return Optional.empty();
+  }
+
+  /**
+   * @param documentBuilderFactory builds the generated documents
+   * @return a generator with the same fields, which builds its documents with the factory. This
+   *     generator, if its documents cannot be built by a factory.
+   */
+  default DocumentGenerator withDocumentBuilderFactory(
+      DocumentBuilderFactory documentBuilderFactory) {
+    return this;
+  }
 }
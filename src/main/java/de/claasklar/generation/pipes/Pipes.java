@@ -19,8 +19,13 @@ import de.claasklar.primitives.document.StringValue;
 import de.claasklar.primitives.document.Value;
 import java.awt.geom.Arc2D.Float;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,14 +40,38 @@ public class Pipes {
 
   public static class PipeBuilder {
 
+    // selects the elements of the documents array, followed by a dotted path of field names
+    private static final Pattern FIELD_PATH =
+        Pattern.compile("^\\$\\.?\\[[0-9*,:\\s-]+]\\.([A-Za-z_][\\w-]*(?:\\.[A-Za-z_][\\w-]*)*)$");
+
     private final ParseContextImpl parseContext = new ParseContextImpl();
+    private final CollectionName collectionName;
+    // null, if the pipe reads whole documents, which it does until a field path is selected
+    private Set<String> fieldPaths = null;
+    private boolean selectsWholeDocuments = false;
 
     private Pipe<Map<CollectionName, OurDocument[]>, ?> pipe;
 
     public PipeBuilder(CollectionName collectionName) {
+      this.collectionName = collectionName;
       this.pipe = (input) -> input.get(collectionName);
     }
 
+    public CollectionName getCollectionName() {
+      return collectionName;
+    }
+
+    /**
+     * Field paths of the selected collection's documents, which are read by the pipe. Only paths of
+     * the form {@code $.[0]._id} or {@code $.[*].nested.field} are recognized, any other expression
+     * reads the whole documents. So does a pipe without a selected path.
+     *
+     * @return dotted field paths, empty if the pipe reads whole documents
+     */
+    public Optional<Set<String>> getFieldPaths() {
+      return Optional.ofNullable(fieldPaths).map(Collections::unmodifiableSet);
+    }
+
     /**
      * Select from the incoming array/object by an JsonPath expression.
      *
@@ -55,6 +84,16 @@ public class Pipes {
      */
     public PipeBuilder selectByPath(String path) {
       var jsonPath = JsonPath.compile(path);
+      var matcher = FIELD_PATH.matcher(path);
+      if (!selectsWholeDocuments && matcher.matches()) {
+        if (fieldPaths == null) {
+          fieldPaths = new HashSet<>();
+        }
+        fieldPaths.add(matcher.group(1));
+      } else {
+        selectsWholeDocuments = true;
+        fieldPaths = null;
+      }
       this.pipe =
           pipe.pipe(
                   (input) -> {
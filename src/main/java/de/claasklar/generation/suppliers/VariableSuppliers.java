@@ -1,5 +1,6 @@
 package de.claasklar.generation.suppliers;
 
+import de.claasklar.idStore.CollectionHandle;
 import de.claasklar.idStore.IdStore;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
@@ -19,18 +20,34 @@ public class VariableSuppliers {
 
   public VariableSupplier existingId(
       String variableName, CollectionName collectionName, IdDistribution idDistribution) {
+    var collectionHandle = CollectionHandle.of(collectionName);
     return () -> {
-      IdLong id;
-      do {
-        id = idDistribution.next();
-        IdLong finalId = id;
-        logger
-            .atTrace()
-            .log(() -> "requested next id for existing id supplier " + finalId.toString());
-      } while (!idStore.exists(collectionName, id.id()));
-      IdLong finalId1 = id;
-      logger.atTrace().log(() -> "found id for existing id supplier: " + finalId1);
+      var id = nextExistingId(collectionHandle, idDistribution);
+      logger.atTrace().log(() -> "found id for existing id supplier: " + id);
       return new NestedObjectValue(Map.of(variableName, id.toId()));
     };
   }
+
+  /**
+   * Samples the id directly from the IdStore, if it is supported and the distribution can draw
+   * ranks of the stored ids within its bounds, see {@link IdDistribution#nextRank}. Otherwise, ids
+   * are drawn from the distribution until one exists.
+   */
+  private IdLong nextExistingId(CollectionHandle collectionHandle, IdDistribution idDistribution) {
+    if (idStore.supportsSampling()) {
+      var sampledId = idStore.sample(collectionHandle, idDistribution);
+      if (sampledId.isPresent()) {
+        return new IdLong(sampledId.getAsLong());
+      }
+    }
+    IdLong id;
+    do {
+      id = idDistribution.next();
+      IdLong finalId = id;
+      logger
+          .atTrace()
+          .log(() -> "requested next id for existing id supplier " + finalId.toString());
+    } while (!idStore.exists(collectionHandle, id.id()));
+    return id;
+  }
 }
@@ -0,0 +1,11 @@
+package de.claasklar.idStore;
+
+/** Result of {@link IdStore#tryClaim}. */
+public enum ClaimState {
+  /** the caller owns the id and has to store or release it */
+  CLAIMED,
+  /** another caller owns the id and its document is not written yet */
+  PENDING,
+  /** the document of the id is written */
+  STORED
+}
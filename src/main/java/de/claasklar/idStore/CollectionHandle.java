@@ -0,0 +1,35 @@
+package de.claasklar.idStore;
+
+import de.claasklar.primitives.CollectionName;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense integer handle of a collection. Handles are numbered from 0 in the order the collections
+ * are first seen, so IdStores can keep their collections in an array indexed by the handle and skip
+ * hashing the CollectionName on every call.
+ *
+ * @param collectionName collection of the handle
+ * @param index dense index of the collection
+ */
+public record CollectionHandle(CollectionName collectionName, int index) {
+
+  private static final Map<CollectionName, CollectionHandle> handles = new ConcurrentHashMap<>();
+
+  /**
+   * @param collectionName collection
+   * @return the handle of the collection, equal for equal names
+   */
+  public static CollectionHandle of(CollectionName collectionName) {
+    var handle = handles.get(collectionName);
+    if (handle == null) {
+      handle = register(collectionName);
+    }
+    return handle;
+  }
+
+  private static synchronized CollectionHandle register(CollectionName collectionName) {
+    return handles.computeIfAbsent(
+        collectionName, it -> new CollectionHandle(collectionName, handles.size()));
+  }
+}
@@ -0,0 +1,437 @@
+package de.claasklar.idStore;
+
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.random.distribution.id.IdDistribution;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Lock-free IdStore. Every collection is a bitmap split into segments of {@link AtomicLongArray},
+ * which are allocated lazily through a two level directory. Bits are set with CAS, so writers only
+ * contend when they touch the same 64 bit word and readers never block. Every segment and every
+ * directory counts its ids in a striped {@link LongAdder}, which bounds the work of {@link #rank}
+ * and {@link #select} without a shared counter on the store path. Claimed ids are tracked until
+ * they are stored, see {@link #tryClaim}. Collections are kept in an array indexed by their {@link
+ * CollectionHandle}.
+ */
+public class ConcurrentInMemoryIdStore implements IdStore {
+
+  private static final int WORD_BITS = 6;
+  private static final int SEGMENT_BITS = 10;
+  private static final int DIRECTORY_BITS = 12;
+  private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+  private static final int DIRECTORY_SIZE = 1 << DIRECTORY_BITS;
+  private static final long MAX_ID = (1L << (WORD_BITS + SEGMENT_BITS + 2 * DIRECTORY_BITS)) - 1;
+
+  private final PendingIds pendingIds;
+  private volatile Bitmap[] bitmaps;
+
+  public ConcurrentInMemoryIdStore() {
+    this.pendingIds = new PendingIds();
+    this.bitmaps = new Bitmap[0];
+  }
+
+  @Override
+  public void store(CollectionName collectionName, long id) {
+    store(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public boolean exists(CollectionName collectionName, long id) {
+    return exists(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public void store(CollectionHandle collectionHandle, long id) {
+    checkRange(id);
+    bitmap(collectionHandle, true).set(id);
+    pendingIds.stored(collectionHandle, id);
+  }
+
+  @Override
+  public boolean exists(CollectionHandle collectionHandle, long id) {
+    checkRange(id);
+    var bitmap = bitmap(collectionHandle, false);
+    if (bitmap == null) {
+      return false;
+    }
+    return bitmap.get(id);
+  }
+
+  @Override
+  public void storeRange(CollectionName collectionName, long from, long to) {
+    if (from >= to) {
+      return;
+    }
+    checkRange(from);
+    checkRange(to - 1);
+    var collectionHandle = CollectionHandle.of(collectionName);
+    bitmap(collectionHandle, true).setRange(from, to);
+    if (pendingIds.hasPending(collectionHandle)) {
+      for (long id = from; id < to; id++) {
+        pendingIds.stored(collectionHandle, id);
+      }
+    }
+  }
+
+  @Override
+  public void storeAll(CollectionName collectionName, long[] ids) {
+    for (var id : ids) {
+      checkRange(id);
+    }
+    var collectionHandle = CollectionHandle.of(collectionName);
+    var bitmap = bitmap(collectionHandle, true);
+    for (var id : ids) {
+      bitmap.set(id);
+    }
+    if (pendingIds.hasPending(collectionHandle)) {
+      for (var id : ids) {
+        pendingIds.stored(collectionHandle, id);
+      }
+    }
+  }
+
+  @Override
+  public void existsAll(CollectionName collectionName, long[] ids, BitSet out) {
+    for (var id : ids) {
+      checkRange(id);
+    }
+    var bitmap = bitmap(CollectionHandle.of(collectionName), false);
+    for (int i = 0; i < ids.length; i++) {
+      out.set(i, bitmap != null && bitmap.get(ids[i]));
+    }
+  }
+
+  @Override
+  public ClaimState tryClaim(CollectionName collectionName, long id) {
+    return tryClaim(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public ClaimState tryClaim(CollectionHandle collectionHandle, long id) {
+    checkRange(id);
+    return pendingIds.tryClaim(collectionHandle, id, it -> exists(collectionHandle, it));
+  }
+
+  @Override
+  public void release(CollectionName collectionName, long id) {
+    pendingIds.release(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public CompletableFuture<Void> whenStored(CollectionName collectionName, long id) {
+    return pendingIds.whenStored(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public boolean supportsSampling() {
+    return true;
+  }
+
+  @Override
+  public long count(CollectionName collectionName) {
+    var bitmap = bitmap(CollectionHandle.of(collectionName), false);
+    if (bitmap == null) {
+      return 0;
+    }
+    return bitmap.count();
+  }
+
+  @Override
+  public long rank(CollectionName collectionName, long id) {
+    var bitmap = bitmap(CollectionHandle.of(collectionName), false);
+    if (bitmap == null) {
+      return 0;
+    }
+    return rank(bitmap, id);
+  }
+
+  private static long rank(Bitmap bitmap, long id) {
+    if (id <= 0) {
+      return 0;
+    }
+    if (id > MAX_ID) {
+      return bitmap.count();
+    }
+    return bitmap.rank(id);
+  }
+
+  @Override
+  public OptionalLong select(CollectionName collectionName, long rank) {
+    var bitmap = bitmap(CollectionHandle.of(collectionName), false);
+    if (bitmap == null || rank < 0) {
+      return OptionalLong.empty();
+    }
+    return bitmap.select(rank);
+  }
+
+  @Override
+  public OptionalLong sample(CollectionHandle collectionHandle, IdDistribution idDistribution) {
+    var bitmap = bitmap(collectionHandle, false);
+    if (bitmap == null) {
+      return OptionalLong.empty();
+    }
+    var rank = idDistribution.nextRank(id -> rank(bitmap, id));
+    if (rank.isEmpty()) {
+      return OptionalLong.empty();
+    }
+    return bitmap.select(rank.getAsLong());
+  }
+
+  @Override
+  public void forEach(CollectionName collectionName, LongConsumer consumer) {
+    var bitmap = bitmap(CollectionHandle.of(collectionName), false);
+    if (bitmap != null) {
+      bitmap.forEach(consumer);
+    }
+  }
+
+  private Bitmap bitmap(CollectionHandle collectionHandle, boolean create) {
+    var current = bitmaps;
+    var index = collectionHandle.index();
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    return create ? register(index) : null;
+  }
+
+  private synchronized Bitmap register(int index) {
+    var current = bitmaps;
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    var newBitmaps = Arrays.copyOf(current, Math.max(current.length, index + 1));
+    newBitmaps[index] = new Bitmap();
+    bitmaps = newBitmaps;
+    return newBitmaps[index];
+  }
+
+  private void checkRange(long id) {
+    if (id < 0 || id > MAX_ID) {
+      throw new UnsupportedOperationException("ids are only supported from 0 up to " + MAX_ID);
+    }
+  }
+
+  private static class Bitmap {
+    private final AtomicReferenceArray<SegmentDirectory> directory =
+        new AtomicReferenceArray<>(DIRECTORY_SIZE);
+
+    void set(long id) {
+      setBits(id, 1L << id);
+    }
+
+    void setRange(long from, long to) {
+      var id = from;
+      while (id < to) {
+        var wordEnd = Math.min((id | (Long.SIZE - 1)) + 1, to);
+        var bits = (int) (wordEnd - id);
+        var mask = bits == Long.SIZE ? -1L : ((1L << bits) - 1) << id;
+        setBits(id, mask);
+        id = wordEnd;
+      }
+    }
+
+    /** sets the masked bits of the word containing the id */
+    private void setBits(long id, long mask) {
+      var segmentNumber = segmentNumber(id);
+      var segments = segmentDirectory(segmentNumber, true);
+      var lowerIndex = lowerIndex(segmentNumber);
+      var segment = segments.segment(lowerIndex, true);
+      var wordIndex = wordIndex(id);
+      var current = segment.words.get(wordIndex);
+      while ((current & mask) != mask) {
+        var witness = segment.words.compareAndExchange(wordIndex, current, current | mask);
+        if (witness == current) {
+          var added = Long.bitCount(mask & ~current);
+          segment.count.add(added);
+          segments.count.add(added);
+          return;
+        }
+        current = witness;
+      }
+    }
+
+    boolean get(long id) {
+      var segmentNumber = segmentNumber(id);
+      var segments = segmentDirectory(segmentNumber, false);
+      if (segments == null) {
+        return false;
+      }
+      var segment = segments.segment(lowerIndex(segmentNumber), false);
+      if (segment == null) {
+        return false;
+      }
+      return (segment.words.get(wordIndex(id)) & (1L << id)) != 0;
+    }
+
+    long count() {
+      long count = 0;
+      for (int i = 0; i < DIRECTORY_SIZE; i++) {
+        var segments = directory.get(i);
+        if (segments != null) {
+          count += segments.count.sum();
+        }
+      }
+      return count;
+    }
+
+    long rank(long id) {
+      var segmentNumber = segmentNumber(id);
+      var upperIndex = upperIndex(segmentNumber);
+      var lowerIndex = lowerIndex(segmentNumber);
+      long rank = 0;
+      for (int i = 0; i < upperIndex; i++) {
+        var segments = directory.get(i);
+        if (segments != null) {
+          rank += segments.count.sum();
+        }
+      }
+      var segments = directory.get(upperIndex);
+      if (segments == null) {
+        return rank;
+      }
+      for (int i = 0; i < lowerIndex; i++) {
+        var segment = segments.segment(i, false);
+        if (segment != null) {
+          rank += segment.count.sum();
+        }
+      }
+      var segment = segments.segment(lowerIndex, false);
+      if (segment == null) {
+        return rank;
+      }
+      var wordIndex = wordIndex(id);
+      for (int i = 0; i < wordIndex; i++) {
+        rank += Long.bitCount(segment.words.get(i));
+      }
+      return rank + Long.bitCount(segment.words.get(wordIndex) & ((1L << id) - 1));
+    }
+
+    OptionalLong select(long rank) {
+      var remaining = rank;
+      for (int upperIndex = 0; upperIndex < DIRECTORY_SIZE; upperIndex++) {
+        var segments = directory.get(upperIndex);
+        if (segments == null) {
+          continue;
+        }
+        var directoryCount = segments.count.sum();
+        if (remaining >= directoryCount) {
+          remaining -= directoryCount;
+          continue;
+        }
+        for (int lowerIndex = 0; lowerIndex < DIRECTORY_SIZE; lowerIndex++) {
+          var segment = segments.segment(lowerIndex, false);
+          if (segment == null) {
+            continue;
+          }
+          var segmentCount = segment.count.sum();
+          if (remaining >= segmentCount) {
+            remaining -= segmentCount;
+            continue;
+          }
+          // counters are incremented after the bit is set, so the segment holds enough bits
+          for (int wordIndex = 0; wordIndex < SEGMENT_SIZE; wordIndex++) {
+            var word = segment.words.get(wordIndex);
+            var wordCount = Long.bitCount(word);
+            if (remaining >= wordCount) {
+              remaining -= wordCount;
+              continue;
+            }
+            for (long i = 0; i < remaining; i++) {
+              word &= word - 1;
+            }
+            var segmentNumber = ((long) upperIndex << DIRECTORY_BITS) | lowerIndex;
+            return OptionalLong.of(
+                (segmentNumber << (WORD_BITS + SEGMENT_BITS))
+                    | ((long) wordIndex << WORD_BITS)
+                    | Long.numberOfTrailingZeros(word));
+          }
+          return OptionalLong.empty();
+        }
+        return OptionalLong.empty();
+      }
+      return OptionalLong.empty();
+    }
+
+    void forEach(LongConsumer consumer) {
+      for (int upperIndex = 0; upperIndex < DIRECTORY_SIZE; upperIndex++) {
+        var segments = directory.get(upperIndex);
+        if (segments == null) {
+          continue;
+        }
+        for (int lowerIndex = 0; lowerIndex < DIRECTORY_SIZE; lowerIndex++) {
+          var segment = segments.segment(lowerIndex, false);
+          if (segment == null) {
+            continue;
+          }
+          var segmentNumber = ((long) upperIndex << DIRECTORY_BITS) | lowerIndex;
+          var segmentStart = segmentNumber << (WORD_BITS + SEGMENT_BITS);
+          for (int wordIndex = 0; wordIndex < SEGMENT_SIZE; wordIndex++) {
+            var word = segment.words.get(wordIndex);
+            while (word != 0) {
+              consumer.accept(
+                  segmentStart
+                      | ((long) wordIndex << WORD_BITS)
+                      | Long.numberOfTrailingZeros(word));
+              word &= word - 1;
+            }
+          }
+        }
+      }
+    }
+
+    private SegmentDirectory segmentDirectory(long segmentNumber, boolean create) {
+      var upperIndex = upperIndex(segmentNumber);
+      var segments = directory.get(upperIndex);
+      if (segments == null && create) {
+        directory.compareAndSet(upperIndex, null, new SegmentDirectory());
+        segments = directory.get(upperIndex);
+      }
+      return segments;
+    }
+
+    private static long segmentNumber(long id) {
+      return id >>> (WORD_BITS + SEGMENT_BITS);
+    }
+
+    private static int upperIndex(long segmentNumber) {
+      return (int) (segmentNumber >>> DIRECTORY_BITS);
+    }
+
+    private static int lowerIndex(long segmentNumber) {
+      return (int) (segmentNumber & (DIRECTORY_SIZE - 1));
+    }
+
+    private static int wordIndex(long id) {
+      return (int) ((id >>> WORD_BITS) & (SEGMENT_SIZE - 1));
+    }
+  }
+
+  private static class SegmentDirectory {
+    private final AtomicReferenceArray<Segment> segments =
+        new AtomicReferenceArray<>(DIRECTORY_SIZE);
+    /** number of ids in all segments of this directory */
+    private final LongAdder count = new LongAdder();
+
+    Segment segment(int lowerIndex, boolean create) {
+      var segment = segments.get(lowerIndex);
+      if (segment == null && create) {
+        segments.compareAndSet(lowerIndex, null, new Segment());
+        segment = segments.get(lowerIndex);
+      }
+      return segment;
+    }
+  }
+
+  private static class Segment {
+    private final AtomicLongArray words = new AtomicLongArray(SEGMENT_SIZE);
+    /** number of ids in this segment */
+    private final LongAdder count = new LongAdder();
+  }
+}
@@ -0,0 +1,107 @@
+package de.claasklar.idStore;
+
+import de.claasklar.database.Database;
+import de.claasklar.primitives.CollectionName;
+import io.opentelemetry.api.trace.Span;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ObjLongConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rebuilds the IdStore by scanning the ids of the documents in the database, see {@link
+ * Database#scanIds}. Only documents written with ids of {@link
+ * de.claasklar.primitives.document.IdLong#toId()} can be restored. Every scanning thread collects
+ * its ids in a batch, which is stored with one {@link IdStore#storeAll}.
+ */
+public class DatabaseIdStoreRestore implements IdStoreRestore {
+
+  private static final Logger logger = LoggerFactory.getLogger(DatabaseIdStoreRestore.class);
+  private static final int BATCH_SIZE = 4096;
+  private final Database database;
+  private final IdStore idStore;
+  private final List<CollectionName> collectionNames;
+  private final int numThreads;
+  private final Span span;
+  private final ObjLongConsumer<CollectionName> highestIdConsumer;
+
+  public DatabaseIdStoreRestore(
+      Database database,
+      IdStore idStore,
+      List<CollectionName> collectionNames,
+      int numThreads,
+      Span span) {
+    this(database, idStore, collectionNames, numThreads, span, (collectionName, id) -> {});
+  }
+
+  /**
+   * @param highestIdConsumer receives the highest restored id of every restored collection, which
+   *     is not empty
+   */
+  public DatabaseIdStoreRestore(
+      Database database,
+      IdStore idStore,
+      List<CollectionName> collectionNames,
+      int numThreads,
+      Span span,
+      ObjLongConsumer<CollectionName> highestIdConsumer) {
+    this.database = database;
+    this.idStore = idStore;
+    this.collectionNames = collectionNames;
+    this.numThreads = numThreads;
+    this.span = span;
+    this.highestIdConsumer = highestIdConsumer;
+  }
+
+  @Override
+  public void restore() {
+    for (var collectionName : collectionNames) {
+      var batches = new ConcurrentLinkedQueue<IdBatch>();
+      var threadBatch =
+          ThreadLocal.withInitial(
+              () -> {
+                var batch = new IdBatch(collectionName);
+                batches.add(batch);
+                return batch;
+              });
+      var count =
+          database.scanIds(collectionName, numThreads, id -> threadBatch.get().add(id), span);
+      batches.forEach(IdBatch::flush);
+      logger.atInfo().log(() -> "restored " + count + " ids of " + collectionName);
+      if (count > 0) {
+        var highestId = batches.stream().mapToLong(it -> it.highestId).max().orElseThrow();
+        highestIdConsumer.accept(collectionName, highestId);
+      }
+    }
+  }
+
+  /** Ids scanned by one thread. */
+  private class IdBatch {
+    private final CollectionName collectionName;
+    private final long[] ids = new long[BATCH_SIZE];
+    private int size = 0;
+    private long highestId = -1;
+
+    private IdBatch(CollectionName collectionName) {
+      this.collectionName = collectionName;
+    }
+
+    private void add(long id) {
+      ids[size++] = id;
+      highestId = Math.max(highestId, id);
+      if (size == ids.length) {
+        flush();
+      }
+    }
+
+    private void flush() {
+      if (size == 0) {
+        return;
+      }
+      idStore.storeAll(collectionName, size == ids.length ? ids : Arrays.copyOf(ids, size));
+      size = 0;
+    }
+  }
+}
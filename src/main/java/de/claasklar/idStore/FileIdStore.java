@@ -6,13 +6,15 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class FileIdStore implements IdStore {
+public class FileIdStore implements IdStore, AutoCloseable {
 
+  private final File directory;
   private final Map<CollectionName, Pair<Lock, RandomAccessFile>> files;
   private final short[] filters =
       new short[] {
@@ -27,6 +29,18 @@ public class FileIdStore implements IdStore {
       };
 
   public FileIdStore() {
+    this((File) null);
+  }
+
+  /**
+   * @param directory directory of the temporary files of the collections
+   */
+  public FileIdStore(Path directory) {
+    this(directory.toFile());
+  }
+
+  private FileIdStore(File directory) {
+    this.directory = directory;
     this.files = new HashMap<>(10);
   }
 
@@ -66,7 +80,7 @@ public class FileIdStore implements IdStore {
         lockAndFile =
             new Pair<>(
                 new ReentrantLock(),
-                new RandomAccessFile(File.createTempFile("ycsb_ids", "raw"), "rw"));
+                new RandomAccessFile(File.createTempFile("ycsb_ids", "raw", directory), "rw"));
         this.files.put(collectionName, lockAndFile);
       } catch (IOException e) {
         throw new RuntimeException(e);
@@ -99,6 +113,18 @@ public class FileIdStore implements IdStore {
     }
   }
 
+  /** Closes the files of all collections. */
+  @Override
+  public synchronized void close() {
+    for (var lockAndFile : files.values()) {
+      try {
+        lockAndFile.second().close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
   private byte[] readByteContainingId(RandomAccessFile file, long id) throws IOException {
     file.seek(id / 8);
     var byteRead = new byte[1];
@@ -2,6 +2,12 @@ package de.claasklar.idStore;
 
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
+import de.claasklar.random.distribution.RandomNumberGenerator;
+import de.claasklar.random.distribution.id.IdDistribution;
+import java.util.BitSet;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 
 public interface IdStore {
   void store(CollectionName collectionName, long id);
@@ -11,4 +17,164 @@ public interface IdStore {
   default void store(CollectionName collectionName, IdLong id) {
     store(collectionName, id.id());
   }
+
+  default void store(CollectionHandle collectionHandle, long id) {
+    store(collectionHandle.collectionName(), id);
+  }
+
+  default boolean exists(CollectionHandle collectionHandle, long id) {
+    return exists(collectionHandle.collectionName(), id);
+  }
+
+  /**
+   * Store all ids from inclusive to exclusive.
+   *
+   * @param collectionName collection of the ids
+   * @param from first id, inclusive
+   * @param to last id, exclusive
+   */
+  default void storeRange(CollectionName collectionName, long from, long to) {
+    for (long id = from; id < to; id++) {
+      store(collectionName, id);
+    }
+  }
+
+  default void storeAll(CollectionName collectionName, long[] ids) {
+    for (var id : ids) {
+      store(collectionName, id);
+    }
+  }
+
+  /**
+   * Check the existence of several ids at once.
+   *
+   * @param collectionName collection of the ids
+   * @param ids ids to check
+   * @param out bit i is set if ids[i] exists and cleared otherwise
+   */
+  default void existsAll(CollectionName collectionName, long[] ids, BitSet out) {
+    for (int i = 0; i < ids.length; i++) {
+      out.set(i, exists(collectionName, ids[i]));
+    }
+  }
+
+  /**
+   * Claim an id before its document is written, so concurrent callers do not generate the same
+   * document twice. The claim ends with {@link #store} or {@link #release}. The default
+   * implementation is not atomic and claims every id, which is not stored.
+   *
+   * @param collectionName collection of the id
+   * @param id id to claim
+   * @return CLAIMED if the caller has to write the document, PENDING if another caller is writing
+   *     it and STORED if it is written
+   */
+  default ClaimState tryClaim(CollectionName collectionName, long id) {
+    return exists(collectionName, id) ? ClaimState.STORED : ClaimState.CLAIMED;
+  }
+
+  default ClaimState tryClaim(CollectionHandle collectionHandle, long id) {
+    return tryClaim(collectionHandle.collectionName(), id);
+  }
+
+  /**
+   * Abandon a claim, e.g. because writing the document failed. Callers waiting on the id through
+   * {@link #whenStored} complete exceptionally.
+   *
+   * @param collectionName collection of the id
+   * @param id claimed id
+   */
+  default void release(CollectionName collectionName, long id) {}
+
+  /**
+   * @param collectionName collection of the id
+   * @param id id to wait for
+   * @return future, which completes once a claimed id is stored, already completed if the id is not
+   *     claimed
+   */
+  default CompletableFuture<Void> whenStored(CollectionName collectionName, long id) {
+    return CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * @return true, if {@link #count}, {@link #rank} and {@link #select} are implemented
+   */
+  default boolean supportsSampling() {
+    return false;
+  }
+
+  /**
+   * @param collectionName collection to count
+   * @return number of stored ids in the collection
+   */
+  default long count(CollectionName collectionName) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot count ids");
+  }
+
+  /**
+   * @param collectionName collection to search in
+   * @param id upper bound, exclusive
+   * @return number of stored ids smaller than the given id
+   */
+  default long rank(CollectionName collectionName, long id) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot rank ids");
+  }
+
+  /**
+   * @param collectionName collection to search in
+   * @param rank zero based position of the id in ascending order
+   * @return the stored id with the given rank, empty if less than rank + 1 ids are stored
+   */
+  default OptionalLong select(CollectionName collectionName, long rank) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot select ids");
+  }
+
+  /**
+   * Select a stored id uniformly at random.
+   *
+   * @param collectionName collection to sample from
+   * @param random RandomNumberGenerator
+   * @return stored id, empty if the collection has no ids
+   */
+  default OptionalLong sample(CollectionName collectionName, RandomNumberGenerator random) {
+    var count = count(collectionName);
+    if (count == 0) {
+      return OptionalLong.empty();
+    }
+    return select(collectionName, random.nextLong(0, count));
+  }
+
+  /**
+   * Select a stored id weighted by the given distribution. The distribution draws the rank of the
+   * id among the stored ids within its bounds, see {@link IdDistribution#nextRank}, so the weights
+   * do not depend on the gaps between the stored ids.
+   *
+   * @param collectionName collection to sample from
+   * @param idDistribution weights the stored ids
+   * @return stored id, empty if the distribution cannot draw ranks or no stored id is within its
+   *     bounds
+   */
+  default OptionalLong sample(CollectionName collectionName, IdDistribution idDistribution) {
+    if (count(collectionName) == 0) {
+      return OptionalLong.empty();
+    }
+    var rank = idDistribution.nextRank(id -> rank(collectionName, id));
+    if (rank.isEmpty()) {
+      return OptionalLong.empty();
+    }
+    return select(collectionName, rank.getAsLong());
+  }
+
+  default OptionalLong sample(CollectionHandle collectionHandle, IdDistribution idDistribution) {
+    return sample(collectionHandle.collectionName(), idDistribution);
+  }
+
+  /**
+   * Calls the consumer with every stored id of the collection in ascending order.
+   *
+   * @param collectionName collection to iterate
+   * @param consumer receives the ids
+   */
+  default void forEach(CollectionName collectionName, LongConsumer consumer) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot iterate ids");
+  }
 }
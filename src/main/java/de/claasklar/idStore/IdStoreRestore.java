@@ -0,0 +1,8 @@
+package de.claasklar.idStore;
+
+/**
+ * Fills an IdStore with the ids of an already loaded database, so the load phase can be skipped.
+ */
+public interface IdStoreRestore {
+  void restore();
+}
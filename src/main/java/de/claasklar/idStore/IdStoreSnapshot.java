@@ -0,0 +1,173 @@
+package de.claasklar.idStore;
+
+import de.claasklar.primitives.CollectionName;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Binary snapshot of the ids of an IdStore. Ids are written per collection as runs of consecutive
+ * ids, each run encoded as variable length gap to the previous run and length, so sequentially
+ * loaded collections take a few bytes. A run of length 0 ends a collection.
+ */
+public class IdStoreSnapshot implements IdStoreRestore {
+
+  private static final int MAGIC = 0x59494453;
+  private static final int VERSION = 1;
+
+  private final Path file;
+  private final IdStore idStore;
+  private final List<CollectionName> collectionNames;
+  private final ObjLongConsumer<CollectionName> highestIdConsumer;
+
+  /**
+   * @param file snapshot file
+   * @param idStore store to snapshot or restore into, must support {@link IdStore#forEach} for
+   *     writing
+   * @param collectionNames collections to write, all collections of the file are restored
+   */
+  public IdStoreSnapshot(Path file, IdStore idStore, List<CollectionName> collectionNames) {
+    this(file, idStore, collectionNames, (collectionName, id) -> {});
+  }
+
+  /**
+   * @param highestIdConsumer receives the highest restored id of every restored collection, which
+   *     is not empty
+   */
+  public IdStoreSnapshot(
+      Path file,
+      IdStore idStore,
+      List<CollectionName> collectionNames,
+      ObjLongConsumer<CollectionName> highestIdConsumer) {
+    this.file = file;
+    this.idStore = idStore;
+    this.collectionNames = collectionNames;
+    this.highestIdConsumer = highestIdConsumer;
+  }
+
+  /**
+   * Writes the snapshot to a temporary file and replaces the snapshot file afterward, so an aborted
+   * write does not destroy a previous snapshot.
+   */
+  public void write() {
+    try {
+      var directory = file.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      var temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      try (var out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(collectionNames.size());
+        for (var collectionName : collectionNames) {
+          out.writeUTF(collectionName.name());
+          writeCollection(out, collectionName);
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Stores all ids of the snapshot file in the IdStore. */
+  @Override
+  public void restore() {
+    try (var in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != MAGIC) {
+        throw new IllegalStateException(file + " is not an id store snapshot");
+      }
+      var version = in.readInt();
+      if (version != VERSION) {
+        throw new IllegalStateException("unsupported id store snapshot version " + version);
+      }
+      var numCollections = in.readInt();
+      for (int i = 0; i < numCollections; i++) {
+        var collectionName = new CollectionName(in.readUTF());
+        long next = 0;
+        long length;
+        while ((length = readVarLong(in)) != 0) {
+          var start = next + readVarLong(in);
+          idStore.storeRange(collectionName, start, start + length);
+          next = start + length;
+        }
+        if (next > 0) {
+          highestIdConsumer.accept(collectionName, next - 1);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  private void writeCollection(DataOutputStream out, CollectionName collectionName)
+      throws IOException {
+    var run = new long[] {-1, 0, 0};
+    try {
+      idStore.forEach(
+          collectionName,
+          id -> {
+            if (run[0] >= 0 && run[0] + run[1] == id) {
+              run[1]++;
+              return;
+            }
+            writeRun(out, run);
+            run[0] = id;
+            run[1] = 1;
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    writeRun(out, run);
+    writeVarLong(out, 0);
+  }
+
+  /**
+   * @param run start of the run, length of the run and end of the previous run
+   */
+  private static void writeRun(DataOutputStream out, long[] run) {
+    if (run[0] < 0) {
+      return;
+    }
+    try {
+      writeVarLong(out, run[1]);
+      writeVarLong(out, run[0] - run[2]);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    run[2] = run[0] + run[1];
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private long readVarLong(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      var b = in.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("malformed variable length number in " + file);
+  }
+}
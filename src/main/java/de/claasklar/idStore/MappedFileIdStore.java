@@ -0,0 +1,260 @@
+package de.claasklar.idStore;
+
+import de.claasklar.primitives.CollectionName;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * File backed IdStore, which memory maps the bitmap of every collection. The file grows in chunks
+ * of {@code chunkSize} bytes, bits are set with CAS directly on the mapped memory and dirty chunks
+ * are forced to disk asynchronously every {@code flushInterval}. Files are named after the
+ * collection, so a store opened on the same directory sees the ids of a previous run.
+ */
+public class MappedFileIdStore implements IdStore, AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedFileIdStore.class);
+  private static final VarHandle WORDS =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+  private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+  private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(5);
+
+  private final Path directory;
+  private final int chunkSize;
+  private final Map<CollectionName, MappedBitmap> collections;
+  private final ScheduledExecutorService flusher;
+
+  public MappedFileIdStore() {
+    this(createTempDirectory());
+  }
+
+  public MappedFileIdStore(Path directory) {
+    this(directory, DEFAULT_CHUNK_SIZE, DEFAULT_FLUSH_INTERVAL);
+  }
+
+  /**
+   * @param directory directory containing one bitmap file per collection
+   * @param chunkSize number of bytes the files grow at once, must be a multiple of 8
+   * @param flushInterval time between two asynchronous flushes
+   */
+  public MappedFileIdStore(Path directory, int chunkSize, Duration flushInterval) {
+    if (chunkSize <= 0 || chunkSize % Long.BYTES != 0) {
+      throw new IllegalArgumentException("chunk size must be a positive multiple of 8");
+    }
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    this.directory = directory;
+    this.chunkSize = chunkSize;
+    this.collections = new ConcurrentHashMap<>();
+    this.flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              var thread = new Thread(runnable, "id-store-flusher");
+              thread.setDaemon(true);
+              return thread;
+            });
+    var intervalMs = flushInterval.toMillis();
+    this.flusher.scheduleWithFixedDelay(
+        this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void store(CollectionName collectionName, long id) {
+    checkRange(id);
+    var bitmap = collections.get(collectionName);
+    if (bitmap == null) {
+      bitmap = collections.computeIfAbsent(collectionName, this::open);
+    }
+    bitmap.set(id);
+  }
+
+  @Override
+  public boolean exists(CollectionName collectionName, long id) {
+    checkRange(id);
+    var bitmap = collections.get(collectionName);
+    if (bitmap == null) {
+      // the file is created on the first access, so later reads do not have to look it up again
+      bitmap = collections.computeIfAbsent(collectionName, this::open);
+    }
+    return bitmap.get(id);
+  }
+
+  /** Forces all dirty chunks to disk. */
+  public void flush() {
+    collections.values().forEach(MappedBitmap::flush);
+  }
+
+  @Override
+  public void close() {
+    flusher.shutdown();
+    flush();
+    for (var bitmap : collections.values()) {
+      try {
+        bitmap.channel.close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (Exception e) {
+      logger.atWarn().log(() -> "could not flush id store: " + e.getMessage());
+    }
+  }
+
+  private MappedBitmap open(CollectionName collectionName) {
+    try {
+      var channel =
+          FileChannel.open(
+              fileOf(collectionName),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE);
+      return new MappedBitmap(channel, chunkSize);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private Path fileOf(CollectionName collectionName) {
+    return directory.resolve(collectionName.name() + ".ids");
+  }
+
+  private static void checkRange(long id) {
+    if (id < 0) {
+      throw new UnsupportedOperationException("negative ids are not supported");
+    }
+  }
+
+  private static Path createTempDirectory() {
+    try {
+      return Files.createTempDirectory("ycsb_ids");
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static class MappedBitmap {
+    private final FileChannel channel;
+    private final int chunkSize;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private volatile AtomicBoolean[] dirty = new AtomicBoolean[0];
+    /** size of the file, so reads beyond its end do not have to ask the channel */
+    private volatile long size;
+
+    MappedBitmap(FileChannel channel, int chunkSize) throws IOException {
+      this.channel = channel;
+      this.chunkSize = chunkSize;
+      this.size = channel.size();
+    }
+
+    void set(long id) {
+      var byteOffset = (id >>> 6) * Long.BYTES;
+      var chunkIndex = chunkIndex(byteOffset);
+      var chunk = chunk(chunkIndex, true);
+      var index = (int) (byteOffset % chunkSize);
+      var mask = 1L << id;
+      var current = (long) WORDS.getVolatile(chunk, index);
+      while ((current & mask) == 0) {
+        var witness = (long) WORDS.compareAndExchange(chunk, index, current, current | mask);
+        if (witness == current) {
+          var chunkDirty = dirty[chunkIndex];
+          if (!chunkDirty.get()) {
+            chunkDirty.set(true);
+          }
+          return;
+        }
+        current = witness;
+      }
+    }
+
+    boolean get(long id) {
+      var byteOffset = (id >>> 6) * Long.BYTES;
+      var chunk = chunk(chunkIndex(byteOffset), false);
+      if (chunk == null) {
+        return false;
+      }
+      var index = (int) (byteOffset % chunkSize);
+      return ((long) WORDS.getVolatile(chunk, index) & (1L << id)) != 0;
+    }
+
+    void flush() {
+      var currentChunks = chunks;
+      var currentDirty = dirty;
+      for (int i = 0; i < currentChunks.length; i++) {
+        if (currentChunks[i] != null && currentDirty[i].getAndSet(false)) {
+          currentChunks[i].force();
+        }
+      }
+    }
+
+    private int chunkIndex(long byteOffset) {
+      var chunkIndex = byteOffset / chunkSize;
+      if (chunkIndex > Integer.MAX_VALUE) {
+        throw new UnsupportedOperationException("id exceeds the addressable file size");
+      }
+      return (int) chunkIndex;
+    }
+
+    private MappedByteBuffer chunk(int chunkIndex, boolean create) {
+      var currentChunks = chunks;
+      if (chunkIndex < currentChunks.length && currentChunks[chunkIndex] != null) {
+        return currentChunks[chunkIndex];
+      }
+      if (!create && (long) chunkIndex * chunkSize >= size) {
+        return null;
+      }
+      return map(chunkIndex, create);
+    }
+
+    private synchronized MappedByteBuffer map(int chunkIndex, boolean create) {
+      if (chunkIndex < chunks.length && chunks[chunkIndex] != null) {
+        return chunks[chunkIndex];
+      }
+      try {
+        var position = (long) chunkIndex * chunkSize;
+        if (!create && position >= size) {
+          return null;
+        }
+        var chunk = channel.map(FileChannel.MapMode.READ_WRITE, position, chunkSize);
+        size = Math.max(size, position + chunkSize);
+        var length = Math.max(chunkIndex + 1, chunks.length);
+        if (length > dirty.length) {
+          var newDirty = Arrays.copyOf(dirty, length);
+          for (int i = dirty.length; i < length; i++) {
+            newDirty[i] = new AtomicBoolean(false);
+          }
+          dirty = newDirty;
+        }
+        var newChunks = Arrays.copyOf(chunks, length);
+        newChunks[chunkIndex] = chunk;
+        chunks = newChunks;
+        return chunk;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+}
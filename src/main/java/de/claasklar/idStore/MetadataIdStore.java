@@ -0,0 +1,256 @@
+package de.claasklar.idStore;
+
+import de.claasklar.primitives.CollectionName;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * IdStore, which keeps metadata of every id: how often the document was written, the size of the
+ * last written document and whether it was deleted. The metadata of an id is packed into one long
+ * of an {@link AtomicLongArray}, so updates are lock-free and the metadata is not boxed. Like in
+ * {@link ConcurrentInMemoryIdStore} the arrays are allocated lazily in segments through a two level
+ * directory. Claimed ids are kept in the primitive tables of {@link PendingIds} until they are
+ * stored, so stores only look them up while ids of the collection are claimed.
+ *
+ * <p>Layout of the packed long: bit 63 is the deleted flag, bits 32 to 62 the version and bits 0 to
+ * 31 the unsigned document size. An id exists if it has a version and is not deleted.
+ */
+public class MetadataIdStore implements IdStore {
+
+  private static final int SEGMENT_BITS = 12;
+  private static final int DIRECTORY_BITS = 14;
+  private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+  private static final int DIRECTORY_SIZE = 1 << DIRECTORY_BITS;
+  private static final long MAX_ID = (1L << (SEGMENT_BITS + 2 * DIRECTORY_BITS)) - 1;
+
+  private static final long DELETED = 1L << 63;
+  private static final int VERSION_SHIFT = 32;
+  private static final long MAX_VERSION = (1L << 31) - 1;
+  private static final long SIZE_MASK = 0xFFFF_FFFFL;
+
+  private final PendingIds pendingIds;
+  private volatile Metadata[] collections;
+
+  public MetadataIdStore() {
+    this.pendingIds = new PendingIds();
+    this.collections = new Metadata[0];
+  }
+
+  /** Records a write without a size, the size of a previous write is kept. */
+  @Override
+  public void store(CollectionName collectionName, long id) {
+    store(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public void store(CollectionHandle collectionHandle, long id) {
+    checkRange(id);
+    metadata(collectionHandle, true).update(id, -1);
+    pendingIds.stored(collectionHandle, id);
+  }
+
+  @Override
+  public boolean exists(CollectionName collectionName, long id) {
+    return exists(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public boolean exists(CollectionHandle collectionHandle, long id) {
+    var packed = packed(collectionHandle, id);
+    return version(packed) > 0 && !deleted(packed);
+  }
+
+  /**
+   * Records a write of the document, which increments the version and clears the deleted flag.
+   *
+   * @param collectionName collection of the document
+   * @param id id of the document
+   * @param size size of the written document in bytes
+   * @return version of the document after the write, starting with 1
+   */
+  public int write(CollectionName collectionName, long id, long size) {
+    if (size < 0 || size > SIZE_MASK) {
+      throw new IllegalArgumentException("size must be between 0 and " + SIZE_MASK);
+    }
+    checkRange(id);
+    var handle = CollectionHandle.of(collectionName);
+    var packed = metadata(handle, true).update(id, size);
+    pendingIds.stored(handle, id);
+    return version(packed);
+  }
+
+  /**
+   * Marks the document as deleted, its version and size are kept.
+   *
+   * @return true, if the document existed before
+   */
+  public boolean delete(CollectionName collectionName, long id) {
+    checkRange(id);
+    var metadata = metadata(CollectionHandle.of(collectionName), false);
+    if (metadata == null) {
+      return false;
+    }
+    var previous = metadata.delete(id);
+    return version(previous) > 0 && !deleted(previous);
+  }
+
+  /**
+   * @return number of writes of the document, 0 if it was never written
+   */
+  public int version(CollectionName collectionName, long id) {
+    return version(packed(CollectionHandle.of(collectionName), id));
+  }
+
+  /**
+   * @return size of the last written document in bytes, 0 if no size was recorded
+   */
+  public long size(CollectionName collectionName, long id) {
+    return packed(CollectionHandle.of(collectionName), id) & SIZE_MASK;
+  }
+
+  public boolean isDeleted(CollectionName collectionName, long id) {
+    return deleted(packed(CollectionHandle.of(collectionName), id));
+  }
+
+  @Override
+  public ClaimState tryClaim(CollectionName collectionName, long id) {
+    return tryClaim(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public ClaimState tryClaim(CollectionHandle collectionHandle, long id) {
+    checkRange(id);
+    return pendingIds.tryClaim(collectionHandle, id, it -> exists(collectionHandle, it));
+  }
+
+  @Override
+  public void release(CollectionName collectionName, long id) {
+    pendingIds.release(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public CompletableFuture<Void> whenStored(CollectionName collectionName, long id) {
+    return pendingIds.whenStored(CollectionHandle.of(collectionName), id);
+  }
+
+  private long packed(CollectionHandle collectionHandle, long id) {
+    checkRange(id);
+    var metadata = metadata(collectionHandle, false);
+    if (metadata == null) {
+      return 0;
+    }
+    return metadata.get(id);
+  }
+
+  private static int version(long packed) {
+    return (int) ((packed >>> VERSION_SHIFT) & MAX_VERSION);
+  }
+
+  private static boolean deleted(long packed) {
+    return (packed & DELETED) != 0;
+  }
+
+  private Metadata metadata(CollectionHandle collectionHandle, boolean create) {
+    var current = collections;
+    var index = collectionHandle.index();
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    return create ? register(index) : null;
+  }
+
+  private synchronized Metadata register(int index) {
+    var current = collections;
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    var newCollections = Arrays.copyOf(current, Math.max(current.length, index + 1));
+    newCollections[index] = new Metadata();
+    collections = newCollections;
+    return newCollections[index];
+  }
+
+  private static void checkRange(long id) {
+    if (id < 0 || id > MAX_ID) {
+      throw new UnsupportedOperationException("ids are only supported from 0 up to " + MAX_ID);
+    }
+  }
+
+  private static class Metadata {
+    private final AtomicReferenceArray<AtomicReferenceArray<AtomicLongArray>> directory =
+        new AtomicReferenceArray<>(DIRECTORY_SIZE);
+
+    long get(long id) {
+      var segment = segment(id, false);
+      if (segment == null) {
+        return 0;
+      }
+      return segment.get(segmentIndex(id));
+    }
+
+    /**
+     * @param size new size, negative to keep the current size
+     * @return packed metadata after the update
+     */
+    long update(long id, long size) {
+      var segment = segment(id, true);
+      var index = segmentIndex(id);
+      var current = segment.get(index);
+      while (true) {
+        var version = Math.min(version(current) + 1L, MAX_VERSION);
+        var newSize = size < 0 ? current & SIZE_MASK : size;
+        var updated = (version << VERSION_SHIFT) | newSize;
+        var witness = segment.compareAndExchange(index, current, updated);
+        if (witness == current) {
+          return updated;
+        }
+        current = witness;
+      }
+    }
+
+    /**
+     * @return packed metadata before the delete
+     */
+    long delete(long id) {
+      var segment = segment(id, false);
+      if (segment == null) {
+        return 0;
+      }
+      var index = segmentIndex(id);
+      var current = segment.get(index);
+      while (version(current) > 0 && !deleted(current)) {
+        var witness = segment.compareAndExchange(index, current, current | DELETED);
+        if (witness == current) {
+          return current;
+        }
+        current = witness;
+      }
+      return current;
+    }
+
+    private AtomicLongArray segment(long id, boolean create) {
+      var upperIndex = (int) (id >>> (SEGMENT_BITS + DIRECTORY_BITS));
+      var segments = directory.get(upperIndex);
+      if (segments == null) {
+        if (!create) {
+          return null;
+        }
+        directory.compareAndSet(upperIndex, null, new AtomicReferenceArray<>(DIRECTORY_SIZE));
+        segments = directory.get(upperIndex);
+      }
+      var lowerIndex = (int) ((id >>> SEGMENT_BITS) & (DIRECTORY_SIZE - 1));
+      var segment = segments.get(lowerIndex);
+      if (segment == null && create) {
+        segments.compareAndSet(lowerIndex, null, new AtomicLongArray(SEGMENT_SIZE));
+        segment = segments.get(lowerIndex);
+      }
+      return segment;
+    }
+
+    private static int segmentIndex(long id) {
+      return (int) (id & (SEGMENT_SIZE - 1));
+    }
+  }
+}
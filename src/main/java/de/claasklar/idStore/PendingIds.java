@@ -0,0 +1,268 @@
+package de.claasklar.idStore;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+/**
+ * Claimed ids whose documents are still being written. Only in-flight ids are kept, so the tables
+ * stay small. Used by IdStores to implement {@link IdStore#tryClaim}.
+ *
+ * <p>Collections are kept in an array indexed by their {@link CollectionHandle}. The ids of a
+ * collection are spread over striped open addressing tables of primitive longs, so claiming and
+ * storing an id does not box it. Every collection counts its claims, so stores skip the tables
+ * while no id of the collection is claimed.
+ */
+class PendingIds {
+
+  private static final int STRIPE_BITS = 6;
+  private static final int INITIAL_CAPACITY = 8;
+
+  private volatile Claims[] collections;
+
+  PendingIds() {
+    this.collections = new Claims[0];
+  }
+
+  /**
+   * @param exists checks if the id is stored, is called again after a successful claim to catch a
+   *     store that raced the claim
+   */
+  ClaimState tryClaim(CollectionHandle collectionHandle, long id, LongPredicate exists) {
+    if (exists.test(id)) {
+      return ClaimState.STORED;
+    }
+    var claims = claims(collectionHandle, true);
+    var write = new CompletableFuture<Void>();
+    if (claims.putIfAbsent(id, write) != null) {
+      return ClaimState.PENDING;
+    }
+    if (exists.test(id)) {
+      claims.remove(id, write);
+      write.complete(null);
+      return ClaimState.STORED;
+    }
+    return ClaimState.CLAIMED;
+  }
+
+  /** Completes the claim of the id, has to be called after the id is stored. */
+  void stored(CollectionHandle collectionHandle, long id) {
+    var claims = claims(collectionHandle, false);
+    if (claims == null || claims.isEmpty()) {
+      return;
+    }
+    var write = claims.remove(id, null);
+    if (write != null) {
+      write.complete(null);
+    }
+  }
+
+  /**
+   * @return true, if ids of the collection are claimed, but not stored yet
+   */
+  boolean hasPending(CollectionHandle collectionHandle) {
+    var claims = claims(collectionHandle, false);
+    return claims != null && !claims.isEmpty();
+  }
+
+  void release(CollectionHandle collectionHandle, long id) {
+    var claims = claims(collectionHandle, false);
+    if (claims == null || claims.isEmpty()) {
+      return;
+    }
+    var write = claims.remove(id, null);
+    if (write != null) {
+      write.completeExceptionally(
+          new IllegalStateException(
+              "write of id "
+                  + id
+                  + " in collection "
+                  + collectionHandle.collectionName()
+                  + " was released"));
+    }
+  }
+
+  /**
+   * @return the pending write of the id, completed if the id is not claimed
+   */
+  CompletableFuture<Void> whenStored(CollectionHandle collectionHandle, long id) {
+    var claims = claims(collectionHandle, false);
+    if (claims == null || claims.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    var write = claims.get(id);
+    if (write == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return write;
+  }
+
+  private Claims claims(CollectionHandle collectionHandle, boolean create) {
+    var current = collections;
+    var index = collectionHandle.index();
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    return create ? register(index) : null;
+  }
+
+  private synchronized Claims register(int index) {
+    var current = collections;
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    var newCollections = Arrays.copyOf(current, Math.max(current.length, index + 1));
+    newCollections[index] = new Claims();
+    collections = newCollections;
+    return newCollections[index];
+  }
+
+  private static long mix(long id) {
+    return id * 0x9E3779B97F4A7C15L;
+  }
+
+  /** Claims of one collection. */
+  private static final class Claims {
+    private final Stripe[] stripes;
+    private final AtomicInteger size;
+
+    private Claims() {
+      this.stripes = new Stripe[1 << STRIPE_BITS];
+      for (int i = 0; i < stripes.length; i++) {
+        stripes[i] = new Stripe();
+      }
+      this.size = new AtomicInteger();
+    }
+
+    boolean isEmpty() {
+      return size.get() == 0;
+    }
+
+    CompletableFuture<Void> get(long id) {
+      return stripe(id).get(id);
+    }
+
+    /** The size is incremented after the id is inserted, so a store seeing it finds the id. */
+    CompletableFuture<Void> putIfAbsent(long id, CompletableFuture<Void> write) {
+      var previous = stripe(id).putIfAbsent(id, write);
+      if (previous == null) {
+        size.incrementAndGet();
+      }
+      return previous;
+    }
+
+    /**
+     * @param expected removes the id only if it maps to this write, null to remove any write
+     */
+    CompletableFuture<Void> remove(long id, CompletableFuture<Void> expected) {
+      var removed = stripe(id).remove(id, expected);
+      if (removed != null) {
+        size.decrementAndGet();
+      }
+      return removed;
+    }
+
+    private Stripe stripe(long id) {
+      return stripes[(int) (mix(id) >>> (Long.SIZE - STRIPE_BITS))];
+    }
+  }
+
+  /** Open addressing table with linear probing, empty slots have no write. */
+  private static final class Stripe {
+    private long[] ids;
+    private CompletableFuture<Void>[] writes;
+    private int size;
+
+    private Stripe() {
+      this.ids = new long[INITIAL_CAPACITY];
+      this.writes = newWrites(INITIAL_CAPACITY);
+    }
+
+    synchronized CompletableFuture<Void> get(long id) {
+      var slot = find(id);
+      return slot < 0 ? null : writes[slot];
+    }
+
+    synchronized CompletableFuture<Void> putIfAbsent(long id, CompletableFuture<Void> write) {
+      var slot = find(id);
+      if (slot >= 0) {
+        return writes[slot];
+      }
+      if ((size + 1) * 2 > writes.length) {
+        resize(writes.length * 2);
+      }
+      insert(id, write);
+      size++;
+      return null;
+    }
+
+    synchronized CompletableFuture<Void> remove(long id, CompletableFuture<Void> expected) {
+      var slot = find(id);
+      if (slot < 0 || (expected != null && writes[slot] != expected)) {
+        return null;
+      }
+      var removed = writes[slot];
+      delete(slot);
+      size--;
+      return removed;
+    }
+
+    private int find(long id) {
+      var mask = writes.length - 1;
+      for (int slot = home(id, mask); writes[slot] != null; slot = (slot + 1) & mask) {
+        if (ids[slot] == id) {
+          return slot;
+        }
+      }
+      return -1;
+    }
+
+    private void insert(long id, CompletableFuture<Void> write) {
+      var mask = writes.length - 1;
+      var slot = home(id, mask);
+      while (writes[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      ids[slot] = id;
+      writes[slot] = write;
+    }
+
+    /** Shifts the following entries of the probe sequence back, so no tombstones are needed. */
+    private void delete(int slot) {
+      var mask = writes.length - 1;
+      var hole = slot;
+      for (int next = (slot + 1) & mask; writes[next] != null; next = (next + 1) & mask) {
+        var home = home(ids[next], mask);
+        var movable = next > hole ? home <= hole || home > next : home <= hole && home > next;
+        if (movable) {
+          ids[hole] = ids[next];
+          writes[hole] = writes[next];
+          hole = next;
+        }
+      }
+      writes[hole] = null;
+    }
+
+    private void resize(int capacity) {
+      var oldIds = ids;
+      var oldWrites = writes;
+      ids = new long[capacity];
+      writes = newWrites(capacity);
+      for (int i = 0; i < oldWrites.length; i++) {
+        if (oldWrites[i] != null) {
+          insert(oldIds[i], oldWrites[i]);
+        }
+      }
+    }
+
+    private static int home(long id, int mask) {
+      return (int) mix(id) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Void>[] newWrites(int capacity) {
+      return (CompletableFuture<Void>[]) new CompletableFuture[capacity];
+    }
+  }
+}
@@ -0,0 +1,687 @@
+package de.claasklar.idStore;
+
+import de.claasklar.primitives.CollectionName;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Compressed IdStore for the complete positive long range. Ids are split into the upper 48 bits,
+ * which select a container, and the lower 16 bits, which are stored inside the container. Just like
+ * in roaring bitmaps a container is either a sorted array, a bitmap or a list of runs, depending on
+ * which representation is the smallest. Consecutive ids therefore only take a few bytes per 65536
+ * ids. A Fenwick tree over the container cardinalities answers {@link #rank} and {@link #select} in
+ * logarithmic time.
+ */
+public class RoaringIdStore implements IdStore {
+
+  private final Map<CollectionName, LockedBitmap> collections;
+  private final PendingIds pendingIds;
+
+  public RoaringIdStore() {
+    this.collections = new ConcurrentHashMap<>();
+    this.pendingIds = new PendingIds();
+  }
+
+  @Override
+  public void store(CollectionName collectionName, long id) {
+    checkRange(id);
+    var bitmap = lockedBitmap(collectionName);
+    bitmap.lock.writeLock().lock();
+    try {
+      bitmap.bitmap.add(id);
+    } finally {
+      bitmap.lock.writeLock().unlock();
+    }
+    pendingIds.stored(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public boolean exists(CollectionName collectionName, long id) {
+    checkRange(id);
+    var bitmap = collections.get(collectionName);
+    if (bitmap == null) {
+      return false;
+    }
+    bitmap.lock.readLock().lock();
+    try {
+      return bitmap.bitmap.contains(id);
+    } finally {
+      bitmap.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void storeRange(CollectionName collectionName, long from, long to) {
+    if (from >= to) {
+      return;
+    }
+    checkRange(from);
+    var bitmap = lockedBitmap(collectionName);
+    bitmap.lock.writeLock().lock();
+    try {
+      for (long id = from; id < to; id++) {
+        bitmap.bitmap.add(id);
+      }
+    } finally {
+      bitmap.lock.writeLock().unlock();
+    }
+    var collectionHandle = CollectionHandle.of(collectionName);
+    if (pendingIds.hasPending(collectionHandle)) {
+      for (long id = from; id < to; id++) {
+        pendingIds.stored(collectionHandle, id);
+      }
+    }
+  }
+
+  @Override
+  public void storeAll(CollectionName collectionName, long[] ids) {
+    for (var id : ids) {
+      checkRange(id);
+    }
+    var bitmap = lockedBitmap(collectionName);
+    bitmap.lock.writeLock().lock();
+    try {
+      for (var id : ids) {
+        bitmap.bitmap.add(id);
+      }
+    } finally {
+      bitmap.lock.writeLock().unlock();
+    }
+    var collectionHandle = CollectionHandle.of(collectionName);
+    if (pendingIds.hasPending(collectionHandle)) {
+      for (var id : ids) {
+        pendingIds.stored(collectionHandle, id);
+      }
+    }
+  }
+
+  @Override
+  public void existsAll(CollectionName collectionName, long[] ids, BitSet out) {
+    for (var id : ids) {
+      checkRange(id);
+    }
+    var bitmap = collections.get(collectionName);
+    if (bitmap == null) {
+      out.clear(0, ids.length);
+      return;
+    }
+    bitmap.lock.readLock().lock();
+    try {
+      for (int i = 0; i < ids.length; i++) {
+        out.set(i, bitmap.bitmap.contains(ids[i]));
+      }
+    } finally {
+      bitmap.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public ClaimState tryClaim(CollectionName collectionName, long id) {
+    checkRange(id);
+    return pendingIds.tryClaim(
+        CollectionHandle.of(collectionName), id, it -> exists(collectionName, it));
+  }
+
+  @Override
+  public void release(CollectionName collectionName, long id) {
+    pendingIds.release(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public CompletableFuture<Void> whenStored(CollectionName collectionName, long id) {
+    return pendingIds.whenStored(CollectionHandle.of(collectionName), id);
+  }
+
+  @Override
+  public boolean supportsSampling() {
+    return true;
+  }
+
+  @Override
+  public long count(CollectionName collectionName) {
+    var bitmap = collections.get(collectionName);
+    if (bitmap == null) {
+      return 0;
+    }
+    bitmap.lock.readLock().lock();
+    try {
+      return bitmap.bitmap.cardinality;
+    } finally {
+      bitmap.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long rank(CollectionName collectionName, long id) {
+    var bitmap = collections.get(collectionName);
+    if (bitmap == null || id <= 0) {
+      return 0;
+    }
+    bitmap.lock.readLock().lock();
+    try {
+      return bitmap.bitmap.rank(id);
+    } finally {
+      bitmap.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public OptionalLong select(CollectionName collectionName, long rank) {
+    var bitmap = collections.get(collectionName);
+    if (bitmap == null || rank < 0) {
+      return OptionalLong.empty();
+    }
+    bitmap.lock.readLock().lock();
+    try {
+      return bitmap.bitmap.select(rank);
+    } finally {
+      bitmap.lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void forEach(CollectionName collectionName, LongConsumer consumer) {
+    var bitmap = collections.get(collectionName);
+    if (bitmap == null) {
+      return;
+    }
+    bitmap.lock.readLock().lock();
+    try {
+      bitmap.bitmap.forEach(consumer);
+    } finally {
+      bitmap.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param collectionName collection to inspect
+   * @return approximate number of bytes used by the containers of the collection
+   */
+  long sizeInBytes(CollectionName collectionName) {
+    var bitmap = collections.get(collectionName);
+    if (bitmap == null) {
+      return 0;
+    }
+    bitmap.lock.readLock().lock();
+    try {
+      return bitmap.bitmap.sizeInBytes();
+    } finally {
+      bitmap.lock.readLock().unlock();
+    }
+  }
+
+  private LockedBitmap lockedBitmap(CollectionName collectionName) {
+    var bitmap = collections.get(collectionName);
+    if (bitmap == null) {
+      bitmap = collections.computeIfAbsent(collectionName, it -> new LockedBitmap());
+    }
+    return bitmap;
+  }
+
+  private static void checkRange(long id) {
+    if (id < 0) {
+      throw new UnsupportedOperationException("negative ids are not supported");
+    }
+  }
+
+  private static class LockedBitmap {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RoaringBitmap bitmap = new RoaringBitmap();
+  }
+
+  private static class RoaringBitmap {
+    private long[] keys = new long[4];
+    private Container[] containers = new Container[4];
+    /** Fenwick tree of the container cardinalities, indexed from 1 */
+    private long[] tree = new long[5];
+
+    private int size = 0;
+    private long cardinality = 0;
+
+    void add(long id) {
+      var key = id >>> 16;
+      var low = (char) id;
+      var index = indexOf(key);
+      if (index >= 0) {
+        var previousCardinality = containers[index].cardinality;
+        containers[index] = containers[index].add(low);
+        if (containers[index].cardinality != previousCardinality) {
+          cardinality++;
+          for (int i = index + 1; i <= size; i += i & -i) {
+            tree[i]++;
+          }
+        }
+        return;
+      }
+      index = -index - 1;
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+        containers = Arrays.copyOf(containers, size * 2);
+        tree = Arrays.copyOf(tree, size * 2 + 1);
+      }
+      System.arraycopy(keys, index, keys, index + 1, size - index);
+      System.arraycopy(containers, index, containers, index + 1, size - index);
+      keys[index] = key;
+      containers[index] = new ArrayContainer().add(low);
+      size++;
+      cardinality++;
+      if (index == size - 1) {
+        // a node covers the containers (size - lowest bit, size], only the last one is new
+        tree[size] = 1 + prefixSum(size - 1) - prefixSum(size - (size & -size));
+      } else {
+        rebuildTree();
+      }
+    }
+
+    long rank(long id) {
+      var index = indexOf(id >>> 16);
+      if (index >= 0) {
+        return prefixSum(index) + containers[index].rank((char) id);
+      }
+      return prefixSum(-index - 1);
+    }
+
+    OptionalLong select(long rank) {
+      if (rank >= cardinality) {
+        return OptionalLong.empty();
+      }
+      var position = 0;
+      var remaining = rank;
+      for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+        if (position + step <= size && tree[position + step] <= remaining) {
+          position += step;
+          remaining -= tree[position];
+        }
+      }
+      return OptionalLong.of((keys[position] << 16) | containers[position].select((int) remaining));
+    }
+
+    private long prefixSum(int count) {
+      long sum = 0;
+      for (int i = count; i > 0; i -= i & -i) {
+        sum += tree[i];
+      }
+      return sum;
+    }
+
+    private void rebuildTree() {
+      Arrays.fill(tree, 0);
+      for (int i = 1; i <= size; i++) {
+        tree[i] += containers[i - 1].cardinality;
+        var parent = i + (i & -i);
+        if (parent <= size) {
+          tree[parent] += tree[i];
+        }
+      }
+    }
+
+    boolean contains(long id) {
+      var index = indexOf(id >>> 16);
+      return index >= 0 && containers[index].contains((char) id);
+    }
+
+    void forEach(LongConsumer consumer) {
+      for (int i = 0; i < size; i++) {
+        var high = keys[i] << 16;
+        containers[i].forEach(value -> consumer.accept(high | value));
+      }
+    }
+
+    long sizeInBytes() {
+      long bytes = (long) keys.length * (Long.BYTES + 4);
+      for (int i = 0; i < size; i++) {
+        bytes += containers[i].sizeInBytes();
+      }
+      return bytes;
+    }
+
+    private int indexOf(long key) {
+      // ids are mostly generated in ascending order, so the last container is the most likely hit
+      if (size > 0 && keys[size - 1] == key) {
+        return size - 1;
+      }
+      return Arrays.binarySearch(keys, 0, size, key);
+    }
+  }
+
+  private abstract static class Container {
+    static final int MAX_ARRAY_CARDINALITY = 4096;
+    static final int MAX_RUNS = 2048;
+
+    /** number of consecutive ranges of set values */
+    int runs = 0;
+
+    int cardinality = 0;
+
+    /**
+     * @return the container holding the value, either this or a converted one
+     */
+    abstract Container add(char value);
+
+    abstract boolean contains(char value);
+
+    /**
+     * @return number of contained values smaller than the given value
+     */
+    abstract int rank(char value);
+
+    /**
+     * @return the value with the given zero based rank
+     */
+    abstract char select(int rank);
+
+    /** Calls the consumer with every contained value in ascending order. */
+    abstract void forEach(IntConsumer consumer);
+
+    abstract long sizeInBytes();
+
+    /**
+     * @return change in the number of runs, when the value is added
+     */
+    int runDelta(char value) {
+      var extendsPrevious = value > 0 && contains((char) (value - 1));
+      var extendsNext = value < Character.MAX_VALUE && contains((char) (value + 1));
+      return 1 - (extendsPrevious ? 1 : 0) - (extendsNext ? 1 : 0);
+    }
+  }
+
+  private static final class ArrayContainer extends Container {
+    private char[] values = new char[4];
+
+    @Override
+    Container add(char value) {
+      var index = Arrays.binarySearch(values, 0, cardinality, value);
+      if (index >= 0) {
+        return this;
+      }
+      if (cardinality == MAX_ARRAY_CARDINALITY) {
+        return BitmapContainer.of(this).add(value);
+      }
+      runs += runDelta(value);
+      index = -index - 1;
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(cardinality * 2, MAX_ARRAY_CARDINALITY));
+      }
+      System.arraycopy(values, index, values, index + 1, cardinality - index);
+      values[index] = value;
+      cardinality++;
+      // a run takes 4 bytes and a value 2, so switch once runs take half the space of the array
+      if (runs * 4 <= cardinality) {
+        return RunContainer.of(this);
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+    }
+
+    @Override
+    int rank(char value) {
+      var index = Arrays.binarySearch(values, 0, cardinality, value);
+      return index >= 0 ? index : -index - 1;
+    }
+
+    @Override
+    char select(int rank) {
+      return values[rank];
+    }
+
+    @Override
+    void forEach(IntConsumer consumer) {
+      for (int i = 0; i < cardinality; i++) {
+        consumer.accept(values[i]);
+      }
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 16 + (long) values.length * Character.BYTES;
+    }
+
+    static ArrayContainer of(RunContainer runContainer) {
+      var container = new ArrayContainer();
+      container.values = new char[runContainer.cardinality];
+      var index = 0;
+      for (int i = 0; i < runContainer.runs; i++) {
+        var start = runContainer.starts[i];
+        for (int value = start; value <= start + runContainer.lengths[i]; value++) {
+          container.values[index++] = (char) value;
+        }
+      }
+      container.cardinality = runContainer.cardinality;
+      container.runs = runContainer.runs;
+      return container;
+    }
+  }
+
+  private static final class BitmapContainer extends Container {
+    private final long[] words = new long[1024];
+
+    @Override
+    Container add(char value) {
+      if (contains(value)) {
+        return this;
+      }
+      runs += runDelta(value);
+      words[value >>> 6] |= 1L << value;
+      cardinality++;
+      // runs take 4 bytes each, switch once they use half of the 8kB of the bitmap
+      if (runs <= MAX_RUNS / 2) {
+        return RunContainer.of(this);
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    int rank(char value) {
+      var rank = 0;
+      for (int i = 0; i < value >>> 6; i++) {
+        rank += Long.bitCount(words[i]);
+      }
+      return rank + Long.bitCount(words[value >>> 6] & ((1L << value) - 1));
+    }
+
+    @Override
+    char select(int rank) {
+      var remaining = rank;
+      for (int i = 0; i < words.length; i++) {
+        var word = words[i];
+        var wordCount = Long.bitCount(word);
+        if (remaining < wordCount) {
+          for (int j = 0; j < remaining; j++) {
+            word &= word - 1;
+          }
+          return (char) (i * 64 + Long.numberOfTrailingZeros(word));
+        }
+        remaining -= wordCount;
+      }
+      throw new IllegalArgumentException("rank " + rank + " exceeds cardinality " + cardinality);
+    }
+
+    @Override
+    void forEach(IntConsumer consumer) {
+      for (int i = 0; i < words.length; i++) {
+        var word = words[i];
+        while (word != 0) {
+          consumer.accept((i << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 16 + (long) words.length * Long.BYTES;
+    }
+
+    static BitmapContainer of(ArrayContainer arrayContainer) {
+      var container = new BitmapContainer();
+      for (int i = 0; i < arrayContainer.cardinality; i++) {
+        var value = arrayContainer.values[i];
+        container.words[value >>> 6] |= 1L << value;
+      }
+      container.cardinality = arrayContainer.cardinality;
+      container.runs = arrayContainer.runs;
+      return container;
+    }
+
+    static BitmapContainer of(RunContainer runContainer) {
+      var container = new BitmapContainer();
+      for (int i = 0; i < runContainer.runs; i++) {
+        var start = runContainer.starts[i];
+        for (int value = start; value <= start + runContainer.lengths[i]; value++) {
+          container.words[value >>> 6] |= 1L << value;
+        }
+      }
+      container.cardinality = runContainer.cardinality;
+      container.runs = runContainer.runs;
+      return container;
+    }
+  }
+
+  private static final class RunContainer extends Container {
+    private char[] starts = new char[4];
+    /** length of each run minus one, so that a run can cover all 65536 values */
+    private char[] lengths = new char[4];
+
+    @Override
+    Container add(char value) {
+      var index = runIndex(value);
+      if (index >= 0 && value <= starts[index] + lengths[index]) {
+        return this;
+      }
+      var extendsPrevious = index >= 0 && value == starts[index] + lengths[index] + 1;
+      var extendsNext = index + 1 < runs && value + 1 == starts[index + 1];
+      if (extendsPrevious && extendsNext) {
+        lengths[index] = (char) (starts[index + 1] + lengths[index + 1] - starts[index]);
+        System.arraycopy(starts, index + 2, starts, index + 1, runs - index - 2);
+        System.arraycopy(lengths, index + 2, lengths, index + 1, runs - index - 2);
+        runs--;
+      } else if (extendsPrevious) {
+        lengths[index]++;
+      } else if (extendsNext) {
+        starts[index + 1]--;
+        lengths[index + 1]++;
+      } else {
+        insertRun(index + 1, value, (char) 0);
+      }
+      cardinality++;
+      if (runs > MAX_RUNS) {
+        if (cardinality <= MAX_ARRAY_CARDINALITY) {
+          return ArrayContainer.of(this);
+        }
+        return BitmapContainer.of(this);
+      }
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      var index = runIndex(value);
+      return index >= 0 && value <= starts[index] + lengths[index];
+    }
+
+    @Override
+    int rank(char value) {
+      var rank = 0;
+      for (int i = 0; i < runs && starts[i] < value; i++) {
+        rank += Math.min(value - starts[i], lengths[i] + 1);
+      }
+      return rank;
+    }
+
+    @Override
+    char select(int rank) {
+      var remaining = rank;
+      for (int i = 0; i < runs; i++) {
+        if (remaining <= lengths[i]) {
+          return (char) (starts[i] + remaining);
+        }
+        remaining -= lengths[i] + 1;
+      }
+      throw new IllegalArgumentException("rank " + rank + " exceeds cardinality " + cardinality);
+    }
+
+    @Override
+    void forEach(IntConsumer consumer) {
+      for (int i = 0; i < runs; i++) {
+        for (int value = starts[i]; value <= starts[i] + lengths[i]; value++) {
+          consumer.accept(value);
+        }
+      }
+    }
+
+    @Override
+    long sizeInBytes() {
+      return 16 + (long) starts.length * 2 * Character.BYTES;
+    }
+
+    /**
+     * @return index of the last run starting at or before the value, -1 if there is none
+     */
+    private int runIndex(char value) {
+      if (runs > 0 && starts[runs - 1] <= value) {
+        return runs - 1;
+      }
+      var index = Arrays.binarySearch(starts, 0, runs, value);
+      return index >= 0 ? index : -index - 2;
+    }
+
+    private void insertRun(int index, char start, char length) {
+      if (runs == starts.length) {
+        starts = Arrays.copyOf(starts, runs * 2);
+        lengths = Arrays.copyOf(lengths, runs * 2);
+      }
+      System.arraycopy(starts, index, starts, index + 1, runs - index);
+      System.arraycopy(lengths, index, lengths, index + 1, runs - index);
+      starts[index] = start;
+      lengths[index] = length;
+      runs++;
+    }
+
+    static RunContainer of(ArrayContainer arrayContainer) {
+      var container = new RunContainer();
+      for (int i = 0; i < arrayContainer.cardinality; i++) {
+        container.append(arrayContainer.values[i]);
+      }
+      return container;
+    }
+
+    static RunContainer of(BitmapContainer bitmapContainer) {
+      var container = new RunContainer();
+      for (int i = 0; i < bitmapContainer.words.length; i++) {
+        var word = bitmapContainer.words[i];
+        while (word != 0) {
+          container.append((char) (i * 64 + Long.numberOfTrailingZeros(word)));
+          word &= word - 1;
+        }
+      }
+      return container;
+    }
+
+    /** Adds a value greater than all values already contained. */
+    private void append(char value) {
+      if (runs > 0 && starts[runs - 1] + lengths[runs - 1] + 1 == value) {
+        lengths[runs - 1]++;
+      } else {
+        insertRun(runs, value, (char) 0);
+      }
+      cardinality++;
+    }
+  }
+}
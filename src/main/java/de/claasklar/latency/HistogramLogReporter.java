@@ -0,0 +1,186 @@
+package de.claasklar.latency;
+
+import de.claasklar.phase.PhaseTopic;
+import de.claasklar.util.Observer;
+import de.claasklar.util.Subject;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the latencies of every interval as compressed histograms in the log format of {@link
+ * HistogramLogWriter} to a run directory, so latencies over time and percentile spectra can be
+ * plotted offline, e.g. with HistogramLogAnalyzer. There is one log per specification and phase,
+ * e.g. {@code q1-TRANSACTION.hlog}. Every histogram in a log is tagged with its collection,
+ * operation and {@link LatencyKey.Type}. Latencies are in nanoseconds.
+ *
+ * <p>The intervals are the difference between two copies of the total histograms of the {@link
+ * LatencyRecorder}, so they do not take any latencies from the intervals of the {@link
+ * StatusReporter}.
+ *
+ * <p>The reporter observes the {@link PhaseTopic}. It starts logging with the first phase, logs the
+ * rest of the interval, whenever the next phase starts, and closes all logs at the end of the
+ * benchmark.
+ */
+public class HistogramLogReporter implements Observer<PhaseTopic.BenchmarkPhase> {
+
+  private static final Logger logger = LoggerFactory.getLogger(HistogramLogReporter.class);
+  private static final Pattern UNSAFE_CHARACTERS = Pattern.compile("[^A-Za-z0-9._-]");
+  private static final String SUFFIX = ".hlog";
+
+  private final LatencyRecorder latencyRecorder;
+  private final Duration interval;
+  private final Path runDirectory;
+  private final Clock clock;
+  private final Map<LatencyKey, Histogram> previousTotals;
+  private final Map<String, Log> logs;
+  private ScheduledExecutorService executor;
+  private long startMillis;
+  private long intervalStartMillis;
+  private boolean running;
+
+  /**
+   * @param interval time between two logged histograms
+   * @param runDirectory directory of the logs, created if it does not exist
+   */
+  public HistogramLogReporter(
+      LatencyRecorder latencyRecorder, Duration interval, Path runDirectory, Clock clock) {
+    if (interval.isNegative() || interval.isZero()) {
+      throw new IllegalArgumentException("interval must be positive");
+    }
+    this.latencyRecorder = latencyRecorder;
+    this.interval = interval;
+    this.runDirectory = runDirectory;
+    this.clock = clock;
+    this.previousTotals = new HashMap<>();
+    this.logs = new HashMap<>();
+  }
+
+  @Override
+  public synchronized void update(PhaseTopic.BenchmarkPhase update) {
+    if (update == PhaseTopic.BenchmarkPhase.END) {
+      if (running) {
+        log();
+        stop();
+      }
+    } else if (!running) {
+      start();
+    } else {
+      log();
+    }
+  }
+
+  @Override
+  public void setSubject(Subject<PhaseTopic.BenchmarkPhase> subject) {}
+
+  /** Logs the latencies, which were recorded since the last call to this method. */
+  synchronized void log() {
+    if (!running) {
+      return;
+    }
+    var intervalEndMillis = clock.millis();
+    for (var histogram : latencyRecorder.histograms()) {
+      var key = histogram.getKey();
+      var total = histogram.total();
+      var intervalHistogram = total.copy();
+      var previous = previousTotals.put(key, total);
+      if (previous != null) {
+        intervalHistogram.subtract(previous);
+      }
+      if (intervalHistogram.getTotalCount() == 0) {
+        continue;
+      }
+      intervalHistogram.setStartTimeStamp(intervalStartMillis);
+      intervalHistogram.setEndTimeStamp(intervalEndMillis);
+      intervalHistogram.setTag(
+          safe(key.collection() + "." + key.operation() + "." + key.type().name()));
+      log(key).writer.outputIntervalHistogram(intervalHistogram);
+    }
+    intervalStartMillis = intervalEndMillis;
+    logs.values().forEach(it -> it.stream.flush());
+  }
+
+  /**
+   * @return file name of the log of the specification in the phase
+   */
+  static String fileName(String specification, PhaseTopic.BenchmarkPhase phase) {
+    return safe(specification) + "-" + phase.name() + SUFFIX;
+  }
+
+  private Log log(LatencyKey key) {
+    return logs.computeIfAbsent(
+        fileName(key.specification(), key.phase()),
+        fileName -> {
+          try {
+            var stream =
+                new PrintStream(Files.newOutputStream(runDirectory.resolve(fileName)), false);
+            var writer = new HistogramLogWriter(stream);
+            writer.outputComment(
+                "latencies of " + key.specification() + " in " + key.phase() + " in nanoseconds");
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(startMillis);
+            writer.setBaseTime(startMillis);
+            writer.outputBaseTime(startMillis);
+            writer.outputLegend();
+            return new Log(stream, writer);
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        });
+  }
+
+  private static String safe(String name) {
+    return UNSAFE_CHARACTERS.matcher(name).replaceAll("_");
+  }
+
+  private void start() {
+    try {
+      Files.createDirectories(runDirectory);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    startMillis = clock.millis();
+    intervalStartMillis = startMillis;
+    running = true;
+    executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              var thread = new Thread(runnable, "histogram-log-reporter");
+              thread.setDaemon(true);
+              return thread;
+            });
+    var nanos = interval.toNanos();
+    executor.scheduleAtFixedRate(this::logSafely, nanos, nanos, TimeUnit.NANOSECONDS);
+  }
+
+  private void logSafely() {
+    try {
+      log();
+    } catch (RuntimeException e) {
+      logger.atError().log("failed to log histograms: " + e.getMessage());
+    }
+  }
+
+  private void stop() {
+    executor.shutdownNow();
+    running = false;
+    logs.values().forEach(it -> it.stream.close());
+    logs.clear();
+    previousTotals.clear();
+  }
+
+  private record Log(PrintStream stream, HistogramLogWriter writer) {}
+}
@@ -0,0 +1,136 @@
+package de.claasklar.latency;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Throughput, errors and latency percentiles of one specification, collection and operation during
+ * one reporting interval.
+ *
+ * @param time end of the interval
+ * @param intervalSeconds length of the interval
+ * @param serviceTime service times and errors of the interval
+ * @param responseTime response times of the interval or null, if the operations were not scheduled
+ */
+public record IntervalStatus(
+    Instant time, double intervalSeconds, LatencySummary serviceTime, LatencySummary responseTime) {
+
+  /**
+   * @return successful operations per second
+   */
+  public double throughput() {
+    return serviceTime.count() / intervalSeconds;
+  }
+
+  /**
+   * @return share of the operations, which failed
+   */
+  public double errorRate() {
+    var operations = serviceTime.count() + serviceTime.errors();
+    return operations == 0 ? 0 : (double) serviceTime.errors() / operations;
+  }
+
+  /**
+   * @return the status in one line with the percentiles in microseconds
+   */
+  public String format() {
+    var key = serviceTime.key();
+    var line =
+        String.format(
+            Locale.ROOT,
+            "%s %s %s %s: %.1f ops/s errors=%d (%.2f%%) service p50=%.1fus p99=%.1fus"
+                + " p99.9=%.1fus max=%.1fus",
+            key.phase(),
+            key.specification(),
+            key.collection(),
+            key.operation(),
+            throughput(),
+            serviceTime.errors(),
+            errorRate() * 100,
+            serviceTime.p50() / 1000d,
+            serviceTime.p99() / 1000d,
+            serviceTime.p999() / 1000d,
+            serviceTime.max() / 1000d);
+    if (responseTime == null) {
+      return line;
+    }
+    return line
+        + String.format(
+            Locale.ROOT,
+            " response p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+            responseTime.p50() / 1000d,
+            responseTime.p99() / 1000d,
+            responseTime.p999() / 1000d,
+            responseTime.max() / 1000d);
+  }
+
+  /**
+   * @return the status as a JSON object in one line with the percentiles in nanoseconds
+   */
+  public String toJson() {
+    var key = serviceTime.key();
+    var json =
+        new StringBuilder()
+            .append("{\"time\":")
+            .append(quote(time.toString()))
+            .append(",\"phase\":")
+            .append(quote(key.phase().name()))
+            .append(",\"specification\":")
+            .append(quote(key.specification()))
+            .append(",\"collection\":")
+            .append(quote(key.collection()))
+            .append(",\"operation\":")
+            .append(quote(key.operation()))
+            .append(",\"intervalSeconds\":")
+            .append(intervalSeconds)
+            .append(",\"count\":")
+            .append(serviceTime.count())
+            .append(",\"errors\":")
+            .append(serviceTime.errors())
+            .append(",\"throughput\":")
+            .append(throughput())
+            .append(",\"errorRate\":")
+            .append(errorRate())
+            .append(",\"serviceTimeNanos\":");
+    appendPercentiles(json, serviceTime);
+    if (responseTime != null) {
+      json.append(",\"responseTimeNanos\":");
+      appendPercentiles(json, responseTime);
+    }
+    return json.append('}').toString();
+  }
+
+  private static void appendPercentiles(StringBuilder json, LatencySummary summary) {
+    json.append("{\"p50\":")
+        .append(summary.p50())
+        .append(",\"p99\":")
+        .append(summary.p99())
+        .append(",\"p99.9\":")
+        .append(summary.p999())
+        .append(",\"max\":")
+        .append(summary.max())
+        .append('}');
+  }
+
+  private static String quote(String value) {
+    var quoted = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      switch (c) {
+        case '"' -> quoted.append("\\\"");
+        case '\\' -> quoted.append("\\\\");
+        case '\n' -> quoted.append("\\n");
+        case '\r' -> quoted.append("\\r");
+        case '\t' -> quoted.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            quoted.append(String.format("\\u%04x", (int) c));
+          } else {
+            quoted.append(c);
+          }
+        }
+      }
+    }
+    return quoted.append('"').toString();
+  }
+}
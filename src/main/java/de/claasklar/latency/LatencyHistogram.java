@@ -0,0 +1,100 @@
+package de.claasklar.latency;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.PackedHistogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latencies of one {@link LatencyKey} in nanoseconds. Writers record into one of several striped
+ * {@link Recorder}s, chosen by the id of the current thread, so concurrent writers rarely share a
+ * recorder. Recording is wait-free. Readers merge the stripes into an accumulated histogram. Failed
+ * operations are only counted, their latencies are not recorded.
+ *
+ * <p>All histograms are packed, so a histogram only takes memory for the values, which were
+ * actually recorded.
+ */
+public final class LatencyHistogram {
+
+  static final int SIGNIFICANT_DIGITS = 3;
+  private static final int STRIPES = Runtime.getRuntime().availableProcessors();
+
+  private final LatencyKey key;
+  private final Recorder[] stripes;
+  private final Histogram[] recycled;
+  private final Histogram total;
+  private final LongAdder errors;
+  private Histogram sinceInterval;
+  private long errorsBeforeInterval;
+
+  LatencyHistogram(LatencyKey key) {
+    this.key = key;
+    this.stripes = new Recorder[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Recorder(SIGNIFICANT_DIGITS, true);
+    }
+    this.recycled = new Histogram[STRIPES];
+    this.total = new PackedHistogram(SIGNIFICANT_DIGITS);
+    this.errors = new LongAdder();
+    this.sinceInterval = new PackedHistogram(SIGNIFICANT_DIGITS);
+  }
+
+  /**
+   * @param nanos latency in nanoseconds, negative latencies are recorded as 0
+   */
+  public void recordNanos(long nanos) {
+    var stripe = (int) (Thread.currentThread().threadId() % STRIPES);
+    stripes[stripe].recordValue(Math.max(0, nanos));
+  }
+
+  public void recordError() {
+    errors.increment();
+  }
+
+  /**
+   * @return latencies recorded since the last call to this method
+   */
+  public synchronized Histogram interval() {
+    drain();
+    var interval = sinceInterval;
+    sinceInterval = new PackedHistogram(SIGNIFICANT_DIGITS);
+    return interval;
+  }
+
+  /**
+   * @return copy of all latencies recorded so far
+   */
+  public synchronized Histogram total() {
+    drain();
+    return total.copy();
+  }
+
+  /**
+   * @return errors recorded since the last call to this method
+   */
+  public synchronized long intervalErrors() {
+    var errors = this.errors.sum();
+    var interval = errors - errorsBeforeInterval;
+    errorsBeforeInterval = errors;
+    return interval;
+  }
+
+  /**
+   * @return all errors recorded so far
+   */
+  public long totalErrors() {
+    return errors.sum();
+  }
+
+  public LatencyKey getKey() {
+    return key;
+  }
+
+  private void drain() {
+    for (int i = 0; i < STRIPES; i++) {
+      recycled[i] = stripes[i].getIntervalHistogram(recycled[i]);
+      total.add(recycled[i]);
+      sinceInterval.add(recycled[i]);
+    }
+  }
+}
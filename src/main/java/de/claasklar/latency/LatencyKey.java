@@ -0,0 +1,32 @@
+package de.claasklar.latency;
+
+import de.claasklar.phase.PhaseTopic;
+
+/**
+ * Identifies the latencies of one operation.
+ *
+ * @param specification name of the specification, which executed the operation, or {@link
+ *     LatencyRecorder#DATABASE} for operations of the database itself
+ * @param collection collection, which the operation accessed
+ * @param operation kind of the operation, e.g. WRITE, READ or the name of a query
+ * @param phase benchmark phase, in which the operation was executed
+ * @param type whether the latency is measured from the actual or the intended start
+ */
+public record LatencyKey(
+    String specification,
+    String collection,
+    String operation,
+    PhaseTopic.BenchmarkPhase phase,
+    Type type) {
+
+  public enum Type {
+    /** Time from the actual start of the operation until it finished. */
+    SERVICE_TIME,
+    /**
+     * Time from the start, which the scheduler intended for the operation, until it finished.
+     * Includes the time the operation waited for earlier, stalled operations, so it does not suffer
+     * from coordinated omission. Also recorded for failed operations.
+     */
+    RESPONSE_TIME
+  }
+}
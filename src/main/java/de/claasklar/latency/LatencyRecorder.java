@@ -0,0 +1,194 @@
+package de.claasklar.latency;
+
+import de.claasklar.phase.PhaseTopic;
+import de.claasklar.util.Observer;
+import de.claasklar.util.Subject;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records latencies in nanoseconds into one {@link LatencyHistogram} per specification, collection,
+ * operation and benchmark phase. Unlike the OpenTelemetry histograms, which have millisecond
+ * buckets, the percentiles are precise to three significant digits.
+ *
+ * <p>Operations, which a scheduler started at an intended time, record their response time since
+ * the intended start in addition to their service time, see {@link LatencyKey.Type}. Failed
+ * operations are only counted as errors of their service time, their service times are not
+ * recorded. Failed operations, which were scheduled, still record their response time into the same
+ * histogram as the successful ones, so operations, which failed after waiting for a stall, do not
+ * disappear from the response times.
+ *
+ * <p>The recorder observes the {@link PhaseTopic}. Latencies are recorded into the current phase
+ * and are not recorded before the first phase started. When a phase ends, the p50, p99, p99.9 and
+ * max of all its latencies are logged.
+ */
+public class LatencyRecorder implements Observer<PhaseTopic.BenchmarkPhase> {
+
+  /** Specification of the operations, which the database records itself. */
+  public static final String DATABASE = "database";
+
+  private static final Logger logger = LoggerFactory.getLogger(LatencyRecorder.class);
+  private static final int TYPES = LatencyKey.Type.values().length;
+
+  private final Map<LatencyKey, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+  private volatile PhaseTopic.BenchmarkPhase phase;
+
+  /**
+   * @return timer, which records the latencies of the operation without looking up its histogram
+   *     every time
+   */
+  public Timer timer(String specification, String collection, String operation) {
+    return new Timer(specification, collection, operation);
+  }
+
+  /**
+   * Records the time since the start into the histogram of the operation in the current phase.
+   *
+   * @param startNanos start of the operation as given by {@link System#nanoTime()}
+   */
+  public void record(String specification, String collection, String operation, long startNanos) {
+    var now = System.nanoTime();
+    var phase = this.phase;
+    if (phase == null) {
+      return;
+    }
+    histogram(
+            new LatencyKey(
+                specification, collection, operation, phase, LatencyKey.Type.SERVICE_TIME))
+        .recordNanos(now - startNanos);
+  }
+
+  /**
+   * @return summaries of all latencies recorded in the phase so far
+   */
+  public List<LatencySummary> summaries(PhaseTopic.BenchmarkPhase phase) {
+    return histograms.values().stream()
+        .filter(it -> it.getKey().phase() == phase)
+        .map(it -> LatencySummary.of(it.getKey(), it.total(), it.totalErrors()))
+        .sorted(
+            Comparator.comparing((LatencySummary it) -> it.key().specification())
+                .thenComparing(it -> it.key().collection())
+                .thenComparing(it -> it.key().operation())
+                .thenComparing(it -> it.key().type()))
+        .toList();
+  }
+
+  /**
+   * @return histograms of all phases
+   */
+  public List<LatencyHistogram> histograms() {
+    return List.copyOf(histograms.values());
+  }
+
+  private LatencyHistogram histogram(LatencyKey key) {
+    var histogram = histograms.get(key);
+    if (histogram == null) {
+      histogram = histograms.computeIfAbsent(key, LatencyHistogram::new);
+    }
+    return histogram;
+  }
+
+  @Override
+  public void update(PhaseTopic.BenchmarkPhase update) {
+    var previous = this.phase;
+    this.phase = update;
+    if (previous != null && previous != update) {
+      summaries(previous).forEach(it -> logger.atInfo().log(it.format()));
+    }
+  }
+
+  @Override
+  public void setSubject(Subject<PhaseTopic.BenchmarkPhase> subject) {}
+
+  /** Records the latencies of one operation. */
+  public final class Timer {
+
+    private final String specification;
+    private final String collection;
+    private final String operation;
+    private final AtomicReferenceArray<LatencyHistogram> phaseHistograms;
+
+    private Timer(String specification, String collection, String operation) {
+      this.specification = specification;
+      this.collection = collection;
+      this.operation = operation;
+      this.phaseHistograms =
+          new AtomicReferenceArray<>(PhaseTopic.BenchmarkPhase.values().length * TYPES);
+    }
+
+    /**
+     * Records the service time since the start into the histogram of the current phase.
+     *
+     * @param startNanos start of the operation as given by {@link System#nanoTime()}
+     */
+    public void record(long startNanos) {
+      recordNanos(System.nanoTime() - startNanos, LatencyKey.Type.SERVICE_TIME);
+    }
+
+    /**
+     * Records the service time since the start and the response time since the intended start into
+     * the histograms of the current phase.
+     *
+     * @param startNanos start of the operation as given by {@link System#nanoTime()}
+     * @param intendedStartNanos start, which the scheduler intended for the operation, as given by
+     *     {@link System#nanoTime()}
+     */
+    public void record(long startNanos, long intendedStartNanos) {
+      var now = System.nanoTime();
+      recordNanos(now - startNanos, LatencyKey.Type.SERVICE_TIME);
+      recordNanos(now - intendedStartNanos, LatencyKey.Type.RESPONSE_TIME);
+    }
+
+    /**
+     * @param nanos latency in nanoseconds
+     */
+    public void recordNanos(long nanos, LatencyKey.Type type) {
+      var histogram = histogram(type);
+      if (histogram != null) {
+        histogram.recordNanos(nanos);
+      }
+    }
+
+    /** Counts a failed operation in the current phase. */
+    public void recordError() {
+      var histogram = histogram(LatencyKey.Type.SERVICE_TIME);
+      if (histogram != null) {
+        histogram.recordError();
+      }
+    }
+
+    /**
+     * Counts a failed operation and records its response time since the intended start into the
+     * histogram of the current phase.
+     *
+     * @param intendedStartNanos start, which the scheduler intended for the operation, as given by
+     *     {@link System#nanoTime()}
+     */
+    public void recordError(long intendedStartNanos) {
+      var now = System.nanoTime();
+      recordError();
+      recordNanos(now - intendedStartNanos, LatencyKey.Type.RESPONSE_TIME);
+    }
+
+    private LatencyHistogram histogram(LatencyKey.Type type) {
+      var phase = LatencyRecorder.this.phase;
+      if (phase == null) {
+        return null;
+      }
+      var index = phase.ordinal() * TYPES + type.ordinal();
+      var histogram = phaseHistograms.get(index);
+      if (histogram == null) {
+        histogram =
+            LatencyRecorder.this.histogram(
+                new LatencyKey(specification, collection, operation, phase, type));
+        phaseHistograms.set(index, histogram);
+      }
+      return histogram;
+    }
+  }
+}
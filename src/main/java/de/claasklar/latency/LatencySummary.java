@@ -0,0 +1,45 @@
+package de.claasklar.latency;
+
+import java.util.Locale;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Percentiles of the latencies of one {@link LatencyKey} in nanoseconds.
+ *
+ * @param count number of recorded latencies
+ * @param errors number of failed operations
+ */
+public record LatencySummary(
+    LatencyKey key, long count, long errors, long p50, long p99, long p999, long max) {
+
+  public static LatencySummary of(LatencyKey key, Histogram histogram, long errors) {
+    return new LatencySummary(
+        key,
+        histogram.getTotalCount(),
+        errors,
+        histogram.getValueAtPercentile(50),
+        histogram.getValueAtPercentile(99),
+        histogram.getValueAtPercentile(99.9),
+        histogram.getMaxValue());
+  }
+
+  /**
+   * @return the summary in one line with the percentiles in microseconds
+   */
+  public String format() {
+    return String.format(
+        Locale.ROOT,
+        "%s %s %s %s %s: count=%d errors=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+        key.phase(),
+        key.specification(),
+        key.collection(),
+        key.operation(),
+        key.type(),
+        count,
+        errors,
+        p50 / 1000d,
+        p99 / 1000d,
+        p999 / 1000d,
+        max / 1000d);
+  }
+}
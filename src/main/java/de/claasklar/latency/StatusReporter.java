@@ -0,0 +1,180 @@
+package de.claasklar.latency;
+
+import de.claasklar.phase.PhaseTopic;
+import de.claasklar.util.Observer;
+import de.claasklar.util.Subject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports the throughput, errors and latency percentiles of every specification, collection and
+ * operation in a fixed interval while the benchmark is running, so saturation can be watched in
+ * real time. Every {@link IntervalStatus} is logged and appended as one JSON object per line to a
+ * file.
+ *
+ * <p>The statuses are computed from the interval histograms of the {@link LatencyRecorder}, so the
+ * operations themselves do not pay for the reports. Operations without latencies or errors in an
+ * interval are not reported.
+ *
+ * <p>The reporter observes the {@link PhaseTopic}. It starts reporting with the first phase,
+ * reports the rest of the interval, whenever the next phase starts, and stops at the end of the
+ * benchmark.
+ */
+public class StatusReporter implements Observer<PhaseTopic.BenchmarkPhase> {
+
+  private static final Logger logger = LoggerFactory.getLogger(StatusReporter.class);
+
+  private final LatencyRecorder latencyRecorder;
+  private final Duration interval;
+  private final Path file;
+  private final Clock clock;
+  private ScheduledExecutorService executor;
+  private BufferedWriter writer;
+  private long intervalStartNanos;
+
+  /**
+   * @param interval time between two reports
+   * @param file JSON lines file, which the statuses are appended to
+   */
+  public StatusReporter(
+      LatencyRecorder latencyRecorder, Duration interval, Path file, Clock clock) {
+    if (interval.isNegative() || interval.isZero()) {
+      throw new IllegalArgumentException("interval must be positive");
+    }
+    this.latencyRecorder = latencyRecorder;
+    this.interval = interval;
+    this.file = file;
+    this.clock = clock;
+  }
+
+  @Override
+  public synchronized void update(PhaseTopic.BenchmarkPhase update) {
+    if (update == PhaseTopic.BenchmarkPhase.END) {
+      if (writer != null) {
+        report();
+        stop();
+      }
+    } else if (writer == null) {
+      start();
+    } else {
+      report();
+    }
+  }
+
+  @Override
+  public void setSubject(Subject<PhaseTopic.BenchmarkPhase> subject) {}
+
+  /**
+   * Reports all operations, which finished or failed since the last report.
+   *
+   * @return the reported statuses
+   */
+  synchronized List<IntervalStatus> report() {
+    if (writer == null) {
+      return List.of();
+    }
+    var now = System.nanoTime();
+    var intervalSeconds = (now - intervalStartNanos) / 1e9;
+    intervalStartNanos = now;
+    var time = clock.instant();
+    var serviceTimes = new HashMap<LatencyKey, LatencySummary>();
+    var responseTimes = new HashMap<LatencyKey, LatencySummary>();
+    for (var histogram : latencyRecorder.histograms()) {
+      var key = histogram.getKey();
+      var latencies = histogram.interval();
+      var errors = histogram.intervalErrors();
+      if (latencies.getTotalCount() == 0 && errors == 0) {
+        continue;
+      }
+      var summary = LatencySummary.of(key, latencies, errors);
+      if (key.type() == LatencyKey.Type.SERVICE_TIME) {
+        serviceTimes.put(key, summary);
+      } else {
+        responseTimes.put(
+            new LatencyKey(
+                key.specification(),
+                key.collection(),
+                key.operation(),
+                key.phase(),
+                LatencyKey.Type.SERVICE_TIME),
+            summary);
+      }
+    }
+    var statuses = new ArrayList<IntervalStatus>(serviceTimes.size());
+    serviceTimes.forEach(
+        (key, serviceTime) ->
+            statuses.add(
+                new IntervalStatus(time, intervalSeconds, serviceTime, responseTimes.get(key))));
+    statuses.sort(
+        Comparator.comparing((IntervalStatus it) -> it.serviceTime().key().phase())
+            .thenComparing(it -> it.serviceTime().key().specification())
+            .thenComparing(it -> it.serviceTime().key().collection())
+            .thenComparing(it -> it.serviceTime().key().operation()));
+    try {
+      for (var status : statuses) {
+        logger.atInfo().log(status.format());
+        writer.write(status.toJson());
+        writer.newLine();
+      }
+      writer.flush();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return statuses;
+  }
+
+  private void start() {
+    try {
+      var parent = file.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    intervalStartNanos = System.nanoTime();
+    executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              var thread = new Thread(runnable, "status-reporter");
+              thread.setDaemon(true);
+              return thread;
+            });
+    var nanos = interval.toNanos();
+    executor.scheduleAtFixedRate(this::reportSafely, nanos, nanos, TimeUnit.NANOSECONDS);
+  }
+
+  private void reportSafely() {
+    try {
+      report();
+    } catch (RuntimeException e) {
+      logger.atError().log("failed to report status: " + e.getMessage());
+    }
+  }
+
+  private void stop() {
+    executor.shutdownNow();
+    try {
+      writer.close();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      writer = null;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package de.claasklar.phase;
 
+import de.claasklar.idStore.IdStoreSnapshot;
 import de.claasklar.specification.PrimaryWriteSpecification;
 import de.claasklar.util.Pair;
 import io.opentelemetry.api.trace.Span;
@@ -18,6 +19,7 @@ public class LoadPhase {
   private final ExecutorService executor;
   private final Semaphore semaphore;
   private final Tracer tracer;
+  private final IdStoreSnapshot snapshot;
 
   public LoadPhase(
       List<Pair<Long, PrimaryWriteSpecification>> primaryWriteSpecifications,
@@ -35,11 +37,24 @@ public class LoadPhase {
       int numThreads,
       Span applicationSpan,
       Tracer tracer) {
+    this(primaryWriteSpecifications, numThreads, applicationSpan, tracer, null);
+  }
+
+  /**
+   * @param snapshot written after all documents are loaded, may be null
+   */
+  public LoadPhase(
+      List<Pair<Long, PrimaryWriteSpecification>> primaryWriteSpecifications,
+      int numThreads,
+      Span applicationSpan,
+      Tracer tracer,
+      IdStoreSnapshot snapshot) {
     this.primaryWriteSpecifications = primaryWriteSpecifications;
     this.applicationSpan = applicationSpan;
     this.executor = Executors.newFixedThreadPool(numThreads);
     this.semaphore = new Semaphore(numThreads);
     this.tracer = tracer;
+    this.snapshot = snapshot;
   }
 
   public void load() {
@@ -85,6 +100,15 @@ public class LoadPhase {
         executor.shutdownNow();
       }
       logger.atInfo().log("all tasks finished");
+      if (snapshot != null) {
+        if (finished) {
+          logger.atInfo().log(() -> "writing id store snapshot to " + snapshot.getFile());
+          snapshot.write();
+          loadSpan.addEvent("wrote id store snapshot");
+        } else {
+          logger.atWarn().log("skipping id store snapshot, because the load phase is incomplete");
+        }
+      }
     } catch (Exception e) {
       loadSpan.recordException(e);
       loadSpan.setStatus(StatusCode.ERROR);
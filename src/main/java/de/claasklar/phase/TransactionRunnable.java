@@ -79,7 +79,7 @@ class TransactionRunnable implements Runnable {
         try {
           var spec = selectOneSpecification();
           logger.atDebug().log(() -> "running " + spec.getName() + " specification next");
-          spec.runnable().run();
+          spec.runnable(intendedStartNanos()).run();
           opsCount++;
           throttleNanos();
         } catch (Exception e) {
@@ -110,8 +110,15 @@ class TransactionRunnable implements Runnable {
   }
 
   private void throttleNanos() {
-    var deadline = startTimeNs + opDurationNs * opsCount;
-    sleepUntil(deadline);
+    sleepUntil(intendedStartNanos());
+  }
+
+  /**
+   * @return time slot of the next operation, it may already have passed, if earlier operations took
+   *     too long
+   */
+  private long intendedStartNanos() {
+    return startTimeNs + opDurationNs * opsCount;
   }
 
   private void sleepUntil(long deadlineNs) {
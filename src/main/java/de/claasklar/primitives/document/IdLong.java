@@ -1,8 +1,13 @@
 package de.claasklar.primitives.document;
 
 public record IdLong(long id) {
+  private static final long MULTIPLIER_1 = 0xBF58476D1CE4E5B9L;
+  private static final long MULTIPLIER_2 = 0x94D049BB133111EBL;
+  private static final long INVERSE_1 = inverse(MULTIPLIER_1);
+  private static final long INVERSE_2 = inverse(MULTIPLIER_2);
+
   public Id toId() {
-    var hash = IdLong.fnvhash64(id);
+    var hash = IdLong.mix(id);
     byte[] result = new byte[12];
     for (int i = Long.BYTES - 1; i >= 0; i--) {
       result[i] = (byte) (hash & 0xFF);
@@ -12,40 +17,57 @@ public record IdLong(long id) {
   }
 
   /**
-   * Copyright (c) 2010 Yahoo! Inc., 2016 YCSB contributors. All rights reserved.
-   *
-   * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
-   * except in compliance with the License. You may obtain a copy of the License at
+   * Inverse of {@link #toId()}.
    *
-   * <p>http://www.apache.org/licenses/LICENSE-2.0
-   *
-   * <p>Unless required by applicable law or agreed to in writing, software distributed under the
-   * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
-   * either express or implied. See the License for the specific language governing permissions and
-   * limitations under the License. See accompanying LICENSE file.
+   * @param id created by {@link #toId()}
+   * @return the IdLong the id was created from
+   * @throws IllegalArgumentException if the id was not created by {@link #toId()}
    */
-  public static final long FNV_OFFSET_BASIS_64 = 0xCBF29CE484222325L;
-
-  public static final long FNV_PRIME_64 = 1099511628211L;
+  public static IdLong fromId(Id id) {
+    var bytes = id.id();
+    for (int i = Long.BYTES; i < bytes.length; i++) {
+      if (bytes[i] != 0) {
+        throw new IllegalArgumentException("id " + id + " was not created from an IdLong");
+      }
+    }
+    long hash = 0;
+    for (int i = 0; i < Long.BYTES; i++) {
+      hash = (hash << Byte.SIZE) | (bytes[i] & 0xFF);
+    }
+    return new IdLong(unmix(hash));
+  }
 
   /**
-   * 64 bit FNV hash. Produces more "random" hashes than (say) String.hashCode().
-   *
-   * @param val The value to hash.
-   * @return The hash value
+   * Finalizer of SplitMix64. It spreads consecutive ids evenly across the id space like a hash, but
+   * every step is a bijection, so it can be reversed by {@link #unmix(long)}.
    */
-  private static long fnvhash64(long val) {
-    // from http://en.wikipedia.org/wiki/Fowler_Noll_Vo_hash
-    long hashval = FNV_OFFSET_BASIS_64;
+  private static long mix(long value) {
+    value = (value ^ (value >>> 30)) * MULTIPLIER_1;
+    value = (value ^ (value >>> 27)) * MULTIPLIER_2;
+    return value ^ (value >>> 31);
+  }
+
+  private static long unmix(long value) {
+    value = unshift(value, 31) * INVERSE_2;
+    value = unshift(value, 27) * INVERSE_1;
+    return unshift(value, 30);
+  }
 
-    for (int i = 0; i < 8; i++) {
-      long octet = val & 0x00ff;
-      val = val >> 8;
+  /** reverses value ^ (value >>> shift) */
+  private static long unshift(long value, int shift) {
+    var result = value;
+    for (int i = shift; i < Long.SIZE; i += shift) {
+      result = value ^ (result >>> shift);
+    }
+    return result;
+  }
 
-      hashval = hashval ^ octet;
-      hashval = hashval * FNV_PRIME_64;
-      // hashval = hashval ^ octet;
+  /** multiplicative inverse modulo 2^64 of an odd number by Newton's method */
+  private static long inverse(long odd) {
+    var inverse = odd;
+    for (int i = 0; i < 5; i++) {
+      inverse *= 2 - odd * inverse;
     }
-    return Math.abs(hashval);
+    return inverse;
   }
 }
@@ -1,6 +1,7 @@
 package de.claasklar.primitives.document;
 
 import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
@@ -13,10 +14,25 @@ public final class OurDocument implements ObjectValue {
   private static final String ID_FIELD_NAME = "_id";
   private final Id id;
   private final Map<String, Value> values;
+  private final byte[] encoded;
 
   public OurDocument(Id id, Map<String, Value> values) {
+    this(id, values, null);
+  }
+
+  /**
+   * Document, which was generated directly in its encoded form. Only a subset of the fields is kept
+   * as values, so {@link #get} and {@link #entrySet} only see these fields. The document cannot be
+   * modified.
+   *
+   * @param id id of the document
+   * @param values fields kept as values
+   * @param encoded complete encoded document including the id, null if the document is not encoded
+   */
+  public OurDocument(Id id, Map<String, Value> values, byte[] encoded) {
     this.id = id;
     this.values = values;
+    this.encoded = encoded;
   }
 
   @Override
@@ -24,9 +40,23 @@ public final class OurDocument implements ObjectValue {
     if (key.equals(ID_FIELD_NAME)) {
       throw new IllegalArgumentException("cannot reassign id");
     }
+    if (encoded != null) {
+      throw new UnsupportedOperationException("cannot modify encoded document");
+    }
     values.put(key, value);
   }
 
+  public boolean isEncoded() {
+    return encoded != null;
+  }
+
+  /**
+   * @return complete encoded document, null if the document is not encoded
+   */
+  public byte[] getEncoded() {
+    return encoded;
+  }
+
   public Id getId() {
     return this.id;
   }
@@ -60,16 +90,28 @@ public final class OurDocument implements ObjectValue {
       return false;
     }
     OurDocument document = (OurDocument) o;
-    return id.equals(document.id) && values.equals(document.values);
+    return id.equals(document.id)
+        && values.equals(document.values)
+        && Arrays.equals(encoded, document.encoded);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(id, values);
+    return 31 * Objects.hash(id, values) + Arrays.hashCode(encoded);
   }
 
   @Override
   public String toString() {
+    if (encoded != null) {
+      return "OurDocument{"
+          + "id="
+          + id
+          + ", values="
+          + values
+          + ", encoded="
+          + encoded.length
+          + " bytes}";
+    }
     return "OurDocument{" + "id=" + id + ", values=" + values + '}';
   }
 }
@@ -17,6 +17,7 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
@@ -34,6 +35,8 @@ public class ExistingDocumentDistribution implements DocumentDistribution {
   private final Database database;
   private final Executor executor;
   private final Tracer tracer;
+  private final Set<String> fieldPaths;
+  private final boolean sampleExisting;
   private Subject<PhaseTopic.BenchmarkPhase> benchmarkPhaseSubject;
   private PhaseTopic.BenchmarkPhase benchmarkPhase;
 
@@ -43,6 +46,21 @@ public class ExistingDocumentDistribution implements DocumentDistribution {
       Database database,
       Executor executor,
       Tracer tracer) {
+    this(bufferSize, documentDistribution, database, executor, tracer, false);
+  }
+
+  /**
+   * @param sampleExisting buffer ids sampled from the stored ids instead of drawing them from the
+   *     document distribution, which would generate missing documents. Requires a {@link
+   *     SimpleDocumentDistribution} over an IdStore, which supports sampling.
+   */
+  public ExistingDocumentDistribution(
+      int bufferSize,
+      DocumentDistribution documentDistribution,
+      Database database,
+      Executor executor,
+      Tracer tracer,
+      boolean sampleExisting) {
     this.queue = new ConcurrentLinkedQueue<>();
     this.bufferSize = bufferSize;
     this.currentSize = new AtomicInteger(0);
@@ -52,6 +70,11 @@ public class ExistingDocumentDistribution implements DocumentDistribution {
     this.database = database;
     this.executor = executor;
     this.tracer = tracer;
+    this.fieldPaths =
+        documentDistribution instanceof SimpleDocumentDistribution simpleDocumentDistribution
+            ? simpleDocumentDistribution.getFieldPaths()
+            : null;
+    this.sampleExisting = sampleExisting;
   }
 
   /**
@@ -86,7 +109,14 @@ public class ExistingDocumentDistribution implements DocumentDistribution {
         throw new IllegalStateException("could not obtain new id, no id in queue");
       }
       currentSize.decrementAndGet();
-      return new ReadDocumentRunnable(collectionName, nextId, span, database, tracer);
+      return new ReadDocumentRunnable(
+          collectionName,
+          nextId,
+          span,
+          database,
+          tracer,
+          CompletableFuture.completedFuture(null),
+          fieldPaths);
     } catch (Exception e) {
       nextBufferingSpan.setStatus(StatusCode.ERROR);
       nextBufferingSpan.recordException(
@@ -110,12 +140,40 @@ public class ExistingDocumentDistribution implements DocumentDistribution {
     var writeFutures = new LinkedList<>();
     var numReading = 0;
     for (int i = 0; i < numBuffering; i++) {
+      if (sampleExisting
+          && documentDistribution
+              instanceof SimpleDocumentDistribution simpleDocumentDistribution) {
+        var existingId = simpleDocumentDistribution.nextExisting();
+        if (existingId.isPresent()) {
+          queue.add(existingId.get());
+          currentSize.incrementAndGet();
+          numReading++;
+          waitingSize.decrementAndGet();
+          continue;
+        }
+      }
       var nextRunnable = documentDistribution.next(bufferSpan);
-      if (nextRunnable instanceof ReadDocumentRunnable r) {
+      if (nextRunnable instanceof ReadDocumentRunnable r && r.getPendingWrite().isDone()) {
         queue.add(r.getId());
         currentSize.incrementAndGet();
         numReading++;
         waitingSize.decrementAndGet();
+      } else if (nextRunnable instanceof ReadDocumentRunnable r) {
+        var future =
+            r.getPendingWrite()
+                .thenRun(
+                    () -> {
+                      queue.add(r.getId());
+                      currentSize.incrementAndGet();
+                    })
+                .whenComplete(
+                    (it, e) -> {
+                      waitingSize.decrementAndGet();
+                      if (e != null) {
+                        bufferSpan.recordException(e);
+                      }
+                    });
+        writeFutures.add(future);
       } else if (nextRunnable instanceof WriteDocumentRunnable w) {
         var future =
             CompletableFuture.supplyAsync(() -> w, executor)
@@ -1,14 +1,28 @@
 package de.claasklar.random.distribution.document;
 
+import de.claasklar.database.AsyncDatabase;
 import de.claasklar.database.Database;
 import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.Id;
 import de.claasklar.primitives.document.IdLong;
 import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.util.Pair;
 import de.claasklar.util.TelemetryUtil;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.context.Context;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /** For existing documents */
 public final class ReadDocumentRunnable implements DocumentRunnable {
@@ -16,18 +30,78 @@ public final class ReadDocumentRunnable implements DocumentRunnable {
   private final CollectionName collectionName;
   private final IdLong id;
   private final Span parentSpan;
-  private final Database database;
+  private final AsyncDatabase database;
   private final Tracer tracer;
+  private final CompletableFuture<Void> pendingWrite;
+  private final Set<String> fieldPaths;
+  private final Executor executor;
   private boolean wasRun = false;
   private OurDocument document;
 
   public ReadDocumentRunnable(
       CollectionName collectionName, IdLong id, Span parentSpan, Database database, Tracer tracer) {
+    this(collectionName, id, parentSpan, database, tracer, CompletableFuture.completedFuture(null));
+  }
+
+  /**
+   * @param pendingWrite completes once the document is written, the read waits for it
+   */
+  public ReadDocumentRunnable(
+      CollectionName collectionName,
+      IdLong id,
+      Span parentSpan,
+      Database database,
+      Tracer tracer,
+      CompletableFuture<Void> pendingWrite) {
+    this(collectionName, id, parentSpan, database, tracer, pendingWrite, null);
+  }
+
+  /**
+   * @param pendingWrite completes once the document is written, the read waits for it
+   * @param fieldPaths only these fields of the document are read, null to read the whole document
+   */
+  public ReadDocumentRunnable(
+      CollectionName collectionName,
+      IdLong id,
+      Span parentSpan,
+      Database database,
+      Tracer tracer,
+      CompletableFuture<Void> pendingWrite,
+      Set<String> fieldPaths) {
+    this(
+        collectionName,
+        id,
+        parentSpan,
+        database,
+        tracer,
+        pendingWrite,
+        fieldPaths,
+        ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param pendingWrite completes once the document is written, the read waits for it
+   * @param fieldPaths only these fields of the document are read, null to read the whole document
+   * @param executor reads on it after waiting for a pending write, so the read does not run on the
+   *     thread completing the write
+   */
+  public ReadDocumentRunnable(
+      CollectionName collectionName,
+      IdLong id,
+      Span parentSpan,
+      Database database,
+      Tracer tracer,
+      CompletableFuture<Void> pendingWrite,
+      Set<String> fieldPaths,
+      Executor executor) {
     this.collectionName = collectionName;
     this.id = id;
     this.parentSpan = parentSpan;
-    this.database = database;
+    this.database = AsyncDatabase.of(database);
     this.tracer = tracer;
+    this.pendingWrite = pendingWrite;
+    this.fieldPaths = fieldPaths;
+    this.executor = executor;
   }
 
   @Override
@@ -45,34 +119,133 @@ public final class ReadDocumentRunnable implements DocumentRunnable {
 
   @Override
   public void run() {
+    AsyncDatabase.join(runAsync());
+  }
+
+  /**
+   * Reads the document once the pending write completed. Does not block a thread while waiting, if
+   * the database is an {@link AsyncDatabase}.
+   *
+   * @return future, which completes once the document is read
+   */
+  public CompletableFuture<Void> runAsync() {
     if (this.wasRun) {
       throw new IllegalStateException("ReadDocumentRunnable can only be executed once");
     }
     var runSpan = newSpan();
-    try (var ignored = runSpan.makeCurrent()) {
-      this.document =
-          database
-              .read(this.collectionName, this.id.toId(), runSpan)
-              .orElseThrow(() -> new NoSuchDocumentException(this.collectionName, this.id.toId()));
-      this.wasRun = true;
-    } catch (Exception e) {
-      runSpan.setStatus(StatusCode.ERROR);
-      runSpan.recordException(e);
-      throw e;
-    } finally {
-      runSpan.end();
+    CompletableFuture<Optional<OurDocument>> read;
+    if (pendingWrite.isDone()) {
+      read = pendingWrite.thenCompose(ignored -> read(runSpan));
+    } else {
+      runSpan.addEvent("waiting for pending write");
+      read = pendingWrite.thenComposeAsync(ignored -> read(runSpan), executor);
     }
+    return read.thenAccept(
+            document -> {
+              this.document =
+                  document.orElseThrow(
+                      () -> new NoSuchDocumentException(this.collectionName, this.id.toId()));
+              this.wasRun = true;
+            })
+        .whenComplete(
+            (ignored, e) -> {
+              if (e != null) {
+                runSpan.setStatus(StatusCode.ERROR);
+                runSpan.recordException(e instanceof CompletionException ? e.getCause() : e);
+              }
+              runSpan.end();
+            });
+  }
+
+  /**
+   * Reads the documents of all runnables with one {@link Database#readMany} per collection, once
+   * the pending writes of the collection's runnables completed. Afterwards, every runnable holds
+   * its document as if it was run on its own.
+   *
+   * @param runnables runnables, which were not run yet and use the same database
+   * @return future, which completes once all documents are read
+   */
+  public static CompletableFuture<Void> runAllAsync(List<ReadDocumentRunnable> runnables) {
+    var batches =
+        runnables.stream()
+            .collect(Collectors.groupingBy(it -> new Pair<>(it.collectionName, it.fieldPaths)));
+    return CompletableFuture.allOf(
+        batches.values().stream()
+            .map(ReadDocumentRunnable::runBatchAsync)
+            .toArray(CompletableFuture[]::new));
+  }
+
+  private static CompletableFuture<Void> runBatchAsync(List<ReadDocumentRunnable> batch) {
+    var first = batch.get(0);
+    for (var runnable : batch) {
+      if (runnable.wasRun) {
+        throw new IllegalStateException("ReadDocumentRunnable can only be executed once");
+      }
+    }
+    var ids = batch.stream().map(it -> it.id.toId()).distinct().toList();
+    var batchSpan =
+        first
+            .tracer
+            .spanBuilder("read existing documents")
+            .setParent(Context.current().with(first.parentSpan))
+            .setAttribute("collection", first.collectionName.name())
+            .setAttribute("count", ids.size())
+            .startSpan();
+    var pendingWrites =
+        CompletableFuture.allOf(
+            batch.stream().map(it -> it.pendingWrite).toArray(CompletableFuture[]::new));
+    Function<Void, CompletionStage<Map<Id, OurDocument>>> readMany =
+        ignored ->
+            first.database.readManyAsync(first.collectionName, ids, first.fieldPaths, batchSpan);
+    var read =
+        pendingWrites.isDone()
+            ? pendingWrites.thenCompose(readMany)
+            : pendingWrites.thenComposeAsync(readMany, first.executor);
+    return read.thenAccept(
+            documents -> {
+              for (var runnable : batch) {
+                var document = documents.get(runnable.id.toId());
+                if (document == null) {
+                  throw new NoSuchDocumentException(runnable.collectionName, runnable.id.toId());
+                }
+                runnable.document = document;
+                runnable.wasRun = true;
+              }
+            })
+        .whenComplete(
+            (ignored, e) -> {
+              if (e != null) {
+                batchSpan.setStatus(StatusCode.ERROR);
+                batchSpan.recordException(e instanceof CompletionException ? e.getCause() : e);
+              }
+              batchSpan.end();
+            });
+  }
+
+  private CompletionStage<Optional<OurDocument>> read(Span span) {
+    if (fieldPaths == null) {
+      return database.readAsync(this.collectionName, this.id.toId(), span);
+    }
+    return database.readAsync(this.collectionName, this.id.toId(), fieldPaths, span);
   }
 
   public IdLong getId() {
     return id;
   }
 
+  public CompletableFuture<Void> getPendingWrite() {
+    return pendingWrite;
+  }
+
   private Span newSpan() {
-    return tracer
-        .spanBuilder("read existing document")
-        .setParent(Context.current().with(parentSpan))
-        .setAllAttributes(new TelemetryUtil().attributes(collectionName, id))
-        .startSpan();
+    var span =
+        tracer
+            .spanBuilder("read existing document")
+            .setParent(Context.current().with(parentSpan))
+            .startSpan();
+    if (span.isRecording()) {
+      span.setAllAttributes(new TelemetryUtil().attributes(collectionName, id));
+    }
+    return span;
   }
 }
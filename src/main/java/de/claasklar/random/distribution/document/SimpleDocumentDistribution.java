@@ -1,6 +1,7 @@
 package de.claasklar.random.distribution.document;
 
 import de.claasklar.database.Database;
+import de.claasklar.idStore.CollectionHandle;
 import de.claasklar.idStore.IdStore;
 import de.claasklar.phase.PhaseTopic;
 import de.claasklar.primitives.CollectionName;
@@ -11,16 +12,29 @@ import de.claasklar.specification.DocumentGenerationSpecificationRegistry;
 import de.claasklar.util.Subject;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.Tracer;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class SimpleDocumentDistribution implements DocumentDistribution {
 
+  /** Reads of pending ids fail, if the claimed write takes longer. */
+  static final Duration PENDING_WRITE_TIMEOUT = Duration.ofMinutes(1);
+
   private final CollectionName collectionName;
+  private final CollectionHandle collectionHandle;
   private final IdDistribution idDistribution;
   private final IdStore idStore;
   private final Database database;
   private final DocumentGenerationSpecificationRegistry registry;
   private final Tracer tracer;
+  private final Set<String> fieldPaths;
+  private final Executor executor;
 
   public SimpleDocumentDistribution(
       CollectionName collectionName,
@@ -29,16 +43,61 @@ public class SimpleDocumentDistribution implements DocumentDistribution {
       Database database,
       DocumentGenerationSpecificationRegistry registry,
       Tracer tracer) {
+    this(collectionName, idDistribution, idStore, database, registry, tracer, null);
+  }
+
+  /**
+   * @param fieldPaths only these fields of existing documents are read, null to read whole
+   *     documents
+   */
+  public SimpleDocumentDistribution(
+      CollectionName collectionName,
+      IdDistribution idDistribution,
+      IdStore idStore,
+      Database database,
+      DocumentGenerationSpecificationRegistry registry,
+      Tracer tracer,
+      Set<String> fieldPaths) {
+    this(
+        collectionName,
+        idDistribution,
+        idStore,
+        database,
+        registry,
+        tracer,
+        fieldPaths,
+        ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param fieldPaths only these fields of existing documents are read, null to read whole
+   *     documents
+   * @param executor reads of ids, which are pending, run on it once the write completed
+   */
+  public SimpleDocumentDistribution(
+      CollectionName collectionName,
+      IdDistribution idDistribution,
+      IdStore idStore,
+      Database database,
+      DocumentGenerationSpecificationRegistry registry,
+      Tracer tracer,
+      Set<String> fieldPaths,
+      Executor executor) {
     this.collectionName = collectionName;
+    this.collectionHandle = CollectionHandle.of(collectionName);
     this.idDistribution = idDistribution;
     this.idStore = idStore;
     this.database = database;
     this.registry = registry;
     this.tracer = tracer;
+    this.fieldPaths = fieldPaths;
+    this.executor = executor;
   }
 
   /**
-   * Will enter span for both read and write futures
+   * Will enter span for both read and write futures. Missing ids are claimed in the IdStore, so an
+   * id is only written once; concurrent requesters of the same id read it after the write finished
+   * or fail after {@link #PENDING_WRITE_TIMEOUT}.
    *
    * @param span
    * @return DocumentFuture
@@ -46,11 +105,54 @@ public class SimpleDocumentDistribution implements DocumentDistribution {
   @Override
   public DocumentRunnable next(Span span) {
     var nextId = idDistribution.nextAsLong();
-    if (idStore.exists(collectionName, nextId)) {
-      return new ReadDocumentRunnable(collectionName, new IdLong(nextId), span, database, tracer);
-    } else {
-      return new WriteDocumentRunnable(collectionName, new IdLong(nextId), span, registry);
+    return switch (idStore.tryClaim(collectionHandle, nextId)) {
+      case STORED -> new ReadDocumentRunnable(
+          collectionName,
+          new IdLong(nextId),
+          span,
+          database,
+          tracer,
+          CompletableFuture.completedFuture(null),
+          fieldPaths);
+      case PENDING -> new ReadDocumentRunnable(
+          collectionName,
+          new IdLong(nextId),
+          span,
+          database,
+          tracer,
+          idStore
+              .whenStored(collectionName, nextId)
+              .copy()
+              .orTimeout(PENDING_WRITE_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS),
+          fieldPaths,
+          executor);
+      case CLAIMED -> new WriteDocumentRunnable(
+          collectionName, new IdLong(nextId), span, registry, idStore);
+    };
+  }
+
+  /**
+   * Sample an existing id weighted by the IdDistribution without generating new documents.
+   *
+   * @return existing id, empty if the IdStore cannot sample, the IdDistribution cannot draw ranks
+   *     or no stored id is within its bounds
+   */
+  public Optional<IdLong> nextExisting() {
+    if (!idStore.supportsSampling()) {
+      return Optional.empty();
     }
+    var sampledId = idStore.sample(collectionHandle, idDistribution);
+    if (sampledId.isEmpty()) {
+      return Optional.empty();
+    }
+    return Optional.of(new IdLong(sampledId.getAsLong()));
+  }
+
+  /**
+   * @return fields of existing documents, which are read, null if whole documents are read
+   */
+  public Set<String> getFieldPaths() {
+    return fieldPaths;
   }
 
   @Override
@@ -1,5 +1,6 @@
 package de.claasklar.random.distribution.document;
 
+import de.claasklar.idStore.IdStore;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
 import de.claasklar.primitives.document.OurDocument;
@@ -13,6 +14,7 @@ public final class WriteDocumentRunnable implements DocumentRunnable {
   private final IdLong id;
   private final Span parentSpan;
   private final DocumentGenerationSpecificationRegistry registry;
+  private final IdStore idStore;
 
   private OurDocument document;
   private boolean wasRun = false;
@@ -22,25 +24,46 @@ public final class WriteDocumentRunnable implements DocumentRunnable {
       IdLong id,
       Span parentSpan,
       DocumentGenerationSpecificationRegistry registry) {
+    this(collectionName, id, parentSpan, registry, null);
+  }
+
+  /**
+   * @param idStore the id was claimed in, the claim is released if the document is not written.
+   *     null if the id was not claimed
+   */
+  public WriteDocumentRunnable(
+      CollectionName collectionName,
+      IdLong id,
+      Span parentSpan,
+      DocumentGenerationSpecificationRegistry registry,
+      IdStore idStore) {
     this.collectionName = collectionName;
     this.id = id;
     this.parentSpan = parentSpan;
     this.registry = registry;
+    this.idStore = idStore;
   }
 
   @Override
   public void run() {
-    var writeSpec =
-        registry
-            .get(collectionName)
-            .orElseThrow(
-                () ->
-                    new IllegalStateException(
-                        "Could not find WriteSpecificaiton for collection " + collectionName));
-    var runnable = writeSpec.runnable(this.id, parentSpan);
-    runnable.run();
-    this.document = runnable.getDocument();
-    this.wasRun = true;
+    try {
+      var writeSpec =
+          registry
+              .get(collectionName)
+              .orElseThrow(
+                  () ->
+                      new IllegalStateException(
+                          "Could not find WriteSpecificaiton for collection " + collectionName));
+      var runnable = writeSpec.runnable(this.id, parentSpan);
+      runnable.run();
+      this.document = runnable.getDocument();
+      this.wasRun = true;
+    } finally {
+      if (!wasRun && idStore != null) {
+        // waiters for the id must not block on a write that never happens
+        idStore.release(collectionName, id.id());
+      }
+    }
   }
 
   @Override
@@ -3,6 +3,8 @@ package de.claasklar.random.distribution.id;
 import de.claasklar.primitives.document.IdLong;
 import de.claasklar.random.distribution.DistributionProperties;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.LongUnaryOperator;
 
 public interface IdDistribution {
   default IdLong next() {
@@ -11,5 +13,21 @@ public interface IdDistribution {
 
   long nextAsLong();
 
+  /**
+   * Draw the rank of a stored id among all stored ids in ascending order, weighted like the ids of
+   * this distribution. Used to sample stored ids without drawing ids until one is stored, see
+   * {@link de.claasklar.idStore.IdStore#sample(de.claasklar.primitives.CollectionName,
+   * IdDistribution)}. Only distributions, whose ids are equally likely within their bounds, can
+   * draw ranks. They draw from the ranks of the stored ids within their bounds. Other distributions
+   * would move their weights to other ids, so the default draws no rank.
+   *
+   * @param rank number of stored ids smaller than the given id
+   * @return rank of a stored id, empty if the distribution cannot draw ranks or no stored id is
+   *     within its bounds
+   */
+  default OptionalLong nextRank(LongUnaryOperator rank) {
+    return OptionalLong.empty();
+  }
+
   List<DistributionProperties> distributionProperties();
 }
@@ -2,6 +2,8 @@ package de.claasklar.random.distribution.id;
 
 import de.claasklar.random.distribution.DistributionProperties;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.LongUnaryOperator;
 
 public class OffsetIdDistribution implements IdDistribution {
 
@@ -21,6 +23,11 @@ public class OffsetIdDistribution implements IdDistribution {
     return delegate.nextAsLong() + offset;
   }
 
+  @Override
+  public OptionalLong nextRank(LongUnaryOperator rank) {
+    return delegate.nextRank(id -> rank.applyAsLong(id + offset));
+  }
+
   @Override
   public List<DistributionProperties> distributionProperties() {
     return delegate.distributionProperties();
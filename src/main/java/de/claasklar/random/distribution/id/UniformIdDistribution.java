@@ -3,6 +3,8 @@ package de.claasklar.random.distribution.id;
 import de.claasklar.random.distribution.DistributionProperties;
 import de.claasklar.random.distribution.RandomNumberGenerator;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.LongUnaryOperator;
 
 public class UniformIdDistribution implements IdDistribution {
 
@@ -22,6 +24,17 @@ public class UniformIdDistribution implements IdDistribution {
     return random.nextLong(0, max);
   }
 
+  /** Every stored id from 0 inclusive to max exclusive is equally likely, like every id. */
+  @Override
+  public OptionalLong nextRank(LongUnaryOperator rank) {
+    var lower = rank.applyAsLong(0);
+    var upper = rank.applyAsLong(max);
+    if (lower == upper) {
+      return OptionalLong.empty();
+    }
+    return OptionalLong.of(random.nextLong(lower, upper));
+  }
+
   @Override
   public List<DistributionProperties> distributionProperties() {
     return List.of(DistributionProperties.REPEATABLE);
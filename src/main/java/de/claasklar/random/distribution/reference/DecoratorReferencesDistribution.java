@@ -14,14 +14,27 @@ public class DecoratorReferencesDistribution implements ReferencesDistribution {
   private final Distribution<Long> countDistribution;
   private final DocumentDistribution documentDistribution;
   private final ExecutorService executorService;
+  private final boolean batchReads;
 
   public DecoratorReferencesDistribution(
       Distribution<Long> countDistribution,
       DocumentDistribution documentDistribution,
       ExecutorService executorService) {
+    this(countDistribution, documentDistribution, executorService, false);
+  }
+
+  /**
+   * @param batchReads read all existing documents of a ReferencesRunnable at once
+   */
+  public DecoratorReferencesDistribution(
+      Distribution<Long> countDistribution,
+      DocumentDistribution documentDistribution,
+      ExecutorService executorService,
+      boolean batchReads) {
     this.countDistribution = countDistribution;
     this.documentDistribution = documentDistribution;
     this.executorService = executorService;
+    this.batchReads = batchReads;
   }
 
   @Override
@@ -38,7 +51,7 @@ public class DecoratorReferencesDistribution implements ReferencesDistribution {
     for (int i = 0; i < numReferencedDocuments; i++) {
       documentRunnables[i] = documentDistribution.next(span);
     }
-    return new ReferencesRunnable(documentRunnables, executorService);
+    return new ReferencesRunnable(documentRunnables, executorService, batchReads);
   }
 
   @Override
@@ -2,36 +2,41 @@ package de.claasklar.random.distribution.reference;
 
 import de.claasklar.primitives.document.OurDocument;
 import de.claasklar.random.distribution.document.DocumentRunnable;
+import de.claasklar.random.distribution.document.ReadDocumentRunnable;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
 
 public class ReferencesRunnable implements Runnable {
 
   private final DocumentRunnable[] documentRunnables;
   private final ExecutorService executor;
+  private final boolean batchReads;
   private boolean wasRun = false;
   private OurDocument[] documents;
 
   public ReferencesRunnable(DocumentRunnable[] documentRunnables, ExecutorService executor) {
+    this(documentRunnables, executor, false);
+  }
+
+  /**
+   * @param batchReads read all existing documents of a collection at once, instead of one read per
+   *     document
+   */
+  public ReferencesRunnable(
+      DocumentRunnable[] documentRunnables, ExecutorService executor, boolean batchReads) {
     this.documentRunnables = documentRunnables;
     this.executor = executor;
+    this.batchReads = batchReads;
   }
 
   public OurDocument[] execute(Executor executor) {
     if (wasRun) {
       throw new IllegalStateException("Cannot execute DocumentListFuture twice");
     }
-    var futures =
-        Arrays.stream(documentRunnables)
-            .map(it -> CompletableFuture.runAsync(it, executor))
-            .toArray(CompletableFuture[]::new);
-    CompletableFuture.allOf(futures).join();
-    var documents =
-        Arrays.stream(documentRunnables)
-            .map(DocumentRunnable::getDocument)
-            .toArray(OurDocument[]::new);
+    var documents = runAll(executor);
     this.wasRun = true;
     return documents;
   }
@@ -41,18 +46,38 @@ public class ReferencesRunnable implements Runnable {
     if (wasRun) {
       throw new IllegalStateException("Cannot execute DocumentListFuture twice");
     }
-    var futures =
-        Arrays.stream(documentRunnables)
-            .map(it -> CompletableFuture.runAsync(it, executor))
-            .toArray(CompletableFuture[]::new);
-    CompletableFuture.allOf(futures).join();
-    documents =
-        Arrays.stream(documentRunnables)
-            .map(DocumentRunnable::getDocument)
-            .toArray(OurDocument[]::new);
+    documents = runAll(executor);
     this.wasRun = true;
   }
 
+  private OurDocument[] runAll(Executor executor) {
+    CompletableFuture<?>[] futures;
+    if (batchReads) {
+      // documents are written concurrently to the batched reads
+      var writes =
+          Arrays.stream(documentRunnables)
+              .filter(it -> !(it instanceof ReadDocumentRunnable))
+              .map(it -> CompletableFuture.runAsync(it, executor));
+      var reads =
+          Arrays.stream(documentRunnables)
+              .filter(ReadDocumentRunnable.class::isInstance)
+              .map(ReadDocumentRunnable.class::cast)
+              .toList();
+      futures =
+          Stream.concat(writes, Stream.of(ReadDocumentRunnable.runAllAsync(reads)))
+              .toArray(CompletableFuture[]::new);
+    } else {
+      futures =
+          Arrays.stream(documentRunnables)
+              .map(it -> CompletableFuture.runAsync(it, executor))
+              .toArray(CompletableFuture[]::new);
+    }
+    CompletableFuture.allOf(futures).join();
+    return Arrays.stream(documentRunnables)
+        .map(DocumentRunnable::getDocument)
+        .toArray(OurDocument[]::new);
+  }
+
   public OurDocument[] getDocuments() {
     if (!wasRun) {
       throw new IllegalStateException("cannot get documents before it was run");
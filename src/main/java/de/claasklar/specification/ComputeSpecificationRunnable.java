@@ -91,10 +91,14 @@ public class ComputeSpecificationRunnable implements DocumentGenerationSpecifica
   }
 
   private Span newSpan() {
-    return tracer
-        .spanBuilder("Write secondary document")
-        .setParent(Context.current().with(parentSpan))
-        .setAllAttributes(new TelemetryUtil().attributes(collectionName, idLong))
-        .startSpan();
+    var span =
+        tracer
+            .spanBuilder("Write secondary document")
+            .setParent(Context.current().with(parentSpan))
+            .startSpan();
+    if (span.isRecording()) {
+      span.setAllAttributes(new TelemetryUtil().attributes(collectionName, idLong));
+    }
+    return span;
   }
 }
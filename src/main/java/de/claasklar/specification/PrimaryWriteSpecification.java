@@ -4,7 +4,9 @@ import static io.opentelemetry.api.common.AttributeKey.stringKey;
 
 import de.claasklar.database.Database;
 import de.claasklar.generation.ContextDocumentGenerator;
+import de.claasklar.idStore.CollectionHandle;
 import de.claasklar.idStore.IdStore;
+import de.claasklar.latency.LatencyRecorder;
 import de.claasklar.phase.PhaseTopic;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
@@ -20,11 +22,14 @@ import java.util.concurrent.atomic.AtomicLong;
 public final class PrimaryWriteSpecification implements TopSpecification {
 
   private final CollectionName collectionName;
+  private final CollectionHandle collectionHandle;
+  private final long idShift;
   private final ReferencesDistribution[] referencesDistributions;
   private final ContextDocumentGenerator generator;
   private final Database database;
   private final ExecutorService executor;
   private final LongHistogram histogram;
+  private final LatencyRecorder.Timer timer;
   private final IdStore idStore;
   private Attributes attributes;
   private final Tracer tracer;
@@ -39,15 +44,19 @@ public final class PrimaryWriteSpecification implements TopSpecification {
       Database database,
       ExecutorService executor,
       LongHistogram histogram,
+      LatencyRecorder latencyRecorder,
       IdStore idStore,
       Tracer tracer,
       Clock clock) {
     this.collectionName = collectionName;
+    this.collectionHandle = CollectionHandle.of(collectionName);
+    this.idShift = idShift;
     this.referencesDistributions = referencesDistributions;
     this.generator = generator;
     this.database = database;
     this.executor = executor;
     this.histogram = histogram;
+    this.timer = latencyRecorder.timer(getName(), collectionName.name(), "WRITE");
     this.idStore = idStore;
     this.attributes =
         Attributes.of(
@@ -59,18 +68,43 @@ public final class PrimaryWriteSpecification implements TopSpecification {
 
   @Override
   public PrimaryWriteSpecificationRunnable runnable() {
+    return newRunnable(null);
+  }
+
+  @Override
+  public PrimaryWriteSpecificationRunnable runnable(long intendedStartNanos) {
+    return newRunnable(intendedStartNanos);
+  }
+
+  private PrimaryWriteSpecificationRunnable newRunnable(Long intendedStartNanos) {
     return new PrimaryWriteSpecificationRunnable(
-        collectionName,
+        collectionHandle,
         new IdLong(currentId.getAndIncrement()),
         referencesDistributions,
         generator,
         database,
         executor,
         histogram,
+        timer,
         attributes,
         idStore,
         tracer,
-        clock);
+        clock,
+        intendedStartNanos);
+  }
+
+  /**
+   * Continue writing with the ids after the given one, e.g. after the ids of an already loaded
+   * collection were restored. Does not go back to lower ids.
+   *
+   * @param lastId id after which the next document is written
+   */
+  public void continueAfter(long lastId) {
+    currentId.accumulateAndGet(lastId + 1, Math::max);
+  }
+
+  public long getIdShift() {
+    return this.idShift;
   }
 
   public CollectionName getCollectionName() {
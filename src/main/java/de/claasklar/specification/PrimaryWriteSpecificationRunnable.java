@@ -2,7 +2,9 @@ package de.claasklar.specification;
 
 import de.claasklar.database.Database;
 import de.claasklar.generation.DocumentGenerator;
+import de.claasklar.idStore.CollectionHandle;
 import de.claasklar.idStore.IdStore;
+import de.claasklar.latency.LatencyRecorder;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
 import de.claasklar.primitives.document.OurDocument;
@@ -23,6 +25,7 @@ import java.util.concurrent.ExecutorService;
 
 public class PrimaryWriteSpecificationRunnable implements Runnable {
 
+  private final CollectionHandle collectionHandle;
   private final CollectionName collectionName;
   private final IdLong id;
   private final ReferencesDistribution[] referencesDistributions;
@@ -30,6 +33,8 @@ public class PrimaryWriteSpecificationRunnable implements Runnable {
   private final Database database;
   private final ExecutorService executor;
   private final LongHistogram histogram;
+  private final LatencyRecorder.Timer timer;
+  private final Long intendedStartNanos;
   private final Attributes attributes;
   private final Tracer tracer;
   private final Clock clock;
@@ -37,25 +42,34 @@ public class PrimaryWriteSpecificationRunnable implements Runnable {
   private boolean wasRun = false;
   private OurDocument document;
 
+  /**
+   * @param intendedStartNanos start, which the scheduler intended for the runnable, as given by
+   *     {@link System#nanoTime()}, null if the runnable was not scheduled
+   */
   public PrimaryWriteSpecificationRunnable(
-      CollectionName collectionName,
+      CollectionHandle collectionHandle,
       IdLong id,
       ReferencesDistribution[] referencesDistributions,
       DocumentGenerator generator,
       Database database,
       ExecutorService executor,
       LongHistogram histogram,
+      LatencyRecorder.Timer timer,
       Attributes attributes,
       IdStore idStore,
       Tracer tracer,
-      Clock clock) {
-    this.collectionName = collectionName;
+      Clock clock,
+      Long intendedStartNanos) {
+    this.collectionHandle = collectionHandle;
+    this.collectionName = collectionHandle.collectionName();
     this.id = id;
     this.referencesDistributions = referencesDistributions;
     this.generator = generator;
     this.database = database;
     this.executor = executor;
     this.histogram = histogram;
+    this.timer = timer;
+    this.intendedStartNanos = intendedStartNanos;
     this.attributes = attributes;
     this.idStore = idStore;
     this.tracer = tracer;
@@ -65,6 +79,7 @@ public class PrimaryWriteSpecificationRunnable implements Runnable {
   @Override
   public void run() {
     var start = clock.instant();
+    var startNanos = System.nanoTime();
     var span = newSpan();
     try (var ignored = span.makeCurrent()) {
       var distributions =
@@ -83,12 +98,22 @@ public class PrimaryWriteSpecificationRunnable implements Runnable {
               .collect(new MapCollector<>());
       var document = generator.generateDocument(id, references);
       database.write(collectionName, document, span);
-      idStore.store(collectionName, id);
-      this.document = document;
-      this.wasRun = true;
+      if (intendedStartNanos == null) {
+        timer.record(startNanos);
+      } else {
+        timer.record(startNanos, intendedStartNanos);
+      }
       histogram.record(
           start.until(clock.instant(), TelemetryConfig.DURATION_RESOLUTION), attributes);
+      idStore.store(collectionHandle, id.id());
+      this.document = document;
+      this.wasRun = true;
     } catch (Exception e) {
+      if (intendedStartNanos == null) {
+        timer.recordError();
+      } else {
+        timer.recordError(intendedStartNanos);
+      }
       span.setStatus(StatusCode.ERROR, "Could not create primary document with the id " + id);
       span.recordException(e);
       throw e;
@@ -109,14 +134,14 @@ public class PrimaryWriteSpecificationRunnable implements Runnable {
   }
 
   private Span newSpan() {
-    return tracer
-        .spanBuilder("Writing primary document")
-        .setAllAttributes(
-            attributes.toBuilder()
-                .put("id_long", id.toString())
-                .put("id", id.toId().toString())
-                .build())
-        .setNoParent()
-        .startSpan();
+    var span = tracer.spanBuilder("Writing primary document").setNoParent().startSpan();
+    if (span.isRecording()) {
+      span.setAllAttributes(
+          attributes.toBuilder()
+              .put("id_long", id.toString())
+              .put("id", id.toId().toString())
+              .build());
+    }
+    return span;
   }
 }
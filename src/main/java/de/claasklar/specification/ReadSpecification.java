@@ -4,6 +4,7 @@ import static io.opentelemetry.api.common.AttributeKey.stringKey;
 
 import de.claasklar.database.Database;
 import de.claasklar.generation.QueryGenerator;
+import de.claasklar.latency.LatencyRecorder;
 import de.claasklar.phase.PhaseTopic;
 import de.claasklar.util.Subject;
 import io.opentelemetry.api.common.Attributes;
@@ -17,6 +18,7 @@ public final class ReadSpecification implements TopSpecification {
   private final QueryGenerator queryGenerator;
   private final Database database;
   private final LongHistogram histogram;
+  private final LatencyRecorder.Timer timer;
   private final Tracer tracer;
   private final Clock clock;
   private Attributes attributes;
@@ -26,12 +28,14 @@ public final class ReadSpecification implements TopSpecification {
       QueryGenerator queryGenerator,
       Database database,
       LongHistogram histogram,
+      LatencyRecorder latencyRecorder,
       Tracer tracer,
       Clock clock) {
     this.name = name;
     this.queryGenerator = queryGenerator;
     this.database = database;
     this.histogram = histogram;
+    this.timer = latencyRecorder.timer(name, queryGenerator.getCollectionName().name(), "QUERY");
     this.tracer = tracer;
     this.clock = clock;
     this.attributes =
@@ -45,7 +49,21 @@ public final class ReadSpecification implements TopSpecification {
   @Override
   public ReadSpecificationRunnable runnable() {
     return new ReadSpecificationRunnable(
-        queryGenerator, name, database, attributes, tracer, clock, histogram);
+        queryGenerator, name, database, attributes, tracer, clock, histogram, timer, null);
+  }
+
+  @Override
+  public ReadSpecificationRunnable runnable(long intendedStartNanos) {
+    return new ReadSpecificationRunnable(
+        queryGenerator,
+        name,
+        database,
+        attributes,
+        tracer,
+        clock,
+        histogram,
+        timer,
+        intendedStartNanos);
   }
 
   @Override
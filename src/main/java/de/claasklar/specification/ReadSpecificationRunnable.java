@@ -1,7 +1,9 @@
 package de.claasklar.specification;
 
+import de.claasklar.database.AsyncDatabase;
 import de.claasklar.database.Database;
 import de.claasklar.generation.QueryGenerator;
+import de.claasklar.latency.LatencyRecorder;
 import de.claasklar.util.TelemetryConfig;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.LongHistogram;
@@ -9,6 +11,9 @@ import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
 import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,12 +23,19 @@ public class ReadSpecificationRunnable implements Runnable {
 
   private final QueryGenerator queryGenerator;
   private final String readSpecificationName;
-  private final Database database;
+  private final AsyncDatabase database;
   private final Attributes attributes;
   private final Tracer tracer;
   private final Clock clock;
   private final LongHistogram histogram;
+  private final LatencyRecorder.Timer timer;
+  private final Long intendedStartNanos;
+  private final String spanName;
 
+  /**
+   * @param intendedStartNanos start, which the scheduler intended for the runnable, as given by
+   *     {@link System#nanoTime()}, null if the runnable was not scheduled
+   */
   public ReadSpecificationRunnable(
       QueryGenerator queryGenerator,
       String readSpecificationName,
@@ -31,39 +43,76 @@ public class ReadSpecificationRunnable implements Runnable {
       Attributes attributes,
       Tracer tracer,
       Clock clock,
-      LongHistogram histogram) {
+      LongHistogram histogram,
+      LatencyRecorder.Timer timer,
+      Long intendedStartNanos) {
     this.queryGenerator = queryGenerator;
     this.readSpecificationName = readSpecificationName;
-    this.database = database;
+    this.database = AsyncDatabase.of(database);
     this.attributes = attributes;
     this.tracer = tracer;
     this.clock = clock;
     this.histogram = histogram;
+    this.timer = timer;
+    this.intendedStartNanos = intendedStartNanos;
+    this.spanName = "run query " + readSpecificationName;
   }
 
   @Override
   public void run() {
+    runAsync().join();
+  }
+
+  /**
+   * Executes the query without blocking a thread, if the database is an {@link AsyncDatabase}.
+   * Failures are logged like in {@link #run()}.
+   *
+   * @return future, which completes once the query is executed, never completes exceptionally
+   */
+  public CompletableFuture<Void> runAsync() {
     var span = newSpan();
     try {
       var query = queryGenerator.generateQuery(readSpecificationName);
       var start = clock.instant();
-      database.executeQuery(query, span);
+      var startNanos = System.nanoTime();
+      return database
+          .executeQueryAsync(query, span)
+          .toCompletableFuture()
+          .handle((ignored, e) -> finish(span, start, startNanos, e));
+    } catch (Exception e) {
+      return CompletableFuture.completedFuture(finish(span, null, 0, e));
+    }
+  }
+
+  private Void finish(Span span, Instant start, long startNanos, Throwable e) {
+    if (e == null) {
+      if (intendedStartNanos == null) {
+        timer.record(startNanos);
+      } else {
+        timer.record(startNanos, intendedStartNanos);
+      }
       histogram.record(
           start.until(clock.instant(), TelemetryConfig.DURATION_RESOLUTION), attributes);
-    } catch (Exception e) {
+    } else {
+      var cause = e instanceof CompletionException ? e.getCause() : e;
+      if (intendedStartNanos == null) {
+        timer.recordError();
+      } else {
+        timer.recordError(intendedStartNanos);
+      }
       span.setStatus(StatusCode.ERROR);
-      span.recordException(e);
-      logger.atError().log("failed to run " + readSpecificationName + ": " + e.getMessage());
-    } finally {
-      span.end();
+      span.recordException(cause);
+      logger.atError().log("failed to run " + readSpecificationName + ": " + cause.getMessage());
     }
+    span.end();
+    return null;
   }
 
   private Span newSpan() {
-    return tracer
-        .spanBuilder("run query " + readSpecificationName)
-        .setAllAttributes(attributes)
-        .setNoParent()
-        .startSpan();
+    var span = tracer.spanBuilder(spanName).setNoParent().startSpan();
+    if (span.isRecording()) {
+      span.setAllAttributes(attributes);
+    }
+    return span;
   }
 }
@@ -6,5 +6,14 @@ import de.claasklar.util.Observer;
 public interface TopSpecification extends Specification, Observer<PhaseTopic.BenchmarkPhase> {
   Runnable runnable();
 
+  /**
+   * Creates a runnable, which also records its response time since the intended start. Waiting for
+   * earlier operations, which stalled, counts towards the response time.
+   *
+   * @param intendedStartNanos start, which the scheduler intended for the runnable, as given by
+   *     {@link System#nanoTime()}
+   */
+  Runnable runnable(long intendedStartNanos);
+
   String getName();
 }
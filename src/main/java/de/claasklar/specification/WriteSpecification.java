@@ -2,7 +2,9 @@ package de.claasklar.specification;
 
 import de.claasklar.database.Database;
 import de.claasklar.generation.DocumentGenerator;
+import de.claasklar.idStore.CollectionHandle;
 import de.claasklar.idStore.IdStore;
+import de.claasklar.latency.LatencyRecorder;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
 import de.claasklar.random.distribution.reference.ReferencesDistribution;
@@ -17,12 +19,14 @@ import java.util.concurrent.ExecutorService;
 public final class WriteSpecification implements DocumentGenerationSpecification {
 
   private final CollectionName collectionName;
+  private final CollectionHandle collectionHandle;
   private final DocumentGenerator generator;
   private final ReferencesDistribution[] referencesDistributions;
   private final Database database;
   private final IdStore idStore;
   private final ExecutorService executor;
   private final LongHistogram histogram;
+  private final LatencyRecorder.Timer timer;
   private final Attributes attributes;
   private final Tracer tracer;
   private final Clock clock;
@@ -35,15 +39,18 @@ public final class WriteSpecification implements DocumentGenerationSpecification
       IdStore idStore,
       ExecutorService executor,
       LongHistogram histogram,
+      LatencyRecorder latencyRecorder,
       Tracer tracer,
       Clock clock) {
     this.collectionName = collectionName;
+    this.collectionHandle = CollectionHandle.of(collectionName);
     this.generator = generator;
     this.referencesDistributions = referencesDistributions;
     this.database = database;
     this.idStore = idStore;
     this.executor = executor;
     this.histogram = histogram;
+    this.timer = latencyRecorder.timer(collectionName.name(), collectionName.name(), "WRITE");
     this.attributes =
         Attributes.of(
             AttributeKey.stringKey("collection"),
@@ -56,7 +63,7 @@ public final class WriteSpecification implements DocumentGenerationSpecification
 
   public DocumentGenerationSpecificationRunnable runnable(IdLong id, Span span) {
     return new WriteSpecificationRunnable(
-        collectionName,
+        collectionHandle,
         id,
         span,
         referencesDistributions,
@@ -65,6 +72,7 @@ public final class WriteSpecification implements DocumentGenerationSpecification
         idStore,
         executor,
         histogram,
+        timer,
         attributes,
         tracer,
         clock);
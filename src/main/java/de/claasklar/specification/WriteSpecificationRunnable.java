@@ -1,8 +1,11 @@
 package de.claasklar.specification;
 
+import de.claasklar.database.AsyncDatabase;
 import de.claasklar.database.Database;
 import de.claasklar.generation.DocumentGenerator;
+import de.claasklar.idStore.CollectionHandle;
 import de.claasklar.idStore.IdStore;
+import de.claasklar.latency.LatencyRecorder;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
 import de.claasklar.primitives.document.OurDocument;
@@ -20,19 +23,22 @@ import io.opentelemetry.context.Context;
 import java.time.Clock;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 
 public class WriteSpecificationRunnable implements DocumentGenerationSpecificationRunnable {
 
+  private final CollectionHandle collectionHandle;
   private final CollectionName collectionName;
   private final IdLong idLong;
   private final Span parentSpan;
   private final ReferencesDistribution[] referencesDistributions;
   private final DocumentGenerator generator;
-  private final Database database;
+  private final AsyncDatabase database;
   private final IdStore idStore;
   private final ExecutorService executor;
   private final LongHistogram histogram;
+  private final LatencyRecorder.Timer timer;
   private final Attributes attributes;
   private final Tracer tracer;
   private final Clock clock;
@@ -40,7 +46,7 @@ public class WriteSpecificationRunnable implements DocumentGenerationSpecificati
   private boolean done = false;
 
   public WriteSpecificationRunnable(
-      CollectionName collectionName,
+      CollectionHandle collectionHandle,
       IdLong idLong,
       Span parentSpan,
       ReferencesDistribution[] referencesDistributions,
@@ -49,18 +55,21 @@ public class WriteSpecificationRunnable implements DocumentGenerationSpecificati
       IdStore idStore,
       ExecutorService executor,
       LongHistogram histogram,
+      LatencyRecorder.Timer timer,
       Attributes attributes,
       Tracer tracer,
       Clock clock) {
-    this.collectionName = collectionName;
+    this.collectionHandle = collectionHandle;
+    this.collectionName = collectionHandle.collectionName();
     this.idLong = idLong;
     this.parentSpan = parentSpan;
     this.referencesDistributions = referencesDistributions;
     this.generator = generator;
-    this.database = database;
+    this.database = AsyncDatabase.of(database);
     this.idStore = idStore;
     this.executor = executor;
     this.histogram = histogram;
+    this.timer = timer;
     this.attributes = attributes;
     this.tracer = tracer;
     this.clock = clock;
@@ -68,8 +77,20 @@ public class WriteSpecificationRunnable implements DocumentGenerationSpecificati
 
   @Override
   public void run() {
+    AsyncDatabase.join(runAsync());
+  }
+
+  /**
+   * Runs the references on the executor and writes the document once they completed. Does not block
+   * a thread while waiting, if the database is an {@link AsyncDatabase}.
+   *
+   * @return future, which completes once the document is written
+   */
+  public CompletableFuture<Void> runAsync() {
     var start = clock.instant();
+    var startNanos = System.nanoTime();
     var runSpan = newSpan();
+    CompletableFuture<Void> written;
     try (var ignored = parentSpan.makeCurrent()) {
       var referencesRunnables =
           Arrays.stream(referencesDistributions)
@@ -79,24 +100,45 @@ public class WriteSpecificationRunnable implements DocumentGenerationSpecificati
           referencesRunnables.values().stream()
               .map(it -> CompletableFuture.runAsync(it, executor))
               .toArray(CompletableFuture[]::new);
-      CompletableFuture.allOf(futures).join();
-      var references =
-          referencesRunnables.entrySet().stream()
-              .map(entry -> new Pair<>(entry.getKey(), entry.getValue().getDocuments()))
-              .collect(new MapCollector<>());
-      var document = generator.generateDocument(idLong, references);
-      this.document = database.write(collectionName, document, runSpan);
-      this.done = true;
-      this.idStore.store(collectionName, idLong);
-      histogram.record(
-          start.until(clock.instant(), TelemetryConfig.DURATION_RESOLUTION), attributes);
+      written =
+          CompletableFuture.allOf(futures)
+              .thenCompose(
+                  all -> {
+                    var references =
+                        referencesRunnables.entrySet().stream()
+                            .map(
+                                entry ->
+                                    new Pair<>(entry.getKey(), entry.getValue().getDocuments()))
+                            .collect(new MapCollector<>());
+                    var document = generator.generateDocument(idLong, references);
+                    return database.writeAsync(collectionName, document, runSpan);
+                  })
+              .thenAccept(
+                  document -> {
+                    // before the store, which completes the claim and runs dependent stages
+                    timer.record(startNanos);
+                    histogram.record(
+                        start.until(clock.instant(), TelemetryConfig.DURATION_RESOLUTION),
+                        attributes);
+                    this.document = document;
+                    this.done = true;
+                    this.idStore.store(collectionHandle, idLong.id());
+                  });
     } catch (Exception e) {
-      runSpan.setStatus(StatusCode.ERROR);
-      runSpan.recordException(e);
-      throw e;
-    } finally {
-      runSpan.end();
+      written = CompletableFuture.failedFuture(e);
     }
+    return written.whenComplete(
+        (ignored, e) -> {
+          if (e != null) {
+            if (!done) {
+              idStore.release(collectionName, idLong.id());
+            }
+            timer.recordError();
+            runSpan.setStatus(StatusCode.ERROR);
+            runSpan.recordException(e instanceof CompletionException ? e.getCause() : e);
+          }
+          runSpan.end();
+        });
   }
 
   public IdLong getIdLong() {
@@ -115,10 +157,14 @@ public class WriteSpecificationRunnable implements DocumentGenerationSpecificati
   }
 
   private Span newSpan() {
-    return tracer
-        .spanBuilder("Write secondary document")
-        .setParent(Context.current().with(parentSpan))
-        .setAllAttributes(new TelemetryUtil().putId(attributes, idLong))
-        .startSpan();
+    var span =
+        tracer
+            .spanBuilder("Write secondary document")
+            .setParent(Context.current().with(parentSpan))
+            .startSpan();
+    if (span.isRecording()) {
+      span.setAllAttributes(new TelemetryUtil().putId(attributes, idLong));
+    }
+    return span;
   }
 }
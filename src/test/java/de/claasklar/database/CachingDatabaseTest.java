@@ -0,0 +1,112 @@
+package de.claasklar.database;
+
+import static io.opentelemetry.api.common.AttributeKey.stringKey;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.OurDocument;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.trace.Span;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class CachingDatabaseTest {
+
+  private final CollectionName cached = new CollectionName("cached");
+  private final CollectionName uncached = new CollectionName("uncached");
+  private final Database database = spy(new InMemoryDatabase());
+  private final LongCounter counter = mock(LongCounter.class);
+  private final CachingDatabase testSubject =
+      new CachingDatabase(database, Map.of(cached, 2L), counter);
+
+  @Test
+  public void testReadShouldServeRepeatedReadsFromCache() {
+    // given
+    var document = document(1);
+    database.write(cached, document, Span.getInvalid());
+    // when
+    testSubject.read(cached, document.getId(), Span.getInvalid());
+    var result = testSubject.read(cached, document.getId(), Set.of("_id"), Span.getInvalid());
+    // then
+    assertThat(result).contains(document);
+    verify(database, times(1)).read(eq(cached), eq(document.getId()), any());
+    verify(counter).add(1, attributes("MISS"));
+    verify(counter).add(1, attributes("HIT"));
+  }
+
+  @Test
+  public void testReadShouldNotCacheUncachedCollections() {
+    // given
+    var document = document(1);
+    database.write(uncached, document, Span.getInvalid());
+    // when
+    testSubject.read(uncached, document.getId(), Span.getInvalid());
+    testSubject.read(uncached, document.getId(), Span.getInvalid());
+    // then
+    verify(database, times(2)).read(eq(uncached), eq(document.getId()), any());
+  }
+
+  @Test
+  public void testWriteShouldInvalidateCachedDocument() {
+    // given
+    var document = document(1);
+    testSubject.write(cached, document, Span.getInvalid());
+    testSubject.read(cached, document.getId(), Span.getInvalid());
+    var updated = new OurDocument(document.getId(), Map.of("value", new IntValue(2)));
+    // when
+    testSubject.write(cached, updated, Span.getInvalid());
+    var result = testSubject.read(cached, document.getId(), Span.getInvalid());
+    // then
+    assertThat(result).contains(updated);
+  }
+
+  @Test
+  public void testReadManyShouldOnlyReadMissingDocuments() {
+    // given
+    var first = document(1);
+    var second = document(2);
+    database.write(cached, first, Span.getInvalid());
+    database.write(cached, second, Span.getInvalid());
+    testSubject.read(cached, first.getId(), Span.getInvalid());
+    // when
+    var result =
+        testSubject.readMany(
+            cached, List.of(first.getId(), second.getId()), Set.of("_id"), Span.getInvalid());
+    // then
+    assertThat(result).isEqualTo(Map.of(first.getId(), first, second.getId(), second));
+    verify(database).readMany(eq(cached), eq(List.of(second.getId())), eq(null), any());
+  }
+
+  @Test
+  public void testReadShouldCountEvictions() {
+    // given
+    for (int i = 0; i < 10; i++) {
+      database.write(cached, document(i), Span.getInvalid());
+    }
+    // when
+    for (int i = 0; i < 10; i++) {
+      testSubject.read(cached, new IdLong(i).toId(), Span.getInvalid());
+    }
+    // then
+    verify(counter, times(8)).add(1, attributes("EVICTION"));
+  }
+
+  private OurDocument document(long id) {
+    return new OurDocument(new IdLong(id).toId(), Map.of("value", new IntValue(1)));
+  }
+
+  private Attributes attributes(String event) {
+    return Attributes.of(stringKey("collection"), cached.toString(), stringKey("event"), event);
+  }
+}
@@ -0,0 +1,278 @@
+package de.claasklar.database;
+
+import static de.claasklar.primitives.document.ArrayValue.array;
+import static de.claasklar.primitives.document.IntValue.integer;
+import static de.claasklar.primitives.document.NestedObjectValue.object;
+import static de.claasklar.primitives.document.StringValue.string;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.claasklar.database.mongodb.codec.BsonDocumentBuilderFactory;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.Id;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.Value;
+import de.claasklar.primitives.index.IndexConfiguration;
+import de.claasklar.primitives.query.Aggregation;
+import de.claasklar.primitives.query.AggregationOptions;
+import de.claasklar.primitives.query.Find;
+import de.claasklar.primitives.query.FindOptions;
+import io.opentelemetry.api.trace.Span;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryDatabaseTest {
+
+  private final CollectionName orders = new CollectionName("orders");
+  private final CollectionName products = new CollectionName("products");
+  private final InMemoryDatabase testSubject = new InMemoryDatabase();
+
+  @Test
+  public void testFindShouldFilterSortLimitAndProject() {
+    // given
+    for (int i = 0; i < 10; i++) {
+      testSubject.write(orders, order(i, i % 3, i * 10, List.of()), Span.getInvalid());
+    }
+    var find =
+        new Find(
+            orders,
+            "find",
+            FindOptions.find()
+                .filter(object("amount", object("$gte", integer(20), "$lt", integer(80))))
+                .sort(object("amount", integer(-1)))
+                .skip(1)
+                .limit(3)
+                .projection(object("amount", integer(1))));
+    // when
+    var result = testSubject.query(find);
+    // then
+    assertThat(result)
+        .containsExactly(
+            object("_id", new IdLong(6).toId(), "amount", integer(60)),
+            object("_id", new IdLong(5).toId(), "amount", integer(50)),
+            object("_id", new IdLong(4).toId(), "amount", integer(40)));
+  }
+
+  @Test
+  public void testFindShouldMatchArrayElements() {
+    // given
+    testSubject.write(orders, order(1, 1, 10, List.of(1L, 2L)), Span.getInvalid());
+    testSubject.write(orders, order(2, 1, 10, List.of(3L)), Span.getInvalid());
+    var find =
+        new Find(
+            orders,
+            "find",
+            FindOptions.find()
+                .filter(object("product_ids", object("$in", array(new IdLong(2).toId())))));
+    // when
+    var result = testSubject.query(find);
+    // then
+    assertThat(result).extracting(it -> ((OurDocument) it).getId()).containsExactly(id(1));
+  }
+
+  @Test
+  public void testAggregateShouldLookupUnwindAndGroup() {
+    // given
+    testSubject.write(products, product(1, 5), Span.getInvalid());
+    testSubject.write(products, product(2, 7), Span.getInvalid());
+    testSubject.write(orders, order(1, 1, 0, List.of(1L, 2L)), Span.getInvalid());
+    testSubject.write(orders, order(2, 1, 0, List.of(2L)), Span.getInvalid());
+    testSubject.write(orders, order(3, 2, 0, List.of(1L)), Span.getInvalid());
+    var aggregation =
+        new Aggregation(
+            "revenue",
+            AggregationOptions.aggregate("orders")
+                .pipeline(
+                    List.of(
+                        object(
+                            "$match",
+                            object(
+                                "$expr",
+                                object("$eq", array(string("$customer"), string("$$customer"))))),
+                        object(
+                            "$lookup",
+                            object(
+                                Map.of(
+                                    "from", string("products"),
+                                    "localField", string("product_ids"),
+                                    "foreignField", string("_id"),
+                                    "as", string("products")))),
+                        object("$unwind", string("$products")),
+                        object(
+                            "$group",
+                            object(
+                                "_id",
+                                string("$customer"),
+                                "revenue",
+                                object("$sum", string("$products.price"))))))
+                .variables(object("customer", integer(1))));
+    // when
+    var result = testSubject.query(aggregation);
+    // then
+    assertThat(result).containsExactly(object("_id", integer(1), "revenue", integer(19)));
+  }
+
+  @Test
+  public void testAggregateShouldProjectAndSort() {
+    // given
+    testSubject.write(orders, order(1, 1, 30, List.of(1L)), Span.getInvalid());
+    testSubject.write(orders, order(2, 2, 10, List.of()), Span.getInvalid());
+    var aggregation =
+        new Aggregation(
+            "sorted",
+            AggregationOptions.aggregate("orders")
+                .pipeline(
+                    List.of(
+                        object(
+                            "$project",
+                            object(
+                                "_id",
+                                integer(0),
+                                "double",
+                                object("$multiply", array(string("$amount"), integer(2))))),
+                        object("$sort", object("double", integer(1))))));
+    // when
+    var result = testSubject.query(aggregation);
+    // then
+    assertThat(result)
+        .containsExactly(object("double", integer(20)), object("double", integer(60)));
+  }
+
+  @Test
+  public void testIndexShouldFollowOverwrittenDocuments() {
+    // given
+    testSubject.createIndex(
+        IndexConfiguration.of(orders).keys(object("customer", integer(1))), Span.getInvalid());
+    testSubject.write(orders, order(1, 1, 10, List.of()), Span.getInvalid());
+    testSubject.write(orders, order(1, 2, 10, List.of()), Span.getInvalid());
+    // when
+    var first =
+        testSubject.query(
+            new Find(orders, "find", FindOptions.find().filter(object("customer", integer(1)))));
+    var second =
+        testSubject.query(
+            new Find(
+                orders,
+                "find",
+                FindOptions.find().filter(object("customer", object("$gte", integer(2))))));
+    // then
+    assertThat(first).isEmpty();
+    assertThat(second).extracting(it -> ((OurDocument) it).getId()).containsExactly(id(1));
+  }
+
+  @Test
+  public void testUniqueIndexShouldRejectDuplicateKeys() {
+    // given
+    testSubject.write(orders, order(1, 1, 10, List.of()), Span.getInvalid());
+    testSubject.createIndex(
+        IndexConfiguration.of(orders).keys(object("customer", integer(1))).unique(true),
+        Span.getInvalid());
+    // when then
+    assertThatThrownBy(
+            () -> testSubject.write(orders, order(2, 1, 10, List.of()), Span.getInvalid()))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testRejectedWriteShouldLeaveAllIndexesUnchanged() {
+    // given
+    testSubject.createIndex(
+        IndexConfiguration.of(orders).keys(object("customer", integer(1))), Span.getInvalid());
+    testSubject.createIndex(
+        IndexConfiguration.of(orders).keys(object("amount", integer(1))).unique(true),
+        Span.getInvalid());
+    testSubject.write(orders, order(1, 1, 10, List.of()), Span.getInvalid());
+    testSubject.write(orders, order(2, 2, 20, List.of()), Span.getInvalid());
+    // when
+    assertThatThrownBy(
+            () -> testSubject.write(orders, order(2, 3, 10, List.of()), Span.getInvalid()))
+        .isInstanceOf(IllegalArgumentException.class);
+    // then
+    var result =
+        testSubject.query(
+            new Find(orders, "find", FindOptions.find().filter(object("customer", integer(2)))));
+    assertThat(result).extracting(it -> ((OurDocument) it).getId()).containsExactly(id(2));
+  }
+
+  @Test
+  public void testConcurrentWritesShouldNotDuplicateUniqueKeys() throws Exception {
+    // given
+    testSubject.createIndex(
+        IndexConfiguration.of(orders).keys(object("customer", integer(1))).unique(true),
+        Span.getInvalid());
+    var written = new AtomicInteger();
+    var threads = new ArrayList<Thread>();
+    for (int i = 0; i < 16; i++) {
+      var id = i;
+      threads.add(
+          Thread.ofPlatform()
+              .unstarted(
+                  () -> {
+                    try {
+                      testSubject.write(orders, order(id, 1, id, List.of()), Span.getInvalid());
+                      written.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                      // duplicate key
+                    }
+                  }));
+    }
+    // when
+    threads.forEach(Thread::start);
+    for (var thread : threads) {
+      thread.join();
+    }
+    // then
+    assertThat(written).hasValue(1);
+    assertThat(
+            testSubject.query(
+                new Find(
+                    orders, "find", FindOptions.find().filter(object("customer", integer(1))))))
+        .hasSize(1);
+  }
+
+  @Test
+  public void testReadShouldDecodeEncodedDocuments() {
+    // given
+    var builder = new BsonDocumentBuilderFactory(Set.of("customer")).builder(id(1));
+    builder.target().put("customer", integer(1));
+    builder.target().put("amount", integer(10));
+    var document = builder.build();
+    testSubject.write(orders, document, Span.getInvalid());
+    // when
+    var result = testSubject.read(orders, id(1), Span.getInvalid());
+    // then
+    assertThat(document.get("amount")).isNull();
+    assertThat(result)
+        .hasValueSatisfying(
+            it -> {
+              assertThat(it.getId()).isEqualTo(id(1));
+              assertThat(it.get("customer")).isEqualTo(integer(1));
+              assertThat(it.get("amount")).isEqualTo(integer(10));
+            });
+  }
+
+  private OurDocument order(long id, int customer, int amount, List<Long> productIds) {
+    var values = new HashMap<String, Value>();
+    values.put("customer", new IntValue(customer));
+    values.put("amount", new IntValue(amount));
+    values.put(
+        "product_ids", new ArrayValue(productIds.stream().map(it -> (Value) id(it)).toList()));
+    return new OurDocument(id(id), values);
+  }
+
+  private OurDocument product(long id, int price) {
+    return new OurDocument(id(id), new HashMap<>(Map.of("price", new IntValue(price))));
+  }
+
+  private Id id(long id) {
+    return new IdLong(id).toId();
+  }
+}
@@ -0,0 +1,104 @@
+package de.claasklar.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.random.distribution.ConstantDistribution;
+import io.opentelemetry.api.trace.Span;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+
+public class LatencyDatabaseTest {
+
+  private final CollectionName slow = new CollectionName("slow");
+  private final CollectionName fast = new CollectionName("fast");
+  private final long serviceTime = Duration.ofMillis(50).toNanos();
+
+  @Test
+  public void testReadShouldTakeConfiguredServiceTime() {
+    // given
+    var testSubject =
+        new LatencyDatabase(
+            new InMemoryDatabase(),
+            Map.of(LatencyDatabase.Operation.READ, new ConstantDistribution(0)),
+            Map.of(
+                LatencyDatabase.Operation.READ,
+                Map.of(slow, new ConstantDistribution(serviceTime))),
+            0,
+            true);
+    var document = document();
+    testSubject.write(slow, document, Span.getInvalid());
+    // when
+    var start = System.nanoTime();
+    var result = testSubject.read(slow, document.getId(), Span.getInvalid());
+    var slowDuration = System.nanoTime() - start;
+    start = System.nanoTime();
+    testSubject.read(fast, document.getId(), Span.getInvalid());
+    var fastDuration = System.nanoTime() - start;
+    // then
+    assertThat(result).contains(document);
+    assertThat(slowDuration).isGreaterThanOrEqualTo(serviceTime);
+    assertThat(fastDuration).isLessThan(serviceTime);
+  }
+
+  @Test
+  public void testWriteShouldQueueBeyondConcurrencyLimit() {
+    // given
+    var testSubject =
+        new LatencyDatabase(
+            new InMemoryDatabase(),
+            Map.of(LatencyDatabase.Operation.WRITE, new ConstantDistribution(serviceTime)),
+            Map.of(),
+            1,
+            true);
+    // when
+    var start = System.nanoTime();
+    var first =
+        CompletableFuture.runAsync(() -> testSubject.write(slow, document(), Span.getInvalid()));
+    var second =
+        CompletableFuture.runAsync(() -> testSubject.write(slow, document(), Span.getInvalid()));
+    CompletableFuture.allOf(first, second).join();
+    // then
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(2 * serviceTime);
+  }
+
+  @Test
+  public void testWriteShouldRejectBeyondConcurrencyLimitWithoutQueueing()
+      throws InterruptedException {
+    // given
+    var entered = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var database = mock(Database.class);
+    when(database.write(any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              entered.countDown();
+              release.await();
+              return invocation.getArgument(1);
+            });
+    var testSubject = new LatencyDatabase(database, Map.of(), Map.of(), 1, false);
+    var running =
+        CompletableFuture.runAsync(() -> testSubject.write(slow, document(), Span.getInvalid()));
+    entered.await();
+    // when then
+    assertThatThrownBy(() -> testSubject.write(slow, document(), Span.getInvalid()))
+        .isInstanceOf(RejectedExecutionException.class);
+    release.countDown();
+    running.join();
+  }
+
+  private OurDocument document() {
+    return new OurDocument(new IdLong(1).toId(), new HashMap<>());
+  }
+}
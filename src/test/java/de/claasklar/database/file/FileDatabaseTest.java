@@ -0,0 +1,169 @@
+package de.claasklar.database.file;
+
+import static de.claasklar.primitives.document.IntValue.integer;
+import static de.claasklar.primitives.document.NestedObjectValue.object;
+import static io.opentelemetry.api.common.AttributeKey.stringKey;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.StringValue;
+import de.claasklar.primitives.document.Value;
+import de.claasklar.primitives.index.IndexConfiguration;
+import de.claasklar.primitives.query.Find;
+import de.claasklar.primitives.query.FindOptions;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileDatabaseTest {
+
+  private final CollectionName collectionName = new CollectionName("test");
+  @TempDir private Path directory;
+
+  @Test
+  public void testReadShouldFindDocumentsAfterReopening() throws Exception {
+    // given
+    var first = document(1, 10);
+    var second = document(2, 20);
+    try (var testSubject = new FileDatabase(directory, FsyncPolicy.ALWAYS, Duration.ZERO)) {
+      testSubject.write(collectionName, first, Span.getInvalid());
+      testSubject.write(collectionName, second, Span.getInvalid());
+      testSubject.write(collectionName, document(1, 11), Span.getInvalid());
+    }
+    // when
+    try (var testSubject =
+        new FileDatabase(directory, FsyncPolicy.INTERVAL, Duration.ofMillis(10))) {
+      var ids = new ArrayList<Long>();
+      var scanned = testSubject.scanIds(collectionName, 1, ids::add, Span.getInvalid());
+      // then
+      assertThat(testSubject.read(collectionName, first.getId(), Span.getInvalid()))
+          .contains(document(1, 11));
+      assertThat(testSubject.read(collectionName, second.getId(), Span.getInvalid()))
+          .contains(second);
+      assertThat(scanned).isEqualTo(2);
+      assertThat(ids).containsExactlyInAnyOrder(1L, 2L);
+    }
+  }
+
+  @Test
+  public void testOpenShouldTruncateTornRecord() throws Exception {
+    // given
+    var document = document(1, 10);
+    try (var testSubject = new FileDatabase(directory, FsyncPolicy.NEVER, Duration.ZERO)) {
+      testSubject.write(collectionName, document, Span.getInvalid());
+    }
+    var log = directory.resolve("test.log");
+    var validSize = Files.size(log);
+    Files.write(log, new byte[] {100, 0, 0, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+    // when
+    try (var testSubject = new FileDatabase(directory, FsyncPolicy.NEVER, Duration.ZERO)) {
+      // then
+      assertThat(Files.size(log)).isEqualTo(validSize);
+      assertThat(testSubject.read(collectionName, document.getId(), Span.getInvalid()))
+          .contains(document);
+    }
+  }
+
+  @Test
+  public void testOpenShouldSkipHoleInTheMiddleOfTheLog() throws Exception {
+    // given
+    var first = document(1, 10);
+    var torn = document(2, 20);
+    var third = document(3, 30);
+    try (var testSubject = new FileDatabase(directory, FsyncPolicy.NEVER, Duration.ZERO)) {
+      testSubject.write(collectionName, first, Span.getInvalid());
+      testSubject.write(collectionName, torn, Span.getInvalid());
+      testSubject.write(collectionName, third, Span.getInvalid());
+    }
+    var log = directory.resolve("test.log");
+    var size = Files.size(log);
+    var recordSize = size / 3;
+    try (var channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate((int) recordSize - 3), recordSize);
+    }
+    // when
+    try (var testSubject = new FileDatabase(directory, FsyncPolicy.NEVER, Duration.ZERO)) {
+      var fourth = document(4, 40);
+      testSubject.write(collectionName, fourth, Span.getInvalid());
+      // then
+      assertThat(testSubject.read(collectionName, first.getId(), Span.getInvalid()))
+          .contains(first);
+      assertThat(testSubject.read(collectionName, torn.getId(), Span.getInvalid())).isEmpty();
+      assertThat(testSubject.read(collectionName, third.getId(), Span.getInvalid()))
+          .contains(third);
+      assertThat(testSubject.read(collectionName, fourth.getId(), Span.getInvalid()))
+          .contains(fourth);
+    }
+    try (var testSubject = new FileDatabase(directory, FsyncPolicy.NEVER, Duration.ZERO)) {
+      var ids = new ArrayList<Long>();
+      testSubject.scanIds(collectionName, 1, ids::add, Span.getInvalid());
+      assertThat(ids).containsExactlyInAnyOrder(1L, 3L, 4L);
+    }
+  }
+
+  @Test
+  public void testQueryShouldUseIndexedField() throws Exception {
+    // given
+    try (var testSubject = new FileDatabase(directory, FsyncPolicy.NEVER, Duration.ZERO)) {
+      testSubject.createIndex(
+          IndexConfiguration.of(collectionName).keys(object("value", integer(1))),
+          Span.getInvalid());
+      for (int i = 0; i < 10; i++) {
+        testSubject.write(collectionName, document(i, i % 2), Span.getInvalid());
+      }
+      var find =
+          new Find(collectionName, "find", FindOptions.find().filter(object("value", integer(1))));
+      var span = mock(Span.class);
+      // when
+      testSubject.executeQuery(find, span);
+      // then
+      verify(span).addEvent("query executed", Attributes.of(stringKey("count"), "5"));
+    }
+  }
+
+  @Test
+  public void testUniqueIndexShouldRejectDuplicateKeysAfterReopening() throws Exception {
+    // given
+    var document = document(1, 10);
+    try (var testSubject = new FileDatabase(directory, FsyncPolicy.NEVER, Duration.ZERO)) {
+      testSubject.createIndex(
+          IndexConfiguration.of(collectionName).keys(object("value", integer(1))).unique(true),
+          Span.getInvalid());
+      testSubject.write(collectionName, document, Span.getInvalid());
+    }
+    // when
+    try (var testSubject = new FileDatabase(directory, FsyncPolicy.NEVER, Duration.ZERO)) {
+      // then
+      assertThatThrownBy(
+              () -> testSubject.write(collectionName, document(2, 10), Span.getInvalid()))
+          .isInstanceOf(IllegalArgumentException.class);
+      assertThat(testSubject.read(collectionName, document.getId(), Span.getInvalid()))
+          .contains(document);
+    }
+  }
+
+  private OurDocument document(long id, int value) {
+    var values = new HashMap<String, Value>();
+    values.put("value", new IntValue(value));
+    values.put(
+        "nested", new NestedObjectValue(new HashMap<>(Map.of("name", new StringValue("a")))));
+    return new OurDocument(new IdLong(id).toId(), values);
+  }
+}
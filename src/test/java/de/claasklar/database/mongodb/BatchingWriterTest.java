@@ -0,0 +1,131 @@
+package de.claasklar.database.mongodb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import de.claasklar.database.mongodb.codec.OurDocumentCodecRegistry;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.OurDocument;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class BatchingWriterTest {
+
+  private final CollectionName collectionName = new CollectionName("test");
+
+  @SuppressWarnings("unchecked")
+  private final MongoCollection<RawBsonDocument> collection = mock(MongoCollection.class);
+
+  @Test
+  public void testWriteShouldFlushFullBatch() {
+    // given
+    var testSubject = testSubject(2, Long.MAX_VALUE, Duration.ofHours(1));
+    // when
+    var first = testSubject.write(collectionName, document(1));
+    var second = testSubject.write(collectionName, document(2));
+    // then
+    assertThat(first).isCompleted();
+    assertThat(second).isCompleted();
+    var documents = captureInsertedDocuments(1);
+    assertThat(documents.get(0)).hasSize(2);
+    assertThat(documents.get(0).get(1).getInt32("value").getValue()).isEqualTo(2);
+  }
+
+  @Test
+  public void testWriteShouldFlushWhenMaxBytesReached() {
+    // given
+    var testSubject = testSubject(100, 1, Duration.ofHours(1));
+    // when
+    var first = testSubject.write(collectionName, document(1));
+    // then
+    assertThat(first).isCompleted();
+    assertThat(captureInsertedDocuments(1).get(0)).hasSize(1);
+  }
+
+  @Test
+  public void testWriteShouldFlushAfterLinger() throws Exception {
+    // given
+    var testSubject = testSubject(100, Long.MAX_VALUE, Duration.ofMillis(10));
+    // when
+    testSubject.write(collectionName, document(1)).get(5, TimeUnit.SECONDS);
+    // then
+    assertThat(captureInsertedDocuments(1).get(0)).hasSize(1);
+  }
+
+  @Test
+  public void testWriteShouldOnlyFailRejectedDocuments() {
+    // given
+    doThrow(
+            new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1)),
+                null,
+                new ServerAddress(),
+                Set.of()))
+        .when(collection)
+        .insertMany(anyList(), any(InsertManyOptions.class));
+    var testSubject = testSubject(2, Long.MAX_VALUE, Duration.ofHours(1));
+    // when
+    var first = testSubject.write(collectionName, document(1));
+    var second = testSubject.write(collectionName, document(2));
+    // then
+    assertThat(first).isCompleted();
+    assertThat(second)
+        .isCompletedExceptionally()
+        .failsWithin(Duration.ZERO)
+        .withThrowableOfType(Exception.class)
+        .withCauseInstanceOf(MongoWriteException.class);
+  }
+
+  @Test
+  public void testCloseShouldFlushRemainingDocuments() {
+    // given
+    var testSubject = testSubject(100, Long.MAX_VALUE, Duration.ofHours(1));
+    var first = testSubject.write(collectionName, document(1));
+    // when
+    testSubject.close();
+    // then
+    assertThat(first).isCompleted();
+    assertThat(captureInsertedDocuments(1).get(0)).hasSize(1);
+  }
+
+  private BatchingWriter testSubject(int maxCount, long maxBytes, Duration linger) {
+    return new BatchingWriter(
+        Map.of(collectionName, collection),
+        new OurDocumentCodecRegistry(),
+        maxCount,
+        maxBytes,
+        linger);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<List<RawBsonDocument>> captureInsertedDocuments(int times) {
+    ArgumentCaptor<List<RawBsonDocument>> captor = ArgumentCaptor.forClass(List.class);
+    verify(collection, times(times)).insertMany(captor.capture(), any(InsertManyOptions.class));
+    return captor.getAllValues();
+  }
+
+  private OurDocument document(int value) {
+    return new OurDocument(
+        new IdLong(value).toId(), new HashMap<>(Map.of("value", new IntValue(value))));
+  }
+}
@@ -0,0 +1,78 @@
+package de.claasklar.database.mongodb;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+public class PublisherFuturesTest {
+
+  @Test
+  public void testFirstShouldReturnFirstElement() {
+    // given
+    var publisher = publisherOf(List.of("a", "b"));
+    // when
+    var result = PublisherFutures.first(publisher);
+    // then
+    assertThat(result).isCompletedWithValueMatching(it -> it.orElseThrow().equals("a"));
+  }
+
+  @Test
+  public void testFirstShouldReturnEmptyIfNothingWasPublished() {
+    // given
+    var publisher = publisherOf(List.<String>of());
+    // when
+    var result = PublisherFutures.first(publisher);
+    // then
+    assertThat(result).isCompletedWithValueMatching(it -> it.isEmpty());
+  }
+
+  @Test
+  public void testCountShouldCountElements() {
+    // given
+    var publisher = publisherOf(List.of(1, 2, 3));
+    // when
+    var result = PublisherFutures.count(publisher);
+    // then
+    assertThat(result).isCompletedWithValue(3L);
+  }
+
+  @Test
+  public void testCountShouldFailOnError() {
+    // given
+    Publisher<Integer> publisher =
+        subscriber -> {
+          subscriber.onSubscribe(mock(Subscription.class));
+          subscriber.onError(new IllegalStateException("failed"));
+        };
+    // when
+    var result = PublisherFutures.count(publisher);
+    // then
+    assertThat(result)
+        .failsWithin(Duration.ZERO)
+        .withThrowableOfType(Exception.class)
+        .withCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void testCollectShouldReturnAllElements() {
+    // given
+    var publisher = publisherOf(List.of(1, 2, 3));
+    // when
+    var result = PublisherFutures.collect(publisher);
+    // then
+    assertThat(result).isCompletedWithValue(List.of(1, 2, 3));
+  }
+
+  private <T> Publisher<T> publisherOf(List<T> elements) {
+    return subscriber -> {
+      subscriber.onSubscribe(mock(Subscription.class));
+      elements.forEach(subscriber::onNext);
+      subscriber.onComplete();
+    };
+  }
+}
@@ -0,0 +1,130 @@
+package de.claasklar.database.mongodb.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.claasklar.generation.ContextlessDocumentGeneratorBuilder;
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.BoolValue;
+import de.claasklar.primitives.document.ByteValue;
+import de.claasklar.primitives.document.DoubleValue;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.LongValue;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.StringValue;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocumentWrapper;
+import org.bson.codecs.DecoderContext;
+import org.junit.jupiter.api.Test;
+
+public class BsonDocumentBuilderFactoryTest {
+
+  private final OurDocumentCodecRegistry codecRegistry = new OurDocumentCodecRegistry();
+
+  @Test
+  public void testBuildShouldEncodeAllFields() {
+    // given
+    var expected = builder().build().generateDocument(new IdLong(42));
+    var testSubject =
+        builder().documentBuilderFactory(new BsonDocumentBuilderFactory(Set.of())).build();
+    // when
+    var result = testSubject.generateDocument(new IdLong(42));
+    // then
+    assertThat(result.isEncoded()).isTrue();
+    assertThat(decode(result)).isEqualTo(expected);
+  }
+
+  @Test
+  public void testBuildShouldOnlyRetainConfiguredFields() {
+    // given
+    var testSubject =
+        builder().documentBuilderFactory(new BsonDocumentBuilderFactory(Set.of("name"))).build();
+    // when
+    var result = testSubject.generateDocument(new IdLong(42));
+    // then
+    assertThat(result.get("name")).isEqualTo(new StringValue("test"));
+    assertThat(result.get("count")).isNull();
+    assertThat(result.get("_id")).isEqualTo(new IdLong(42).toId());
+    assertThatThrownBy(() -> result.put("other", new IntValue(1)))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void testEncodeShouldCopyEncodedDocument() {
+    // given
+    var document =
+        builder()
+            .documentBuilderFactory(new BsonDocumentBuilderFactory(Set.of()))
+            .build()
+            .generateDocument(new IdLong(42));
+    // when
+    var result = BsonDocumentWrapper.asBsonDocument(document, codecRegistry);
+    // then
+    assertThat(result.getString("name").getValue()).isEqualTo("test");
+    assertThat(result.getInt32("count").getValue()).isEqualTo(3);
+    assertThat(result.getDocument("nested").getArray("list")).hasSize(2);
+  }
+
+  @Test
+  public void testBuilderShouldReuseBuffers() {
+    // given
+    var testSubject =
+        builder().documentBuilderFactory(new BsonDocumentBuilderFactory(Set.of())).build();
+    var first = testSubject.generateDocument(new IdLong(1));
+    // when
+    var second = testSubject.generateDocument(new IdLong(2));
+    // then
+    assertThat(decode(first).getId()).isEqualTo(new IdLong(1).toId());
+    assertThat(decode(second).getId()).isEqualTo(new IdLong(2).toId());
+  }
+
+  @Test
+  public void testWithDocumentBuilderFactoryShouldEncodeSameFields() {
+    // given
+    var generator = builder().build();
+    var expected = generator.generateDocument(new IdLong(42));
+    // when
+    var result =
+        generator
+            .withDocumentBuilderFactory(new BsonDocumentBuilderFactory(Set.of()))
+            .generateDocument(new IdLong(42));
+    // then
+    assertThat(expected.isEncoded()).isFalse();
+    assertThat(result.isEncoded()).isTrue();
+    assertThat(decode(result)).isEqualTo(expected);
+  }
+
+  private ContextlessDocumentGeneratorBuilder builder() {
+    return ContextlessDocumentGeneratorBuilder.builder()
+        .field("name", () -> new StringValue("test"))
+        .field("count", () -> new IntValue(3))
+        .field("long", () -> new LongValue(1L << 40))
+        .field("double", () -> new DoubleValue(0.5))
+        .field("bool", () -> new BoolValue(true))
+        .field("bytes", () -> new ByteValue(new byte[] {1, 2, 3}))
+        .field("null", () -> new NullValue())
+        .field("reference", () -> new IdLong(7).toId())
+        .field(
+            "nested",
+            () ->
+                new NestedObjectValue(
+                    new HashMap<>(
+                        Map.of(
+                            "list",
+                            new ArrayValue(List.of(new IntValue(1), new StringValue("a")))))));
+  }
+
+  private OurDocument decode(OurDocument document) {
+    try (var reader = new BsonBinaryReader(ByteBuffer.wrap(document.getEncoded()))) {
+      return codecRegistry.get(OurDocument.class).decode(reader, DecoderContext.builder().build());
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package de.claasklar.database.mongodb.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.claasklar.primitives.document.ArrayValue;
+import de.claasklar.primitives.document.BoolValue;
+import de.claasklar.primitives.document.ByteValue;
+import de.claasklar.primitives.document.DoubleValue;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.IntValue;
+import de.claasklar.primitives.document.LongValue;
+import de.claasklar.primitives.document.NestedObjectValue;
+import de.claasklar.primitives.document.NullValue;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.primitives.document.StringValue;
+import de.claasklar.primitives.document.Value;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.Test;
+
+public class LazyValueMapTest {
+
+  private final OurDocumentCodecRegistry codecRegistry = new OurDocumentCodecRegistry();
+
+  @Test
+  public void testOurDocumentShouldEqualDecodedDocument() {
+    // given
+    var document = document();
+    var raw = new RawBsonDocument(document, codecRegistry.get(OurDocument.class));
+    // when
+    var result = LazyValueMap.ourDocument(raw);
+    // then
+    assertThat(result).isEqualTo(document);
+    assertThat(result.getValues()).doesNotContainKey("_id");
+  }
+
+  @Test
+  public void testGetShouldDecodeSelectedPath() {
+    // given
+    var raw = new RawBsonDocument(document(), codecRegistry.get(OurDocument.class));
+    // when
+    var result = LazyValueMap.ourDocument(raw);
+    // then
+    assertThat(result.get("_id")).isEqualTo(new IdLong(42).toId());
+    assertThat(result.get("count")).isEqualTo(new IntValue(3));
+    assertThat(result.get("missing")).isNull();
+    var nested = (NestedObjectValue) result.get("nested");
+    assertThat(nested.get("list"))
+        .isEqualTo(new ArrayValue(List.of(new IntValue(1), new StringValue("a"))));
+  }
+
+  @Test
+  public void testPutShouldThrow() {
+    // given
+    var raw = new RawBsonDocument(document(), codecRegistry.get(OurDocument.class));
+    var testSubject = LazyValueMap.ourDocument(raw);
+    // when then
+    assertThatThrownBy(() -> testSubject.put("other", new IntValue(1)))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void testOurDocumentShouldThrowWithoutObjectId() {
+    // given
+    var raw = RawBsonDocument.parse(new BsonDocument("_id", new BsonInt32(1)).toJson());
+    // when then
+    assertThatThrownBy(() -> LazyValueMap.ourDocument(raw))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private OurDocument document() {
+    var values = new HashMap<String, Value>();
+    values.put("name", new StringValue("test"));
+    values.put("count", new IntValue(3));
+    values.put("long", new LongValue(1L << 40));
+    values.put("double", new DoubleValue(0.5));
+    values.put("bool", new BoolValue(true));
+    values.put("bytes", new ByteValue(new byte[] {1, 2, 3}));
+    values.put("null", new NullValue());
+    values.put("reference", new IdLong(7).toId());
+    values.put(
+        "nested",
+        new NestedObjectValue(
+            new HashMap<>(
+                Map.of("list", new ArrayValue(List.of(new IntValue(1), new StringValue("a")))))));
+    return new OurDocument(new IdLong(42).toId(), values);
+  }
+}
@@ -9,6 +9,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 public class ContextDocumentGeneratorTest {
@@ -57,6 +58,40 @@ public class ContextDocumentGeneratorTest {
     assertThat(document.getValues().get("constant")).isEqualTo(new DoubleValue(5));
   }
 
+  @Test
+  public void testReferencedFieldsShouldContainPathsOfAllPipes() {
+    // given
+    var generator =
+        ContextDocumentGeneratorBuilder.builder()
+            .fieldFromPipe(
+                "first",
+                f ->
+                    f.selectCollection(
+                        new CollectionName("test"), p -> p.selectByPath("$.[0]._id").toId()))
+            .fieldFromPipe(
+                "nested",
+                f ->
+                    f.selectCollection(
+                        new CollectionName("test"), p -> p.selectByPath("$.[*].a.b").toArray()))
+            .fieldFromPipe(
+                "outer",
+                f ->
+                    f.selectCollection(
+                        new CollectionName("test"), p -> p.selectByPath("$.[*].a").toArray()))
+            .fieldFromPipe(
+                "whole",
+                f ->
+                    f.selectCollection(
+                        new CollectionName("other"), p -> p.selectByPath("$.[0]").toObject()))
+            .build();
+    // when
+    var test = generator.referencedFields(new CollectionName("test"));
+    var other = generator.referencedFields(new CollectionName("other"));
+    // then
+    assertThat(test).contains(Set.of("_id", "a"));
+    assertThat(other).isEmpty();
+  }
+
   private IdLong randomId() {
     return new IdLong(new Random().nextLong(0, Long.MAX_VALUE));
   }
@@ -8,6 +8,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 public class PipesTest {
@@ -68,6 +69,47 @@ public class PipesTest {
                 Map.of("_id", documents[0].getId(), "boolean", new BoolValue(true))));
   }
 
+  @Test
+  public void testGetFieldPathsShouldReturnSelectedPath() {
+    // given
+    var pipeBuilder =
+        Pipes.selectCollection(new CollectionName("test")).selectByPath("$.[0,1].nested.field");
+    // when
+    var result = pipeBuilder.getFieldPaths();
+    // then
+    assertThat(result).contains(Set.of("nested.field"));
+  }
+
+  @Test
+  public void testGetFieldPathsShouldBeEmptyForWholeDocuments() {
+    // given
+    var pipeBuilder = Pipes.selectCollection(new CollectionName("test")).selectByPath("$.[0]");
+    // when
+    var result = pipeBuilder.getFieldPaths();
+    // then
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  public void testGetFieldPathsShouldBeEmptyWithoutSelectedPath() {
+    // given
+    var pipeBuilder = Pipes.selectCollection(new CollectionName("test"));
+    // when
+    var result = pipeBuilder.getFieldPaths();
+    // then
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  public void testGetFieldPathsShouldStayEmptyAfterWholeDocuments() {
+    // given
+    var pipeBuilder = Pipes.selectCollection(new CollectionName("test")).selectByPath("$.[0]");
+    // when
+    pipeBuilder.selectByPath("$.[0]._id");
+    // then
+    assertThat(pipeBuilder.getFieldPaths()).isEmpty();
+  }
+
   private Id randomId() {
     var bytes = new byte[12];
     new Random().nextBytes(bytes);
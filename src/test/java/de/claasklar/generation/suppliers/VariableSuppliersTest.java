@@ -3,11 +3,14 @@ package de.claasklar.generation.suppliers;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 
+import de.claasklar.idStore.ConcurrentInMemoryIdStore;
 import de.claasklar.idStore.IdStore;
 import de.claasklar.idStore.InMemoryIdStore;
 import de.claasklar.primitives.CollectionName;
 import de.claasklar.primitives.document.IdLong;
 import de.claasklar.random.distribution.id.IdDistributionFactory;
+import java.util.HashMap;
+import java.util.HashSet;
 import org.junit.jupiter.api.Test;
 
 public class VariableSuppliersTest {
@@ -39,4 +42,47 @@ public class VariableSuppliersTest {
     // then
     assertThat(variables.entrySet()).contains(entry("test", new IdLong(2).toId()));
   }
+
+  @Test
+  public void testExistingIdShouldSampleStoredIdsWithinBoundsWithEqualWeights() {
+    // given
+    var samplingIdStore = new ConcurrentInMemoryIdStore();
+    var ids = new long[] {1, 2, 3, 1000};
+    for (var id : ids) {
+      samplingIdStore.store(collectionName, id);
+    }
+    var variableSupplier =
+        new VariableSuppliers(samplingIdStore)
+            .existingId("test", collectionName, idDistributionFactory.uniform(4));
+    // when
+    var counts = new HashMap<Object, Integer>();
+    for (int i = 0; i < 3000; i++) {
+      counts.merge(variableSupplier.get().get("test"), 1, Integer::sum);
+    }
+    // then
+    assertThat(counts).doesNotContainKey(new IdLong(1000).toId());
+    for (var id : new long[] {1, 2, 3}) {
+      assertThat(counts.get(new IdLong(id).toId())).isBetween(800, 1200);
+    }
+  }
+
+  @Test
+  public void testExistingIdShouldNotSampleStoredIdsOutsideOfTheDistribution() {
+    // given
+    var samplingIdStore = new ConcurrentInMemoryIdStore();
+    for (var id : new long[] {0, 4, 5, 100}) {
+      samplingIdStore.store(collectionName, id);
+    }
+    var variableSupplier =
+        new VariableSuppliers(samplingIdStore)
+            .existingId(
+                "test", collectionName, idDistributionFactory.offset(1, it -> it.uniform(4)));
+    // when
+    var values = new HashSet<Object>();
+    for (int i = 0; i < 100; i++) {
+      values.add(variableSupplier.get().get("test"));
+    }
+    // then
+    assertThat(values).containsExactly(new IdLong(4).toId());
+  }
 }
@@ -0,0 +1,382 @@
+package de.claasklar.idStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.random.distribution.DistributionProperties;
+import de.claasklar.random.distribution.StdRandomNumberGenerator;
+import de.claasklar.random.distribution.id.IdDistribution;
+import de.claasklar.random.distribution.id.UniformIdDistribution;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiFunction;
+import java.util.function.LongUnaryOperator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentInMemoryIdStoreTest {
+  private ConcurrentInMemoryIdStore testSubject;
+
+  @BeforeEach
+  public void setup() {
+    testSubject = new ConcurrentInMemoryIdStore();
+  }
+
+  @Test
+  public void testStoreShouldStoreIdsSequentially() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    for (int i = 0; i < 257; i++) {
+      testSubject.store(name, i);
+      int finalI = i;
+      // then
+      assertThat(testSubject.exists(name, i))
+          .withFailMessage(() -> "could not find id " + finalI)
+          .isTrue();
+    }
+    assertThat(testSubject.exists(name, 500)).isFalse();
+  }
+
+  @Test
+  public void testStoreShouldStoreIdWithGaps() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    testSubject.store(name, 788);
+    // then
+    assertThat(testSubject.exists(name, 788)).isTrue();
+  }
+
+  @Test
+  public void testStoreShouldStoreIdsAcrossSegments() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    testSubject.store(name, 65_535);
+    testSubject.store(name, 65_536);
+    testSubject.store(name, 1L << 34);
+    // then
+    assertThat(testSubject.exists(name, 65_535)).isTrue();
+    assertThat(testSubject.exists(name, 65_536)).isTrue();
+    assertThat(testSubject.exists(name, 1L << 34)).isTrue();
+    assertThat(testSubject.exists(name, (1L << 34) + 1)).isFalse();
+    assertThat(testSubject.exists(name, 1L << 35)).isFalse();
+  }
+
+  @Test
+  public void testStoreShouldRejectNegativeIds() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    // then
+    assertThatThrownBy(() -> testSubject.store(name, -1))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void testRankAndSelectShouldBeInverse() {
+    // given
+    var name = new CollectionName("test");
+    var ids = new long[] {3, 64, 65, 70_000, 70_001, 1L << 33};
+    for (var id : ids) {
+      testSubject.store(name, id);
+    }
+    // when
+    // then
+    assertThat(testSubject.count(name)).isEqualTo(ids.length);
+    for (int i = 0; i < ids.length; i++) {
+      assertThat(testSubject.rank(name, ids[i])).isEqualTo(i);
+      assertThat(testSubject.select(name, i)).hasValue(ids[i]);
+    }
+    assertThat(testSubject.rank(name, 66)).isEqualTo(3);
+    assertThat(testSubject.select(name, ids.length)).isEmpty();
+  }
+
+  @Test
+  public void testSampleShouldSelectIdWithDrawnRank() {
+    // given
+    var name = new CollectionName("test");
+    testSubject.store(name, 10);
+    testSubject.store(name, 100_000);
+    testSubject.store(name, 100_001);
+    // when
+    var first = testSubject.sample(name, constantRank(0L));
+    var second = testSubject.sample(name, constantRank(1L));
+    var missing = testSubject.sample(name, constantRank(5L));
+    // then
+    assertThat(first).hasValue(10);
+    assertThat(second).hasValue(100_000);
+    assertThat(missing).isEmpty();
+  }
+
+  @Test
+  public void testSampleShouldOnlySelectIdsWithinBoundsOfUniformDistribution() {
+    // given
+    var name = new CollectionName("test");
+    testSubject.store(name, 10);
+    testSubject.store(name, 100_000);
+    testSubject.store(name, 100_001);
+    var distribution = new UniformIdDistribution(100_001, new StdRandomNumberGenerator());
+    // when
+    var samples = new HashSet<Long>();
+    for (int i = 0; i < 100; i++) {
+      samples.add(testSubject.sample(name, distribution).getAsLong());
+    }
+    // then
+    assertThat(samples).containsExactlyInAnyOrder(10L, 100_000L);
+  }
+
+  @Test
+  public void testSampleShouldBeEmptyForDistributionsWithoutRanks() {
+    // given
+    var name = new CollectionName("test");
+    testSubject.store(name, 10);
+    // when
+    var sample = testSubject.sample(name, constantId(10L));
+    // then
+    assertThat(sample).isEmpty();
+  }
+
+  @Test
+  public void testSampleShouldReturnEmptyForEmptyCollection() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    var sample = testSubject.sample(name, new StdRandomNumberGenerator());
+    // then
+    assertThat(sample).isEmpty();
+  }
+
+  @Test
+  public void testStoreIdsConcurrently() throws InterruptedException {
+    // given
+    var name = new CollectionName("test");
+    BiFunction<Integer, Integer, Runnable> storingThread =
+        (Integer min, Integer max) ->
+            (Runnable)
+                () -> {
+                  for (int i = min; i < max; i++) {
+                    testSubject.store(name, i);
+                  }
+                };
+    var lowerNumbers = new Thread(storingThread.apply(0, 127));
+    var upperNumbers = new Thread(storingThread.apply(127, 256));
+    // when
+    lowerNumbers.start();
+    upperNumbers.start();
+    lowerNumbers.join(1000);
+    upperNumbers.join(1000);
+    // then
+    for (int i = 0; i < 256; i++) {
+      int finalI = i;
+      assertThat(testSubject.exists(name, i))
+          .withFailMessage(() -> "could not find id " + finalI)
+          .isTrue();
+    }
+  }
+
+  @Test
+  public void testExistsInParallel() throws Throwable {
+    // given
+    var name = new CollectionName("test");
+    for (int i = 0; i < 100000; i++) {
+      testSubject.store(name, i);
+    }
+    var random = new Random();
+    var throwables = new LinkedList<Throwable>();
+    // when
+    var threads = new LinkedList<Thread>();
+    for (int i = 0; i < 50; i++) {
+      var thread =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 50000; j++) {
+                  // then
+                  assertThat(testSubject.exists(name, random.nextLong(100000))).isTrue();
+                }
+              });
+      threads.add(thread);
+    }
+    for (int i = 0; i < 10; i++) {
+      var finalI = i;
+      var thread =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 1000; j++) {
+                  testSubject.store(name, 100000 + 1000 * finalI + j);
+                }
+              });
+      threads.add(thread);
+    }
+    threads.forEach(
+        it -> it.setUncaughtExceptionHandler((thread1, throwable) -> throwables.add(throwable)));
+    threads.forEach(Thread::start);
+    threads.forEach(
+        it -> {
+          try {
+            it.join(5000);
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        });
+    for (var throwable : throwables) {
+      throw throwable;
+    }
+    for (int i = 100000; i < 110000; i++) {
+      assertThat(testSubject.exists(name, i)).isTrue();
+    }
+  }
+
+  @Test
+  public void testTryClaimShouldReportPendingUntilStored() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    var first = testSubject.tryClaim(name, 5);
+    var second = testSubject.tryClaim(name, 5);
+    var write = testSubject.whenStored(name, 5);
+    // then
+    assertThat(first).isEqualTo(ClaimState.CLAIMED);
+    assertThat(second).isEqualTo(ClaimState.PENDING);
+    assertThat(write).isNotDone();
+    testSubject.store(name, 5);
+    assertThat(write).isCompleted();
+    assertThat(testSubject.tryClaim(name, 5)).isEqualTo(ClaimState.STORED);
+  }
+
+  @Test
+  public void testReleaseShouldFailWaitersAndAllowNewClaim() {
+    // given
+    var name = new CollectionName("test");
+    testSubject.tryClaim(name, 5);
+    var write = testSubject.whenStored(name, 5);
+    // when
+    testSubject.release(name, 5);
+    // then
+    assertThatThrownBy(write::join).isInstanceOf(CompletionException.class);
+    assertThat(testSubject.exists(name, 5)).isFalse();
+    assertThat(testSubject.tryClaim(name, 5)).isEqualTo(ClaimState.CLAIMED);
+  }
+
+  @Test
+  public void testTryClaimShouldClaimOnlyOnceConcurrently() throws InterruptedException {
+    // given
+    var name = new CollectionName("test");
+    var claims = new ConcurrentLinkedQueue<ClaimState>();
+    var threads = new LinkedList<Thread>();
+    // when
+    for (int i = 0; i < 16; i++) {
+      threads.add(Thread.ofVirtual().start(() -> claims.add(testSubject.tryClaim(name, 42))));
+    }
+    for (var thread : threads) {
+      thread.join();
+    }
+    // then
+    assertThat(claims).hasSize(16);
+    assertThat(claims.stream().filter(it -> it == ClaimState.CLAIMED).count()).isEqualTo(1);
+  }
+
+  @Test
+  public void testStoreRangeShouldStoreIdsAcrossWordsAndSegments() {
+    // given
+    var name = new CollectionName("test");
+    testSubject.store(name, 70);
+    // when
+    testSubject.storeRange(name, 3, 65_600);
+    // then
+    assertThat(testSubject.count(name)).isEqualTo(65_597);
+    assertThat(testSubject.exists(name, 2)).isFalse();
+    assertThat(testSubject.exists(name, 3)).isTrue();
+    assertThat(testSubject.exists(name, 65_535)).isTrue();
+    assertThat(testSubject.exists(name, 65_599)).isTrue();
+    assertThat(testSubject.exists(name, 65_600)).isFalse();
+    assertThat(testSubject.select(name, 65_596)).hasValue(65_599);
+  }
+
+  @Test
+  public void testStoreAllAndExistsAllShouldHandleBatches() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    testSubject.storeAll(name, new long[] {1, 64, 1L << 30});
+    var exists = new BitSet();
+    testSubject.existsAll(name, new long[] {0, 1, 64, 65, 1L << 30}, exists);
+    // then
+    assertThat(exists.stream().toArray()).containsExactly(1, 2, 4);
+    assertThat(testSubject.count(name)).isEqualTo(3);
+  }
+
+  @Test
+  public void testCollectionHandleShouldAccessSameIdsAsName() {
+    // given
+    var name = new CollectionName("test");
+    var handle = CollectionHandle.of(name);
+    // when
+    testSubject.store(handle, 5);
+    testSubject.store(name, 6);
+    // then
+    assertThat(testSubject.exists(name, 5)).isTrue();
+    assertThat(testSubject.exists(handle, 6)).isTrue();
+    assertThat(testSubject.exists(CollectionHandle.of(new CollectionName("other")), 5)).isFalse();
+  }
+
+  @Test
+  public void testCollectionHandleShouldClaimAndSampleSameIdsAsName() {
+    // given
+    var name = new CollectionName("test");
+    var handle = CollectionHandle.of(name);
+    testSubject.store(name, 5);
+    testSubject.store(name, 9);
+    // when
+    var claim = testSubject.tryClaim(handle, 7);
+    // then
+    assertThat(testSubject.tryClaim(handle, 5)).isEqualTo(ClaimState.STORED);
+    assertThat(claim).isEqualTo(ClaimState.CLAIMED);
+    assertThat(testSubject.tryClaim(name, 7)).isEqualTo(ClaimState.PENDING);
+    assertThat(testSubject.sample(handle, constantRank(1L))).hasValue(9);
+    assertThat(
+            testSubject.sample(CollectionHandle.of(new CollectionName("other")), constantRank(0L)))
+        .isEmpty();
+  }
+
+  private static IdDistribution constantRank(long rank) {
+    return new IdDistribution() {
+      @Override
+      public long nextAsLong() {
+        return rank;
+      }
+
+      @Override
+      public OptionalLong nextRank(LongUnaryOperator ranks) {
+        return OptionalLong.of(rank);
+      }
+
+      @Override
+      public List<DistributionProperties> distributionProperties() {
+        return List.of(DistributionProperties.REPEATABLE);
+      }
+    };
+  }
+
+  private static IdDistribution constantId(long id) {
+    return new IdDistribution() {
+      @Override
+      public long nextAsLong() {
+        return id;
+      }
+
+      @Override
+      public List<DistributionProperties> distributionProperties() {
+        return List.of(DistributionProperties.REPEATABLE);
+      }
+    };
+  }
+}
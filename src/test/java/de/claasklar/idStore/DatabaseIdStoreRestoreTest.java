@@ -0,0 +1,60 @@
+package de.claasklar.idStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.claasklar.database.InMemoryDatabase;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.OurDocument;
+import io.opentelemetry.api.trace.Span;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+
+public class DatabaseIdStoreRestoreTest {
+
+  @Test
+  public void testRestoreShouldStoreIdsOfAllDocuments() {
+    // given
+    var name = new CollectionName("test");
+    var database = new InMemoryDatabase();
+    for (long i = 0; i < 1000; i += 3) {
+      database.write(name, new OurDocument(new IdLong(i).toId(), Map.of()), Span.getInvalid());
+    }
+    var idStore = new ConcurrentInMemoryIdStore();
+    var testSubject =
+        new DatabaseIdStoreRestore(database, idStore, List.of(name), 4, Span.getInvalid());
+    // when
+    testSubject.restore();
+    // then
+    assertThat(idStore.count(name)).isEqualTo(334);
+    for (long i = 0; i < 1000; i++) {
+      assertThat(idStore.exists(name, i)).isEqualTo(i % 3 == 0);
+    }
+  }
+
+  @Test
+  public void testRestoreShouldReportHighestIdOfEveryCollection() {
+    // given
+    var name = new CollectionName("test");
+    var empty = new CollectionName("empty");
+    var database = new InMemoryDatabase();
+    for (long i = 0; i < 1000; i += 3) {
+      database.write(name, new OurDocument(new IdLong(i).toId(), Map.of()), Span.getInvalid());
+    }
+    var highestIds = new ConcurrentHashMap<CollectionName, Long>();
+    var testSubject =
+        new DatabaseIdStoreRestore(
+            database,
+            new ConcurrentInMemoryIdStore(),
+            List.of(name, empty),
+            4,
+            Span.getInvalid(),
+            highestIds::put);
+    // when
+    testSubject.restore();
+    // then
+    assertThat(highestIds).containsExactly(Map.entry(name, 999L));
+  }
+}
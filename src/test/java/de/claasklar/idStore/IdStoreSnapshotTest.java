@@ -0,0 +1,69 @@
+package de.claasklar.idStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.claasklar.primitives.CollectionName;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IdStoreSnapshotTest {
+
+  @TempDir private Path directory;
+
+  @Test
+  public void testRestoreShouldRestoreAllWrittenIds() {
+    // given
+    var products = new CollectionName("products");
+    var orders = new CollectionName("orders");
+    var idStore = new ConcurrentInMemoryIdStore();
+    for (long i = 0; i < 100_000; i++) {
+      idStore.store(products, i);
+    }
+    idStore.store(orders, 3);
+    idStore.store(orders, 70_000);
+    idStore.store(orders, 70_001);
+    var file = directory.resolve("ids.snapshot");
+    new IdStoreSnapshot(file, idStore, List.of(products, orders)).write();
+    var restored = new RoaringIdStore();
+    // when
+    new IdStoreSnapshot(file, restored, List.of()).restore();
+    // then
+    assertThat(restored.count(products)).isEqualTo(100_000);
+    assertThat(restored.exists(products, 99_999)).isTrue();
+    assertThat(restored.exists(products, 100_000)).isFalse();
+    assertThat(restored.count(orders)).isEqualTo(3);
+    assertThat(restored.exists(orders, 3)).isTrue();
+    assertThat(restored.exists(orders, 70_000)).isTrue();
+    assertThat(restored.exists(orders, 70_001)).isTrue();
+  }
+
+  @Test
+  public void testWriteShouldEncodeConsecutiveIdsAsRuns() throws IOException {
+    // given
+    var name = new CollectionName("test");
+    var idStore = new RoaringIdStore();
+    for (long i = 1; i <= 1_000_000; i++) {
+      idStore.store(name, i);
+    }
+    var file = directory.resolve("ids.snapshot");
+    // when
+    new IdStoreSnapshot(file, idStore, List.of(name)).write();
+    // then
+    assertThat(Files.size(file)).isLessThan(64);
+  }
+
+  @Test
+  public void testRestoreShouldRejectOtherFiles() throws IOException {
+    // given
+    var file = directory.resolve("ids.snapshot");
+    Files.writeString(file, "not a snapshot");
+    // when / then
+    assertThatThrownBy(() -> new IdStoreSnapshot(file, new RoaringIdStore(), List.of()).restore())
+        .isInstanceOf(IllegalStateException.class);
+  }
+}
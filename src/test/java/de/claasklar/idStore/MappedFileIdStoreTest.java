@@ -0,0 +1,114 @@
+package de.claasklar.idStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.claasklar.primitives.CollectionName;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedFileIdStoreTest {
+
+  @TempDir private Path directory;
+  private MappedFileIdStore testSubject;
+
+  @BeforeEach
+  public void setup() {
+    testSubject = new MappedFileIdStore(directory, 64, Duration.ofMillis(100));
+  }
+
+  @AfterEach
+  public void tearDown() {
+    testSubject.close();
+  }
+
+  @Test
+  public void testStoreShouldStoreIdsSequentially() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    for (int i = 0; i < 1025; i++) {
+      testSubject.store(name, i);
+    }
+    // then
+    for (int i = 0; i < 1025; i++) {
+      int finalI = i;
+      assertThat(testSubject.exists(name, i))
+          .withFailMessage(() -> "could not find id " + finalI)
+          .isTrue();
+    }
+    assertThat(testSubject.exists(name, 1025)).isFalse();
+  }
+
+  @Test
+  public void testStoreShouldStoreIdWithGaps() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    testSubject.store(name, 788_000);
+    // then
+    assertThat(testSubject.exists(name, 788_000)).isTrue();
+    assertThat(testSubject.exists(name, 788)).isFalse();
+    assertThat(testSubject.exists(name, 10_000_000)).isFalse();
+  }
+
+  @Test
+  public void testStoreIdsConcurrently() throws InterruptedException {
+    // given
+    var name = new CollectionName("test");
+    BiFunction<Integer, Integer, Runnable> storingThread =
+        (Integer min, Integer max) ->
+            (Runnable)
+                () -> {
+                  for (int i = min; i < max; i++) {
+                    testSubject.store(name, i);
+                  }
+                };
+    var lowerNumbers = new Thread(storingThread.apply(0, 2000));
+    var upperNumbers = new Thread(storingThread.apply(2000, 4000));
+    // when
+    lowerNumbers.start();
+    upperNumbers.start();
+    lowerNumbers.join(1000);
+    upperNumbers.join(1000);
+    // then
+    for (int i = 0; i < 4000; i++) {
+      int finalI = i;
+      assertThat(testSubject.exists(name, i))
+          .withFailMessage(() -> "could not find id " + finalI)
+          .isTrue();
+    }
+  }
+
+  @Test
+  public void testStoredIdsShouldSurviveReopening() {
+    // given
+    var name = new CollectionName("test");
+    testSubject.store(name, 3);
+    testSubject.store(name, 5000);
+    testSubject.close();
+    // when
+    testSubject = new MappedFileIdStore(directory, 64, Duration.ofMillis(100));
+    // then
+    assertThat(testSubject.exists(name, 3)).isTrue();
+    assertThat(testSubject.exists(name, 5000)).isTrue();
+    assertThat(testSubject.exists(name, 4)).isFalse();
+  }
+
+  @Test
+  public void testExistsShouldFindIdsStoredAfterReadingUnknownCollection() {
+    // given
+    var name = new CollectionName("unknown");
+    var before = testSubject.exists(name, 7);
+    // when
+    testSubject.store(name, 7);
+    // then
+    assertThat(before).isFalse();
+    assertThat(testSubject.exists(name, 7)).isTrue();
+    assertThat(testSubject.exists(name, 1_000_000)).isFalse();
+  }
+}
@@ -0,0 +1,97 @@
+package de.claasklar.idStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.claasklar.primitives.CollectionName;
+import java.util.LinkedList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MetadataIdStoreTest {
+  private MetadataIdStore testSubject;
+  private final CollectionName name = new CollectionName("test");
+
+  @BeforeEach
+  public void setup() {
+    testSubject = new MetadataIdStore();
+  }
+
+  @Test
+  public void testStoreShouldStoreIdsAcrossSegments() {
+    // given
+    // when
+    testSubject.store(name, 0);
+    testSubject.store(name, 4096);
+    testSubject.store(name, 1L << 39);
+    // then
+    assertThat(testSubject.exists(name, 0)).isTrue();
+    assertThat(testSubject.exists(name, 4096)).isTrue();
+    assertThat(testSubject.exists(name, 1L << 39)).isTrue();
+    assertThat(testSubject.exists(name, 1)).isFalse();
+    assertThat(testSubject.exists(new CollectionName("other"), 0)).isFalse();
+  }
+
+  @Test
+  public void testWriteShouldIncrementVersionAndKeepLastSize() {
+    // given
+    // when
+    var first = testSubject.write(name, 7, 100);
+    var second = testSubject.write(name, 7, 250);
+    testSubject.store(name, 7);
+    // then
+    assertThat(first).isEqualTo(1);
+    assertThat(second).isEqualTo(2);
+    assertThat(testSubject.version(name, 7)).isEqualTo(3);
+    assertThat(testSubject.size(name, 7)).isEqualTo(250);
+    assertThat(testSubject.version(name, 8)).isZero();
+  }
+
+  @Test
+  public void testDeleteShouldHideIdUntilNextWrite() {
+    // given
+    testSubject.write(name, 7, 100);
+    // when
+    var deleted = testSubject.delete(name, 7);
+    var deletedTwice = testSubject.delete(name, 7);
+    // then
+    assertThat(deleted).isTrue();
+    assertThat(deletedTwice).isFalse();
+    assertThat(testSubject.exists(name, 7)).isFalse();
+    assertThat(testSubject.isDeleted(name, 7)).isTrue();
+    assertThat(testSubject.size(name, 7)).isEqualTo(100);
+    assertThat(testSubject.write(name, 7, 50)).isEqualTo(2);
+    assertThat(testSubject.exists(name, 7)).isTrue();
+    assertThat(testSubject.isDeleted(name, 7)).isFalse();
+  }
+
+  @Test
+  public void testWriteShouldRejectInvalidSizesAndIds() {
+    assertThatThrownBy(() -> testSubject.write(name, 1, -1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> testSubject.store(name, -1))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void testConcurrentWritesShouldCountEveryVersion() throws InterruptedException {
+    // given
+    var threads = new LinkedList<Thread>();
+    // when
+    for (int i = 0; i < 8; i++) {
+      threads.add(
+          Thread.ofVirtual()
+              .start(
+                  () -> {
+                    for (int j = 0; j < 1000; j++) {
+                      testSubject.write(name, 42, j);
+                    }
+                  }));
+    }
+    for (var thread : threads) {
+      thread.join();
+    }
+    // then
+    assertThat(testSubject.version(name, 42)).isEqualTo(8000);
+  }
+}
@@ -0,0 +1,73 @@
+package de.claasklar.idStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.claasklar.primitives.CollectionName;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongPredicate;
+import org.junit.jupiter.api.Test;
+
+public class PendingIdsTest {
+
+  private final PendingIds testSubject = new PendingIds();
+  private final CollectionHandle handle = CollectionHandle.of(new CollectionName("test"));
+
+  @Test
+  public void testStoredShouldOnlyCompleteStoredIdsOfManyClaims() {
+    // given
+    var writes = new ArrayList<CompletableFuture<Void>>();
+    for (long id = 0; id < 10_000; id++) {
+      assertThat(testSubject.tryClaim(handle, id, it -> false)).isEqualTo(ClaimState.CLAIMED);
+      writes.add(testSubject.whenStored(handle, id));
+    }
+    // when
+    for (long id = 1; id < 10_000; id += 2) {
+      testSubject.stored(handle, id);
+    }
+    // then
+    for (int id = 0; id < 10_000; id++) {
+      assertThat(writes.get(id).isDone()).isEqualTo(id % 2 == 1);
+      assertThat(testSubject.tryClaim(handle, id, it -> false))
+          .isEqualTo(id % 2 == 1 ? ClaimState.CLAIMED : ClaimState.PENDING);
+    }
+  }
+
+  @Test
+  public void testHasPendingShouldBeFalseAfterAllClaimsEnded() {
+    // given
+    for (long id = 0; id < 1000; id++) {
+      testSubject.tryClaim(handle, id << 20, it -> false);
+    }
+    // when
+    for (long id = 0; id < 1000; id++) {
+      if (id % 3 == 0) {
+        testSubject.release(handle, id << 20);
+      } else {
+        testSubject.stored(handle, id << 20);
+      }
+    }
+    // then
+    assertThat(testSubject.hasPending(handle)).isFalse();
+    assertThat(testSubject.whenStored(handle, 3 << 20)).isCompleted();
+  }
+
+  @Test
+  public void testTryClaimShouldReportStoredIdOfRacingStore() {
+    // when
+    var claim = testSubject.tryClaim(handle, 5, new RacingStore());
+    // then
+    assertThat(claim).isEqualTo(ClaimState.STORED);
+    assertThat(testSubject.hasPending(handle)).isFalse();
+  }
+
+  /** The id is stored between the first and second check of the claim. */
+  private static class RacingStore implements LongPredicate {
+    private int calls = 0;
+
+    @Override
+    public boolean test(long value) {
+      return calls++ > 0;
+    }
+  }
+}
@@ -0,0 +1,312 @@
+package de.claasklar.idStore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.random.distribution.DistributionProperties;
+import de.claasklar.random.distribution.StdRandomNumberGenerator;
+import de.claasklar.random.distribution.id.IdDistribution;
+import de.claasklar.random.distribution.id.UniformIdDistribution;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.LongUnaryOperator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RoaringIdStoreTest {
+  private RoaringIdStore testSubject;
+
+  @BeforeEach
+  public void setup() {
+    testSubject = new RoaringIdStore();
+  }
+
+  @Test
+  public void testStoreShouldStoreIdsSequentially() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    for (int i = 0; i < 257; i++) {
+      testSubject.store(name, i);
+      int finalI = i;
+      // then
+      assertThat(testSubject.exists(name, i))
+          .withFailMessage(() -> "could not find id " + finalI)
+          .isTrue();
+    }
+    assertThat(testSubject.exists(name, 500)).isFalse();
+  }
+
+  @Test
+  public void testStoreShouldStoreIdWithGaps() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    testSubject.store(name, 788);
+    // then
+    assertThat(testSubject.exists(name, 788)).isTrue();
+  }
+
+  @Test
+  public void testStoreShouldStoreIdsBeyondIntegerRange() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    testSubject.store(name, Integer.MAX_VALUE + 1L);
+    testSubject.store(name, Long.MAX_VALUE);
+    // then
+    assertThat(testSubject.exists(name, Integer.MAX_VALUE + 1L)).isTrue();
+    assertThat(testSubject.exists(name, Long.MAX_VALUE)).isTrue();
+    assertThat(testSubject.exists(name, Integer.MAX_VALUE)).isFalse();
+    assertThat(testSubject.exists(name, Long.MAX_VALUE - 1)).isFalse();
+  }
+
+  @Test
+  public void testStoreShouldCompressSequentialIds() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    for (int i = 1; i <= 1_000_000; i++) {
+      testSubject.store(name, i);
+    }
+    // then
+    assertThat(testSubject.exists(name, 0)).isFalse();
+    assertThat(testSubject.exists(name, 1)).isTrue();
+    assertThat(testSubject.exists(name, 1_000_000)).isTrue();
+    assertThat(testSubject.exists(name, 1_000_001)).isFalse();
+    assertThat(testSubject.sizeInBytes(name)).isLessThan(2_000);
+  }
+
+  @Test
+  public void testStoreShouldMatchSetForRandomIds() {
+    // given
+    var name = new CollectionName("test");
+    var random = new Random(42);
+    var expected = new HashSet<Long>();
+    // when
+    for (int i = 0; i < 200_000; i++) {
+      // mix dense ranges and scattered ids to exercise all container types
+      var id = i % 2 == 0 ? random.nextLong(300_000) : random.nextLong(1L << 40);
+      expected.add(id);
+      testSubject.store(name, id);
+    }
+    // then
+    for (var id : expected) {
+      assertThat(testSubject.exists(name, id)).isTrue();
+    }
+    var found = 0;
+    for (long id = 0; id < 300_000; id++) {
+      if (testSubject.exists(name, id)) {
+        found++;
+        assertThat(expected.contains(id)).isTrue();
+      }
+    }
+    assertThat(found).isPositive();
+  }
+
+  @Test
+  public void testRankAndSelectShouldBeInverse() {
+    // given
+    var name = new CollectionName("test");
+    var ids = new long[] {3, 64, 65, 70_000, 70_001, 1L << 33};
+    for (var id : ids) {
+      testSubject.store(name, id);
+    }
+    // when
+    // then
+    assertThat(testSubject.count(name)).isEqualTo(ids.length);
+    for (int i = 0; i < ids.length; i++) {
+      assertThat(testSubject.rank(name, ids[i])).isEqualTo(i);
+      assertThat(testSubject.select(name, i)).hasValue(ids[i]);
+    }
+    assertThat(testSubject.rank(name, 66)).isEqualTo(3);
+    assertThat(testSubject.select(name, ids.length)).isEmpty();
+  }
+
+  @Test
+  public void testSampleShouldSelectIdWithDrawnRank() {
+    // given
+    var name = new CollectionName("test");
+    testSubject.store(name, 10);
+    testSubject.store(name, 100_000);
+    testSubject.store(name, 100_001);
+    // when
+    var first = testSubject.sample(name, constantRank(0L));
+    var second = testSubject.sample(name, constantRank(1L));
+    var missing = testSubject.sample(name, constantRank(5L));
+    // then
+    assertThat(first).hasValue(10);
+    assertThat(second).hasValue(100_000);
+    assertThat(missing).isEmpty();
+  }
+
+  @Test
+  public void testSampleShouldOnlySelectIdsWithinBoundsOfUniformDistribution() {
+    // given
+    var name = new CollectionName("test");
+    testSubject.store(name, 10);
+    testSubject.store(name, 100_000);
+    testSubject.store(name, 100_001);
+    var distribution = new UniformIdDistribution(100_001, new StdRandomNumberGenerator());
+    // when
+    var samples = new HashSet<Long>();
+    for (int i = 0; i < 100; i++) {
+      samples.add(testSubject.sample(name, distribution).getAsLong());
+    }
+    // then
+    assertThat(samples).containsExactlyInAnyOrder(10L, 100_000L);
+  }
+
+  @Test
+  public void testSampleShouldBeEmptyForDistributionsWithoutRanks() {
+    // given
+    var name = new CollectionName("test");
+    testSubject.store(name, 10);
+    // when
+    var sample = testSubject.sample(name, constantId(10L));
+    // then
+    assertThat(sample).isEmpty();
+  }
+
+  @Test
+  public void testSampleShouldReturnEmptyForEmptyCollection() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    var sample = testSubject.sample(name, new StdRandomNumberGenerator());
+    // then
+    assertThat(sample).isEmpty();
+  }
+
+  @Test
+  public void testStoreIdsConcurrently() throws InterruptedException {
+    // given
+    var name = new CollectionName("test");
+    BiFunction<Integer, Integer, Runnable> storingThread =
+        (Integer min, Integer max) ->
+            (Runnable)
+                () -> {
+                  for (int i = min; i < max; i++) {
+                    testSubject.store(name, i);
+                  }
+                };
+    var lowerNumbers = new Thread(storingThread.apply(0, 127));
+    var upperNumbers = new Thread(storingThread.apply(127, 256));
+    // when
+    lowerNumbers.start();
+    upperNumbers.start();
+    lowerNumbers.join(1000);
+    upperNumbers.join(1000);
+    // then
+    for (int i = 0; i < 256; i++) {
+      int finalI = i;
+      assertThat(testSubject.exists(name, i))
+          .withFailMessage(() -> "could not find id " + finalI)
+          .isTrue();
+    }
+  }
+
+  @Test
+  public void testExistsInParallel() throws Throwable {
+    // given
+    var name = new CollectionName("test");
+    for (int i = 0; i < 100000; i++) {
+      testSubject.store(name, i);
+    }
+    var random = new Random();
+    var throwables = new LinkedList<Throwable>();
+    // when
+    var threads = new LinkedList<Thread>();
+    for (int i = 0; i < 50; i++) {
+      var thread =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 50000; j++) {
+                  // then
+                  assertThat(testSubject.exists(name, random.nextLong(100000))).isTrue();
+                }
+              });
+      threads.add(thread);
+    }
+    for (int i = 0; i < 10; i++) {
+      var finalI = i;
+      var thread =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 1000; j++) {
+                  testSubject.store(name, 100000 + 1000 * finalI + j);
+                }
+              });
+      threads.add(thread);
+    }
+    threads.forEach(
+        it -> it.setUncaughtExceptionHandler((thread1, throwable) -> throwables.add(throwable)));
+    threads.forEach(Thread::start);
+    threads.forEach(
+        it -> {
+          try {
+            it.join(5000);
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        });
+    for (var throwable : throwables) {
+      throw throwable;
+    }
+    for (int i = 100000; i < 110000; i++) {
+      assertThat(testSubject.exists(name, i)).isTrue();
+    }
+  }
+
+  @Test
+  public void testStoreRangeAndExistsAllShouldHandleBatches() {
+    // given
+    var name = new CollectionName("test");
+    // when
+    testSubject.storeRange(name, 65_530, 65_540);
+    testSubject.storeAll(name, new long[] {1L << 40});
+    var exists = new BitSet();
+    testSubject.existsAll(name, new long[] {65_529, 65_530, 65_539, 65_540, 1L << 40}, exists);
+    // then
+    assertThat(exists.stream().toArray()).containsExactly(1, 2, 4);
+    assertThat(testSubject.count(name)).isEqualTo(11);
+  }
+
+  private static IdDistribution constantRank(long rank) {
+    return new IdDistribution() {
+      @Override
+      public long nextAsLong() {
+        return rank;
+      }
+
+      @Override
+      public OptionalLong nextRank(LongUnaryOperator ranks) {
+        return OptionalLong.of(rank);
+      }
+
+      @Override
+      public List<DistributionProperties> distributionProperties() {
+        return List.of(DistributionProperties.REPEATABLE);
+      }
+    };
+  }
+
+  private static IdDistribution constantId(long id) {
+    return new IdDistribution() {
+      @Override
+      public long nextAsLong() {
+        return id;
+      }
+
+      @Override
+      public List<DistributionProperties> distributionProperties() {
+        return List.of(DistributionProperties.REPEATABLE);
+      }
+    };
+  }
+}
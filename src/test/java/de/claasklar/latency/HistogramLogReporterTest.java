@@ -0,0 +1,78 @@
+package de.claasklar.latency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.claasklar.phase.PhaseTopic;
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class HistogramLogReporterTest {
+
+  @TempDir private Path directory;
+
+  private final LatencyRecorder latencyRecorder = new LatencyRecorder();
+
+  @Test
+  public void testLogsShouldContainIntervalsPerSpecificationAndPhase() throws Exception {
+    // given
+    var runDirectory = directory.resolve("run");
+    var testSubject =
+        new HistogramLogReporter(
+            latencyRecorder, Duration.ofHours(1), runDirectory, Clock.systemUTC());
+    var query = latencyRecorder.timer("q1", "orders", "QUERY");
+    var write = latencyRecorder.timer("orders", "orders", "WRITE");
+    latencyRecorder.update(PhaseTopic.BenchmarkPhase.LOAD);
+    testSubject.update(PhaseTopic.BenchmarkPhase.LOAD);
+    write.recordNanos(1000, LatencyKey.Type.SERVICE_TIME);
+    latencyRecorder.update(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    testSubject.update(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    query.recordNanos(2000, LatencyKey.Type.SERVICE_TIME);
+    query.recordNanos(3000, LatencyKey.Type.SERVICE_TIME);
+    testSubject.log();
+    query.recordNanos(4000, LatencyKey.Type.SERVICE_TIME);
+    // when
+    testSubject.update(PhaseTopic.BenchmarkPhase.END);
+    // then
+    try (var files = Files.list(runDirectory)) {
+      assertThat(files.map(it -> it.getFileName().toString()))
+          .containsExactlyInAnyOrder("orders-LOAD.hlog", "q1-TRANSACTION.hlog");
+    }
+    var queryIntervals = read(runDirectory.resolve("q1-TRANSACTION.hlog"));
+    assertThat(queryIntervals)
+        .extracting(EncodableHistogram::getTag)
+        .containsOnly("orders.QUERY.SERVICE_TIME");
+    assertThat(queryIntervals)
+        .extracting(it -> ((Histogram) it).getTotalCount())
+        .containsExactly(2L, 1L);
+    assertThat(read(runDirectory.resolve("orders-LOAD.hlog"))).hasSize(1);
+  }
+
+  @Test
+  public void testFileNameShouldReplaceUnsafeCharacters() {
+    // when
+    var fileName =
+        HistogramLogReporter.fileName("orders by/customer", PhaseTopic.BenchmarkPhase.LOAD);
+    // then
+    assertThat(fileName).isEqualTo("orders_by_customer-LOAD.hlog");
+  }
+
+  private List<EncodableHistogram> read(Path log) throws FileNotFoundException {
+    var reader = new HistogramLogReader(log.toFile());
+    var intervals = new ArrayList<EncodableHistogram>();
+    while (reader.hasNext()) {
+      intervals.add(reader.nextIntervalHistogram());
+    }
+    reader.close();
+    return intervals;
+  }
+}
@@ -0,0 +1,146 @@
+package de.claasklar.latency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.data.Percentage.withPercentage;
+
+import de.claasklar.phase.PhaseTopic;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class LatencyRecorderTest {
+
+  private final LatencyRecorder testSubject = new LatencyRecorder();
+
+  @Test
+  public void testSummariesShouldSeparatePhases() {
+    // given
+    var timer = testSubject.timer("orders", "orders", "WRITE");
+    testSubject.update(PhaseTopic.BenchmarkPhase.LOAD);
+    for (long i = 1; i <= 1000; i++) {
+      timer.recordNanos(i * 1000, LatencyKey.Type.SERVICE_TIME);
+    }
+    testSubject.update(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    timer.recordNanos(5_000_000, LatencyKey.Type.SERVICE_TIME);
+    // when
+    var load = testSubject.summaries(PhaseTopic.BenchmarkPhase.LOAD);
+    var transaction = testSubject.summaries(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    // then
+    assertThat(load).hasSize(1);
+    var summary = load.get(0);
+    assertThat(summary.key())
+        .isEqualTo(
+            new LatencyKey(
+                "orders",
+                "orders",
+                "WRITE",
+                PhaseTopic.BenchmarkPhase.LOAD,
+                LatencyKey.Type.SERVICE_TIME));
+    assertThat(summary.count()).isEqualTo(1000);
+    assertThat(summary.p50()).isCloseTo(500_000, withPercentage(0.1));
+    assertThat(summary.p99()).isCloseTo(990_000, withPercentage(0.1));
+    assertThat(summary.p999()).isCloseTo(999_000, withPercentage(0.1));
+    assertThat(summary.max()).isCloseTo(1_000_000, withPercentage(0.1));
+    assertThat(transaction).singleElement().extracting(LatencySummary::count).isEqualTo(1L);
+  }
+
+  @Test
+  public void testRecordShouldIgnoreLatenciesBeforeFirstPhase() {
+    // given
+    var timer = testSubject.timer("orders", "orders", "WRITE");
+    // when
+    timer.recordNanos(1000, LatencyKey.Type.SERVICE_TIME);
+    testSubject.record(LatencyRecorder.DATABASE, "orders", "READ", System.nanoTime());
+    // then
+    assertThat(testSubject.histograms()).isEmpty();
+  }
+
+  @Test
+  public void testRecordShouldMeasureResponseTimeSinceIntendedStart() {
+    // given
+    testSubject.update(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    var timer = testSubject.timer("q1", "orders", "QUERY");
+    var now = System.nanoTime();
+    // when
+    timer.record(now, now - 50_000_000);
+    // then
+    var summaries = testSubject.summaries(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    assertThat(summaries)
+        .extracting(it -> it.key().type())
+        .containsExactly(LatencyKey.Type.SERVICE_TIME, LatencyKey.Type.RESPONSE_TIME);
+    assertThat(summaries.get(0).max()).isLessThan(50_000_000);
+    assertThat(summaries.get(1).max()).isGreaterThanOrEqualTo(50_000_000);
+  }
+
+  @Test
+  public void testRecordErrorShouldMeasureResponseTimeSinceIntendedStart() {
+    // given
+    testSubject.update(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    var timer = testSubject.timer("q1", "orders", "QUERY");
+    // when
+    timer.recordError(System.nanoTime() - 50_000_000);
+    // then
+    var summaries = testSubject.summaries(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    assertThat(summaries)
+        .extracting(it -> it.key().type())
+        .containsExactly(LatencyKey.Type.SERVICE_TIME, LatencyKey.Type.RESPONSE_TIME);
+    assertThat(summaries.get(0).count()).isZero();
+    assertThat(summaries.get(0).errors()).isEqualTo(1);
+    assertThat(summaries.get(1).count()).isEqualTo(1);
+    assertThat(summaries.get(1).max()).isGreaterThanOrEqualTo(50_000_000);
+  }
+
+  @Test
+  public void testConcurrentRecordingsShouldBeMerged() throws Exception {
+    // given
+    testSubject.update(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    var timer = testSubject.timer("q1", "orders", "QUERY");
+    // when
+    try (var executor = Executors.newFixedThreadPool(8)) {
+      var futures =
+          IntStream.range(0, 8)
+              .mapToObj(
+                  thread ->
+                      executor.submit(
+                          () -> {
+                            for (int i = 0; i < 10_000; i++) {
+                              timer.recordNanos(1000, LatencyKey.Type.SERVICE_TIME);
+                            }
+                          }))
+              .toList();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    // then
+    assertThat(testSubject.summaries(PhaseTopic.BenchmarkPhase.TRANSACTION))
+        .singleElement()
+        .extracting(LatencySummary::count)
+        .isEqualTo(80_000L);
+  }
+
+  @Test
+  public void testIntervalShouldOnlyContainLatenciesSinceLastInterval() {
+    // given
+    var histogram =
+        new LatencyHistogram(
+            new LatencyKey(
+                "q1",
+                "orders",
+                "QUERY",
+                PhaseTopic.BenchmarkPhase.TRANSACTION,
+                LatencyKey.Type.SERVICE_TIME));
+    histogram.recordNanos(1000);
+    histogram.recordNanos(2000);
+    var first = histogram.interval();
+    histogram.recordNanos(3000);
+    // when
+    var total = histogram.total();
+    var second = histogram.interval();
+    // then
+    assertThat(first.getTotalCount()).isEqualTo(2);
+    assertThat(second.getTotalCount()).isEqualTo(1);
+    assertThat(total.getTotalCount()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,98 @@
+package de.claasklar.latency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.claasklar.phase.PhaseTopic;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StatusReporterTest {
+
+  @TempDir private Path directory;
+
+  private final LatencyRecorder latencyRecorder = new LatencyRecorder();
+  private final Clock clock = Clock.fixed(Instant.parse("2023-06-01T12:00:00Z"), ZoneOffset.UTC);
+
+  @Test
+  public void testReportShouldOnlyContainOperationsOfTheInterval() throws Exception {
+    // given
+    var file = directory.resolve("status.jsonl");
+    var testSubject = new StatusReporter(latencyRecorder, Duration.ofHours(1), file, clock);
+    latencyRecorder.update(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    testSubject.update(PhaseTopic.BenchmarkPhase.TRANSACTION);
+    var query = latencyRecorder.timer("q1", "orders", "QUERY");
+    var write = latencyRecorder.timer("orders", "orders", "WRITE");
+    var now = System.nanoTime();
+    query.record(now, now);
+    query.record(now, now);
+    query.recordError();
+    write.record(now);
+    // when
+    var first = testSubject.report();
+    var second = testSubject.report();
+    // then
+    assertThat(first)
+        .extracting(it -> it.serviceTime().key().specification())
+        .containsExactly("orders", "q1");
+    var status = first.get(1);
+    assertThat(status.serviceTime().count()).isEqualTo(2);
+    assertThat(status.serviceTime().errors()).isEqualTo(1);
+    assertThat(status.errorRate()).isEqualTo(1 / 3d);
+    assertThat(status.responseTime()).isNotNull();
+    assertThat(first.get(0).responseTime()).isNull();
+    assertThat(second).isEmpty();
+    assertThat(Files.readAllLines(file))
+        .hasSize(2)
+        .allSatisfy(line -> assertThat(line).startsWith("{\"time\":\"2023-06-01T12:00:00Z\""));
+  }
+
+  @Test
+  public void testEndShouldReportRestOfIntervalAndStop() throws Exception {
+    // given
+    var file = directory.resolve("reports").resolve("status.jsonl");
+    var testSubject = new StatusReporter(latencyRecorder, Duration.ofHours(1), file, clock);
+    latencyRecorder.update(PhaseTopic.BenchmarkPhase.LOAD);
+    testSubject.update(PhaseTopic.BenchmarkPhase.LOAD);
+    latencyRecorder.timer("orders", "orders", "WRITE").recordError();
+    // when
+    testSubject.update(PhaseTopic.BenchmarkPhase.END);
+    // then
+    assertThat(Files.readAllLines(file))
+        .singleElement()
+        .satisfies(
+            line ->
+                assertThat(line)
+                    .contains("\"phase\":\"LOAD\"", "\"count\":0", "\"errors\":1")
+                    .doesNotContain("responseTimeNanos"));
+    assertThat(testSubject.report()).isEmpty();
+  }
+
+  @Test
+  public void testJsonShouldEscapeNames() {
+    // given
+    var key =
+        new LatencyKey(
+            "say \"hi\"",
+            "orders",
+            "QUERY",
+            PhaseTopic.BenchmarkPhase.TRANSACTION,
+            LatencyKey.Type.SERVICE_TIME);
+    var status =
+        new IntervalStatus(
+            clock.instant(), 2, new LatencySummary(key, 10, 0, 1000, 2000, 3000, 4000), null);
+    // when
+    var json = status.toJson();
+    // then
+    assertThat(json)
+        .contains(
+            "\"specification\":\"say \\\"hi\\\"\"",
+            "\"throughput\":5.0",
+            "\"serviceTimeNanos\":{\"p50\":1000,\"p99\":2000,\"p99.9\":3000,\"max\":4000}");
+  }
+}
@@ -65,10 +65,10 @@ public class WeightedRandomTransactionPhaseTest {
     // when
     testSubject.run();
     // then
-    verify(firstSpecification, times(250)).runnable();
-    verify(secondSpecification, times(250)).runnable();
-    verify(thirdSpecification, times(250)).runnable();
-    verify(fourthSpecification, times(250)).runnable();
+    verify(firstSpecification, times(250)).runnable(anyLong());
+    verify(secondSpecification, times(250)).runnable(anyLong());
+    verify(thirdSpecification, times(250)).runnable(anyLong());
+    verify(fourthSpecification, times(250)).runnable(anyLong());
   }
 
   @Test
@@ -127,7 +127,7 @@ public class WeightedRandomTransactionPhaseTest {
 
   private TopSpecification specificationMock(Runnable r) {
     var specification = mock(TopSpecification.class);
-    when(specification.runnable()).thenReturn(r);
+    when(specification.runnable(anyLong())).thenReturn(r);
     when(specification.getName()).thenReturn("test_spec");
     return specification;
   }
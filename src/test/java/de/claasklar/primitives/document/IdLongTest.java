@@ -1,7 +1,9 @@
 package de.claasklar.primitives.document;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 public class IdLongTest {
@@ -35,4 +37,30 @@ public class IdLongTest {
     // then
     assertThat(first).isNotEqualTo(second);
   }
+
+  @Test
+  public void testFromIdShouldInvertToId() {
+    // given
+    var random = new Random(42);
+    var ids = random.longs(10_000, 0, Long.MAX_VALUE).toArray();
+    // when
+    // then
+    for (var id : ids) {
+      assertThat(IdLong.fromId(new IdLong(id).toId())).isEqualTo(new IdLong(id));
+    }
+    for (long id = 0; id < 10_000; id++) {
+      assertThat(IdLong.fromId(new IdLong(id).toId())).isEqualTo(new IdLong(id));
+    }
+  }
+
+  @Test
+  public void testFromIdShouldRejectForeignIds() {
+    // given
+    var bytes = new byte[12];
+    bytes[11] = 1;
+    // when
+    // then
+    assertThatThrownBy(() -> IdLong.fromId(new Id(bytes)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
 }
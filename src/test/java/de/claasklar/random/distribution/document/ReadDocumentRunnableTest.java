@@ -0,0 +1,65 @@
+package de.claasklar.random.distribution.document;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.claasklar.database.InMemoryDatabase;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.OurDocument;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class ReadDocumentRunnableTest {
+
+  private final CollectionName collectionName = new CollectionName("test");
+  private final InMemoryDatabase database = new InMemoryDatabase();
+  private final AtomicInteger executed = new AtomicInteger();
+
+  @Test
+  public void testRunAsyncShouldReadOnExecutorAfterPendingWrite() {
+    // given
+    var pendingWrite = new CompletableFuture<Void>();
+    var testSubject = readDocumentRunnable(pendingWrite);
+    var read = testSubject.runAsync();
+    database.write(
+        collectionName, new OurDocument(new IdLong(5).toId(), Map.of()), Span.getInvalid());
+    // when
+    pendingWrite.complete(null);
+    read.join();
+    // then
+    assertThat(executed).hasValue(1);
+    assertThat(testSubject.getDocument().getId()).isEqualTo(new IdLong(5).toId());
+  }
+
+  @Test
+  public void testRunAsyncShouldReadDirectlyWithoutPendingWrite() {
+    // given
+    database.write(
+        collectionName, new OurDocument(new IdLong(5).toId(), Map.of()), Span.getInvalid());
+    var testSubject = readDocumentRunnable(CompletableFuture.completedFuture(null));
+    // when
+    testSubject.runAsync().join();
+    // then
+    assertThat(executed).hasValue(0);
+    assertThat(testSubject.wasRun()).isTrue();
+  }
+
+  private ReadDocumentRunnable readDocumentRunnable(CompletableFuture<Void> pendingWrite) {
+    return new ReadDocumentRunnable(
+        collectionName,
+        new IdLong(5),
+        Span.getInvalid(),
+        database,
+        OpenTelemetry.noop().getTracer("test"),
+        pendingWrite,
+        null,
+        runnable -> {
+          executed.incrementAndGet();
+          runnable.run();
+        });
+  }
+}
@@ -0,0 +1,70 @@
+package de.claasklar.random.distribution.document;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import de.claasklar.database.Database;
+import de.claasklar.idStore.ClaimState;
+import de.claasklar.idStore.ConcurrentInMemoryIdStore;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.random.distribution.DistributionProperties;
+import de.claasklar.random.distribution.id.IdDistribution;
+import de.claasklar.specification.DocumentGenerationSpecificationRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class SimpleDocumentDistributionTest {
+
+  private final CollectionName collectionName = new CollectionName("test");
+  private final ConcurrentInMemoryIdStore idStore = new ConcurrentInMemoryIdStore();
+  private final SimpleDocumentDistribution testSubject =
+      new SimpleDocumentDistribution(
+          collectionName,
+          constantId(5),
+          idStore,
+          mock(Database.class),
+          new DocumentGenerationSpecificationRegistry(),
+          OpenTelemetry.noop().getTracer("test"));
+
+  @Test
+  public void testFailedWriteShouldReleaseClaimAndFailWaiters() {
+    // given
+    var write = testSubject.next(Span.getInvalid());
+    var read = (ReadDocumentRunnable) testSubject.next(Span.getInvalid());
+    // when
+    assertThatThrownBy(write::run).isInstanceOf(IllegalStateException.class);
+    // then
+    assertThat(write).isInstanceOf(WriteDocumentRunnable.class);
+    assertThat(read.getPendingWrite()).isCompletedExceptionally();
+    assertThat(idStore.tryClaim(collectionName, 5)).isEqualTo(ClaimState.CLAIMED);
+  }
+
+  @Test
+  public void testPendingReadShouldWaitBoundedForTheWrite() {
+    // given
+    testSubject.next(Span.getInvalid());
+    // when
+    var read = (ReadDocumentRunnable) testSubject.next(Span.getInvalid());
+    // then
+    assertThat(read.getPendingWrite()).isNotSameAs(idStore.whenStored(collectionName, 5));
+    idStore.store(collectionName, 5);
+    assertThat(read.getPendingWrite()).isCompleted();
+  }
+
+  private static IdDistribution constantId(long id) {
+    return new IdDistribution() {
+      @Override
+      public long nextAsLong() {
+        return id;
+      }
+
+      @Override
+      public List<DistributionProperties> distributionProperties() {
+        return List.of(DistributionProperties.REPEATABLE);
+      }
+    };
+  }
+}
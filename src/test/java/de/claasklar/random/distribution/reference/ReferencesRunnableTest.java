@@ -0,0 +1,94 @@
+package de.claasklar.random.distribution.reference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.claasklar.database.Database;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.primitives.document.OurDocument;
+import de.claasklar.random.distribution.document.DocumentRunnable;
+import de.claasklar.random.distribution.document.NoSuchDocumentException;
+import de.claasklar.random.distribution.document.ReadDocumentRunnable;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+public class ReferencesRunnableTest {
+
+  private final CollectionName collectionName = new CollectionName("test");
+  private final Database database = mock(Database.class);
+
+  @Test
+  public void testRunShouldReadAllDocumentsAtOnce() {
+    // given
+    var first = new OurDocument(new IdLong(1).toId(), Map.of());
+    var second = new OurDocument(new IdLong(2).toId(), Map.of());
+    when(database.readMany(eq(collectionName), any(), eq(Set.of("_id")), any()))
+        .thenReturn(Map.of(first.getId(), first, second.getId(), second));
+    var testSubject = new ReferencesRunnable(runnables(2, 1, 2), null, true);
+    // when
+    testSubject.run();
+    // then
+    assertThat(testSubject.getDocuments()).containsExactly(second, first, second);
+    verify(database, times(1))
+        .readMany(eq(collectionName), eq(List.of(second.getId(), first.getId())), any(), any());
+    verify(database, never()).read(any(), any(), any(), any());
+  }
+
+  @Test
+  public void testRunShouldThrowForMissingDocument() {
+    // given
+    when(database.readMany(eq(collectionName), any(), any(), any())).thenReturn(Map.of());
+    var testSubject = new ReferencesRunnable(runnables(1), null, true);
+    // when then
+    assertThatThrownBy(testSubject::run).hasCauseInstanceOf(NoSuchDocumentException.class);
+  }
+
+  @Test
+  public void testRunShouldReadDocumentsOneByOneWithoutBatching() {
+    // given
+    var document = new OurDocument(new IdLong(1).toId(), Map.of());
+    when(database.read(eq(collectionName), eq(document.getId()), any(), any()))
+        .thenReturn(Optional.of(document));
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      var testSubject = new ReferencesRunnable(runnables(1, 1), executor, false);
+      // when
+      testSubject.run();
+      // then
+      assertThat(testSubject.getDocuments()).containsExactly(document, document);
+      verify(database, times(2)).read(any(), any(), any(), any());
+      verify(database, never()).readMany(any(), any(), any(), any());
+    }
+  }
+
+  private DocumentRunnable[] runnables(long... ids) {
+    var tracer = OpenTelemetry.noop().getTracer("test");
+    var runnables = new DocumentRunnable[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      runnables[i] =
+          new ReadDocumentRunnable(
+              collectionName,
+              new IdLong(ids[i]),
+              Span.getInvalid(),
+              database,
+              tracer,
+              CompletableFuture.completedFuture(null),
+              Set.of("_id"));
+    }
+    return runnables;
+  }
+}
@@ -0,0 +1,82 @@
+package de.claasklar.specification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import de.claasklar.database.Database;
+import de.claasklar.generation.ContextDocumentGeneratorBuilder;
+import de.claasklar.idStore.ConcurrentInMemoryIdStore;
+import de.claasklar.idStore.IdStoreSnapshot;
+import de.claasklar.latency.LatencyRecorder;
+import de.claasklar.primitives.CollectionName;
+import de.claasklar.primitives.document.IdLong;
+import de.claasklar.random.distribution.reference.ReferencesDistribution;
+import io.opentelemetry.api.OpenTelemetry;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PrimaryWriteSpecificationTest {
+
+  @TempDir private Path directory;
+
+  private final CollectionName collectionName = new CollectionName("orders");
+  private final Database database = mock(Database.class);
+
+  @Test
+  public void testRunnableShouldWriteIdAfterRestoredIds() {
+    // given
+    var loaded = new ConcurrentInMemoryIdStore();
+    for (long i = 1; i <= 100; i++) {
+      loaded.store(collectionName, i);
+    }
+    var file = directory.resolve("ids.snapshot");
+    new IdStoreSnapshot(file, loaded, List.of(collectionName)).write();
+    var idStore = new ConcurrentInMemoryIdStore();
+    var testSubject = primaryWriteSpecification(idStore);
+    new IdStoreSnapshot(file, idStore, List.of(), (name, id) -> testSubject.continueAfter(id))
+        .restore();
+    // when
+    testSubject.runnable().run();
+    // then
+    verify(database)
+        .write(eq(collectionName), argThat(it -> it.getId().equals(new IdLong(101).toId())), any());
+    assertThat(idStore.count(collectionName)).isEqualTo(101);
+  }
+
+  @Test
+  public void testContinueAfterShouldNotGoBack() {
+    // given
+    var idStore = new ConcurrentInMemoryIdStore();
+    var testSubject = primaryWriteSpecification(idStore);
+    testSubject.continueAfter(100);
+    // when
+    testSubject.continueAfter(50);
+    testSubject.runnable().run();
+    // then
+    assertThat(idStore.exists(collectionName, 101)).isTrue();
+  }
+
+  private PrimaryWriteSpecification primaryWriteSpecification(ConcurrentInMemoryIdStore idStore) {
+    var openTelemetry = OpenTelemetry.noop();
+    return new PrimaryWriteSpecification(
+        collectionName,
+        0,
+        new ReferencesDistribution[0],
+        ContextDocumentGeneratorBuilder.builder().build(),
+        database,
+        Executors.newSingleThreadExecutor(),
+        openTelemetry.getMeter("test").histogramBuilder("test").ofLongs().build(),
+        new LatencyRecorder(),
+        idStore,
+        openTelemetry.getTracer("test"),
+        Clock.systemUTC());
+  }
+}